@@ -0,0 +1,63 @@
+package com.example.filetoolbenchmark;
+
+import com.example.filetoolbenchmark.support.SyntheticData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调数据序列化基准测试
+ * 按 HttpClientUtil.sendCallback 的报文结构序列化一批数据
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallbackSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({"5", "50"})
+    private int columns;
+
+    @Param({"ASCII", "MIXED"})
+    private SyntheticData.Charset charset;
+
+    private ObjectMapper objectMapper;
+
+    private List<Map<String, Object>> dataRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        dataRows = new SyntheticData(batchSize, columns, 16, charset).getDataRows();
+    }
+
+    @Benchmark
+    public byte[] serializeCallback() throws JsonProcessingException {
+        Map<String, Object> callbackData = new HashMap<>();
+        callbackData.put("taskId", 1L);
+        callbackData.put("status", "PROCESSING");
+        callbackData.put("data", dataRows);
+        return objectMapper.writeValueAsBytes(callbackData);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.filetoolbenchmark;
+
+import com.example.filetool.util.ExcelProcessUtil;
+import com.example.filetool.util.ExcelWriteOptions;
+import com.example.filetoolbenchmark.support.BenchmarkContext;
+import com.example.filetoolbenchmark.support.SyntheticData;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XLSX流式写入参数基准测试
+ * 对比行访问窗口、共享字符串表和临时文件压缩对写入耗时与内存分配的影响，
+ * 生成的文件大小作为辅助计数器 fileBytes 与耗时一起输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ExcelWriteBenchmark {
+
+    @Param({"50000"})
+    private int rows;
+
+    @Param({"20"})
+    private int columns;
+
+    @Param({"100", "1000"})
+    private int rowAccessWindow;
+
+    @Param({"false", "true"})
+    private boolean sharedStrings;
+
+    @Param({"false", "true"})
+    private boolean compressTempFiles;
+
+    private BenchmarkContext context;
+
+    private ExcelProcessUtil excelProcessUtil;
+
+    private SyntheticData data;
+
+    private ExcelWriteOptions writeOptions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        excelProcessUtil = context.getBean(ExcelProcessUtil.class);
+        data = new SyntheticData(rows, columns, 16, SyntheticData.Charset.MIXED);
+
+        writeOptions = new ExcelWriteOptions();
+        writeOptions.setRowAccessWindow(rowAccessWindow);
+        writeOptions.setSharedStrings(sharedStrings);
+        writeOptions.setCompressTempFiles(compressTempFiles);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] write(FileSize fileSize) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelProcessUtil.writeExcel(outputStream, data.headerMap(), data.indexedProvider(), 1000, writeOptions);
+        byte[] file = outputStream.toByteArray();
+        fileSize.fileBytes = file.length;
+        return file;
+    }
+
+    /**
+     * 生成的文件大小（字节），每次写入的数据相同，取最后一次写入的大小
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSize {
+
+        public long fileBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            fileBytes = 0;
+        }
+    }
+}
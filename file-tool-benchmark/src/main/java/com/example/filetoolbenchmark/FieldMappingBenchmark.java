@@ -0,0 +1,70 @@
+package com.example.filetoolbenchmark;
+
+import com.example.filetool.parser.FieldMappingResolver;
+import com.example.filetoolbenchmark.support.BenchmarkContext;
+import com.example.filetoolbenchmark.support.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字段映射解析基准测试
+ * 每个解析器在解析和生成时都会解析一次字段映射JSON
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldMappingBenchmark {
+
+    @Param({"5", "50", "200"})
+    private int columns;
+
+    private BenchmarkContext context;
+
+    private FieldMappingResolver fieldMappingResolver;
+
+    private String fieldMapping;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        fieldMappingResolver = context.getBean(FieldMappingResolver.class);
+        fieldMapping = new SyntheticData(0, columns, 0, SyntheticData.Charset.ASCII).fieldMapping();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<Integer, String> resolveColumnFields() {
+        return fieldMappingResolver.resolveColumnFields(fieldMapping);
+    }
+
+    @Benchmark
+    public Map<String, Integer> resolveFieldColumns() {
+        return fieldMappingResolver.resolveFieldColumns(fieldMapping);
+    }
+
+    @Benchmark
+    public Map<Integer, String> resolveHeaders() {
+        return fieldMappingResolver.resolveHeaders(fieldMapping);
+    }
+}
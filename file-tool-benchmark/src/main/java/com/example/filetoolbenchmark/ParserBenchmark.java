@@ -0,0 +1,123 @@
+package com.example.filetoolbenchmark;
+
+import com.example.filetool.parser.impl.CsvFileParser;
+import com.example.filetool.parser.impl.ExcelFileParser;
+import com.example.filetool.util.ExcelProcessUtil;
+import com.example.filetoolbenchmark.support.BenchmarkContext;
+import com.example.filetoolbenchmark.support.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件解析器基准测试
+ * 覆盖 CsvFileParser、ExcelFileParser 的解析与生成，以及 ExcelProcessUtil 的读写
+ * 吞吐量按每次操作（整个文件）计，行吞吐量 = 行数 × ops/s
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1000", "20000"})
+    private int rows;
+
+    @Param({"5", "50"})
+    private int columns;
+
+    @Param({"16"})
+    private int cellWidth;
+
+    @Param({"ASCII", "CJK", "MIXED"})
+    private SyntheticData.Charset charset;
+
+    private BenchmarkContext context;
+
+    private CsvFileParser csvFileParser;
+
+    private ExcelFileParser excelFileParser;
+
+    private ExcelProcessUtil excelProcessUtil;
+
+    private SyntheticData data;
+
+    private String fieldMapping;
+
+    private byte[] csvBytes;
+
+    private byte[] xlsxBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        csvFileParser = context.getBean(CsvFileParser.class);
+        excelFileParser = context.getBean(ExcelFileParser.class);
+        excelProcessUtil = context.getBean(ExcelProcessUtil.class);
+
+        data = new SyntheticData(rows, columns, cellWidth, charset);
+        fieldMapping = data.fieldMapping();
+        csvBytes = data.toCsv();
+        xlsxBytes = data.toXlsx(excelProcessUtil);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int csvParse(Blackhole blackhole) {
+        return csvFileParser.parseFile(new ByteArrayInputStream(csvBytes), fieldMapping, blackhole::consume);
+    }
+
+    @Benchmark
+    public InputStream csvGenerate() {
+        return csvFileParser.generateFile(data.dataProvider(), fieldMapping);
+    }
+
+    @Benchmark
+    public int excelParse(Blackhole blackhole) {
+        return excelFileParser.parseFile(new ByteArrayInputStream(xlsxBytes), fieldMapping, blackhole::consume);
+    }
+
+    @Benchmark
+    public InputStream excelGenerate() {
+        return excelFileParser.generateFile(data.dataProvider(), fieldMapping);
+    }
+
+    @Benchmark
+    public int excelRead(Blackhole blackhole) {
+        return excelProcessUtil.readExcel(new ByteArrayInputStream(xlsxBytes), blackhole::consume);
+    }
+
+    @Benchmark
+    public int excelReadProjected(Blackhole blackhole) {
+        // 只读取前3列，对比宽表上按列裁剪的收益
+        return excelProcessUtil.readExcel(new ByteArrayInputStream(xlsxBytes), Set.of(0, 1, 2), blackhole::consume,
+                1000);
+    }
+
+    @Benchmark
+    public byte[] excelWrite() {
+        return data.toXlsx(excelProcessUtil);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.filetoolbenchmark.support;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.parser.FieldMappingResolver;
+import com.example.filetool.parser.impl.CsvFileParser;
+import com.example.filetool.parser.impl.ExcelFileParser;
+import com.example.filetool.util.ExcelProcessUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 基准测试使用的最小Spring上下文
+ * 只装配解析相关的组件，不启动Web、数据库等基础设施
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context;
+
+    public BenchmarkContext() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(ObjectMapper.class, () -> new ObjectMapper());
+        context.registerBean(MeterRegistry.class, () -> new SimpleMeterRegistry());
+        context.registerBean("sheetParseExecutor", Executor.class, () -> Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "sheet-parse");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        context.registerBean(FileToolMetrics.class);
+        context.registerBean(FieldMappingResolver.class);
+        context.registerBean(ExcelProcessUtil.class);
+        context.registerBean(CsvFileParser.class);
+        context.registerBean(ExcelFileParser.class);
+        context.refresh();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.filetoolbenchmark.support;
+
+import com.example.filetool.parser.FileParser;
+import com.example.filetool.util.ExcelProcessUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 合成测试数据
+ * 按行数、列数、单元格宽度和字符集生成确定性的行数据、字段映射、CSV和XLSX文件
+ */
+public class SyntheticData {
+
+    /**
+     * 字符集类型
+     */
+    public enum Charset {
+        /**
+         * 纯ASCII字母数字
+         */
+        ASCII,
+        /**
+         * 中文汉字
+         */
+        CJK,
+        /**
+         * 混合：ASCII、带重音的拉丁字母、汉字、emoji（代理对），以及需要CSV转义的逗号和引号
+         */
+        MIXED
+    }
+
+    private static final String ASCII_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final String LATIN_CHARS = "àáâäçèéêëìíîïñòóôöùúûü";
+
+    private static final String CSV_SPECIAL_CHARS = ",\" ";
+
+    private final int rows;
+
+    private final int columns;
+
+    private final int cellWidth;
+
+    private final Charset charset;
+
+    private final List<Map<String, Object>> dataRows;
+
+    private List<Map<Integer, Object>> indexedRows;
+
+    public SyntheticData(int rows, int columns, int cellWidth, Charset charset) {
+        this.rows = rows;
+        this.columns = columns;
+        this.cellWidth = cellWidth;
+        this.charset = charset;
+        this.dataRows = generateRows();
+    }
+
+    /**
+     * 以字段名为键的行数据，即业务系统返回的数据形态
+     */
+    public List<Map<String, Object>> getDataRows() {
+        return dataRows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * 字段名
+     */
+    public static String fieldName(int column) {
+        return "field" + column;
+    }
+
+    /**
+     * 生成字段映射JSON，映射全部列
+     */
+    public String fieldMapping() {
+        return fieldMapping(columns);
+    }
+
+    /**
+     * 生成字段映射JSON，只映射前mappedColumns列
+     */
+    public String fieldMapping(int mappedColumns) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < mappedColumns; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(i).append("\":{\"field\":\"").append(fieldName(i))
+                    .append("\",\"label\":\"列").append(i).append("\"}");
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 表头映射（列索引 -> 表头名称）
+     */
+    public Map<Integer, String> headerMap() {
+        Map<Integer, String> headerMap = new HashMap<>();
+        for (int i = 0; i < columns; i++) {
+            headerMap.put(i, "列" + i);
+        }
+        return headerMap;
+    }
+
+    /**
+     * 以列索引为键的行数据，即ExcelProcessUtil写入的数据形态
+     */
+    public List<Map<Integer, Object>> indexedRows() {
+        if (indexedRows != null) {
+            return indexedRows;
+        }
+        List<Map<Integer, Object>> result = new ArrayList<>(rows);
+        for (Map<String, Object> dataRow : dataRows) {
+            Map<Integer, Object> row = new HashMap<>();
+            for (int i = 0; i < columns; i++) {
+                row.put(i, dataRow.get(fieldName(i)));
+            }
+            result.add(row);
+        }
+        indexedRows = result;
+        return result;
+    }
+
+    /**
+     * 生成CSV文件内容（含表头）
+     */
+    public byte[] toCsv() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write("列" + i);
+            }
+            writer.write('\n');
+            for (Map<String, Object> dataRow : dataRows) {
+                for (int i = 0; i < columns; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(quote(String.valueOf(dataRow.get(fieldName(i)))));
+                }
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 使用ExcelProcessUtil生成XLSX文件内容（含表头）
+     */
+    public byte[] toXlsx(ExcelProcessUtil excelProcessUtil) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelProcessUtil.writeExcel(outputStream, headerMap(), indexedProvider());
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 按批次回放以列索引为键的行数据的ExcelProcessUtil数据提供者，每次调用需新建
+     */
+    public ExcelProcessUtil.DataProvider<Map<Integer, Object>> indexedProvider() {
+        return new ReplayProvider<>(indexedRows());
+    }
+
+    /**
+     * 按批次回放数据的FileParser数据提供者，每次调用需新建
+     */
+    public FileParser.DataProvider dataProvider() {
+        ReplayProvider<Map<String, Object>> provider = new ReplayProvider<>(dataRows);
+        return provider::provide;
+    }
+
+    private List<Map<String, Object>> generateRows() {
+        Random random = new Random(42L + rows * 31L + columns * 17L + charset.ordinal());
+        List<Map<String, Object>> result = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int c = 0; c < columns; c++) {
+                row.put(fieldName(c), randomText(random));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private String randomText(Random random) {
+        StringBuilder sb = new StringBuilder(cellWidth * 2);
+        for (int i = 0; i < cellWidth; i++) {
+            switch (charset) {
+                case ASCII:
+                    sb.append(ASCII_CHARS.charAt(random.nextInt(ASCII_CHARS.length())));
+                    break;
+                case CJK:
+                    sb.append((char) (0x4E00 + random.nextInt(0x9FA5 - 0x4E00)));
+                    break;
+                default:
+                    int kind = random.nextInt(10);
+                    if (kind < 4) {
+                        sb.append(ASCII_CHARS.charAt(random.nextInt(ASCII_CHARS.length())));
+                    } else if (kind < 6) {
+                        sb.append(LATIN_CHARS.charAt(random.nextInt(LATIN_CHARS.length())));
+                    } else if (kind < 8) {
+                        sb.append((char) (0x4E00 + random.nextInt(0x9FA5 - 0x4E00)));
+                    } else if (kind < 9) {
+                        sb.appendCodePoint(0x1F600 + random.nextInt(0x4F));
+                    } else {
+                        sb.append(CSV_SPECIAL_CHARS.charAt(random.nextInt(CSV_SPECIAL_CHARS.length())));
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * 按批次回放列表数据
+     */
+    private static class ReplayProvider<T> implements ExcelProcessUtil.DataProvider<T> {
+
+        private final List<T> source;
+
+        private int offset;
+
+        ReplayProvider(List<T> source) {
+            this.source = source;
+        }
+
+        @Override
+        public List<T> provide(int batchSize) {
+            int end = Math.min(offset + batchSize, source.size());
+            List<T> batch = new ArrayList<>(source.subList(offset, end));
+            offset = end;
+            return batch;
+        }
+    }
+}
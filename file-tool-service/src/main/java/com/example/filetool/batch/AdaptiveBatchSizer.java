@@ -0,0 +1,160 @@
+package com.example.filetool.batch;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 自适应批次大小
+ * 每个任务一个实例，批次行数同时受两方面约束：
+ * 1. 字节预算：按观测到的每行字节数（指数加权平均）换算出行数上限，宽行自动使用小批次，窄行使用大批次；
+ * 2. AIMD：请求在目标延迟内成功时批次加性增大，超时或失败时减半。
+ * 可在多个交付线程中共用
+ */
+public class AdaptiveBatchSizer {
+
+    /**
+     * 每行字节数的平滑系数
+     */
+    private static final double BYTES_ALPHA = 0.2;
+
+    /**
+     * 估算每批字节数时最多采样的行数
+     */
+    private static final int SAMPLE_ROWS = 8;
+
+    /**
+     * 估算JSON时每个字段的固定开销（引号、冒号、逗号）
+     */
+    private static final int FIELD_OVERHEAD = 6;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long maxBytes;
+
+    private final long targetLatencyMs;
+
+    private final boolean adaptive;
+
+    /**
+     * 加性增大的步长
+     */
+    private final int step;
+
+    private int currentSize;
+
+    /**
+     * 平均每行字节数，尚无观测时为0
+     */
+    private double bytesPerRow;
+
+    public AdaptiveBatchSizer(int initialSize, int minSize, int maxSize, long maxBytes, long targetLatencyMs,
+                              boolean adaptive) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+        this.targetLatencyMs = targetLatencyMs;
+        this.adaptive = adaptive;
+        this.step = Math.max(1, initialSize / 10);
+        this.currentSize = adaptive ? clamp(initialSize, minSize, maxSize) : initialSize;
+    }
+
+    /**
+     * 下一批的行数
+     */
+    public synchronized int nextSize() {
+        if (!adaptive) {
+            return currentSize;
+        }
+        return Math.min(currentSize, byteLimit());
+    }
+
+    /**
+     * 记录一批请求的结果
+     *
+     * @param rows          行数
+     * @param bytes         请求或响应的字节数，未知时传0
+     * @param latencyMillis 请求耗时（毫秒）
+     * @param success       是否成功
+     */
+    public synchronized void record(int rows, long bytes, long latencyMillis, boolean success) {
+        if (rows > 0 && bytes > 0) {
+            observeBytesPerRow((double) bytes / rows);
+        }
+        if (!adaptive) {
+            return;
+        }
+        if (!success || latencyMillis > targetLatencyMs) {
+            // 乘性减小（从实际生效的批次大小减半）
+            currentSize = Math.max(minSize, Math.min(currentSize, byteLimit()) / 2);
+        } else if (rows >= currentSize || rows >= byteLimit()) {
+            // 只有批次填满时才加性增大，避免最后一批等不满的批次把大小推高
+            currentSize = Math.min(Math.min(maxSize, byteLimit()), currentSize + step);
+        }
+    }
+
+    /**
+     * 采样估算一批行数据序列化为JSON后的字节数，并计入每行字节数
+     *
+     * @param rows 行数据
+     * @return 估算的字节数
+     */
+    public long estimateBytes(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int stride = Math.max(1, rows.size() / SAMPLE_ROWS);
+        long sampled = 0;
+        int samples = 0;
+        for (int i = 0; i < rows.size() && samples < SAMPLE_ROWS; i += stride) {
+            sampled += estimateRowBytes(rows.get(i));
+            samples++;
+        }
+        double perRow = (double) sampled / samples;
+        synchronized (this) {
+            observeBytesPerRow(perRow);
+        }
+        return (long) (perRow * rows.size());
+    }
+
+    /**
+     * 当前批次行数（不含字节预算限制），用于日志和监控
+     */
+    public synchronized int getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * 平均每行字节数
+     */
+    public synchronized double getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    private int byteLimit() {
+        if (bytesPerRow <= 0) {
+            return maxSize;
+        }
+        long rows = (long) (maxBytes / bytesPerRow);
+        return (int) Math.max(minSize, Math.min(maxSize, rows));
+    }
+
+    private void observeBytesPerRow(double sample) {
+        bytesPerRow = bytesPerRow <= 0 ? sample : bytesPerRow + BYTES_ALPHA * (sample - bytesPerRow);
+    }
+
+    private static long estimateRowBytes(Map<String, Object> row) {
+        long bytes = 2;
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            bytes += entry.getKey().length() + FIELD_OVERHEAD;
+            Object value = entry.getValue();
+            bytes += value == null ? 4 : String.valueOf(value).length();
+        }
+        return bytes;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.filetool.batch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批次大小工厂
+ * 合并任务参数和全局配置 file.task.batch.*，为每个任务创建AdaptiveBatchSizer
+ */
+@Component
+public class BatchSizerFactory {
+
+    /**
+     * 默认初始批次行数
+     */
+    @Value("${file.task.batch.initial-size:1000}")
+    private int defaultInitialSize;
+
+    /**
+     * 自适应时的最小批次行数
+     */
+    @Value("${file.task.batch.min-size:50}")
+    private int minSize;
+
+    /**
+     * 自适应时的最大批次行数
+     */
+    @Value("${file.task.batch.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 默认每批字节预算
+     */
+    @Value("${file.task.batch.max-bytes:1048576}")
+    private long defaultMaxBytes;
+
+    /**
+     * 默认目标延迟（毫秒）
+     */
+    @Value("${file.task.batch.target-latency-ms:2000}")
+    private long defaultTargetLatencyMs;
+
+    /**
+     * 默认是否自适应
+     */
+    @Value("${file.task.batch.adaptive:true}")
+    private boolean defaultAdaptive;
+
+    /**
+     * 合并任务参数和全局配置
+     *
+     * @param options 任务参数，可为null
+     * @return 完整的批次参数
+     */
+    public BatchSizingOptions resolve(BatchSizingOptions options) {
+        BatchSizingOptions resolved = new BatchSizingOptions();
+        resolved.setBatchSize(defaultInitialSize);
+        resolved.setMaxBytes(defaultMaxBytes);
+        resolved.setTargetLatencyMs(defaultTargetLatencyMs);
+        resolved.setAdaptive(defaultAdaptive);
+        if (options != null) {
+            if (options.getBatchSize() != null) {
+                resolved.setBatchSize(options.getBatchSize());
+            }
+            if (options.getMaxBytes() != null) {
+                resolved.setMaxBytes(options.getMaxBytes());
+            }
+            if (options.getTargetLatencyMs() != null) {
+                resolved.setTargetLatencyMs(options.getTargetLatencyMs());
+            }
+            if (options.getAdaptive() != null) {
+                resolved.setAdaptive(options.getAdaptive());
+            }
+        }
+        if (resolved.getBatchSize() < 1) {
+            throw new IllegalArgumentException("批次行数必须大于0：" + resolved.getBatchSize());
+        }
+        if (resolved.getMaxBytes() < 1) {
+            throw new IllegalArgumentException("批次字节预算必须大于0：" + resolved.getMaxBytes());
+        }
+        if (resolved.getTargetLatencyMs() < 1) {
+            throw new IllegalArgumentException("目标延迟必须大于0：" + resolved.getTargetLatencyMs());
+        }
+        return resolved;
+    }
+
+    /**
+     * 为任务创建批次大小控制器
+     *
+     * @param options 任务参数，可为null
+     * @return 批次大小控制器
+     */
+    public AdaptiveBatchSizer create(BatchSizingOptions options) {
+        BatchSizingOptions resolved = resolve(options);
+        return new AdaptiveBatchSizer(resolved.getBatchSize(), minSize, maxSize, resolved.getMaxBytes(),
+                resolved.getTargetLatencyMs(), resolved.getAdaptive());
+    }
+}
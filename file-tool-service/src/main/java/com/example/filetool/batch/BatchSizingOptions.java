@@ -0,0 +1,31 @@
+package com.example.filetool.batch;
+
+import lombok.Data;
+
+/**
+ * 批次大小参数
+ * 控制上传回调和导出取数每批的行数，未设置的参数使用全局配置 file.task.batch.*
+ */
+@Data
+public class BatchSizingOptions {
+
+    /**
+     * 初始批次行数；关闭自适应时为固定批次行数
+     */
+    private Integer batchSize;
+
+    /**
+     * 每批数据的字节预算，按估算的每行字节数限制批次行数
+     */
+    private Long maxBytes;
+
+    /**
+     * 目标延迟（毫秒）：请求耗时超过该值或失败时批次减半，否则逐步增大
+     */
+    private Long targetLatencyMs;
+
+    /**
+     * 是否根据请求耗时和错误自适应调整批次行数
+     */
+    private Boolean adaptive;
+}
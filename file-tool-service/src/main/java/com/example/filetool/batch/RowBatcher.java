@@ -0,0 +1,60 @@
+package com.example.filetool.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按自适应批次大小重新分批
+ * 解析得到的批次按固定行数读取，回调前在这里合并或拆分为AdaptiveBatchSizer给出的行数，
+ * 不足一批的行留到下一次，全部数据结束后通过flush取出。可在多个交付线程中共用
+ */
+public class RowBatcher {
+
+    private final AdaptiveBatchSizer sizer;
+
+    private List<Map<String, Object>> pending = new ArrayList<>();
+
+    public RowBatcher(AdaptiveBatchSizer sizer) {
+        this.sizer = sizer;
+    }
+
+    /**
+     * 加入一批数据，返回已凑满的批次
+     *
+     * @param rows 行数据
+     * @return 可以回调的批次，可能为空
+     */
+    public synchronized List<List<Map<String, Object>>> add(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 先按新数据更新每行字节数，使本次分批就受字节预算约束
+        sizer.estimateBytes(rows);
+        pending.addAll(rows);
+
+        List<List<Map<String, Object>>> ready = new ArrayList<>();
+        int offset = 0;
+        int size;
+        while (pending.size() - offset >= (size = sizer.nextSize())) {
+            ready.add(new ArrayList<>(pending.subList(offset, offset + size)));
+            offset += size;
+        }
+        if (offset > 0) {
+            pending = new ArrayList<>(pending.subList(offset, pending.size()));
+        }
+        return ready;
+    }
+
+    /**
+     * 取出剩余不足一批的数据
+     *
+     * @return 剩余数据，可能为空
+     */
+    public synchronized List<Map<String, Object>> flush() {
+        List<Map<String, Object>> rest = pending;
+        pending = new ArrayList<>();
+        return rest;
+    }
+}
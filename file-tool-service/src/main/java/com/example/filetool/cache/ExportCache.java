@@ -0,0 +1,169 @@
+package com.example.filetool.cache;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.repository.FileTaskRepository;
+import com.example.filetool.util.FileStorageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 导出结果缓存
+ * 缓存键为取数地址、取数参数和字段映射的SHA-256摘要，完全相同的导出共用一个已生成的文件：
+ * 1. 缓存条目就是已完成的导出任务本身（file_task.cache_key/cache_time），命中时新任务直接指向该任务的文件，可跨节点共用；
+ * 2. 同一节点上相同的导出正在生成时，后来的任务等待其结果而不重复生成（single-flight）；
+ * 3. 失效时清除该键下所有任务的缓存键，正在生成的结果也不再作为缓存。
+ */
+@Slf4j
+@Component
+public class ExportCache {
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    /**
+     * 默认可接受的缓存时长（秒）
+     */
+    @Value("${file.export.cache.ttl-seconds:3600}")
+    private long defaultTtlSeconds;
+
+    /**
+     * 本节点正在生成的导出，键为缓存键
+     */
+    private final ConcurrentMap<String, CompletableFuture<FileTask>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 计算缓存键
+     *
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数
+     * @param fieldMapping   字段映射
+     * @return 缓存键（64位十六进制）
+     */
+    public String keyOf(String callbackUrl, String callbackParams, String fieldMapping) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{callbackUrl, callbackParams, fieldMapping}) {
+                if (part != null) {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                // 分隔符，避免不同的参数拼接后相同
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 解析可接受的缓存时长
+     *
+     * @param ttlSeconds 任务指定的缓存时长（秒），为空时使用全局配置
+     * @return 缓存时长（秒）
+     */
+    public long resolveTtlSeconds(Long ttlSeconds) {
+        if (ttlSeconds == null) {
+            return defaultTtlSeconds;
+        }
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("缓存时长必须大于0：" + ttlSeconds);
+        }
+        return ttlSeconds;
+    }
+
+    /**
+     * 查找未过期且文件仍存在的缓存
+     *
+     * @param cacheKey   缓存键
+     * @param ttlSeconds 可接受的缓存时长（秒），为空时使用全局配置
+     * @return 生成该文件的任务，未命中时为null
+     */
+    public FileTask lookup(String cacheKey, Long ttlSeconds) {
+        Date after = new Date(System.currentTimeMillis() - resolveTtlSeconds(ttlSeconds) * 1000);
+        FileTask cached = fileTaskRepository.findFirstByCacheKeyAndStatusAndCacheTimeAfterOrderByCacheTimeDesc(
+                cacheKey, FileTask.TaskStatus.COMPLETED, after);
+        if (cached == null || cached.getFilePath() == null || !fileStorageUtil.exists(cached.getFilePath())) {
+            fileToolMetrics.recordExportCache("miss");
+            return null;
+        }
+        fileToolMetrics.recordExportCache("hit");
+        return cached;
+    }
+
+    /**
+     * 加入正在生成的相同导出
+     *
+     * @param cacheKey 缓存键
+     * @param flight   本任务的生成结果，没有正在生成的相同导出时由本任务生成
+     * @return 正在生成的相同导出的结果，为null表示由本任务生成
+     */
+    public CompletableFuture<FileTask> join(String cacheKey, CompletableFuture<FileTask> flight) {
+        CompletableFuture<FileTask> leader = inflight.putIfAbsent(cacheKey, flight);
+        if (leader != null) {
+            fileToolMetrics.recordExportCache("coalesced");
+        }
+        return leader;
+    }
+
+    /**
+     * 生成成功，通知等待的任务
+     * 生成期间缓存已失效时清除生成任务的缓存键，本次结果不再作为缓存
+     *
+     * @param cacheKey 缓存键
+     * @param flight   join时传入的生成结果
+     * @param task     生成文件的任务
+     * @return 结果是否仍可作为缓存
+     */
+    public boolean complete(String cacheKey, CompletableFuture<FileTask> flight, FileTask task) {
+        boolean current = inflight.remove(cacheKey, flight);
+        if (!current) {
+            task.setCacheKey(null);
+        }
+        flight.complete(task);
+        return current;
+    }
+
+    /**
+     * 生成失败，通知等待的任务
+     *
+     * @param cacheKey 缓存键
+     * @param flight   join时传入的生成结果
+     * @param error    失败原因
+     */
+    public void fail(String cacheKey, CompletableFuture<FileTask> flight, Throwable error) {
+        inflight.remove(cacheKey, flight);
+        flight.completeExceptionally(error);
+    }
+
+    /**
+     * 使缓存失效
+     * 已生成的文件在任务过期清理时删除
+     *
+     * @param cacheKey 缓存键
+     * @return 失效的任务数
+     */
+    public int invalidate(String cacheKey) {
+        inflight.remove(cacheKey);
+        int count = fileTaskRepository.clearCacheKey(cacheKey);
+        log.info("导出缓存已失效：{}，任务数：{}", cacheKey, count);
+        return count;
+    }
+}
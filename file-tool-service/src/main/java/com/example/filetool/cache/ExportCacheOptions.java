@@ -0,0 +1,20 @@
+package com.example.filetool.cache;
+
+import lombok.Data;
+
+/**
+ * 导出缓存参数
+ */
+@Data
+public class ExportCacheOptions {
+
+    /**
+     * 是否使用导出缓存，为空时不使用
+     */
+    private Boolean enabled;
+
+    /**
+     * 可接受的缓存时长（秒），只使用在该时长内生成的文件，为空时使用全局配置
+     */
+    private Long ttlSeconds;
+}
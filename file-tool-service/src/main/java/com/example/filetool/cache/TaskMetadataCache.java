@@ -0,0 +1,89 @@
+package com.example.filetool.cache;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.repository.FileTaskRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 任务元数据缓存
+ * 按任务ID缓存任务，读取时未命中才查询数据库，让处理过程（如每个分片）不必反复加载任务。
+ * 只用于读取创建后不再变化的字段（文件名、字段映射、回调地址、批次和写入参数等）以及文件路径，
+ * 状态、行数、分片计数等字段可能已过期，需要时从数据库读取。
+ * 本节点修改文件路径等字段后需调用evict；按最近使用淘汰，超过容量时淘汰最久未使用的任务
+ */
+@Component
+public class TaskMetadataCache {
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    /**
+     * 最多缓存的任务数
+     */
+    @Value("${file.task.metadata-cache.max-size:1000}")
+    private int maxSize;
+
+    private final Map<Long, FileTask> tasks = new LinkedHashMap<Long, FileTask>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FileTask> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * 获取任务，未缓存时从数据库加载
+     *
+     * @param taskId 任务ID
+     * @return 任务副本，调用方可以修改
+     */
+    public FileTask get(Long taskId) {
+        FileTask task;
+        synchronized (tasks) {
+            task = tasks.get(taskId);
+        }
+        if (task == null) {
+            task = fileTaskRepository.findById(taskId)
+                    .orElseThrow(() -> new RuntimeException("任务不存在：" + taskId));
+            put(task);
+        }
+        return copyOf(task);
+    }
+
+    /**
+     * 缓存任务，如刚创建的任务
+     *
+     * @param task 任务
+     */
+    public void put(FileTask task) {
+        if (maxSize <= 0) {
+            return;
+        }
+        FileTask copy = copyOf(task);
+        synchronized (tasks) {
+            tasks.put(copy.getId(), copy);
+        }
+    }
+
+    /**
+     * 移除任务，下次读取时重新加载
+     *
+     * @param taskId 任务ID
+     */
+    public void evict(Long taskId) {
+        synchronized (tasks) {
+            tasks.remove(taskId);
+        }
+    }
+
+    private static FileTask copyOf(FileTask task) {
+        FileTask copy = new FileTask();
+        BeanUtils.copyProperties(task, copy);
+        return copy;
+    }
+}
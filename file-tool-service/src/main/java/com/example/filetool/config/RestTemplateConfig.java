@@ -1,7 +1,9 @@
 package com.example.filetool.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -10,12 +12,27 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * 连接超时时间（毫秒）
+     */
+    @Value("${file.callback.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    /**
+     * 读取超时时间（毫秒），超时的请求按失败重试
+     */
+    @Value("${file.callback.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
     /**
      * 创建RestTemplate Bean
      * 用于HTTP请求
      */
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,10 @@
 package com.example.filetool.config;
 
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.util.BoundedExecutor;
+import com.example.filetool.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,10 +18,19 @@ import java.util.concurrent.ThreadPoolExecutor;
  * 线程池配置类
  * 用于处理文件上传下载的并发任务
  */
+@Slf4j
 @Configuration
 @EnableAsync
 public class ThreadPoolConfig {
 
+    /**
+     * 执行模式：每个任务一个虚拟线程，并发度由信号量限制
+     */
+    public static final String MODE_VIRTUAL = "virtual";
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
     /**
      * 核心线程数
      */
@@ -41,11 +55,55 @@ public class ThreadPoolConfig {
     @Value("${file.task.thread-pool.keep-alive-seconds:60}")
     private int keepAliveSeconds;
 
+    /**
+     * 执行模式：platform-固定大小的平台线程池（默认）；virtual-每个任务一个虚拟线程
+     */
+    @Value("${file.task.execution.mode:platform}")
+    private String executionMode;
+
+    /**
+     * virtual模式下同时执行的最大任务数
+     */
+    @Value("${file.task.execution.max-concurrency:1000}")
+    private int maxConcurrency;
+
+    /**
+     * 多Sheet并行解析线程数
+     */
+    @Value("${file.task.sheet-parse.pool-size:4}")
+    private int sheetParsePoolSize;
+
+    /**
+     * 同时进行的同步流式导出数
+     */
+    @Value("${file.export.stream.pool-size:8}")
+    private int exportStreamPoolSize;
+
+    /**
+     * 等待线程的同步流式导出数，超过时请求被拒绝
+     */
+    @Value("${file.export.stream.queue-capacity:16}")
+    private int exportStreamQueueCapacity;
+
     /**
      * 文件处理线程池
      */
     @Bean("fileTaskExecutor")
     public Executor fileTaskExecutor() {
+        if (isVirtualMode() && !VirtualThreads.isSupported()) {
+            log.warn("当前JVM（{}）不支持虚拟线程，virtual执行模式改用platform模式的文件处理线程池（file.task.thread-pool.*）",
+                    System.getProperty("java.version"));
+        }
+        if (useVirtualThreads()) {
+            // 任务大部分时间阻塞在HTTP和文件IO上，虚拟线程阻塞时不占用平台线程，
+            // 并发度由信号量控制，许可用完时提交方等待（与CallerRunsPolicy一样形成背压）
+            BoundedExecutor executor = new BoundedExecutor(
+                    VirtualThreads.newThreadPerTaskExecutor("file-task-"), maxConcurrency, 60);
+            fileToolMetrics.registerActive("fileTaskExecutor", executor::getActiveCount);
+            log.info("文件处理线程池使用virtual模式，最大并发任务数：{}", maxConcurrency);
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(maxPoolSize);
@@ -53,8 +111,13 @@ public class ThreadPoolConfig {
         executor.setKeepAliveSeconds(keepAliveSeconds);
         executor.setThreadNamePrefix("file-task-");
         
-        // 设置拒绝策略：当池满时，调用者线程执行任务
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 设置拒绝策略：当池满时，调用者线程执行任务，并记录拒绝次数
+        // 队列深度、活跃线程数等指标由actuator自动绑定（executor.*，name=fileTaskExecutor）
+        ThreadPoolExecutor.CallerRunsPolicy callerRunsPolicy = new ThreadPoolExecutor.CallerRunsPolicy();
+        executor.setRejectedExecutionHandler((r, e) -> {
+            fileToolMetrics.recordRejected("fileTaskExecutor");
+            callerRunsPolicy.rejectedExecution(r, e);
+        });
         
         // 等待所有任务结束后再关闭线程池
         executor.setWaitForTasksToCompleteOnShutdown(true);
@@ -64,4 +127,75 @@ public class ThreadPoolConfig {
         
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 多Sheet并行解析线程池
+     * 与文件处理线程池分开，避免任务线程等待自己提交的Sheet解析而占满线程池；
+     * 队列不设上限，Sheet解析按提交顺序执行，保证有序交付时排在前面的Sheet先被解析
+     */
+    @Bean("sheetParseExecutor")
+    public Executor sheetParseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(sheetParsePoolSize);
+        executor.setMaxPoolSize(sheetParsePoolSize);
+        executor.setThreadNamePrefix("sheet-parse-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * 导入管道线程池
+     * 每个导入任务占用若干转换线程和交付线程，直到任务结束才释放；
+     * 使用按需创建线程的线程池，避免线程不足时管道的下游阶段无法启动而使读取阶段一直等待。
+     * 线程总数受文件处理线程池大小和管道并行度约束
+     * 上传文件分流保存（边保存边解析）时的写入线程也使用此线程池
+     */
+    @Bean("pipelineExecutor")
+    public Executor pipelineExecutor() {
+        if (useVirtualThreads()) {
+            // 交付阶段阻塞在回调HTTP上，使用虚拟线程
+            return VirtualThreads.newThreadPerTaskExecutor("import-pipeline-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("import-pipeline-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * 同步流式导出线程池
+     * 只由流式导出接口使用（WebAsyncTask），不作为Spring MVC的默认异步线程池，
+     * 进度订阅（SSE）等其他异步请求不受其线程数和超时时间影响
+     */
+    @Bean("exportStreamExecutor")
+    public ThreadPoolTaskExecutor exportStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(exportStreamPoolSize);
+        executor.setMaxPoolSize(exportStreamPoolSize);
+        executor.setQueueCapacity(exportStreamQueueCapacity);
+        executor.setThreadNamePrefix("export-stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    private boolean isVirtualMode() {
+        return MODE_VIRTUAL.equalsIgnoreCase(executionMode);
+    }
+
+    /**
+     * 是否使用虚拟线程：virtual模式且当前JVM支持虚拟线程
+     * JVM不支持时如果退化为每个任务一个平台线程，max-concurrency个任务并发时会创建同样多的平台线程，
+     * 因此按platform模式使用固定大小的线程池
+     */
+    private boolean useVirtualThreads() {
+        return isVirtualMode() && VirtualThreads.isSupported();
+    }
+}
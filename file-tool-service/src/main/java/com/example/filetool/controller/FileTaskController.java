@@ -1,18 +1,39 @@
 package com.example.filetool.controller;
 
+import com.example.filetool.batch.BatchSizingOptions;
+import com.example.filetool.cache.ExportCacheOptions;
 import com.example.filetool.entity.FileTask;
+import com.example.filetool.progress.TaskProgress;
+import com.example.filetool.scheduler.SchedulingOptions;
+import com.example.filetool.scheduler.TaskDispatcher;
+import com.example.filetool.service.ExportTaskSpec;
 import com.example.filetool.service.FileTaskService;
+import com.example.filetool.service.TaskPage;
+import com.example.filetool.service.TaskQuery;
+import com.example.filetool.service.TaskSubmission;
+import com.example.filetool.util.ExcelWriteOptions;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,6 +48,22 @@ public class FileTaskController {
     @Autowired
     private FileTaskService fileTaskService;
 
+    @Autowired
+    private TaskDispatcher taskDispatcher;
+
+    /**
+     * 同步流式导出线程池，只用于流式导出，不影响其他异步请求
+     */
+    @Autowired
+    @Qualifier("exportStreamExecutor")
+    private AsyncTaskExecutor exportStreamExecutor;
+
+    /**
+     * 同步流式导出的最长时间（毫秒）
+     */
+    @Value("${file.export.stream.timeout-ms:600000}")
+    private long exportStreamTimeoutMs;
+
     /**
      * 创建文件上传任务
      *
@@ -35,6 +72,13 @@ public class FileTaskController {
      * @param fieldMapping 字段映射（JSON格式）
      * @param callbackUrl  回调URL
      * @param callbackParams 回调参数
+     * @param sheets       要导入的Sheet（Excel）：*表示全部，或以逗号分隔的Sheet序号/名称，为空时只导入第一个Sheet
+     * @param sheetOrdered 多Sheet导入时是否按Sheet顺序回调，默认true
+     * @param batchSize            每次回调的初始行数
+     * @param batchMaxBytes        每次回调的字节预算
+     * @param batchTargetLatencyMs 每次回调的目标延迟（毫秒）
+     * @param batchAdaptive        是否自动调整回调批次大小
+     * @param estimatedRows        预计行数，用于Excel按行范围拆分分片，为空时按文件大小估算
      * @return 任务信息
      */
     @PostMapping("/upload")
@@ -43,26 +87,37 @@ public class FileTaskController {
             @RequestParam("taskName") String taskName,
             @RequestParam(value = "fieldMapping", required = false) String fieldMapping,
             @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
-            @RequestParam(value = "callbackParams", required = false) String callbackParams) {
+            @RequestParam(value = "callbackParams", required = false) String callbackParams,
+            @RequestParam(value = "sheets", required = false) String sheets,
+            @RequestParam(value = "sheetOrdered", defaultValue = "true") Boolean sheetOrdered,
+            @RequestParam(value = "batchSize", required = false) Integer batchSize,
+            @RequestParam(value = "batchMaxBytes", required = false) Long batchMaxBytes,
+            @RequestParam(value = "batchTargetLatencyMs", required = false) Long batchTargetLatencyMs,
+            @RequestParam(value = "batchAdaptive", required = false) Boolean batchAdaptive,
+            @RequestParam(value = "estimatedRows", required = false) Long estimatedRows) {
 
         try {
-            // 创建上传任务
+            // 创建上传任务：上传在请求中直接处理，不经过调度通道，因此不接受优先级参数
             FileTask task = fileTaskService.createUploadTask(
                     taskName,
                     file.getOriginalFilename(),
                     file.getSize(),
                     fieldMapping,
                     callbackUrl,
-                    callbackParams
+                    callbackParams,
+                    sheets,
+                    sheetOrdered,
+                    batchOptions(batchSize, batchMaxBytes, batchTargetLatencyMs, batchAdaptive),
+                    schedulingOptions(null, estimatedRows)
             );
 
             // 异步处理文件
             fileTaskService.processUploadFile(task.getId(), file.getInputStream());
 
-            // 返回任务信息
+            // 返回任务信息，状态为处理后的最新状态
             Map<String, Object> result = new HashMap<>();
             result.put("taskId", task.getId());
-            result.put("status", task.getStatus());
+            result.put("status", fileTaskService.getTaskById(task.getId()).getStatus());
             result.put("message", "文件上传任务已创建");
             return result;
         } catch (Exception e) {
@@ -80,6 +135,17 @@ public class FileTaskController {
      * @param fieldMapping 字段映射（JSON格式）
      * @param callbackUrl  回调URL
      * @param callbackParams 回调参数
+     * @param rowAccessWindow   XLSX导出的行访问窗口（内存中保留的行数）
+     * @param sharedStrings     XLSX导出是否使用共享字符串表
+     * @param compressTempFiles XLSX导出是否压缩临时文件
+     * @param batchSize            每次拉取的初始行数
+     * @param batchMaxBytes        每次拉取的字节预算
+     * @param batchTargetLatencyMs 每次拉取的目标延迟（毫秒）
+     * @param batchAdaptive        是否自动调整拉取批次大小
+     * @param priority             调度优先级，越大越先执行
+     * @param estimatedRows        预计导出行数，决定任务进入小/中/大哪个调度通道
+     * @param useCache             是否使用导出缓存，相同的导出直接使用已生成的文件
+     * @param cacheTtlSeconds      可接受的缓存时长（秒）
      * @return 任务信息
      */
     @PostMapping("/export")
@@ -87,19 +153,40 @@ public class FileTaskController {
             @RequestParam("taskName") String taskName,
             @RequestParam(value = "fieldMapping", required = false) String fieldMapping,
             @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
-            @RequestParam(value = "callbackParams", required = false) String callbackParams) {
+            @RequestParam(value = "callbackParams", required = false) String callbackParams,
+            @RequestParam(value = "rowAccessWindow", required = false) Integer rowAccessWindow,
+            @RequestParam(value = "sharedStrings", required = false) Boolean sharedStrings,
+            @RequestParam(value = "compressTempFiles", required = false) Boolean compressTempFiles,
+            @RequestParam(value = "batchSize", required = false) Integer batchSize,
+            @RequestParam(value = "batchMaxBytes", required = false) Long batchMaxBytes,
+            @RequestParam(value = "batchTargetLatencyMs", required = false) Long batchTargetLatencyMs,
+            @RequestParam(value = "batchAdaptive", required = false) Boolean batchAdaptive,
+            @RequestParam(value = "priority", required = false) Integer priority,
+            @RequestParam(value = "estimatedRows", required = false) Long estimatedRows,
+            @RequestParam(value = "useCache", required = false) Boolean useCache,
+            @RequestParam(value = "cacheTtlSeconds", required = false) Long cacheTtlSeconds) {
 
         try {
+            // XLSX流式写入参数，未设置的使用全局配置
+            ExcelWriteOptions writeOptions = new ExcelWriteOptions();
+            writeOptions.setRowAccessWindow(rowAccessWindow);
+            writeOptions.setSharedStrings(sharedStrings);
+            writeOptions.setCompressTempFiles(compressTempFiles);
+
             // 创建下载任务
             FileTask task = fileTaskService.createDownloadTask(
                     taskName,
                     fieldMapping,
                     callbackUrl,
-                    callbackParams
+                    callbackParams,
+                    writeOptions,
+                    batchOptions(batchSize, batchMaxBytes, batchTargetLatencyMs, batchAdaptive),
+                    schedulingOptions(priority, estimatedRows),
+                    cacheOptions(useCache, cacheTtlSeconds)
             );
 
-            // 异步处理文件生成
-            fileTaskService.processDownloadFile(task.getId());
+            // 按调度通道和优先级异步处理文件生成
+            taskDispatcher.submit(task);
 
             // 返回任务信息
             Map<String, Object> result = new HashMap<>();
@@ -115,8 +202,155 @@ public class FileTaskController {
         }
     }
 
+    /**
+     * 批量创建文件下载任务
+     * 每个任务单独校验，校验通过的任务批量写入后一次进入调度通道
+     *
+     * @param specs 任务参数列表
+     * @return 每个任务的ID或校验失败原因（与请求顺序一致）
+     */
+    @PostMapping("/export/batch")
+    public Map<String, Object> createExportTasks(@RequestBody List<ExportTaskSpec> specs) {
+        try {
+            List<TaskSubmission> submissions = fileTaskService.createDownloadTasks(specs);
+
+            List<FileTask> accepted = new ArrayList<>();
+            List<Map<String, Object>> tasks = new ArrayList<>();
+            for (int i = 0; i < submissions.size(); i++) {
+                TaskSubmission submission = submissions.get(i);
+                Map<String, Object> item = new HashMap<>();
+                item.put("index", i);
+                if (submission.isAccepted()) {
+                    item.put("taskId", submission.getTask().getId());
+                    item.put("status", submission.getTask().getStatus());
+                    accepted.add(submission.getTask());
+                } else {
+                    item.put("error", submission.getError());
+                }
+                tasks.add(item);
+            }
+
+            // 按调度通道和优先级异步处理文件生成
+            taskDispatcher.submitAll(accepted);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("tasks", tasks);
+            result.put("accepted", accepted.size());
+            result.put("rejected", submissions.size() - accepted.size());
+            result.put("message", "文件导出任务已批量创建");
+            return result;
+        } catch (Exception e) {
+            log.error("批量创建导出任务失败", e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("error", "批量创建导出任务失败：" + e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * 同步流式导出
+     * 不创建任务：从取数地址分页拉取数据，直接以分块传输写入响应，适合中小规模的即时导出。
+     * CSV每页写完即输出；XLSX内存中只保留行访问窗口内的行，但需全部数据写完后才开始输出。
+     * 取数失败时响应被中断（不完整的分块传输）。
+     * 响应在单独的线程池（file.export.stream.pool-size）中写出，超时时间为 file.export.stream.timeout-ms
+     *
+     * @param fileType       文件类型：csv（默认）或xlsx
+     * @param fileName       下载文件名，为空时自动生成
+     * @param fieldMapping   字段映射（JSON格式）
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数
+     * @param rowAccessWindow   XLSX导出的行访问窗口（内存中保留的行数）
+     * @param sharedStrings     XLSX导出是否使用共享字符串表
+     * @param compressTempFiles XLSX导出是否压缩临时文件
+     * @param batchSize            每次拉取的初始行数
+     * @param batchMaxBytes        每次拉取的字节预算
+     * @param batchTargetLatencyMs 每次拉取的目标延迟（毫秒）
+     * @param batchAdaptive        是否自动调整拉取批次大小
+     * @param response             HTTP响应
+     * @return 写出文件的异步任务
+     */
+    @PostMapping("/export/stream")
+    public WebAsyncTask<Void> streamExport(
+            @RequestParam(value = "fileType", defaultValue = "csv") String fileType,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            @RequestParam(value = "fieldMapping", required = false) String fieldMapping,
+            @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+            @RequestParam(value = "callbackParams", required = false) String callbackParams,
+            @RequestParam(value = "rowAccessWindow", required = false) Integer rowAccessWindow,
+            @RequestParam(value = "sharedStrings", required = false) Boolean sharedStrings,
+            @RequestParam(value = "compressTempFiles", required = false) Boolean compressTempFiles,
+            @RequestParam(value = "batchSize", required = false) Integer batchSize,
+            @RequestParam(value = "batchMaxBytes", required = false) Long batchMaxBytes,
+            @RequestParam(value = "batchTargetLatencyMs", required = false) Long batchTargetLatencyMs,
+            @RequestParam(value = "batchAdaptive", required = false) Boolean batchAdaptive,
+            HttpServletResponse response) {
+        StreamingResponseBody body;
+        try {
+            // XLSX流式写入参数，未设置的使用全局配置
+            ExcelWriteOptions writeOptions = new ExcelWriteOptions();
+            writeOptions.setRowAccessWindow(rowAccessWindow);
+            writeOptions.setSharedStrings(sharedStrings);
+            writeOptions.setCompressTempFiles(compressTempFiles);
+
+            body = fileTaskService.streamExport(
+                    fileType,
+                    fieldMapping,
+                    callbackUrl,
+                    callbackParams,
+                    writeOptions,
+                    batchOptions(batchSize, batchMaxBytes, batchTargetLatencyMs, batchAdaptive)
+            );
+
+            String extension = fileType.toLowerCase();
+            if (fileName == null || fileName.isEmpty()) {
+                fileName = "export_" + System.currentTimeMillis() + "." + extension;
+            }
+            response.setContentType("xlsx".equals(extension)
+                    ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+                    : "text/csv;charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        } catch (Exception e) {
+            log.error("流式导出失败", e);
+            throw new RuntimeException("流式导出失败：" + e.getMessage());
+        }
+
+        // 直接写入响应，写完后刷新；返回null时不再写出响应体
+        return new WebAsyncTask<>(exportStreamTimeoutMs, exportStreamExecutor, () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    /**
+     * 使导出缓存失效
+     * 取数地址、取数参数和字段映射与创建导出任务时相同
+     *
+     * @param fieldMapping   字段映射（JSON格式）
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数
+     * @return 失效的缓存数
+     */
+    @DeleteMapping("/export/cache")
+    public Map<String, Object> invalidateExportCache(
+            @RequestParam(value = "fieldMapping", required = false) String fieldMapping,
+            @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+            @RequestParam(value = "callbackParams", required = false) String callbackParams) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("invalidated", fileTaskService.invalidateExportCache(fieldMapping, callbackUrl, callbackParams));
+            result.put("message", "导出缓存已失效");
+            return result;
+        } catch (Exception e) {
+            log.error("使导出缓存失效失败", e);
+            result.put("error", "使导出缓存失效失败：" + e.getMessage());
+            return result;
+        }
+    }
+
     /**
      * 获取任务状态
+     * 运行中的任务从内存进度中读取，其余从数据库读取
      *
      * @param taskId 任务ID
      * @return 任务状态
@@ -124,6 +358,11 @@ public class FileTaskController {
     @GetMapping("/task/{taskId}")
     public Map<String, Object> getTaskStatus(@PathVariable Long taskId) {
         try {
+            TaskProgress progress = fileTaskService.getTaskProgress(taskId);
+            if (progress != null) {
+                return progress.snapshot();
+            }
+
             FileTask task = fileTaskService.getTaskById(taskId);
             Map<String, Object> result = new HashMap<>();
             result.put("taskId", task.getId());
@@ -144,6 +383,87 @@ public class FileTaskController {
         }
     }
 
+    /**
+     * 查询任务列表
+     * 按创建时间倒序分页，翻页时传入上一页返回的nextCursor
+     *
+     * @param status      任务状态
+     * @param taskType    任务类型
+     * @param namePrefix  任务名称前缀
+     * @param createdFrom 创建时间下限（含），格式yyyy-MM-dd HH:mm:ss
+     * @param createdTo   创建时间上限（不含），格式yyyy-MM-dd HH:mm:ss
+     * @param cursor      分页游标，为空时查询第一页
+     * @param limit       每页任务数，默认20，最大200
+     * @return 任务列表及下一页的游标
+     */
+    @GetMapping("/tasks")
+    public Map<String, Object> listTasks(
+            @RequestParam(value = "status", required = false) FileTask.TaskStatus status,
+            @RequestParam(value = "taskType", required = false) FileTask.TaskType taskType,
+            @RequestParam(value = "namePrefix", required = false) String namePrefix,
+            @RequestParam(value = "createdFrom", required = false)
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date createdFrom,
+            @RequestParam(value = "createdTo", required = false)
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date createdTo,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            TaskQuery query = new TaskQuery();
+            query.setStatus(status);
+            query.setTaskType(taskType);
+            query.setNamePrefix(namePrefix);
+            query.setCreatedFrom(createdFrom);
+            query.setCreatedTo(createdTo);
+            query.setCursor(cursor);
+            query.setLimit(limit);
+            TaskPage page = fileTaskService.listTasks(query);
+
+            List<Map<String, Object>> tasks = new ArrayList<>();
+            for (FileTask task : page.getTasks()) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("taskId", task.getId());
+                item.put("taskName", task.getTaskName());
+                item.put("taskType", task.getTaskType());
+                item.put("status", task.getStatus());
+                item.put("originalFilename", task.getOriginalFilename());
+                item.put("fileSize", task.getFileSize());
+                item.put("processedRows", task.getProcessedRows());
+                item.put("successRows", task.getSuccessRows());
+                item.put("failedRows", task.getFailedRows());
+                item.put("priority", task.getPriority());
+                item.put("createTime", task.getCreateTime());
+                item.put("updateTime", task.getUpdateTime());
+                if (task.getErrorMessage() != null) {
+                    item.put("errorMessage", task.getErrorMessage());
+                }
+                tasks.add(item);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("tasks", tasks);
+            result.put("nextCursor", page.getNextCursor());
+            result.put("hasMore", page.getNextCursor() != null);
+            return result;
+        } catch (Exception e) {
+            log.error("查询任务列表失败", e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("error", "查询任务列表失败：" + e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * 订阅任务进度（Server-Sent Events）
+     * 运行中定时推送progress事件，任务结束时推送status事件并关闭连接
+     *
+     * @param taskId 任务ID
+     * @return SSE连接
+     */
+    @GetMapping(value = "/task/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskProgress(@PathVariable Long taskId) {
+        return fileTaskService.subscribeTaskProgress(taskId);
+    }
+
     /**
      * 下载文件
      *
@@ -173,4 +493,37 @@ public class FileTaskController {
             throw new RuntimeException("文件下载失败：" + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 组装批次参数，未设置的使用全局配置
+     */
+    private BatchSizingOptions batchOptions(Integer batchSize, Long batchMaxBytes, Long batchTargetLatencyMs,
+                                            Boolean batchAdaptive) {
+        BatchSizingOptions batchOptions = new BatchSizingOptions();
+        batchOptions.setBatchSize(batchSize);
+        batchOptions.setMaxBytes(batchMaxBytes);
+        batchOptions.setTargetLatencyMs(batchTargetLatencyMs);
+        batchOptions.setAdaptive(batchAdaptive);
+        return batchOptions;
+    }
+
+    /**
+     * 组装调度参数
+     */
+    private SchedulingOptions schedulingOptions(Integer priority, Long estimatedRows) {
+        SchedulingOptions schedulingOptions = new SchedulingOptions();
+        schedulingOptions.setPriority(priority);
+        schedulingOptions.setEstimatedRows(estimatedRows);
+        return schedulingOptions;
+    }
+
+    /**
+     * 组装导出缓存参数
+     */
+    private ExportCacheOptions cacheOptions(Boolean useCache, Long cacheTtlSeconds) {
+        ExportCacheOptions cacheOptions = new ExportCacheOptions();
+        cacheOptions.setEnabled(useCache);
+        cacheOptions.setTtlSeconds(cacheTtlSeconds);
+        return cacheOptions;
+    }
+}
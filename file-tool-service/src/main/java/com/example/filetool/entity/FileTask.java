@@ -10,7 +10,13 @@ import java.util.Date;
  */
 @Data
 @Entity
-@Table(name = "file_task")
+@Table(name = "file_task", indexes = {
+        @Index(name = "idx_file_task_cache_key", columnList = "cacheKey"),
+        @Index(name = "idx_file_task_create_time", columnList = "createTime, id"),
+        @Index(name = "idx_file_task_status_create_time", columnList = "status, createTime, id"),
+        @Index(name = "idx_file_task_type_create_time", columnList = "taskType, createTime, id"),
+        @Index(name = "idx_file_task_name", columnList = "taskName")
+})
 public class FileTask {
 
     /**
@@ -90,6 +96,89 @@ public class FileTask {
     @Column(columnDefinition = "TEXT")
     private String fieldMapping;
 
+    /**
+     * 要导入的Sheet（仅Excel上传任务）：为空时只导入第一个Sheet，
+     * *表示全部Sheet，或以逗号分隔的Sheet序号（从0开始）/Sheet名称，多个Sheet并行解析
+     */
+    private String sheets;
+
+    /**
+     * 多Sheet导入时是否按Sheet顺序回调，否则按解析完成的先后回调
+     */
+    private Boolean sheetOrdered;
+
+    /**
+     * XLSX导出的行访问窗口（仅Excel下载任务），为空时使用全局配置
+     */
+    private Integer rowAccessWindow;
+
+    /**
+     * XLSX导出是否使用共享字符串表（仅Excel下载任务），为空时使用全局配置
+     */
+    private Boolean sharedStrings;
+
+    /**
+     * XLSX导出是否压缩临时文件（仅Excel下载任务），为空时使用全局配置
+     */
+    private Boolean compressTempFiles;
+
+    /**
+     * 回调/拉取的初始批次行数，为空时使用全局配置
+     */
+    private Integer batchSize;
+
+    /**
+     * 每批的字节预算，为空时使用全局配置
+     */
+    private Long batchMaxBytes;
+
+    /**
+     * 每批请求的目标延迟（毫秒），超过时减小批次，为空时使用全局配置
+     */
+    private Long batchTargetLatencyMs;
+
+    /**
+     * 是否按字节和延迟自动调整批次大小，为空时使用全局配置
+     */
+    private Boolean batchAdaptive;
+
+    /**
+     * 调度优先级，越大越先执行，为空时为0
+     */
+    private Integer priority;
+
+    /**
+     * 预计行数，用于划分调度通道，为空时按文件大小估算
+     */
+    private Long estimatedRows;
+
+    /**
+     * 分片数（仅分片处理的上传任务），为空或0表示不分片
+     */
+    private Integer shardCount;
+
+    /**
+     * 已结束（完成或失败）的分片数，全部分片结束时任务结束
+     */
+    private Integer completedShards;
+
+    /**
+     * 导出缓存键（取数地址、取数参数和字段映射的摘要，仅使用缓存的下载任务），为空表示不使用缓存
+     */
+    @Column(length = 64)
+    private String cacheKey;
+
+    /**
+     * 可接受的缓存时长（秒），为空时使用全局配置
+     */
+    private Long cacheTtlSeconds;
+
+    /**
+     * 导出文件的生成时间，命中缓存的任务与缓存条目相同，用于判断缓存是否过期
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date cacheTime;
+
     /**
      * 创建时间
      */
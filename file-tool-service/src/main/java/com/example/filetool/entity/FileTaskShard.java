@@ -0,0 +1,159 @@
+package com.example.filetool.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 大文件上传任务的分片
+ * 一个上传任务拆分为多个分片，每个分片是一个可由任意节点认领执行的子任务：
+ * CSV按行对齐的字节范围拆分，Excel按Sheet或第一个Sheet的行范围拆分
+ */
+@Data
+@Entity
+@Table(name = "file_task_shard", indexes = {
+        @Index(name = "idx_file_task_shard_task", columnList = "taskId"),
+        @Index(name = "idx_file_task_shard_status", columnList = "status")
+})
+public class FileTaskShard {
+
+    /**
+     * 分片ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 所属任务ID
+     */
+    private Long taskId;
+
+    /**
+     * 分片序号（从0开始）
+     */
+    private Integer shardIndex;
+
+    /**
+     * Sheet序号（仅Excel）
+     */
+    private Integer sheetNo;
+
+    /**
+     * Sheet名称（仅按Sheet拆分的Excel），不为空时每行数据带上所在Sheet名称
+     */
+    private String sheetName;
+
+    /**
+     * 起始字节偏移（仅CSV，含）
+     */
+    private Long startOffset;
+
+    /**
+     * 结束字节偏移（仅CSV，不含），为空表示到文件末尾
+     */
+    private Long endOffset;
+
+    /**
+     * 起始行号（从1开始，含表头行）：CSV为分片第一行的行号，Excel为分片第一行数据的行号
+     */
+    private Integer startRow;
+
+    /**
+     * 结束行号（仅按行范围拆分的Excel，不含），为空表示到Sheet末尾
+     */
+    private Integer endRow;
+
+    /**
+     * 分片状态：PENDING-等待认领，PROCESSING-处理中，COMPLETED-已完成，FAILED-失败
+     */
+    @Enumerated(EnumType.STRING)
+    private ShardStatus status;
+
+    /**
+     * 认领分片的节点
+     */
+    private String owner;
+
+    /**
+     * 处理的数据行数
+     */
+    private Integer processedRows;
+
+    /**
+     * 成功处理的行数
+     */
+    private Integer successRows;
+
+    /**
+     * 失败处理的行数
+     */
+    private Integer failedRows;
+
+    /**
+     * 错误信息
+     */
+    @Column(length = 1000)
+    private String errorMessage;
+
+    /**
+     * 行级错误明细（JSON格式），最多保留若干条，最终回调时汇总
+     */
+    @Column(columnDefinition = "TEXT")
+    private String rowErrors;
+
+    /**
+     * 认领时间
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date claimTime;
+
+    /**
+     * 处理节点最近一次心跳时间，超时未更新的分片重新等待认领
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date heartbeatTime;
+
+    /**
+     * 创建时间
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updateTime;
+
+    /**
+     * 分片状态枚举
+     */
+    public enum ShardStatus {
+        PENDING, PROCESSING, COMPLETED, FAILED
+    }
+
+    @PrePersist
+    public void prePersist() {
+        this.createTime = new Date();
+        this.updateTime = new Date();
+        if (this.status == null) {
+            this.status = ShardStatus.PENDING;
+        }
+        if (this.processedRows == null) {
+            this.processedRows = 0;
+        }
+        if (this.successRows == null) {
+            this.successRows = 0;
+        }
+        if (this.failedRows == null) {
+            this.failedRows = 0;
+        }
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updateTime = new Date();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.filetool.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 系统配置实体类
+ */
+@Data
+@Entity
+@Table(name = "system_config")
+public class SystemConfig {
+
+    /**
+     * 配置ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 配置键
+     */
+    @Column(name = "config_key", unique = true, nullable = false, length = 50)
+    private String configKey;
+
+    /**
+     * 配置值
+     */
+    @Column(name = "config_value", columnDefinition = "TEXT")
+    private String configValue;
+
+    /**
+     * 配置描述
+     */
+    private String description;
+
+    /**
+     * 创建时间
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    /**
+     * 更新时间
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = new Date();
+        this.updatedAt = new Date();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = new Date();
+    }
+}
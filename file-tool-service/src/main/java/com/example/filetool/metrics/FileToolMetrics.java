@@ -0,0 +1,299 @@
+package com.example.filetool.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 文件工具服务监控指标
+ * 统一定义解析、回调、存储和调度相关的指标名称与标签，通过actuator暴露
+ */
+@Component
+public class FileToolMetrics {
+
+    /**
+     * 解析/生成的数据行数，按解析器和操作区分，速率即每秒处理行数
+     */
+    public static final String PARSER_ROWS = "filetool.parser.rows";
+
+    /**
+     * 解析/生成整个文件的耗时
+     */
+    public static final String PARSER_DURATION = "filetool.parser.duration";
+
+    /**
+     * 每批数据的行数
+     */
+    public static final String PARSER_BATCH_SIZE = "filetool.parser.batch.size";
+
+    /**
+     * 回调/取数请求耗时，按目标主机区分
+     */
+    public static final String CALLBACK_LATENCY = "filetool.callback.latency";
+
+    /**
+     * 回调/取数请求等待主机配额的时间，按目标主机区分
+     */
+    public static final String CALLBACK_THROTTLE = "filetool.callback.throttle";
+
+    /**
+     * 回调/取数请求的重试、对冲和熔断次数，按目标主机和事件区分
+     */
+    public static final String CALLBACK_EVENTS = "filetool.callback.events";
+
+    /**
+     * 文件存储读写字节数
+     */
+    public static final String STORAGE_BYTES = "filetool.storage.bytes";
+
+    /**
+     * 任务线程池拒绝次数
+     */
+    public static final String EXECUTOR_REJECTED = "filetool.executor.rejected";
+
+    /**
+     * 信号量限流线程池中正在执行的任务数（virtual执行模式下代替线程池指标）
+     */
+    public static final String EXECUTOR_ACTIVE = "filetool.executor.active";
+
+    /**
+     * 任务从创建到被调度器取出的延迟
+     */
+    public static final String SCHEDULER_PICKUP_LAG = "filetool.scheduler.pickup.lag";
+
+    /**
+     * 调度通道中等待的任务数
+     */
+    public static final String SCHEDULER_LANE_QUEUED = "filetool.scheduler.lane.queued";
+
+    /**
+     * 调度通道中正在执行的任务数
+     */
+    public static final String SCHEDULER_LANE_RUNNING = "filetool.scheduler.lane.running";
+
+    /**
+     * 导出缓存查询结果（命中、未命中、合并到正在生成的相同导出）
+     */
+    public static final String EXPORT_CACHE = "filetool.export.cache";
+
+    /**
+     * 等待延迟写入的任务进度数
+     */
+    public static final String PROGRESS_PENDING = "filetool.progress.pending";
+
+    /**
+     * 每次批量写入的任务进度数
+     */
+    public static final String PROGRESS_FLUSH_SIZE = "filetool.progress.flush.size";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录一批数据
+     *
+     * @param parser    解析器名称（csv/excel）
+     * @param operation 操作（parse/generate）
+     * @param batchSize 批次行数
+     */
+    public void recordBatch(String parser, String operation, int batchSize) {
+        Counter.builder(PARSER_ROWS)
+                .tag("parser", parser)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment(batchSize);
+        DistributionSummary.builder(PARSER_BATCH_SIZE)
+                .tag("parser", parser)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(batchSize);
+    }
+
+    /**
+     * 记录一次完整的解析/生成耗时
+     *
+     * @param parser      解析器名称（csv/excel）
+     * @param operation   操作（parse/generate）
+     * @param startNanos  开始时间（System.nanoTime）
+     * @param success     是否成功
+     */
+    public void recordParse(String parser, String operation, long startNanos, boolean success) {
+        Timer.builder(PARSER_DURATION)
+                .tag("parser", parser)
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "error")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次回调/取数请求耗时
+     *
+     * @param url        请求URL
+     * @param method     请求方式（json/form）
+     * @param startNanos 开始时间（System.nanoTime）
+     * @param success    是否成功
+     */
+    public void recordCallback(String url, String method, long startNanos, boolean success) {
+        Timer.builder(CALLBACK_LATENCY)
+                .tag("host", hostOf(url))
+                .tag("method", method)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次等待主机配额的时间
+     *
+     * @param host      目标主机
+     * @param waitNanos 等待时间（纳秒）
+     * @param acquired  是否获得配额（否则为等待超时）
+     */
+    public void recordThrottle(String host, long waitNanos, boolean acquired) {
+        Timer.builder(CALLBACK_THROTTLE)
+                .tag("host", host)
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .register(meterRegistry)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次回调/取数请求事件
+     *
+     * @param host  目标主机
+     * @param event 事件（retry/hedge/circuit_open）
+     */
+    public void recordCallbackEvent(String host, String event) {
+        Counter.builder(CALLBACK_EVENTS)
+                .tag("host", host)
+                .tag("event", event)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录文件存储读写字节数
+     *
+     * @param operation 操作（write/read）
+     * @param bytes     字节数
+     */
+    public void recordStorageBytes(String operation, long bytes) {
+        Counter.builder(STORAGE_BYTES)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    /**
+     * 记录线程池拒绝
+     *
+     * @param executor 线程池名称
+     */
+    public void recordRejected(String executor) {
+        Counter.builder(EXECUTOR_REJECTED)
+                .tag("name", executor)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 注册正在执行的任务数
+     *
+     * @param executor    线程池名称
+     * @param activeCount 正在执行的任务数
+     */
+    public void registerActive(String executor, Supplier<Number> activeCount) {
+        Gauge.builder(EXECUTOR_ACTIVE, activeCount)
+                .tag("name", executor)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录调度延迟
+     *
+     * @param taskType 任务类型
+     * @param lagMillis 延迟（毫秒）
+     */
+    public void recordPickupLag(String taskType, long lagMillis) {
+        Timer.builder(SCHEDULER_PICKUP_LAG)
+                .tag("taskType", taskType)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Math.max(lagMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册调度通道的等待数和执行数
+     *
+     * @param lane         通道名称
+     * @param queuedCount  等待的任务数
+     * @param runningCount 正在执行的任务数
+     */
+    public void registerLane(String lane, Supplier<Number> queuedCount, Supplier<Number> runningCount) {
+        Gauge.builder(SCHEDULER_LANE_QUEUED, queuedCount)
+                .tag("lane", lane)
+                .register(meterRegistry);
+        Gauge.builder(SCHEDULER_LANE_RUNNING, runningCount)
+                .tag("lane", lane)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次导出缓存查询
+     *
+     * @param result 结果（hit/miss/coalesced）
+     */
+    public void recordExportCache(String result) {
+        Counter.builder(EXPORT_CACHE)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 注册等待延迟写入的任务进度数
+     *
+     * @param pendingCount 待写入的任务数
+     */
+    public void registerProgressPending(Supplier<Number> pendingCount) {
+        Gauge.builder(PROGRESS_PENDING, pendingCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次批量写入任务进度
+     *
+     * @param size 写入的任务数
+     */
+    public void recordProgressFlush(int size) {
+        DistributionSummary.builder(PROGRESS_FLUSH_SIZE)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * 从URL中提取主机（含端口），作为指标标签和主机配额的键
+     */
+    public static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return "unknown";
+            }
+            return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.filetool.parser;
+
+/**
+ * 列值类型转换异常
+ */
+public class ColumnConversionException extends RuntimeException {
+
+    /**
+     * 字段名
+     */
+    private final String field;
+
+    /**
+     * 原始值
+     */
+    private final Object value;
+
+    public ColumnConversionException(String field, Object value, String message, Throwable cause) {
+        super(message, cause);
+        this.field = field;
+        this.value = value;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+}
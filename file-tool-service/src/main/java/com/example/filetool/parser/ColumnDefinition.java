@@ -0,0 +1,295 @@
+package com.example.filetool.parser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.Date;
+
+/**
+ * 列定义
+ * 字段映射中一列的字段名、表头和类型，负责导入时把文本转换为对应类型，以及导出时转换为原生单元格值。
+ * 日期格式在创建时编译一次，同一文件的所有行共用
+ */
+public class ColumnDefinition {
+
+    /**
+     * 日期列未指定pattern时使用的格式
+     */
+    public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+
+    private final int index;
+
+    private final String field;
+
+    private final String label;
+
+    private final ColumnType type;
+
+    private final String pattern;
+
+    private final DateTimeFormatter formatter;
+
+    /**
+     * 日期格式是否包含时间部分，包含时转换为LocalDateTime，否则为LocalDate
+     */
+    private final boolean withTime;
+
+    public ColumnDefinition(int index, String field, String label, ColumnType type, String pattern) {
+        this.index = index;
+        this.field = field;
+        this.label = label;
+        this.type = type;
+        if (type == ColumnType.DATE) {
+            this.pattern = pattern == null || pattern.isEmpty() ? DEFAULT_DATE_PATTERN : pattern;
+            try {
+                this.formatter = DateTimeFormatter.ofPattern(this.pattern);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("字段" + field + "的日期格式无效：" + this.pattern, e);
+            }
+            this.withTime = requiresTime(formatter);
+        } else {
+            this.pattern = pattern;
+            this.formatter = null;
+            this.withTime = false;
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 导入：将单元格文本转换为列类型对应的值
+     * 空文本转换为null；STRING列原样返回
+     *
+     * @param text 单元格文本
+     * @return INT-Integer，LONG-Long，DECIMAL-BigDecimal，BOOLEAN-Boolean，DATE-LocalDate/LocalDateTime
+     * @throws ColumnConversionException 无法转换时抛出
+     */
+    public Object fromText(String text) {
+        if (type == ColumnType.STRING) {
+            return text;
+        }
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        String value = trim(text);
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            switch (type) {
+                case INT:
+                    return Integer.valueOf(Integer.parseInt(stripGrouping(value)));
+                case LONG:
+                    return Long.valueOf(Long.parseLong(stripGrouping(value)));
+                case DECIMAL:
+                    return new BigDecimal(stripGrouping(value));
+                case BOOLEAN:
+                    return parseBoolean(value);
+                case DATE:
+                    return withTime ? LocalDateTime.parse(value, formatter) : LocalDate.parse(value, formatter);
+                default:
+                    return value;
+            }
+        } catch (ColumnConversionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw conversionError(text, e);
+        }
+    }
+
+    /**
+     * 导出：将业务系统返回的值转换为列类型对应的值
+     * 数字、布尔、日期对象直接转换，文本按fromText规则解析，数字作为日期时视为毫秒时间戳
+     *
+     * @param value 业务系统返回的值
+     * @return 与fromText相同类型的值
+     * @throws ColumnConversionException 无法转换时抛出
+     */
+    public Object normalize(Object value) {
+        if (value == null || type == ColumnType.STRING) {
+            return value;
+        }
+        if (value instanceof String) {
+            return fromText((String) value);
+        }
+        try {
+            switch (type) {
+                case INT:
+                    if (isIntegral(value)) {
+                        return value instanceof Integer ? value : Integer.valueOf(Math.toIntExact(((Number) value).longValue()));
+                    }
+                    break;
+                case LONG:
+                    if (isIntegral(value)) {
+                        return value instanceof Long ? value : Long.valueOf(((Number) value).longValue());
+                    }
+                    break;
+                case DECIMAL:
+                    if (value instanceof BigDecimal) {
+                        return value;
+                    }
+                    if (value instanceof BigInteger) {
+                        return new BigDecimal((BigInteger) value);
+                    }
+                    if (isIntegral(value)) {
+                        return BigDecimal.valueOf(((Number) value).longValue());
+                    }
+                    if (value instanceof Number) {
+                        return BigDecimal.valueOf(((Number) value).doubleValue());
+                    }
+                    break;
+                case BOOLEAN:
+                    if (value instanceof Boolean) {
+                        return value;
+                    }
+                    if (isIntegral(value)) {
+                        return ((Number) value).longValue() != 0;
+                    }
+                    break;
+                case DATE:
+                    if (value instanceof LocalDate || value instanceof LocalDateTime) {
+                        return value;
+                    }
+                    if (value instanceof Date) {
+                        return toTemporal(((Date) value).getTime());
+                    }
+                    if (isIntegral(value)) {
+                        return toTemporal(((Number) value).longValue());
+                    }
+                    break;
+                default:
+                    return value;
+            }
+        } catch (RuntimeException e) {
+            throw conversionError(value, e);
+        }
+        throw conversionError(value, null);
+    }
+
+    /**
+     * 导出Excel：转换为EasyExcel可直接写入的原生单元格值（数字、布尔、java.util.Date）
+     *
+     * @param value 业务系统返回的值
+     * @return 单元格值
+     */
+    public Object toCellValue(Object value) {
+        Object normalized = normalize(value);
+        if (normalized instanceof LocalDate) {
+            return Date.from(((LocalDate) normalized).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+        if (normalized instanceof LocalDateTime) {
+            return Date.from(((LocalDateTime) normalized).atZone(ZoneId.systemDefault()).toInstant());
+        }
+        return normalized;
+    }
+
+    /**
+     * 导出CSV：转换为文本，日期按pattern格式化，小数不使用科学计数法
+     *
+     * @param value 业务系统返回的值
+     * @return 文本，null时为空串
+     */
+    public String toText(Object value) {
+        Object normalized = normalize(value);
+        if (normalized == null) {
+            return "";
+        }
+        if (normalized instanceof TemporalAccessor) {
+            return formatter.format((TemporalAccessor) normalized);
+        }
+        if (normalized instanceof BigDecimal) {
+            return ((BigDecimal) normalized).toPlainString();
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Excel单元格格式，仅日期列有值
+     *
+     * @return Excel数据格式
+     */
+    public String excelFormat() {
+        return type == ColumnType.DATE ? pattern : null;
+    }
+
+    private Object toTemporal(long epochMillis) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(new Date(epochMillis).toInstant(), ZoneId.systemDefault());
+        return withTime ? dateTime : dateTime.toLocalDate();
+    }
+
+    private ColumnConversionException conversionError(Object value, Throwable cause) {
+        String description = type == ColumnType.DATE ? "DATE(" + pattern + ")" : type.name();
+        return new ColumnConversionException(field, value,
+                "字段" + field + "的值[" + value + "]无法转换为" + description, cause);
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * 去掉首尾空白，无空白时不创建新字符串
+     */
+    private static String trim(String text) {
+        char first = text.charAt(0);
+        char last = text.charAt(text.length() - 1);
+        if (first > ' ' && last > ' ') {
+            return text;
+        }
+        return text.trim();
+    }
+
+    /**
+     * 去掉千分位分隔符，无分隔符时不创建新字符串
+     */
+    private static String stripGrouping(String value) {
+        return value.indexOf(',') < 0 ? value : value.replace(",", "");
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value) || "1".equals(value) || "yes".equalsIgnoreCase(value)
+                || "y".equalsIgnoreCase(value) || "是".equals(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value) || "0".equals(value) || "no".equalsIgnoreCase(value)
+                || "n".equalsIgnoreCase(value) || "否".equals(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("无效的布尔值：" + value);
+    }
+
+    /**
+     * 判断日期格式是否包含时间部分：只含日期字段的格式可以格式化LocalDate
+     */
+    private static boolean requiresTime(DateTimeFormatter formatter) {
+        try {
+            formatter.format(LocalDate.of(2000, 1, 1));
+            return false;
+        } catch (UnsupportedTemporalTypeException e) {
+            return true;
+        }
+    }
+}
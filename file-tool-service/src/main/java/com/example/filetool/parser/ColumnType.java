@@ -0,0 +1,56 @@
+package com.example.filetool.parser;
+
+/**
+ * 列类型
+ * 在字段映射中通过type指定，未指定时为STRING
+ */
+public enum ColumnType {
+
+    /**
+     * 文本，不做转换
+     */
+    STRING,
+
+    /**
+     * 32位整数
+     */
+    INT,
+
+    /**
+     * 64位整数
+     */
+    LONG,
+
+    /**
+     * 任意精度小数
+     */
+    DECIMAL,
+
+    /**
+     * 日期/日期时间，格式由pattern指定
+     */
+    DATE,
+
+    /**
+     * 布尔值
+     */
+    BOOLEAN;
+
+    /**
+     * 按名称（不区分大小写）获取列类型
+     *
+     * @param name 类型名称，为空时返回STRING
+     * @return 列类型
+     */
+    public static ColumnType fromName(String name) {
+        if (name == null || name.isEmpty()) {
+            return STRING;
+        }
+        for (ColumnType type : values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        throw new RuntimeException("不支持的列类型：" + name);
+    }
+}
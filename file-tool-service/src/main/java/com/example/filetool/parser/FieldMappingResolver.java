@@ -0,0 +1,151 @@
+package com.example.filetool.parser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 字段映射解析器
+ * 将JSON格式的字段映射解析为各解析器使用的映射关系
+ * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄","type":"int"}}
+ * type可选：string（默认）、int、long、decimal、date（配合pattern，默认yyyy-MM-dd）、boolean
+ * 导入时还可声明行规则：trim、defaultValue、required、maxLength、regex、value（派生列模板），见RowRules
+ */
+@Slf4j
+@Component
+public class FieldMappingResolver {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 解析字段映射
+     * 将JSON格式的字段映射转换为列索引到字段名的映射
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @return 列索引到字段名的映射
+     */
+    public Map<Integer, String> resolveColumnFields(String fieldMapping) {
+        if (fieldMapping == null || fieldMapping.isEmpty()) {
+            // 默认映射
+            Map<Integer, String> defaultMapping = new HashMap<>();
+            defaultMapping.put(0, "column0");
+            defaultMapping.put(1, "column1");
+            defaultMapping.put(2, "column2");
+            return defaultMapping;
+        }
+
+        Map<Integer, String> result = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, String>> entry : readMapping(fieldMapping).entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get("field"));
+        }
+        return result;
+    }
+
+    /**
+     * 解析列定义
+     * 将JSON格式的字段映射转换为列索引到列定义（字段名、表头、类型）的映射，日期格式在此编译一次
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @return 按列索引排序的列定义
+     */
+    public Map<Integer, ColumnDefinition> resolveColumns(String fieldMapping) {
+        Map<Integer, ColumnDefinition> result = new TreeMap<>();
+        if (fieldMapping == null || fieldMapping.isEmpty()) {
+            for (Map.Entry<Integer, String> entry : resolveColumnFields(fieldMapping).entrySet()) {
+                result.put(entry.getKey(), new ColumnDefinition(entry.getKey(), entry.getValue(), null,
+                        ColumnType.STRING, null));
+            }
+            return result;
+        }
+
+        for (Map.Entry<Integer, Map<String, String>> entry : readMapping(fieldMapping).entrySet()) {
+            Map<String, String> column = entry.getValue();
+            result.put(entry.getKey(), new ColumnDefinition(entry.getKey(), column.get("field"), column.get("label"),
+                    ColumnType.fromName(column.get("type")), column.get("pattern")));
+        }
+        return result;
+    }
+
+    /**
+     * 解析行规则
+     * 将字段映射中声明的转换和校验规则编译为RowRules，每个解析任务编译一次
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @param columns      resolveColumns解析出的列定义
+     * @return 行规则，未声明任何规则时返回RowRules.NONE
+     */
+    public RowRules resolveRowRules(String fieldMapping, Map<Integer, ColumnDefinition> columns) {
+        if (fieldMapping == null || fieldMapping.isEmpty()) {
+            return RowRules.NONE;
+        }
+        return RowRules.compile(columns, readMapping(fieldMapping));
+    }
+
+    /**
+     * 解析行转换器
+     * 编译列定义和行规则，得到可在多个线程中共用的行转换器
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @return 行转换器
+     */
+    public RowConverter resolveRowConverter(String fieldMapping) {
+        Map<Integer, ColumnDefinition> columns = resolveColumns(fieldMapping);
+        return new RowConverter(columns, resolveRowRules(fieldMapping, columns));
+    }
+
+    /**
+     * 解析字段映射（反向）
+     * 将JSON格式的字段映射转换为字段名到列索引的映射
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @return 字段名到列索引的映射
+     */
+    public Map<String, Integer> resolveFieldColumns(String fieldMapping) {
+        if (fieldMapping == null || fieldMapping.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<String, Integer> result = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, String>> entry : readMapping(fieldMapping).entrySet()) {
+            result.put(entry.getValue().get("field"), entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * 获取表头映射
+     * 将JSON格式的字段映射转换为列索引到中文标签的映射
+     *
+     * @param fieldMapping 字段映射（JSON格式）
+     * @return 列索引到中文标签的映射
+     */
+    public Map<Integer, String> resolveHeaders(String fieldMapping) {
+        if (fieldMapping == null || fieldMapping.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<Integer, String> result = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, String>> entry : readMapping(fieldMapping).entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get("label"));
+        }
+        return result;
+    }
+
+    private Map<Integer, Map<String, String>> readMapping(String fieldMapping) {
+        try {
+            return objectMapper.readValue(fieldMapping,
+                new TypeReference<Map<Integer, Map<String, String>>>() {});
+        } catch (JsonProcessingException e) {
+            log.error("解析字段映射失败", e);
+            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.filetool.parser;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
@@ -13,13 +15,54 @@ public interface FileParser {
 
     /**
      * 解析文件
+     * 类型转换失败时抛出异常
      *
      * @param inputStream  文件输入流
      * @param fieldMapping 字段映射（JSON格式）
      * @param batchConsumer 批量数据处理函数
      * @return 处理的总行数
      */
-    int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer);
+    default int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer) {
+        return parseFile(inputStream, fieldMapping, batchConsumer, rowError -> {
+            throw new RuntimeException("第" + rowError.getRowNumber() + "行数据转换失败：" + rowError.getMessage());
+        });
+    }
+
+    /**
+     * 解析文件
+     * 按字段映射中的列类型转换每行数据并执行行规则，转换或校验失败的行不交给batchConsumer，而是交给errorConsumer
+     *
+     * @param inputStream   文件输入流
+     * @param fieldMapping  字段映射（JSON格式）
+     * @param batchConsumer 批量数据处理函数
+     * @param errorConsumer 转换失败行的处理函数
+     * @return 处理的总行数（含失败的行）
+     */
+    int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer,
+                  Consumer<RowError> errorConsumer);
+
+    /**
+     * 读取文件中的原始行，不做类型转换
+     * 与RowConverter配合使用，可以把读取和转换放到不同线程中执行
+     *
+     * @param inputStream 文件输入流
+     * @param rawConsumer 原始行处理函数
+     * @return 读取的总行数
+     */
+    int readRows(InputStream inputStream, Consumer<RawBatch> rawConsumer);
+
+    /**
+     * 读取文件中的原始行，只需读取指定的列
+     * 能够按列裁剪的解析器（Excel）不转换其余列，原始行中这些列为null；默认读取全部列
+     *
+     * @param inputStream 文件输入流
+     * @param columns     需要读取的列索引，通常为RowConverter.columnIndexes()
+     * @param rawConsumer 原始行处理函数
+     * @return 读取的总行数
+     */
+    default int readRows(InputStream inputStream, Set<Integer> columns, Consumer<RawBatch> rawConsumer) {
+        return readRows(inputStream, rawConsumer);
+    }
 
     /**
      * 生成文件
@@ -30,6 +73,17 @@ public interface FileParser {
      */
     InputStream generateFile(DataProvider dataProvider, String fieldMapping);
 
+    /**
+     * 生成文件并直接写入输出流
+     * 每批数据写入后即可丢弃，内存占用与文件大小无关；输出流由调用方关闭
+     *
+     * @param dataProvider 数据提供者
+     * @param fieldMapping 字段映射（JSON格式）
+     * @param outputStream 输出流
+     * @return 写入的数据行数
+     */
+    int writeFile(DataProvider dataProvider, String fieldMapping, OutputStream outputStream);
+
     /**
      * 数据提供者接口
      */
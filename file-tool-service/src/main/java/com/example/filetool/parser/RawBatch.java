@@ -0,0 +1,109 @@
+package com.example.filetool.parser;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一批未转换的原始行
+ * 解析器读取文件后只产出原始文本，类型转换和行规则由RowConverter单独执行，
+ * 两者可以放在不同线程中，让CPU密集的转换与文件读取并行
+ */
+public abstract class RawBatch {
+
+    private final String sheetName;
+
+    private final List<Integer> rowNumbers;
+
+    private RawBatch(String sheetName, List<Integer> rowNumbers) {
+        this.sheetName = sheetName;
+        this.rowNumbers = rowNumbers;
+    }
+
+    /**
+     * Excel行（列索引 -> 单元格文本）
+     *
+     * @param sheetName  所在Sheet名称，单Sheet导入时为null
+     * @param rowNumbers 每行的行号
+     * @param rows       行数据
+     * @return 原始行
+     */
+    public static RawBatch ofMaps(String sheetName, List<Integer> rowNumbers, List<Map<Integer, String>> rows) {
+        return new MapBatch(sheetName, rowNumbers, rows);
+    }
+
+    /**
+     * CSV行（按列顺序的字段值）
+     *
+     * @param rowNumbers 每行的行号
+     * @param rows       行数据
+     * @return 原始行
+     */
+    public static RawBatch ofArrays(List<Integer> rowNumbers, List<String[]> rows) {
+        return new ArrayBatch(rowNumbers, rows);
+    }
+
+    /**
+     * 所在Sheet名称（CSV或单Sheet导入时为null）
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * 第i行在文件中的行号（从1开始，含表头行）
+     */
+    public int getRowNumber(int i) {
+        return rowNumbers.get(i);
+    }
+
+    /**
+     * 行数
+     */
+    public abstract int size();
+
+    /**
+     * 第i行第column列的文本，列不存在时Excel行返回null、CSV行返回空串
+     */
+    public abstract String getCell(int i, int column);
+
+    private static class MapBatch extends RawBatch {
+
+        private final List<Map<Integer, String>> rows;
+
+        MapBatch(String sheetName, List<Integer> rowNumbers, List<Map<Integer, String>> rows) {
+            super(sheetName, rowNumbers);
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        @Override
+        public String getCell(int i, int column) {
+            return rows.get(i).get(column);
+        }
+    }
+
+    private static class ArrayBatch extends RawBatch {
+
+        private final List<String[]> rows;
+
+        ArrayBatch(List<Integer> rowNumbers, List<String[]> rows) {
+            super(null, rowNumbers);
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        @Override
+        public String getCell(int i, int column) {
+            String[] values = rows.get(i);
+            return column < values.length ? values[column] : "";
+        }
+    }
+}
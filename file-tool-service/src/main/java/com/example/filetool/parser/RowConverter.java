@@ -0,0 +1,77 @@
+package com.example.filetool.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 行转换器
+ * 由字段映射编译得到（列定义和行规则），把原始行转换为回调给业务系统的行数据。
+ * 编译后只读，可以在多个线程中同时使用
+ */
+public class RowConverter {
+
+    /**
+     * 多Sheet导入时，行数据中记录所在Sheet名称的字段
+     */
+    public static final String SHEET_FIELD = "_sheet";
+
+    /**
+     * 多Sheet导入时，行数据中记录所在行号（从1开始）的字段
+     */
+    public static final String ROW_FIELD = "_row";
+
+    private final Map<Integer, ColumnDefinition> columns;
+
+    private final RowRules rowRules;
+
+    public RowConverter(Map<Integer, ColumnDefinition> columns, RowRules rowRules) {
+        this.columns = columns;
+        this.rowRules = rowRules;
+    }
+
+    /**
+     * 字段映射用到的列索引
+     * 读取文件时只需读取这些列，其余列不会被转换
+     *
+     * @return 列索引
+     */
+    public Set<Integer> columnIndexes() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * 按列定义转换一批原始行并执行行规则，类型转换或校验失败的行交给errorConsumer
+     * 原始行带有Sheet名称时，在行数据中记录Sheet名称和行号
+     *
+     * @param batch         原始行
+     * @param errorConsumer 失败行的处理函数
+     * @return 转换成功的行
+     */
+    public List<Map<String, Object>> convert(RawBatch batch, Consumer<RowError> errorConsumer) {
+        String sheetName = batch.getSheetName();
+        List<Map<String, Object>> dataRows = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Map<String, Object> dataRow = new HashMap<>();
+            try {
+                for (ColumnDefinition column : columns.values()) {
+                    dataRow.put(column.getField(), column.fromText(batch.getCell(i, column.getIndex())));
+                }
+                rowRules.apply(dataRow);
+            } catch (ColumnConversionException e) {
+                errorConsumer.accept(new RowError(sheetName, batch.getRowNumber(i), e));
+                continue;
+            }
+            if (sheetName != null) {
+                dataRow.put(SHEET_FIELD, sheetName);
+                dataRow.put(ROW_FIELD, batch.getRowNumber(i));
+            }
+            dataRows.add(dataRow);
+        }
+        return dataRows;
+    }
+}
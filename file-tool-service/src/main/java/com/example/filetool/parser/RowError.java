@@ -0,0 +1,44 @@
+package com.example.filetool.parser;
+
+import lombok.Data;
+
+/**
+ * 解析失败的行
+ * 类型转换失败的行不会交给批量数据处理函数，而是作为失败行单独上报
+ */
+@Data
+public class RowError {
+
+    /**
+     * 所在Sheet名称（CSV或单Sheet导入时为null）
+     */
+    private String sheet;
+
+    /**
+     * 行号（从1开始，含表头行，与文件中看到的行号一致）
+     */
+    private int rowNumber;
+
+    /**
+     * 转换失败的字段
+     */
+    private String field;
+
+    /**
+     * 原始值
+     */
+    private Object value;
+
+    /**
+     * 错误信息
+     */
+    private String message;
+
+    public RowError(String sheet, int rowNumber, ColumnConversionException e) {
+        this.sheet = sheet;
+        this.rowNumber = rowNumber;
+        this.field = e.getField();
+        this.value = e.getValue();
+        this.message = e.getMessage();
+    }
+}
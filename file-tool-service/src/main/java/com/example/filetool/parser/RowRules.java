@@ -0,0 +1,208 @@
+package com.example.filetool.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 行规则
+ * 字段映射中声明的转换和校验规则，解析任务开始时编译为一组按顺序执行的步骤，之后每行只执行编译好的步骤。
+ * 规则在类型转换之后执行，校验失败的行与类型转换失败的行一样作为失败行上报，不会回调给业务系统。
+ * 支持的规则：
+ * trim-去掉文本首尾空白；defaultValue-值为空时使用的默认值；required-不能为空；
+ * maxLength-文本最大长度；regex-文本需完整匹配的正则表达式；
+ * value-派生列模板，如"{firstName} {lastName}"，在所有列处理完后按模板生成该列的值
+ */
+public final class RowRules {
+
+    /**
+     * 不包含任何规则
+     */
+    public static final RowRules NONE = new RowRules(Collections.<RowRule>emptyList());
+
+    private final List<RowRule> steps;
+
+    private RowRules(List<RowRule> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * 编译字段映射中的规则
+     *
+     * @param columns 列定义
+     * @param specs   列索引到字段映射原始配置的映射
+     * @return 编译后的规则，没有任何规则时返回NONE
+     */
+    public static RowRules compile(Map<Integer, ColumnDefinition> columns, Map<Integer, Map<String, String>> specs) {
+        List<RowRule> steps = new ArrayList<>();
+        List<RowRule> derived = new ArrayList<>();
+        for (ColumnDefinition column : columns.values()) {
+            Map<String, String> spec = specs.get(column.getIndex());
+            if (spec == null) {
+                continue;
+            }
+            String field = column.getField();
+
+            String template = spec.get("value");
+            if (template != null && !template.isEmpty()) {
+                // 派生列依赖其他列处理后的值，统一放到最后执行
+                derived.add(new DerivedRule(field, column, template));
+                continue;
+            }
+
+            if (Boolean.parseBoolean(spec.get("trim"))) {
+                steps.add(row -> {
+                    Object value = row.get(field);
+                    if (value instanceof String) {
+                        row.put(field, ((String) value).trim());
+                    }
+                });
+            }
+
+            String defaultValue = spec.get("defaultValue");
+            if (defaultValue != null) {
+                Object converted = column.fromText(defaultValue);
+                steps.add(row -> {
+                    if (isEmpty(row.get(field))) {
+                        row.put(field, converted);
+                    }
+                });
+            }
+
+            if (Boolean.parseBoolean(spec.get("required"))) {
+                steps.add(row -> {
+                    Object value = row.get(field);
+                    if (isEmpty(value)) {
+                        throw new ColumnConversionException(field, value, "字段" + field + "不能为空", null);
+                    }
+                });
+            }
+
+            String maxLength = spec.get("maxLength");
+            if (maxLength != null && !maxLength.isEmpty()) {
+                int limit = parseMaxLength(field, maxLength);
+                steps.add(row -> {
+                    Object value = row.get(field);
+                    if (value != null && value.toString().length() > limit) {
+                        throw new ColumnConversionException(field, value,
+                                "字段" + field + "的长度超过" + limit, null);
+                    }
+                });
+            }
+
+            String regex = spec.get("regex");
+            if (regex != null && !regex.isEmpty()) {
+                Pattern pattern = compilePattern(field, regex);
+                steps.add(row -> {
+                    Object value = row.get(field);
+                    if (!isEmpty(value) && !pattern.matcher(value.toString()).matches()) {
+                        throw new ColumnConversionException(field, value,
+                                "字段" + field + "的值[" + value + "]不符合格式" + regex, null);
+                    }
+                });
+            }
+        }
+        steps.addAll(derived);
+        return steps.isEmpty() ? NONE : new RowRules(steps);
+    }
+
+    /**
+     * 是否不包含任何规则
+     */
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * 对一行数据执行规则，转换规则直接修改行数据
+     *
+     * @param row 类型转换后的行数据
+     * @throws ColumnConversionException 校验失败时抛出
+     */
+    public void apply(Map<String, Object> row) {
+        for (RowRule step : steps) {
+            step.apply(row);
+        }
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || (value instanceof String && ((String) value).isEmpty());
+    }
+
+    private static int parseMaxLength(String field, String maxLength) {
+        try {
+            return Integer.parseInt(maxLength);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("字段" + field + "的maxLength无效：" + maxLength, e);
+        }
+    }
+
+    private static Pattern compilePattern(String field, String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new RuntimeException("字段" + field + "的regex无效：" + regex, e);
+        }
+    }
+
+    /**
+     * 规则步骤
+     */
+    private interface RowRule {
+
+        void apply(Map<String, Object> row);
+    }
+
+    /**
+     * 派生列：模板在编译时拆分为文本片段和字段引用，执行时只做拼接
+     */
+    private static class DerivedRule implements RowRule {
+
+        private final String field;
+
+        private final ColumnDefinition column;
+
+        /**
+         * 偶数位置为文本片段，奇数位置为引用的字段名
+         */
+        private final String[] parts;
+
+        DerivedRule(String field, ColumnDefinition column, String template) {
+            this.field = field;
+            this.column = column;
+            List<String> result = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = template.indexOf('{', start)) >= 0) {
+                int close = template.indexOf('}', open);
+                if (close < 0) {
+                    throw new RuntimeException("字段" + field + "的派生模板无效：" + template);
+                }
+                result.add(template.substring(start, open));
+                result.add(template.substring(open + 1, close));
+                start = close + 1;
+            }
+            result.add(template.substring(start));
+            this.parts = result.toArray(new String[0]);
+        }
+
+        @Override
+        public void apply(Map<String, Object> row) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                if (i % 2 == 0) {
+                    sb.append(parts[i]);
+                } else {
+                    Object value = row.get(parts[i]);
+                    if (value != null) {
+                        sb.append(value);
+                    }
+                }
+            }
+            row.put(field, column.fromText(sb.toString()));
+        }
+    }
+}
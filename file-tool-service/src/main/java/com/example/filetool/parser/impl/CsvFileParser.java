@@ -1,9 +1,13 @@
 package com.example.filetool.parser.impl;
 
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.parser.ColumnConversionException;
+import com.example.filetool.parser.ColumnDefinition;
+import com.example.filetool.parser.FieldMappingResolver;
 import com.example.filetool.parser.FileParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.filetool.parser.RawBatch;
+import com.example.filetool.parser.RowConverter;
+import com.example.filetool.parser.RowError;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -11,7 +15,6 @@ import org.springframework.stereotype.Component;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -23,7 +26,15 @@ import java.util.function.Consumer;
 public class CsvFileParser implements FileParser {
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private FieldMappingResolver fieldMappingResolver;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    /**
+     * 指标中的解析器名称
+     */
+    private static final String PARSER_NAME = "csv";
 
     /**
      * 默认批处理大小
@@ -41,53 +52,80 @@ public class CsvFileParser implements FileParser {
     private static final char QUOTE = '"';
 
     @Override
-    public int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer) {
+    public int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer,
+                         Consumer<RowError> errorConsumer) {
+        // 解析字段映射
+        RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(fieldMapping);
+
+        return readRows(inputStream, rawBatch -> {
+            // 按列类型转换数据格式并执行行规则，失败的行交给errorConsumer
+            List<Map<String, Object>> dataRows = rowConverter.convert(rawBatch, errorConsumer);
+            if (!dataRows.isEmpty()) {
+                batchConsumer.accept(dataRows);
+            }
+        });
+    }
+
+    @Override
+    public int readRows(InputStream inputStream, Consumer<RawBatch> rawConsumer) {
+        // 表头为第1行
+        return readRows(inputStream, 1, true, rawConsumer);
+    }
+
+    /**
+     * 读取CSV文件中的一段行，不做类型转换
+     * 用于分片处理：输入流从某一行的行首开始，到某一行的行尾结束
+     *
+     * @param inputStream     文件输入流（或文件中一段按行对齐的字节范围）
+     * @param firstLineNumber 输入流第一行在文件中的行号（从1开始）
+     * @param skipHeader      第一行是否为表头（只有从文件开头读取时为true）
+     * @param rawConsumer     原始行处理函数
+     * @return 读取的总行数
+     */
+    public int readRows(InputStream inputStream, int firstLineNumber, boolean skipHeader,
+                        Consumer<RawBatch> rawConsumer) {
+        long startNanos = System.nanoTime();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            // 解析字段映射
-            Map<Integer, String> columnMapping = parseFieldMapping(fieldMapping);
-            AtomicInteger totalRows = new AtomicInteger(0);
+            int totalRows = 0;
+            int lineNumber = firstLineNumber - 1;
             
             // 读取CSV文件
             String line;
-            List<Map<String, Object>> batch = new ArrayList<>(DEFAULT_BATCH_SIZE);
+            List<Integer> lineNumbers = new ArrayList<>(DEFAULT_BATCH_SIZE);
+            List<String[]> batch = new ArrayList<>(DEFAULT_BATCH_SIZE);
             
             // 跳过表头行
-            reader.readLine();
+            if (skipHeader) {
+                reader.readLine();
+                lineNumber++;
+            }
             
             while ((line = reader.readLine()) != null) {
-                String[] values = parseCsvLine(line);
-                Map<String, Object> dataRow = new HashMap<>();
-                
-                // 转换数据格式
-                for (Map.Entry<Integer, String> entry : columnMapping.entrySet()) {
-                    Integer columnIndex = entry.getKey();
-                    String fieldName = entry.getValue();
-                    
-                    if (columnIndex < values.length) {
-                        dataRow.put(fieldName, values[columnIndex]);
-                    } else {
-                        dataRow.put(fieldName, "");
-                    }
-                }
-                
-                batch.add(dataRow);
-                totalRows.incrementAndGet();
+                lineNumber++;
+                lineNumbers.add(lineNumber);
+                batch.add(parseCsvLine(line));
+                totalRows++;
                 
                 // 达到批处理大小，进行处理
                 if (batch.size() >= DEFAULT_BATCH_SIZE) {
-                    batchConsumer.accept(new ArrayList<>(batch));
-                    batch.clear();
+                    fileToolMetrics.recordBatch(PARSER_NAME, "parse", batch.size());
+                    rawConsumer.accept(RawBatch.ofArrays(lineNumbers, batch));
+                    lineNumbers = new ArrayList<>(DEFAULT_BATCH_SIZE);
+                    batch = new ArrayList<>(DEFAULT_BATCH_SIZE);
                 }
             }
             
             // 处理剩余数据
             if (!batch.isEmpty()) {
-                batchConsumer.accept(batch);
+                fileToolMetrics.recordBatch(PARSER_NAME, "parse", batch.size());
+                rawConsumer.accept(RawBatch.ofArrays(lineNumbers, batch));
             }
             
-            log.info("CSV文件解析完成，总行数：{}", totalRows.get());
-            return totalRows.get();
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, true);
+            log.info("CSV文件解析完成，总行数：{}", totalRows);
+            return totalRows;
         } catch (Exception e) {
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, false);
             log.error("解析CSV文件失败", e);
             throw new RuntimeException("解析CSV文件失败: " + e.getMessage(), e);
         }
@@ -95,39 +133,52 @@ public class CsvFileParser implements FileParser {
 
     @Override
     public InputStream generateFile(DataProvider dataProvider, String fieldMapping) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeFile(dataProvider, fieldMapping, outputStream);
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    @Override
+    public int writeFile(DataProvider dataProvider, String fieldMapping, OutputStream outputStream) {
+        long startNanos = System.nanoTime();
         try {
             // 解析字段映射
-            final Map<String, Integer> fieldToColumnMap = parseFieldMappingReverse(fieldMapping);
-            final Map<Integer, String> headerMap = getHeaderMapping(fieldMapping);
+            final Map<Integer, ColumnDefinition> columns = fieldMappingResolver.resolveColumns(fieldMapping);
+            final Map<Integer, String> headerMap = fieldMappingResolver.resolveHeaders(fieldMapping);
+            int invalidValues = 0;
             
-            // 创建输出流
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
             
-            // 写入表头
+            // 写入表头，立即输出，不等待第一批数据
             List<String> headers = new ArrayList<>();
             for (int i = 0; i < headerMap.size(); i++) {
                 headers.add(headerMap.getOrDefault(i, "列" + i));
             }
             writer.write(toCsvLine(headers.toArray(new String[0])));
             writer.newLine();
+            writer.flush();
             
-            // 写入数据
+            // 写入数据，每批写完后输出
             int totalRows = 0;
             List<Map<String, Object>> dataRows;
             while (!(dataRows = dataProvider.provide(DEFAULT_BATCH_SIZE)).isEmpty()) {
+                fileToolMetrics.recordBatch(PARSER_NAME, "generate", dataRows.size());
                 for (Map<String, Object> dataRow : dataRows) {
                     String[] values = new String[headerMap.size()];
                     Arrays.fill(values, "");
                     
-                    // 转换数据格式
-                    for (Map.Entry<String, Object> entry : dataRow.entrySet()) {
-                        String fieldName = entry.getKey();
-                        Object value = entry.getValue();
-                        Integer columnIndex = fieldToColumnMap.get(fieldName);
-                        
-                        if (columnIndex != null && columnIndex < values.length) {
-                            values[columnIndex] = value != null ? value.toString() : "";
+                    // 按列类型转换为文本，无法转换的值原样写出
+                    for (ColumnDefinition column : columns.values()) {
+                        Object value = dataRow.get(column.getField());
+                        int columnIndex = column.getIndex();
+                        if (value == null || columnIndex >= values.length) {
+                            continue;
+                        }
+                        try {
+                            values[columnIndex] = column.toText(value);
+                        } catch (ColumnConversionException e) {
+                            invalidValues++;
+                            values[columnIndex] = value.toString();
                         }
                     }
                     
@@ -135,14 +186,17 @@ public class CsvFileParser implements FileParser {
                     writer.newLine();
                     totalRows++;
                 }
+                writer.flush();
             }
             
-            writer.flush();
+            if (invalidValues > 0) {
+                log.warn("生成CSV文件时有{}个值无法按列类型转换，已按原值写出", invalidValues);
+            }
+            fileToolMetrics.recordParse(PARSER_NAME, "generate", startNanos, true);
             log.info("CSV文件生成完成，总行数：{}", totalRows);
-            
-            // 返回输入流
-            return new ByteArrayInputStream(outputStream.toByteArray());
+            return totalRows;
         } catch (Exception e) {
+            fileToolMetrics.recordParse(PARSER_NAME, "generate", startNanos, false);
             log.error("生成CSV文件失败", e);
             throw new RuntimeException("生成CSV文件失败: " + e.getMessage(), e);
         }
@@ -215,93 +269,4 @@ public class CsvFileParser implements FileParser {
         
         return sb.toString();
     }
-
-    /**
-     * 解析字段映射
-     * 将JSON格式的字段映射转换为列索引到字段名的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
-     *
-     * @param fieldMapping 字段映射（JSON格式）
-     * @return 列索引到字段名的映射
-     */
-    private Map<Integer, String> parseFieldMapping(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            // 默认映射
-            Map<Integer, String> defaultMapping = new HashMap<>();
-            defaultMapping.put(0, "column0");
-            defaultMapping.put(1, "column1");
-            defaultMapping.put(2, "column2");
-            return defaultMapping;
-        }
-        
-        try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
-            
-            Map<Integer, String> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getKey(), entry.getValue().get("field"));
-            }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
-        }
-    }
-
-    /**
-     * 解析字段映射（反向）
-     * 将JSON格式的字段映射转换为字段名到列索引的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
-     *
-     * @param fieldMapping 字段映射（JSON格式）
-     * @return 字段名到列索引的映射
-     */
-    private Map<String, Integer> parseFieldMappingReverse(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            return new HashMap<>();
-        }
-        
-        try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
-            
-            Map<String, Integer> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getValue().get("field"), entry.getKey());
-            }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
-        }
-    }
-
-    /**
-     * 获取表头映射
-     * 将JSON格式的字段映射转换为列索引到中文标签的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
-     *
-     * @param fieldMapping 字段映射（JSON格式）
-     * @return 列索引到中文标签的映射
-     */
-    private Map<Integer, String> getHeaderMapping(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            return new HashMap<>();
-        }
-        
-        try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
-            
-            Map<Integer, String> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getKey(), entry.getValue().get("label"));
-            }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
-        }
-    }
 }
\ No newline at end of file
@@ -3,24 +3,36 @@ package com.example.filetool.parser.impl;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.event.AnalysisEventListener;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.parser.ColumnConversionException;
+import com.example.filetool.parser.ColumnDefinition;
+import com.example.filetool.parser.FieldMappingResolver;
 import com.example.filetool.parser.FileParser;
+import com.example.filetool.parser.RawBatch;
+import com.example.filetool.parser.RowConverter;
+import com.example.filetool.parser.RowError;
 import com.example.filetool.util.ExcelProcessUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.filetool.util.ExcelWriteOptions;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Excel文件解析器实现
@@ -34,7 +46,34 @@ public class ExcelFileParser implements FileParser {
     private ExcelProcessUtil excelProcessUtil;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private FieldMappingResolver fieldMappingResolver;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    @Autowired
+    @Qualifier("sheetParseExecutor")
+    private Executor sheetParseExecutor;
+
+    /**
+     * 多Sheet导入时，行数据中记录所在Sheet名称的字段
+     */
+    public static final String SHEET_FIELD = RowConverter.SHEET_FIELD;
+
+    /**
+     * 多Sheet导入时，行数据中记录所在行号（从1开始）的字段
+     */
+    public static final String ROW_FIELD = RowConverter.ROW_FIELD;
+
+    /**
+     * 选择全部Sheet
+     */
+    public static final String ALL_SHEETS = "*";
+
+    /**
+     * 指标中的解析器名称
+     */
+    private static final String PARSER_NAME = "excel";
 
     /**
      * 默认批处理大小
@@ -42,166 +81,278 @@ public class ExcelFileParser implements FileParser {
     private static final int DEFAULT_BATCH_SIZE = 1000;
 
     @Override
-    public int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer) {
-        try {
-            // 解析字段映射
-            Map<Integer, String> columnMapping = parseFieldMapping(fieldMapping);
-            final AtomicInteger totalRows = new AtomicInteger(0);
+    public int parseFile(InputStream inputStream, String fieldMapping, Consumer<List<Map<String, Object>>> batchConsumer,
+                         Consumer<RowError> errorConsumer) {
+        // 解析字段映射
+        RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(fieldMapping);
 
-            // 使用EasyExcel读取Excel文件
-            excelProcessUtil.readExcel(inputStream, excelRows -> {
-                List<Map<String, Object>> dataRows = new ArrayList<>();
-                
-                // 转换数据格式
-                for (Map<Integer, String> excelRow : excelRows) {
-                    Map<String, Object> dataRow = new HashMap<>();
-                    for (Map.Entry<Integer, String> entry : columnMapping.entrySet()) {
-                        Integer columnIndex = entry.getKey();
-                        String fieldName = entry.getValue();
-                        String value = excelRow.get(columnIndex);
-                        dataRow.put(fieldName, value);
-                    }
-                    dataRows.add(dataRow);
-                }
-                
-                // 处理转换后的数据
+        // 只读取字段映射用到的列
+        return readRows(inputStream, rowConverter.columnIndexes(), rawBatch -> {
+            // 转换数据格式并执行行规则，失败的行交给errorConsumer
+            List<Map<String, Object>> dataRows = rowConverter.convert(rawBatch, errorConsumer);
+            if (!dataRows.isEmpty()) {
                 batchConsumer.accept(dataRows);
-            }, DEFAULT_BATCH_SIZE);
-            
-            return totalRows.get();
+            }
+        });
+    }
+
+    @Override
+    public int readRows(InputStream inputStream, Consumer<RawBatch> rawConsumer) {
+        return readRows(inputStream, null, rawConsumer);
+    }
+
+    @Override
+    public int readRows(InputStream inputStream, Set<Integer> columns, Consumer<RawBatch> rawConsumer) {
+        return readSheetRows(sink -> excelProcessUtil.readSheet(inputStream, columns, sink, DEFAULT_BATCH_SIZE),
+                rawConsumer);
+    }
+
+    /**
+     * 读取本地文件中的原始行，不做类型转换
+     * 文件已在本地磁盘上时优先使用：XLSX按随机访问方式打开，不会先把整个文件复制到临时文件
+     *
+     * @param file        Excel文件
+     * @param columns     需要读取的列索引，为null时读取全部列
+     * @param rawConsumer 原始行处理函数
+     * @return 读取的总行数
+     */
+    public int readRows(File file, Set<Integer> columns, Consumer<RawBatch> rawConsumer) {
+        return readSheetRows(sink -> excelProcessUtil.readSheet(file, columns, sink, DEFAULT_BATCH_SIZE),
+                rawConsumer);
+    }
+
+    /**
+     * 读取一个Sheet中的一段行，不做类型转换
+     * 用于分片处理，每个分片读取一个Sheet或第一个Sheet的一段行
+     *
+     * @param file        Excel文件
+     * @param sheetNo     Sheet序号（从0开始）
+     * @param sheetName   Sheet名称，不为null时每行数据带上所在Sheet名称
+     * @param startRow    起始行号（从1开始，含表头行，含）
+     * @param endRow      结束行号（不含），为null时读到Sheet末尾
+     * @param columns     需要读取的列索引，为null时读取全部列
+     * @param rawConsumer 原始行处理函数
+     * @return 读取的总行数
+     */
+    public int readRows(File file, int sheetNo, String sheetName, int startRow, Integer endRow,
+                        Set<Integer> columns, Consumer<RawBatch> rawConsumer) {
+        return readSheetRows(sink -> excelProcessUtil.readSheetRange(file, sheetNo, sheetName, startRow, endRow,
+                columns, sink, DEFAULT_BATCH_SIZE), rawConsumer);
+    }
+
+    /**
+     * 执行一次Sheet读取，把每批数据转为原始行并记录指标
+     *
+     * @param reader      Sheet读取函数，参数为每批数据的处理函数，返回读取的总行数
+     * @param rawConsumer 原始行处理函数
+     * @return 读取的总行数
+     */
+    private int readSheetRows(Function<Consumer<ExcelProcessUtil.SheetBatch>, Integer> reader,
+                              Consumer<RawBatch> rawConsumer) {
+        long startNanos = System.nanoTime();
+        try {
+            // 使用EasyExcel读取Excel文件
+            int totalRows = reader.apply(sheetBatch -> {
+                fileToolMetrics.recordBatch(PARSER_NAME, "parse", sheetBatch.getRows().size());
+                rawConsumer.accept(RawBatch.ofMaps(sheetBatch.getSheetName(), sheetBatch.getRowNumbers(),
+                        sheetBatch.getRows()));
+            });
+
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, true);
+            return totalRows;
         } catch (Exception e) {
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, false);
             log.error("解析Excel文件失败", e);
             throw new RuntimeException("解析Excel文件失败: " + e.getMessage(), e);
         }
     }
 
-    @Override
-    public InputStream generateFile(DataProvider dataProvider, String fieldMapping) {
+    /**
+     * 列出按选择条件选中的Sheet
+     *
+     * @param streamSource 文件输入流来源
+     * @param sheets       *表示全部，或以逗号分隔的Sheet序号（从0开始）/Sheet名称
+     * @return 选中的Sheet（序号 -> 名称），按文件中的顺序排列
+     */
+    public Map<Integer, String> listSheets(ExcelProcessUtil.StreamSource streamSource, String sheets) {
+        return selectSheets(excelProcessUtil.listSheets(streamSource), sheets);
+    }
+
+    /**
+     * 并行解析多个Sheet
+     * 每个Sheet独立打开文件流并行解析，解析结果按批次交给batchConsumer（在调用线程中串行执行），
+     * 每行数据额外带上所在Sheet名称（_sheet）和行号（_row）
+     *
+     * @param streamSource  文件输入流来源，每个Sheet各打开一次
+     * @param fieldMapping  字段映射（JSON格式）
+     * @param sheets        要解析的Sheet：*表示全部，或以逗号分隔的Sheet序号（从0开始）/Sheet名称
+     * @param ordered       是否按Sheet顺序交付，否则按解析完成的先后交付
+     * @param batchConsumer 批量数据处理函数
+     * @param errorConsumer 类型转换失败行的处理函数
+     * @return 处理的总行数
+     */
+    public int parseSheets(ExcelProcessUtil.StreamSource streamSource, String fieldMapping, String sheets,
+                           boolean ordered, Consumer<List<Map<String, Object>>> batchConsumer,
+                           Consumer<RowError> errorConsumer) {
+        long startNanos = System.nanoTime();
         try {
-            // 解析字段映射
-            final Map<String, Integer> fieldToColumnMap = parseFieldMappingReverse(fieldMapping);
-            final Map<Integer, String> headerMap = getHeaderMapping(fieldMapping);
-            
-            // 创建输出流
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            // 使用ExcelProcessUtil写入Excel
-            excelProcessUtil.writeExcel(outputStream, headerMap, batchSize -> {
-                // 获取一批数据
-                List<Map<String, Object>> dataRows = dataProvider.provide(batchSize);
-                List<Map<Integer, Object>> excelRows = new ArrayList<>();
-                
-                // 转换数据格式
-                for (Map<String, Object> dataRow : dataRows) {
-                    Map<Integer, Object> excelRow = new HashMap<>();
-                    for (Map.Entry<String, Object> entry : dataRow.entrySet()) {
-                        String fieldName = entry.getKey();
-                        Object value = entry.getValue();
-                        Integer columnIndex = fieldToColumnMap.get(fieldName);
-                        if (columnIndex != null) {
-                            excelRow.put(columnIndex, value);
+            RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(fieldMapping);
+            Map<Integer, String> selectedSheets = selectSheets(excelProcessUtil.listSheets(streamSource), sheets);
+            log.info("开始并行解析Excel，Sheet：{}，有序交付：{}", selectedSheets.values(), ordered);
+
+            // 类型转换和行规则在各Sheet的解析线程中执行，调用线程只处理校验通过的行
+            int totalRows = excelProcessUtil.readSheets(streamSource, selectedSheets, ordered,
+                    rowConverter.columnIndexes(), sheetBatch -> rowConverter.convert(
+                            RawBatch.ofMaps(sheetBatch.getSheetName(), sheetBatch.getRowNumbers(), sheetBatch.getRows()),
+                            errorConsumer),
+                    dataRows -> {
+                        fileToolMetrics.recordBatch(PARSER_NAME, "parse", dataRows.size());
+                        if (!dataRows.isEmpty()) {
+                            batchConsumer.accept(dataRows);
                         }
-                    }
-                    excelRows.add(excelRow);
-                }
-                
-                return excelRows;
-            });
-            
-            // 返回输入流
-            return new ByteArrayInputStream(outputStream.toByteArray());
+                    }, DEFAULT_BATCH_SIZE, sheetParseExecutor);
+
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, true);
+            return totalRows;
         } catch (Exception e) {
-            log.error("生成Excel文件失败", e);
-            throw new RuntimeException("生成Excel文件失败: " + e.getMessage(), e);
+            fileToolMetrics.recordParse(PARSER_NAME, "parse", startNanos, false);
+            log.error("并行解析Excel文件失败", e);
+            throw new RuntimeException("解析Excel文件失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 解析字段映射
-     * 将JSON格式的字段映射转换为列索引到字段名的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
+     * 按选择条件筛选Sheet
      *
-     * @param fieldMapping 字段映射（JSON格式）
-     * @return 列索引到字段名的映射
+     * @param allSheets 文件中的全部Sheet（序号 -> 名称）
+     * @param sheets    *表示全部，或以逗号分隔的Sheet序号/Sheet名称
+     * @return 选中的Sheet，按文件中的顺序排列
      */
-    private Map<Integer, String> parseFieldMapping(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            // 默认映射
-            Map<Integer, String> defaultMapping = new HashMap<>();
-            defaultMapping.put(0, "column0");
-            defaultMapping.put(1, "column1");
-            defaultMapping.put(2, "column2");
-            return defaultMapping;
+    private Map<Integer, String> selectSheets(Map<Integer, String> allSheets, String sheets) {
+        if (sheets == null || sheets.trim().isEmpty() || ALL_SHEETS.equals(sheets.trim())) {
+            return allSheets;
         }
-        
-        try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
-            
-            Map<Integer, String> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getKey(), entry.getValue().get("field"));
+
+        Map<Integer, String> selected = new LinkedHashMap<>();
+        for (String item : sheets.split(",")) {
+            String name = item.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Integer sheetNo = null;
+            for (Map.Entry<Integer, String> entry : allSheets.entrySet()) {
+                if (name.equals(entry.getValue())) {
+                    sheetNo = entry.getKey();
+                    break;
+                }
+            }
+            if (sheetNo == null && name.chars().allMatch(Character::isDigit)) {
+                sheetNo = Integer.valueOf(name);
+            }
+            if (sheetNo == null || !allSheets.containsKey(sheetNo)) {
+                throw new RuntimeException("Sheet不存在：" + name);
+            }
+            selected.put(sheetNo, allSheets.get(sheetNo));
+        }
+
+        // 按文件中的Sheet顺序排列
+        Map<Integer, String> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, String> entry : allSheets.entrySet()) {
+            if (selected.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
             }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
         }
+        return result;
+    }
+
+    @Override
+    public InputStream generateFile(DataProvider dataProvider, String fieldMapping) {
+        return generateFile(dataProvider, fieldMapping, null);
     }
 
     /**
-     * 解析字段映射（反向）
-     * 将JSON格式的字段映射转换为字段名到列索引的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
+     * 生成文件，使用指定的XLSX流式写入参数
      *
+     * @param dataProvider 数据提供者
      * @param fieldMapping 字段映射（JSON格式）
-     * @return 字段名到列索引的映射
+     * @param writeOptions 流式写入参数（行访问窗口、共享字符串表、临时文件压缩），为null时使用全局配置
+     * @return 生成的文件输入流
      */
-    private Map<String, Integer> parseFieldMappingReverse(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            return new HashMap<>();
-        }
-        
-        try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
-            
-            Map<String, Integer> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getValue().get("field"), entry.getKey());
-            }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
-        }
+    public InputStream generateFile(DataProvider dataProvider, String fieldMapping, ExcelWriteOptions writeOptions) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeFile(dataProvider, fieldMapping, writeOptions, outputStream);
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    @Override
+    public int writeFile(DataProvider dataProvider, String fieldMapping, OutputStream outputStream) {
+        return writeFile(dataProvider, fieldMapping, null, outputStream);
     }
 
     /**
-     * 获取表头映射
-     * 将JSON格式的字段映射转换为列索引到中文标签的映射
-     * 格式：{"0":{"field":"username","label":"用户名"},"1":{"field":"age","label":"年龄"}}
+     * 生成XLSX文件并直接写入输出流，使用指定的流式写入参数
+     * 内存中只保留行访问窗口内的行；XLSX是ZIP格式，工作表在全部数据写完后才整体输出
      *
+     * @param dataProvider 数据提供者
      * @param fieldMapping 字段映射（JSON格式）
-     * @return 列索引到中文标签的映射
+     * @param writeOptions 流式写入参数，为null时使用全局配置
+     * @param outputStream 输出流
+     * @return 写入的数据行数
      */
-    private Map<Integer, String> getHeaderMapping(String fieldMapping) {
-        if (fieldMapping == null || fieldMapping.isEmpty()) {
-            return new HashMap<>();
-        }
-        
+    public int writeFile(DataProvider dataProvider, String fieldMapping, ExcelWriteOptions writeOptions,
+                         OutputStream outputStream) {
+        long startNanos = System.nanoTime();
         try {
-            Map<Integer, Map<String, String>> mapping = objectMapper.readValue(fieldMapping, 
-                new TypeReference<Map<Integer, Map<String, String>>>() {});
+            // 解析字段映射
+            final Map<Integer, ColumnDefinition> columns = fieldMappingResolver.resolveColumns(fieldMapping);
+            final Map<Integer, String> headerMap = fieldMappingResolver.resolveHeaders(fieldMapping);
+            final Map<Integer, String> columnFormats = new HashMap<>();
+            for (ColumnDefinition column : columns.values()) {
+                if (column.excelFormat() != null) {
+                    columnFormats.put(column.getIndex(), column.excelFormat());
+                }
+            }
+            final AtomicInteger invalidValues = new AtomicInteger(0);
             
-            Map<Integer, String> result = new HashMap<>();
-            for (Map.Entry<Integer, Map<String, String>> entry : mapping.entrySet()) {
-                result.put(entry.getKey(), entry.getValue().get("label"));
+            // 使用ExcelProcessUtil写入Excel
+            int totalRows = excelProcessUtil.writeExcel(outputStream, headerMap, batchSize -> {
+                // 获取一批数据
+                List<Map<String, Object>> dataRows = dataProvider.provide(batchSize);
+                List<Map<Integer, Object>> excelRows = new ArrayList<>(dataRows.size());
+                if (!dataRows.isEmpty()) {
+                    fileToolMetrics.recordBatch(PARSER_NAME, "generate", dataRows.size());
+                }
+                
+                // 按列类型转换为原生单元格值，无法转换的值原样写出
+                for (Map<String, Object> dataRow : dataRows) {
+                    Map<Integer, Object> excelRow = new HashMap<>();
+                    for (ColumnDefinition column : columns.values()) {
+                        Object value = dataRow.get(column.getField());
+                        if (value == null) {
+                            continue;
+                        }
+                        try {
+                            excelRow.put(column.getIndex(), column.toCellValue(value));
+                        } catch (ColumnConversionException e) {
+                            invalidValues.incrementAndGet();
+                            excelRow.put(column.getIndex(), value);
+                        }
+                    }
+                    excelRows.add(excelRow);
+                }
+                
+                return excelRows;
+            }, DEFAULT_BATCH_SIZE, writeOptions, columnFormats);
+            
+            if (invalidValues.get() > 0) {
+                log.warn("生成Excel文件时有{}个值无法按列类型转换，已按原值写出", invalidValues.get());
             }
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("解析字段映射失败", e);
-            throw new RuntimeException("解析字段映射失败: " + e.getMessage(), e);
+            fileToolMetrics.recordParse(PARSER_NAME, "generate", startNanos, true);
+            return totalRows;
+        } catch (Exception e) {
+            fileToolMetrics.recordParse(PARSER_NAME, "generate", startNanos, false);
+            log.error("生成Excel文件失败", e);
+            throw new RuntimeException("生成Excel文件失败: " + e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.example.filetool.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * 异步交付队列：批次按提交顺序依次异步发送，前一批发送结束后才发出下一批
+ * 发送过程中等待主机配额、熔断恢复和重试退避都不占用线程；未结束的批次数达到上限时submit阻塞，
+ * 使交付阶段和管道随之暂停，内存中积压的批次数始终有上限。
+ * 发送函数返回的future失败时不影响后续批次，结果由发送函数自行记录
+ *
+ * @param <T> 批次类型
+ */
+public class AsyncDeliveryQueue<T> {
+
+    private final Function<T, CompletableFuture<?>> sender;
+
+    private final Semaphore pending;
+
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param maxPending 最多未结束的批次数
+     * @param sender     发送一个批次，返回发送结束时完成的future，不能阻塞
+     */
+    public AsyncDeliveryQueue(int maxPending, Function<T, CompletableFuture<?>> sender) {
+        this.pending = new Semaphore(Math.max(1, maxPending));
+        this.sender = sender;
+    }
+
+    /**
+     * 提交一个批次，排在已提交的批次之后发送
+     * 未结束的批次数已达上限时阻塞，直到有批次发送结束
+     *
+     * @param batch 批次
+     */
+    public void submit(T batch) {
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待批次发送被中断", e);
+        }
+        synchronized (this) {
+            tail = tail.thenCompose(ignored -> send(batch));
+        }
+    }
+
+    /**
+     * 等待已提交的批次全部发送结束
+     */
+    public void awaitAll() {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = tail;
+        }
+        last.join();
+    }
+
+    private CompletableFuture<Void> send(T batch) {
+        CompletableFuture<?> sent;
+        try {
+            sent = sender.apply(batch);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.handle((result, error) -> {
+            pending.release();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.filetool.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 分阶段处理管道：读取 -> 转换 -> 交付
+ * 读取阶段在调用线程中执行，转换和交付阶段各自使用若干工作线程，阶段之间通过有界队列连接：
+ * 交付跟不上时队列填满，读取线程随之阻塞，内存中的批次数始终有上限。
+ * 每个批次在进入转换队列的同时按读取顺序进入交付队列，交付线程按该顺序等待转换结果，
+ * 因此交付并行度为1时，交付顺序与读取顺序一致。
+ * 任一阶段失败时，其余阶段尽快停止，异常在调用线程中抛出。
+ */
+@Slf4j
+@Component
+public class StagedPipeline {
+
+    /**
+     * 阶段间等待的轮询间隔，用于及时发现其他阶段失败
+     */
+    private static final long POLL_MILLIS = 100;
+
+    @Autowired
+    @Qualifier("pipelineExecutor")
+    private Executor pipelineExecutor;
+
+    /**
+     * 默认转换并行度
+     */
+    @Value("${file.task.pipeline.transform-parallelism:2}")
+    private int defaultTransformParallelism;
+
+    /**
+     * 默认交付并行度
+     */
+    @Value("${file.task.pipeline.deliver-parallelism:1}")
+    private int defaultDeliverParallelism;
+
+    /**
+     * 默认阶段间队列容量（批次数）
+     */
+    @Value("${file.task.pipeline.queue-capacity:4}")
+    private int defaultQueueCapacity;
+
+    /**
+     * 使用默认并行度运行管道
+     *
+     * @param source    读取阶段
+     * @param transform 转换阶段
+     * @param deliver   交付阶段
+     * @param <R>       读取结果类型
+     * @param <T>       转换结果类型
+     * @return 读取阶段返回的行数
+     */
+    public <R, T> int run(Source<R> source, Function<R, T> transform, Consumer<T> deliver) {
+        return run(source, transform, defaultTransformParallelism, deliver, defaultDeliverParallelism,
+                defaultQueueCapacity);
+    }
+
+    /**
+     * 运行没有转换阶段的管道：读取结果直接交付，只让交付与读取重叠
+     *
+     * @param source  读取阶段
+     * @param deliver 交付阶段
+     * @param ordered 是否按读取顺序交付，是则只使用一个交付线程
+     * @param <T>     读取结果类型
+     * @return 读取阶段返回的行数
+     */
+    public <T> int run(Source<T> source, Consumer<T> deliver, boolean ordered) {
+        return run(source, Function.identity(), 0, deliver, ordered ? 1 : defaultDeliverParallelism,
+                defaultQueueCapacity);
+    }
+
+    /**
+     * 运行管道
+     *
+     * @param source                读取阶段，在调用线程中执行
+     * @param transform             转换阶段，需线程安全
+     * @param transformParallelism  转换线程数，0表示在读取线程中直接转换
+     * @param deliver               交付阶段，交付并行度大于1时需线程安全
+     * @param deliverParallelism    交付线程数
+     * @param queueCapacity         阶段间队列容量（批次数）
+     * @param <R>                   读取结果类型
+     * @param <T>                   转换结果类型
+     * @return 读取阶段返回的行数
+     */
+    public <R, T> int run(Source<R> source, Function<R, T> transform, int transformParallelism,
+                          Consumer<T> deliver, int deliverParallelism, int queueCapacity) {
+        if (transformParallelism < 0 || deliverParallelism < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("管道参数无效：transformParallelism=" + transformParallelism
+                    + "，deliverParallelism=" + deliverParallelism + "，queueCapacity=" + queueCapacity);
+        }
+
+        Run<R, T> run = new Run<>(transform, deliver, queueCapacity);
+        CountDownLatch workersDone = new CountDownLatch(transformParallelism + deliverParallelism);
+        for (int i = 0; i < transformParallelism; i++) {
+            pipelineExecutor.execute(() -> run.worker(run::transformLoop, workersDone));
+        }
+        for (int i = 0; i < deliverParallelism; i++) {
+            pipelineExecutor.execute(() -> run.worker(run::deliverLoop, workersDone));
+        }
+
+        boolean completed = false;
+        try {
+            int totalRows = source.read(input -> run.submit(input, transformParallelism == 0));
+            run.finish(transformParallelism, deliverParallelism);
+            completed = true;
+            awaitWorkers(workersDone);
+            run.checkFailure();
+            return totalRows;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            if (!completed) {
+                run.abort();
+                awaitWorkers(workersDone);
+            }
+        }
+    }
+
+    private void awaitWorkers(CountDownLatch workersDone) {
+        try {
+            workersDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待管道工作线程结束被中断", e);
+        }
+    }
+
+    /**
+     * 读取阶段
+     */
+    @FunctionalInterface
+    public interface Source<R> {
+
+        /**
+         * 读取数据并逐批交给sink，sink在下游积压时阻塞
+         *
+         * @param sink 下游阶段
+         * @return 读取的总行数
+         * @throws Exception 读取失败
+         */
+        int read(Consumer<R> sink) throws Exception;
+    }
+
+    /**
+     * 一次管道运行的共享状态
+     */
+    private static class Run<R, T> {
+
+        private final Function<R, T> transform;
+
+        private final Consumer<T> deliver;
+
+        /**
+         * 待转换的批次
+         */
+        private final BlockingQueue<Slot<R, T>> transformQueue;
+
+        /**
+         * 按读取顺序排列的批次，交付线程按此顺序等待转换结果
+         */
+        private final BlockingQueue<Slot<R, T>> deliverQueue;
+
+        private final AtomicBoolean aborted = new AtomicBoolean(false);
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Run(Function<R, T> transform, Consumer<T> deliver, int queueCapacity) {
+            this.transform = transform;
+            this.deliver = deliver;
+            this.transformQueue = new ArrayBlockingQueue<>(queueCapacity);
+            this.deliverQueue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        /**
+         * 读取线程提交一批数据，下游队列满时等待
+         */
+        void submit(R input, boolean inline) {
+            checkFailure();
+            Slot<R, T> slot = new Slot<>(input);
+            put(deliverQueue, slot);
+            if (inline) {
+                slot.complete(transform);
+            } else {
+                put(transformQueue, slot);
+            }
+        }
+
+        /**
+         * 读取结束，通知各工作线程退出
+         */
+        void finish(int transformParallelism, int deliverParallelism) {
+            for (int i = 0; i < transformParallelism; i++) {
+                put(transformQueue, Slot.end());
+            }
+            for (int i = 0; i < deliverParallelism; i++) {
+                put(deliverQueue, Slot.end());
+            }
+        }
+
+        void abort() {
+            aborted.set(true);
+        }
+
+        void checkFailure() {
+            Throwable error = failure.get();
+            if (error != null) {
+                throw error instanceof RuntimeException ? (RuntimeException) error
+                        : new RuntimeException(error.getMessage(), error);
+            }
+        }
+
+        void worker(Runnable loop, CountDownLatch workersDone) {
+            try {
+                loop.run();
+            } catch (Throwable e) {
+                if (!aborted.get()) {
+                    log.error("管道处理失败", e);
+                    failure.compareAndSet(null, e);
+                }
+                aborted.set(true);
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        void transformLoop() {
+            Slot<R, T> slot;
+            while ((slot = take(transformQueue)) != null && !slot.isEnd()) {
+                slot.complete(transform);
+            }
+        }
+
+        void deliverLoop() {
+            Slot<R, T> slot;
+            while ((slot = take(deliverQueue)) != null && !slot.isEnd()) {
+                if (!slot.await(aborted)) {
+                    return;
+                }
+                deliver.accept(slot.getOutput());
+            }
+        }
+
+        private void put(BlockingQueue<Slot<R, T>> queue, Slot<R, T> slot) {
+            try {
+                while (!queue.offer(slot, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                    if (aborted.get()) {
+                        throw new RuntimeException("管道已停止");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待管道队列被中断", e);
+            }
+        }
+
+        /**
+         * 取出一个批次，管道停止时返回null
+         */
+        private Slot<R, T> take(BlockingQueue<Slot<R, T>> queue) {
+            try {
+                while (!aborted.get()) {
+                    Slot<R, T> slot = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (slot != null) {
+                        return slot;
+                    }
+                }
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 一个批次：转换前的输入和转换结果
+     */
+    private static class Slot<R, T> {
+
+        private static final Slot<?, ?> END = new Slot<>(null);
+
+        private final R input;
+
+        private final CompletableFuture<T> output = new CompletableFuture<>();
+
+        Slot(R input) {
+            this.input = input;
+        }
+
+        boolean isEnd() {
+            return this == END;
+        }
+
+        void complete(Function<R, T> transform) {
+            try {
+                output.complete(transform.apply(input));
+            } catch (RuntimeException | Error e) {
+                output.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        /**
+         * 等待转换完成
+         *
+         * @return 转换成功返回true；转换失败或管道停止返回false，失败原因由转换线程上报
+         */
+        boolean await(AtomicBoolean aborted) {
+            try {
+                while (!aborted.get()) {
+                    try {
+                        output.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        return true;
+                    } catch (TimeoutException e) {
+                        // 继续等待
+                    }
+                }
+                return false;
+            } catch (ExecutionException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        T getOutput() {
+            return output.getNow(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <R, T> Slot<R, T> end() {
+            return (Slot<R, T>) END;
+        }
+    }
+}
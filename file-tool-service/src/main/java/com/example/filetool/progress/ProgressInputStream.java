@@ -0,0 +1,44 @@
+package com.example.filetool.progress;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 统计读取字节数的输入流
+ * 读取的字节数累加到任务进度中
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private final TaskProgress progress;
+
+    public ProgressInputStream(InputStream in, TaskProgress progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            progress.addBytes(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            progress.addBytes(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        progress.addBytes(skipped);
+        return skipped;
+    }
+}
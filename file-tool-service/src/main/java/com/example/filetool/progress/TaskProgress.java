@@ -0,0 +1,215 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.entity.FileTask;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 任务实时进度
+ * 使用无锁计数器记录运行中任务的行数、字节数和批次数
+ */
+public class TaskProgress {
+
+    /**
+     * 任务ID
+     */
+    @Getter
+    private final Long taskId;
+
+    /**
+     * 任务名称
+     */
+    @Getter
+    private final String taskName;
+
+    /**
+     * 开始时间（毫秒）
+     */
+    @Getter
+    private final long startTime;
+
+    /**
+     * 当前处理阶段
+     */
+    @Getter
+    private volatile Stage stage = Stage.PENDING;
+
+    /**
+     * 任务状态，处理结束后为COMPLETED或FAILED
+     */
+    @Getter
+    private volatile FileTask.TaskStatus status = FileTask.TaskStatus.PROCESSING;
+
+    /**
+     * 错误信息
+     */
+    @Getter
+    private volatile String errorMessage;
+
+    private final LongAdder processedRows = new LongAdder();
+
+    private final LongAdder successRows = new LongAdder();
+
+    private final LongAdder failedRows = new LongAdder();
+
+    private final LongAdder processedBytes = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * 上次刷新到数据库的时间和行数，用于节流
+     */
+    private final AtomicLong lastFlushTime;
+
+    private final AtomicLong lastFlushedRows = new AtomicLong(0);
+
+    /**
+     * 是否正在刷新，保证同一时刻只有一个线程写数据库
+     */
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    public TaskProgress(Long taskId, String taskName) {
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.startTime = System.currentTimeMillis();
+        this.lastFlushTime = new AtomicLong(startTime);
+    }
+
+    /**
+     * 处理阶段枚举
+     */
+    public enum Stage {
+        PENDING, STORING, PARSING, FETCHING, WRITING, CALLBACK
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * 标记任务处理结束
+     *
+     * @param status       最终状态
+     * @param errorMessage 错误信息
+     */
+    public void finish(FileTask.TaskStatus status, String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return status == FileTask.TaskStatus.COMPLETED || status == FileTask.TaskStatus.FAILED;
+    }
+
+    /**
+     * 记录一个已处理的批次
+     *
+     * @param rows 批次行数
+     */
+    public void addBatch(int rows) {
+        processedRows.add(rows);
+        batches.increment();
+    }
+
+    public void addSuccessRows(int rows) {
+        successRows.add(rows);
+    }
+
+    public void addFailedRows(int rows) {
+        failedRows.add(rows);
+    }
+
+    public void addBytes(long bytes) {
+        processedBytes.add(bytes);
+    }
+
+    public long getProcessedRows() {
+        return processedRows.sum();
+    }
+
+    public long getSuccessRows() {
+        return successRows.sum();
+    }
+
+    public long getFailedRows() {
+        return failedRows.sum();
+    }
+
+    public long getProcessedBytes() {
+        return processedBytes.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * 生成进度快照，用于状态查询和推送
+     *
+     * @return 进度快照
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("taskId", taskId);
+        result.put("taskName", taskName);
+        result.put("status", status);
+        result.put("stage", stage);
+        result.put("processedRows", getProcessedRows());
+        result.put("successRows", getSuccessRows());
+        result.put("failedRows", getFailedRows());
+        result.put("processedBytes", getProcessedBytes());
+        result.put("batches", getBatches());
+        if (errorMessage != null) {
+            result.put("errorMessage", errorMessage);
+        }
+        return result;
+    }
+
+    /**
+     * 按数据库中的任务记录生成状态快照，用于任务未在本节点运行时
+     *
+     * @param task 文件任务
+     * @return 状态快照
+     */
+    public static Map<String, Object> snapshotOf(FileTask task) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("taskId", task.getId());
+        result.put("taskName", task.getTaskName());
+        result.put("status", task.getStatus());
+        result.put("processedRows", task.getProcessedRows());
+        result.put("successRows", task.getSuccessRows());
+        result.put("failedRows", task.getFailedRows());
+        if (task.getErrorMessage() != null) {
+            result.put("errorMessage", task.getErrorMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 判断是否达到刷新条件（时间间隔或行数增量）
+     *
+     * @param now             当前时间（毫秒）
+     * @param flushIntervalMs 刷新时间间隔
+     * @param flushRows       刷新行数增量
+     * @return 是否需要刷新
+     */
+    boolean isFlushDue(long now, long flushIntervalMs, long flushRows) {
+        return now - lastFlushTime.get() >= flushIntervalMs
+                || getProcessedRows() - lastFlushedRows.get() >= flushRows;
+    }
+
+    boolean tryBeginFlush() {
+        return flushing.compareAndSet(false, true);
+    }
+
+    void endFlush(long now, long rows) {
+        lastFlushTime.set(now);
+        lastFlushedRows.set(rows);
+        flushing.set(false);
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.config.ThreadPoolConfig;
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.repository.FileTaskRepository;
+import com.example.filetool.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 任务进度推送器
+ * 维护任务进度的SSE订阅者，定时从进度注册表推送进度，任务结束时推送最终状态并关闭连接。
+ * 每个订阅者的事件在发送线程中逐个发送，定时线程和任务处理线程只需登记事件，不会被慢客户端阻塞：
+ * 订阅者未发送的进度只保留最新的一条，最终状态覆盖未发送的进度；
+ * 一次发送超过 send-timeout-ms 仍未完成的订阅者被移除，不再接收事件。
+ * 任务不在本节点运行（在其他节点运行、分片在其他节点结束，或订阅前刚刚结束）时本节点收不到结束通知，
+ * 这类订阅每隔 status-check-ticks 次推送从数据库读取一次任务状态，任务已结束时推送最终状态
+ */
+@Slf4j
+@Component
+public class TaskProgressPublisher {
+
+    /**
+     * 进度事件名称
+     */
+    public static final String EVENT_PROGRESS = "progress";
+
+    /**
+     * 最终状态事件名称
+     */
+    public static final String EVENT_STATUS = "status";
+
+    @Autowired
+    private TaskProgressRegistry taskProgressRegistry;
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    /**
+     * 进度推送间隔（毫秒）
+     */
+    @Value("${file.task.progress.push-interval-ms:1000}")
+    private long pushIntervalMs;
+
+    /**
+     * SSE连接超时时间（毫秒）
+     */
+    @Value("${file.task.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    /**
+     * 一次发送的最长时间（毫秒），超过时移除该订阅者
+     */
+    @Value("${file.task.progress.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    /**
+     * 没有本地进度的订阅任务每隔多少次推送从数据库检查一次任务状态
+     */
+    @Value("${file.task.progress.status-check-ticks:5}")
+    private int statusCheckTicks;
+
+    /**
+     * 执行模式，virtual且JVM支持虚拟线程时每次发送使用一个虚拟线程
+     */
+    @Value("${file.task.execution.mode:platform}")
+    private String executionMode;
+
+    /**
+     * 不使用虚拟线程时的发送线程数，正在发送的订阅者超过该数量时排队
+     */
+    @Value("${file.task.progress.send-pool-size:16}")
+    private int sendPoolSize;
+
+    private final ConcurrentMap<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService pushExecutor;
+
+    /**
+     * 推送次数，只在推送线程中访问
+     */
+    private long pushTicks;
+
+    /**
+     * 发送线程：发送阻塞在客户端连接上，每个正在发送的订阅者占用一个线程
+     */
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (ThreadPoolConfig.MODE_VIRTUAL.equalsIgnoreCase(executionMode) && VirtualThreads.isSupported()) {
+            sendExecutor = VirtualThreads.newThreadPerTaskExecutor("task-progress-send-");
+        } else {
+            // 平台线程数有上限，订阅者很多或客户端很慢时发送排队，不会按订阅者数创建线程
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(sendPoolSize, sendPoolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "task-progress-send-" + counter.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sendExecutor = executor;
+        }
+        pushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-progress-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pushExecutor.scheduleWithFixedDelay(this::pushProgress, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pushExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    /**
+     * 订阅任务进度
+     *
+     * @param taskId   任务ID
+     * @param snapshot 当前状态快照，订阅后立即推送
+     * @param finished 任务是否已结束，已结束时推送快照后立即关闭连接
+     * @return SSE连接
+     */
+    public SseEmitter subscribe(Long taskId, Map<String, Object> snapshot, boolean finished) {
+        SseEmitter emitter = newEmitter(sseTimeoutMs);
+        if (finished) {
+            send(emitter, EVENT_STATUS, snapshot);
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(taskId, emitter);
+        List<Subscriber> list = subscribers.computeIfAbsent(taskId, id -> new CopyOnWriteArrayList<>());
+        list.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscriber.offer(EVENT_PROGRESS, snapshot);
+
+        // 订阅期间任务可能已经结束，此时最终状态已推送过，需要补发；
+        // 没有本地进度时任务结束的结果只在数据库中，登记订阅后再读取一次
+        TaskProgress progress = taskProgressRegistry.get(taskId);
+        if (progress != null && progress.isFinished()) {
+            removeSubscriber(subscriber);
+            subscriber.offer(EVENT_STATUS, progress.snapshot());
+        } else if (progress == null) {
+            checkStoredStatus(taskId);
+        }
+        return emitter;
+    }
+
+    /**
+     * 推送任务最终状态并关闭该任务的所有订阅
+     *
+     * @param progress 已结束的任务进度
+     */
+    public void publishTerminal(TaskProgress progress) {
+        publishTerminal(progress.getTaskId(), progress.snapshot());
+    }
+
+    private void publishTerminal(Long taskId, Map<String, Object> snapshot) {
+        List<Subscriber> list = subscribers.remove(taskId);
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        list.forEach(subscriber -> subscriber.offer(EVENT_STATUS, snapshot));
+    }
+
+    /**
+     * 从数据库读取任务状态，任务已结束时向订阅者推送最终状态
+     */
+    private void checkStoredStatus(Long taskId) {
+        try {
+            fileTaskRepository.findById(taskId)
+                    .filter(task -> task.getStatus() == FileTask.TaskStatus.COMPLETED
+                            || task.getStatus() == FileTask.TaskStatus.FAILED)
+                    .ifPresent(task -> publishTerminal(taskId, TaskProgress.snapshotOf(task)));
+        } catch (Exception e) {
+            log.warn("读取任务状态失败：{}", taskId, e);
+        }
+    }
+
+    /**
+     * 创建SSE连接
+     */
+    protected SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /**
+     * 向所有订阅者登记运行中任务的最新进度，移除发送超时的订阅者；
+     * 没有本地进度的任务定期检查数据库中的状态
+     */
+    private void pushProgress() {
+        long now = System.currentTimeMillis();
+        boolean checkStatus = ++pushTicks % Math.max(1, statusCheckTicks) == 0;
+        for (Map.Entry<Long, List<Subscriber>> entry : subscribers.entrySet()) {
+            TaskProgress progress = taskProgressRegistry.get(entry.getKey());
+            if (progress == null && checkStatus) {
+                checkStoredStatus(entry.getKey());
+            }
+            Map<String, Object> snapshot = progress == null || progress.isFinished() ? null : progress.snapshot();
+            for (Subscriber subscriber : entry.getValue()) {
+                if (subscriber.isStalled(now)) {
+                    log.debug("推送任务进度超时，关闭连接：{}", entry.getKey());
+                    removeSubscriber(subscriber);
+                    subscriber.close();
+                    subscriber.emitter.completeWithError(new IOException("推送任务进度超时"));
+                } else if (snapshot != null) {
+                    subscriber.offer(EVENT_PROGRESS, snapshot);
+                }
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String eventName, Map<String, Object> data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送任务进度失败，关闭连接：{}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void removeSubscriber(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.taskId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * 一个SSE订阅者：待发送的事件和发送状态
+     */
+    private final class Subscriber {
+
+        private final Long taskId;
+
+        private final SseEmitter emitter;
+
+        /**
+         * 以下状态由this保护
+         */
+        private Map<String, Object> pendingProgress;
+
+        private Map<String, Object> pendingStatus;
+
+        private boolean sending;
+
+        private long sendingSince;
+
+        private boolean closed;
+
+        Subscriber(Long taskId, SseEmitter emitter) {
+            this.taskId = taskId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 登记待发送的事件，没有正在进行的发送时提交到发送线程
+         */
+        synchronized void offer(String eventName, Map<String, Object> data) {
+            if (closed) {
+                return;
+            }
+            if (EVENT_STATUS.equals(eventName)) {
+                pendingStatus = data;
+                pendingProgress = null;
+            } else if (pendingStatus == null) {
+                pendingProgress = data;
+            }
+            if (!sending) {
+                sending = true;
+                sendingSince = System.currentTimeMillis();
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        synchronized boolean isStalled(long now) {
+            return sending && now - sendingSince > sendTimeoutMs;
+        }
+
+        synchronized void close() {
+            closed = true;
+            pendingProgress = null;
+            pendingStatus = null;
+            removeSubscriber(this);
+        }
+
+        private void drain() {
+            while (true) {
+                String eventName;
+                Map<String, Object> data;
+                synchronized (this) {
+                    if (closed || (pendingProgress == null && pendingStatus == null)) {
+                        sending = false;
+                        return;
+                    }
+                    if (pendingStatus != null) {
+                        eventName = EVENT_STATUS;
+                        data = pendingStatus;
+                        pendingStatus = null;
+                    } else {
+                        eventName = EVENT_PROGRESS;
+                        data = pendingProgress;
+                        pendingProgress = null;
+                    }
+                    sendingSince = System.currentTimeMillis();
+                }
+                if (!send(emitter, eventName, data)) {
+                    close();
+                } else if (EVENT_STATUS.equals(eventName)) {
+                    close();
+                    emitter.complete();
+                }
+            }
+        }
+    }
+}
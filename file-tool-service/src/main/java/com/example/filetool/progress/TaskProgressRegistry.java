@@ -0,0 +1,94 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.entity.FileTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 任务进度注册表
+ * 在内存中维护运行中任务的实时进度，并按时间/行数节流刷新到数据库（经TaskStateJournal批量写入）
+ */
+@Slf4j
+@Component
+public class TaskProgressRegistry {
+
+    @Autowired
+    private TaskStateJournal taskStateJournal;
+
+    /**
+     * 进度刷新到数据库的最小间隔（毫秒）
+     */
+    @Value("${file.task.progress.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    /**
+     * 进度刷新到数据库的最小行数增量
+     */
+    @Value("${file.task.progress.flush-rows:10000}")
+    private long flushRows;
+
+    private final ConcurrentMap<Long, TaskProgress> progressMap = new ConcurrentHashMap<>();
+
+    /**
+     * 登记任务开始，返回该任务的进度对象
+     *
+     * @param task 文件任务
+     * @return 任务进度
+     */
+    public TaskProgress start(FileTask task) {
+        TaskProgress progress = new TaskProgress(task.getId(), task.getTaskName());
+        progressMap.put(task.getId(), progress);
+        return progress;
+    }
+
+    /**
+     * 获取运行中任务的进度
+     *
+     * @param taskId 任务ID
+     * @return 任务进度，任务未在运行时返回null
+     */
+    public TaskProgress get(Long taskId) {
+        return progressMap.get(taskId);
+    }
+
+    /**
+     * 移除任务进度
+     *
+     * @param taskId 任务ID
+     */
+    public void remove(Long taskId) {
+        progressMap.remove(taskId);
+    }
+
+    /**
+     * 达到刷新条件时将进度写入数据库
+     * 每个批次都可调用，实际写库频率受时间间隔和行数增量限制
+     *
+     * @param progress 任务进度
+     */
+    public void flushIfDue(TaskProgress progress) {
+        long now = System.currentTimeMillis();
+        if (!progress.isFlushDue(now, flushIntervalMs, flushRows) || !progress.tryBeginFlush()) {
+            return;
+        }
+        long rows = progress.getProcessedRows();
+        try {
+            taskStateJournal.recordProgress(
+                    progress.getTaskId(),
+                    (int) rows,
+                    (int) progress.getSuccessRows(),
+                    (int) progress.getFailedRows()
+            );
+        } catch (Exception e) {
+            // 进度刷新失败不影响任务本身
+            log.warn("刷新任务进度失败：{}", progress.getTaskId(), e);
+        } finally {
+            progress.endFlush(now, rows);
+        }
+    }
+}
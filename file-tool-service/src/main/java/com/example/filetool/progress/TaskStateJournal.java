@@ -0,0 +1,114 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.repository.FileTaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 任务进度的延迟写入（write-behind）
+ * 进度变更先记录在内存中，同一任务只保留最新的行数，定时把所有待写入的任务在一个事务中批量更新，
+ * 大量任务同时运行时每个刷新周期只有一次数据库事务，而不是每个任务各一次。
+ * 任务结束（完成或失败）的结果仍由调用方同步写入，写入前丢弃该任务待写入的进度；
+ * 延迟写入只更新仍在处理中的任务，不会覆盖已写入的最终结果
+ */
+@Slf4j
+@Component
+public class TaskStateJournal {
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    /**
+     * 是否延迟写入，关闭时每次记录都直接写入数据库
+     */
+    @Value("${file.task.progress.write-behind.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 待写入的进度，同一任务只保留最新的一次
+     */
+    private final ConcurrentMap<Long, FileTask> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        fileToolMetrics.registerProgressPending(pending::size);
+    }
+
+    /**
+     * 记录任务进度
+     *
+     * @param taskId        任务ID
+     * @param processedRows 处理行数
+     * @param successRows   成功行数
+     * @param failedRows    失败行数
+     */
+    public void recordProgress(Long taskId, int processedRows, int successRows, int failedRows) {
+        if (!enabled) {
+            fileTaskRepository.updateProgress(taskId, processedRows, successRows, failedRows);
+            return;
+        }
+        FileTask update = new FileTask();
+        update.setId(taskId);
+        update.setProcessedRows(processedRows);
+        update.setSuccessRows(successRows);
+        update.setFailedRows(failedRows);
+        pending.put(taskId, update);
+    }
+
+    /**
+     * 丢弃任务待写入的进度，任务结束时由调用方同步写入最终结果
+     *
+     * @param taskId 任务ID
+     */
+    public void discard(Long taskId) {
+        pending.remove(taskId);
+    }
+
+    /**
+     * 把待写入的进度批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${file.task.progress.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<FileTask> updates = new ArrayList<>();
+        for (Map.Entry<Long, FileTask> entry : pending.entrySet()) {
+            // 取出期间又有新进度时保留新进度，下次写入
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                updates.add(entry.getValue());
+            }
+        }
+        try {
+            fileTaskRepository.updateProgressAll(updates);
+            fileToolMetrics.recordProgressFlush(updates.size());
+        } catch (Exception e) {
+            // 进度写入失败不影响任务本身，未被更新的进度下次重试
+            log.warn("批量写入任务进度失败：{}个任务", updates.size(), e);
+            for (FileTask update : updates) {
+                pending.putIfAbsent(update.getId(), update);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
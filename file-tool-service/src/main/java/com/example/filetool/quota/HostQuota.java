@@ -0,0 +1,188 @@
+package com.example.filetool.quota;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个主机的请求配额：令牌桶限速 + 进行中请求数上限
+ * 获取许可返回CompletableFuture，没有可用许可时请求按先来后到排队，不占用线程轮询或休眠：
+ * 令牌不足时由定时器在下一个令牌生成时唤醒队首，进行中请求数已满时由release唤醒。
+ * 每次请求结束必须调用release归还许可
+ */
+public class HostQuota {
+
+    private final String host;
+
+    private final ScheduledExecutorService timer;
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    private double permitsPerSecond;
+
+    private int burst;
+
+    private int maxInFlight;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private int inFlight;
+
+    /**
+     * 是否已安排定时唤醒，避免重复安排
+     */
+    private boolean wakeupScheduled;
+
+    public HostQuota(String host, double permitsPerSecond, int burst, int maxInFlight,
+                     ScheduledExecutorService timer) {
+        this.host = host;
+        this.timer = timer;
+        this.lastRefillNanos = System.nanoTime();
+        updateLimits(permitsPerSecond, burst, maxInFlight);
+        this.tokens = this.burst;
+    }
+
+    /**
+     * 更新配额，已排队和进行中的请求保持不变
+     */
+    public void updateLimits(double permitsPerSecond, int burst, int maxInFlight) {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            refill();
+            this.permitsPerSecond = Math.max(0, permitsPerSecond);
+            this.burst = Math.max(1, burst);
+            this.maxInFlight = Math.max(0, maxInFlight);
+            this.tokens = Math.min(tokens, this.burst);
+            granted = drain();
+        }
+        grant(granted);
+    }
+
+    /**
+     * 获取一个许可
+     *
+     * @return 获得许可时完成；取消未完成的Future即放弃排队
+     */
+    public CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            if (waiters.isEmpty() && tryTake()) {
+                waiter.complete(null);
+                return waiter;
+            }
+            waiters.addLast(waiter);
+            granted = drain();
+        }
+        grant(granted);
+        return waiter;
+    }
+
+    /**
+     * 归还一个许可（请求结束）
+     */
+    public void release() {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            inFlight--;
+            granted = drain();
+        }
+        grant(granted);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * 进行中的请求数
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 排队等待许可的请求数
+     */
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    /**
+     * 按队列顺序分配许可，返回获得许可的等待者，由调用方在锁外完成
+     */
+    private List<CompletableFuture<Void>> drain() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        while (!waiters.isEmpty()) {
+            if (waiters.peekFirst().isDone()) {
+                // 已取消（等待超时）
+                waiters.pollFirst();
+                continue;
+            }
+            if (!tryTake()) {
+                break;
+            }
+            granted.add(waiters.pollFirst());
+        }
+        if (!waiters.isEmpty() && hasInFlightCapacity() && !wakeupScheduled) {
+            // 受令牌限制：在下一个令牌生成时再分配；受进行中请求数限制时由release唤醒
+            wakeupScheduled = true;
+            long delayNanos = (long) Math.ceil((1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            timer.schedule(this::wakeup, Math.max(delayNanos, 1), TimeUnit.NANOSECONDS);
+        }
+        return granted;
+    }
+
+    private void wakeup() {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            wakeupScheduled = false;
+            granted = drain();
+        }
+        grant(granted);
+    }
+
+    /**
+     * 通知获得许可的等待者；等待者已放弃时归还许可
+     */
+    private void grant(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> waiter : granted) {
+            if (!waiter.complete(null)) {
+                release();
+            }
+        }
+    }
+
+    private boolean tryTake() {
+        if (!hasInFlightCapacity()) {
+            return false;
+        }
+        if (permitsPerSecond > 0) {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        inFlight++;
+        return true;
+    }
+
+    private boolean hasInFlightCapacity() {
+        return maxInFlight <= 0 || inFlight < maxInFlight;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (permitsPerSecond > 0) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefillNanos = now;
+    }
+}
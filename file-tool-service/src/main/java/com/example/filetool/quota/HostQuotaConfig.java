@@ -0,0 +1,26 @@
+package com.example.filetool.quota;
+
+import lombok.Data;
+
+/**
+ * 单个主机的请求配额
+ * 未设置的参数使用默认配额
+ */
+@Data
+public class HostQuotaConfig {
+
+    /**
+     * 每秒允许的请求数（令牌补充速率），0表示不限速
+     */
+    private Double permitsPerSecond;
+
+    /**
+     * 令牌桶容量，即空闲后允许的突发请求数
+     */
+    private Integer burst;
+
+    /**
+     * 同时进行中的最大请求数，0表示不限制
+     */
+    private Integer maxInFlight;
+}
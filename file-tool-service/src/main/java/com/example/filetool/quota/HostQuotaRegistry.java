@@ -0,0 +1,271 @@
+package com.example.filetool.quota;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.repository.SystemConfigRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 回调主机配额注册表
+ * 按回调URL的主机（含端口）维护HostQuota，配额从system_config表中的 callback.host-quotas 读取并定期刷新，
+ * 配置值为JSON：键为主机，default为未单独配置的主机使用的配额，例如
+ * {"default": {"permitsPerSecond": 50, "maxInFlight": 8}, "erp.example.com": {"permitsPerSecond": 5, "burst": 5, "maxInFlight": 2}}。
+ * 表中没有该配置时使用 file.callback.quota.* 全局配置
+ */
+@Slf4j
+@Component
+public class HostQuotaRegistry {
+
+    /**
+     * 默认配额在配置中的键
+     */
+    public static final String DEFAULT_HOST = "default";
+
+    @Autowired
+    private SystemConfigRepository systemConfigRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    /**
+     * system_config中配额配置的键
+     */
+    @Value("${file.callback.quota.config-key:callback.host-quotas}")
+    private String configKey;
+
+    /**
+     * 默认每秒请求数，0表示不限速
+     */
+    @Value("${file.callback.quota.permits-per-second:0}")
+    private double defaultPermitsPerSecond;
+
+    /**
+     * 默认令牌桶容量
+     */
+    @Value("${file.callback.quota.burst:10}")
+    private int defaultBurst;
+
+    /**
+     * 默认最大进行中请求数，0表示不限制
+     */
+    @Value("${file.callback.quota.max-in-flight:0}")
+    private int defaultMaxInFlight;
+
+    /**
+     * 等待配额的最长时间（毫秒），超时后请求失败
+     */
+    @Value("${file.callback.quota.acquire-timeout-ms:60000}")
+    private long acquireTimeoutMs;
+
+    private final Map<String, HostQuota> quotas = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次从system_config读取的配置，键为主机
+     */
+    private volatile Map<String, HostQuotaConfig> hostConfigs = Collections.emptyMap();
+
+    /**
+     * 令牌不足时唤醒排队请求的定时器
+     */
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "host-quota-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 定期从system_config刷新配额
+     */
+    @Scheduled(fixedDelayString = "${file.callback.quota.refresh-interval-ms:60000}",
+            initialDelayString = "${file.callback.quota.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, HostQuotaConfig> configs = systemConfigRepository.findByConfigKey(configKey)
+                    .map(config -> config.getConfigValue())
+                    .filter(value -> value != null && !value.trim().isEmpty())
+                    .map(this::parseConfigs)
+                    .orElse(Collections.emptyMap());
+            hostConfigs = configs;
+            quotas.values().forEach(this::applyConfig);
+        } catch (Exception e) {
+            log.error("刷新回调主机配额失败，继续使用当前配额", e);
+        }
+    }
+
+    /**
+     * 异步获取请求URL对应主机的配额，排队期间不占用线程，调用方在请求结束后必须调用HostQuota.release
+     * 超过 acquire-timeout-ms 仍未获得许可时放弃排队，返回的future以异常结束
+     *
+     * @param url 请求URL
+     * @return 获得许可时完成的主机配额
+     */
+    public CompletableFuture<HostQuota> acquireAsync(String url) {
+        HostQuota quota = getQuota(url);
+        long startNanos = System.nanoTime();
+        CompletableFuture<Void> permit = quota.acquire();
+        CompletableFuture<HostQuota> result = new CompletableFuture<>();
+        if (!permit.isDone()) {
+            timer.schedule(() -> {
+                if (permit.cancel(false)) {
+                    fileToolMetrics.recordThrottle(quota.getHost(), System.nanoTime() - startNanos, false);
+                    result.completeExceptionally(new RuntimeException("等待主机配额超时：" + quota.getHost()));
+                }
+            }, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        permit.whenComplete((ignored, error) -> {
+            if (error == null) {
+                fileToolMetrics.recordThrottle(quota.getHost(), System.nanoTime() - startNanos, true);
+                result.complete(quota);
+            } else if (!(error instanceof CancellationException)) {
+                result.completeExceptionally(new RuntimeException("等待主机配额失败：" + quota.getHost(), error));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 等待请求URL对应主机的配额，调用方在请求结束后必须调用HostQuota.release
+     * 调用线程阻塞等待许可（不轮询），最长 acquire-timeout-ms；不能占用线程的调用方使用acquireAsync
+     *
+     * @param url 请求URL
+     * @return 已获得许可的主机配额
+     */
+    public HostQuota acquire(String url) {
+        return acquire(url, null);
+    }
+
+    /**
+     * 等待请求URL对应主机的配额，abandoned完成时放弃排队
+     * 用于对冲请求：另一个请求已有结果时，尚在排队的请求不再占用配额
+     *
+     * @param url       请求URL
+     * @param abandoned 完成时放弃排队，可为null
+     * @return 已获得许可的主机配额，放弃排队时为null
+     */
+    public HostQuota acquire(String url, CompletableFuture<?> abandoned) {
+        HostQuota quota = getQuota(url);
+        long startNanos = System.nanoTime();
+        CompletableFuture<Void> permit = quota.acquire();
+        try {
+            if (abandoned == null) {
+                permit.get(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } else {
+                CompletableFuture.anyOf(permit, abandoned.handle((result, error) -> null))
+                        .get(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+                if (!permit.isDone() || abandoned.isDone()) {
+                    if (!permit.cancel(false)) {
+                        // 取消前已获得许可，归还
+                        quota.release();
+                    }
+                    return null;
+                }
+            }
+            fileToolMetrics.recordThrottle(quota.getHost(), System.nanoTime() - startNanos, true);
+            return quota;
+        } catch (TimeoutException e) {
+            if (!permit.cancel(false)) {
+                // 取消前已获得许可
+                fileToolMetrics.recordThrottle(quota.getHost(), System.nanoTime() - startNanos, true);
+                return quota;
+            }
+            fileToolMetrics.recordThrottle(quota.getHost(), System.nanoTime() - startNanos, false);
+            throw new RuntimeException("等待主机配额超时：" + quota.getHost());
+        } catch (InterruptedException e) {
+            if (!permit.cancel(false)) {
+                quota.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待主机配额被中断：" + quota.getHost(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("等待主机配额失败：" + quota.getHost(), e.getCause());
+        }
+    }
+
+    /**
+     * 获取请求URL对应主机的配额
+     *
+     * @param url 请求URL
+     * @return 主机配额
+     */
+    public HostQuota getQuota(String url) {
+        String host = FileToolMetrics.hostOf(url);
+        return quotas.computeIfAbsent(host, key -> {
+            HostQuotaConfig config = resolveConfig(key);
+            return new HostQuota(key, config.getPermitsPerSecond(), config.getBurst(), config.getMaxInFlight(), timer);
+        });
+    }
+
+    private void applyConfig(HostQuota quota) {
+        HostQuotaConfig config = resolveConfig(quota.getHost());
+        quota.updateLimits(config.getPermitsPerSecond(), config.getBurst(), config.getMaxInFlight());
+    }
+
+    /**
+     * 合并主机配置、default配置和全局配置
+     */
+    private HostQuotaConfig resolveConfig(String host) {
+        HostQuotaConfig resolved = new HostQuotaConfig();
+        resolved.setPermitsPerSecond(defaultPermitsPerSecond);
+        resolved.setBurst(defaultBurst);
+        resolved.setMaxInFlight(defaultMaxInFlight);
+        Map<String, HostQuotaConfig> configs = hostConfigs;
+        merge(resolved, configs.get(DEFAULT_HOST));
+        merge(resolved, configs.get(host));
+        return resolved;
+    }
+
+    private void merge(HostQuotaConfig target, HostQuotaConfig source) {
+        if (source == null) {
+            return;
+        }
+        if (source.getPermitsPerSecond() != null) {
+            target.setPermitsPerSecond(source.getPermitsPerSecond());
+        }
+        if (source.getBurst() != null) {
+            target.setBurst(source.getBurst());
+        }
+        if (source.getMaxInFlight() != null) {
+            target.setMaxInFlight(source.getMaxInFlight());
+        }
+    }
+
+    private Map<String, HostQuotaConfig> parseConfigs(String value) {
+        try {
+            return objectMapper.readValue(value, new TypeReference<Map<String, HostQuotaConfig>>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("回调主机配额配置格式错误：" + configKey, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.FileTask;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文件任务批量写入
+ */
+public interface FileTaskBulkRepository {
+
+    /**
+     * 批量插入任务
+     * 任务ID为数据库自增，save逐行插入时Hibernate无法使用JDBC批处理；
+     * 这里用一条INSERT语句按批执行（MySQL需开启rewriteBatchedStatements，驱动会改写为多行INSERT），
+     * 并从返回的自增主键回填任务ID。需在事务中调用
+     *
+     * @param tasks 待插入的任务，插入后设置ID、创建时间等字段
+     */
+    void insertAll(List<FileTask> tasks);
+
+    /**
+     * 批量更新任务处理进度（处理行数、成功行数、失败行数）
+     * 所有任务在一个独立事务中用一批UPDATE语句写入；只更新仍在处理中的任务，已结束任务的最终结果不会被覆盖
+     *
+     * @param tasks 任务ID及最新的行数
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    void updateProgressAll(Collection<FileTask> tasks);
+}
@@ -0,0 +1,130 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.FileTask;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 文件任务批量写入实现
+ * 插入的列和参数绑定取自Hibernate的实体映射，与save写入的内容一致
+ */
+public class FileTaskBulkRepositoryImpl implements FileTaskBulkRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 每次executeBatch的行数
+     */
+    @Value("${file.task.bulk.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    @Override
+    public void insertAll(List<FileTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getFactory()
+                .getMetamodel().entityPersister(FileTask.class);
+
+        // 可插入的属性及其列
+        String[] propertyNames = persister.getPropertyNames();
+        Type[] propertyTypes = persister.getPropertyTypes();
+        boolean[] insertable = persister.getPropertyInsertability();
+        List<Integer> properties = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (insertable[i]) {
+                properties.add(i);
+                for (String column : persister.getPropertyColumnNames(i)) {
+                    columns.add(column);
+                }
+            }
+        }
+        String sql = "INSERT INTO " + persister.getTableName() + " (" + String.join(", ", columns)
+                + ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+        for (FileTask task : tasks) {
+            task.prePersist();
+        }
+        int batchSize = Math.max(1, insertBatchSize);
+        session.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < tasks.size(); from += batchSize) {
+                    List<FileTask> chunk = tasks.subList(from, Math.min(tasks.size(), from + batchSize));
+                    for (FileTask task : chunk) {
+                        Object[] values = persister.getPropertyValues(task);
+                        int index = 1;
+                        for (int property : properties) {
+                            Type type = propertyTypes[property];
+                            type.nullSafeSet(statement, values[property], index, session);
+                            index += type.getColumnSpan(session.getFactory());
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (FileTask task : chunk) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("批量插入任务未返回全部自增ID");
+                            }
+                            task.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void updateProgressAll(Collection<FileTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getFactory()
+                .getMetamodel().entityPersister(FileTask.class);
+        String sql = "UPDATE " + persister.getTableName()
+                + " SET " + columnOf(persister, "processedRows") + " = ?, "
+                + columnOf(persister, "successRows") + " = ?, "
+                + columnOf(persister, "failedRows") + " = ?, "
+                + columnOf(persister, "updateTime") + " = ?"
+                + " WHERE " + persister.getIdentifierColumnNames()[0] + " = ?"
+                + " AND " + columnOf(persister, "status") + " = ?";
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        session.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (FileTask task : tasks) {
+                    statement.setInt(1, task.getProcessedRows());
+                    statement.setInt(2, task.getSuccessRows());
+                    statement.setInt(3, task.getFailedRows());
+                    statement.setTimestamp(4, now);
+                    statement.setLong(5, task.getId());
+                    statement.setString(6, FileTask.TaskStatus.PROCESSING.name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private static String columnOf(AbstractEntityPersister persister, String propertyName) {
+        return persister.getPropertyColumnNames(propertyName)[0];
+    }
+}
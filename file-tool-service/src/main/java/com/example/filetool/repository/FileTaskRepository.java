@@ -2,10 +2,14 @@ package com.example.filetool.repository;
 
 import com.example.filetool.entity.FileTask;
 import com.example.filetool.entity.FileTask.TaskStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
@@ -14,7 +18,7 @@ import java.util.List;
  * 文件任务数据访问层
  */
 @Repository
-public interface FileTaskRepository extends JpaRepository<FileTask, Long> {
+public interface FileTaskRepository extends JpaRepository<FileTask, Long>, FileTaskBulkRepository {
 
     /**
      * 根据任务状态查询任务列表
@@ -41,4 +45,183 @@ public interface FileTaskRepository extends JpaRepository<FileTask, Long> {
      */
     @Query("SELECT t FROM FileTask t WHERE t.updateTime < :date AND (t.status = 'COMPLETED' OR t.status = 'FAILED')")
     List<FileTask> findExpiredTasks(@Param("date") Date date);
-}
\ No newline at end of file
+
+    /**
+     * 按条件分页查询任务（keyset分页）
+     * 按创建时间倒序、相同时按ID倒序排列，从游标（上一页最后一个任务的创建时间和ID）之后开始读取，
+     * 借助(状态/类型, 创建时间, ID)组合索引直接定位到游标位置，翻页深度不影响查询耗时；
+     * 为null的条件不参与过滤。只取pageable的行数，不执行count查询
+     *
+     * @param status      任务状态
+     * @param taskType    任务类型
+     * @param namePrefix  任务名称前缀（%、_和!以!转义）
+     * @param createdFrom 创建时间下限（含）
+     * @param createdTo   创建时间上限（不含）
+     * @param cursorTime  游标任务的创建时间，为null时从第一条开始
+     * @param cursorId    游标任务的ID
+     * @param pageable    读取行数
+     * @return 任务列表
+     */
+    @Query("SELECT t FROM FileTask t WHERE (:status IS NULL OR t.status = :status) " +
+            "AND (:taskType IS NULL OR t.taskType = :taskType) " +
+            "AND (:namePrefix IS NULL OR t.taskName LIKE CONCAT(:namePrefix, '%') ESCAPE '!') " +
+            "AND (:createdFrom IS NULL OR t.createTime >= :createdFrom) " +
+            "AND (:createdTo IS NULL OR t.createTime < :createdTo) " +
+            "AND (:cursorTime IS NULL OR t.createTime < :cursorTime " +
+            "OR (t.createTime = :cursorTime AND t.id < :cursorId)) " +
+            "ORDER BY t.createTime DESC, t.id DESC")
+    List<FileTask> findPage(@Param("status") TaskStatus status, @Param("taskType") FileTask.TaskType taskType,
+                            @Param("namePrefix") String namePrefix, @Param("createdFrom") Date createdFrom,
+                            @Param("createdTo") Date createdTo, @Param("cursorTime") Date cursorTime,
+                            @Param("cursorId") Long cursorId, Pageable pageable);
+
+    /**
+     * 查询最近生成的导出缓存
+     *
+     * @param cacheKey 缓存键
+     * @param status   任务状态
+     * @param after    生成时间下限
+     * @return 生成时间最晚的任务，不存在时为null
+     */
+    FileTask findFirstByCacheKeyAndStatusAndCacheTimeAfterOrderByCacheTimeDesc(String cacheKey, TaskStatus status,
+                                                                               Date after);
+
+    /**
+     * 统计引用同一文件的任务数（命中导出缓存的任务与缓存条目共用文件）
+     *
+     * @param filePath 文件路径
+     * @return 任务数
+     */
+    long countByFilePath(String filePath);
+
+    /**
+     * 清除缓存键，使导出缓存失效
+     *
+     * @param cacheKey 缓存键
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.cacheKey = NULL WHERE t.cacheKey = :cacheKey")
+    int clearCacheKey(@Param("cacheKey") String cacheKey);
+
+    /**
+     * 按预期状态更新任务状态（compare-and-set）
+     * 多个节点或线程同时领取同一任务时只有一个成功
+     *
+     * @param id       任务ID
+     * @param expected 预期的当前状态
+     * @param status   新状态
+     * @return 更新的记录数，0表示任务不存在或当前状态不是预期状态
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.status = :status, t.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE t.id = :id AND t.status = :expected")
+    int compareAndSetStatus(@Param("id") Long id, @Param("expected") TaskStatus expected,
+                            @Param("status") TaskStatus status);
+
+    /**
+     * 结束任务，写入最终状态和处理结果
+     * 仅当任务尚未结束（等待中或处理中）时成功，已结束的任务不会被再次覆盖
+     *
+     * @param id            任务ID
+     * @param status        最终状态
+     * @param processedRows 处理行数
+     * @param successRows   成功行数
+     * @param failedRows    失败行数
+     * @param errorMessage  错误信息
+     * @return 更新的记录数，0表示任务不存在或已结束
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.status = :status, t.processedRows = :processedRows, " +
+            "t.successRows = :successRows, t.failedRows = :failedRows, t.errorMessage = :errorMessage, " +
+            "t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :id AND t.status IN ('PENDING', 'PROCESSING')")
+    int finishTask(@Param("id") Long id, @Param("status") TaskStatus status,
+                   @Param("processedRows") Integer processedRows, @Param("successRows") Integer successRows,
+                   @Param("failedRows") Integer failedRows, @Param("errorMessage") String errorMessage);
+
+    /**
+     * 记录任务的文件及导出缓存信息
+     *
+     * @param id               任务ID
+     * @param originalFilename 文件名
+     * @param filePath         文件存储路径
+     * @param fileSize         文件大小
+     * @param cacheKey         导出缓存键，不作为缓存时为null
+     * @param cacheTime        缓存生成时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.originalFilename = :originalFilename, t.filePath = :filePath, " +
+            "t.fileSize = :fileSize, t.cacheKey = :cacheKey, t.cacheTime = :cacheTime, " +
+            "t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :id")
+    int updateFile(@Param("id") Long id, @Param("originalFilename") String originalFilename,
+                   @Param("filePath") String filePath, @Param("fileSize") Long fileSize,
+                   @Param("cacheKey") String cacheKey, @Param("cacheTime") Date cacheTime);
+
+    /**
+     * 清除单个任务的导出缓存键
+     *
+     * @param id 任务ID
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.cacheKey = NULL WHERE t.id = :id")
+    int clearTaskCacheKey(@Param("id") Long id);
+
+    /**
+     * 更新任务处理进度
+     * 在独立事务中提交，使进度在外层处理事务结束前即对其他查询可见
+     *
+     * @param id            任务ID
+     * @param processedRows 处理行数
+     * @param successRows   成功行数
+     * @param failedRows    失败行数
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.processedRows = :processedRows, t.successRows = :successRows, " +
+            "t.failedRows = :failedRows, t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("processedRows") Integer processedRows,
+                       @Param("successRows") Integer successRows, @Param("failedRows") Integer failedRows);
+
+    /**
+     * 累加一个分片的处理结果，并将已结束分片数加1
+     * 在数据库中原子累加，多个节点同时汇总分片结果时不会互相覆盖
+     *
+     * @param id            任务ID
+     * @param processedRows 分片处理行数
+     * @param successRows   分片成功行数
+     * @param failedRows    分片失败行数
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.processedRows = t.processedRows + :processedRows, " +
+            "t.successRows = t.successRows + :successRows, t.failedRows = t.failedRows + :failedRows, " +
+            "t.completedShards = t.completedShards + 1, t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :id")
+    int addShardResult(@Param("id") Long id, @Param("processedRows") Integer processedRows,
+                       @Param("successRows") Integer successRows, @Param("failedRows") Integer failedRows);
+
+    /**
+     * 全部分片结束后结束任务
+     * 仅当任务仍在处理中且全部分片已结束时成功，多个节点同时结束最后的分片时只有一个成功，由它发送最终回调
+     *
+     * @param id           任务ID
+     * @param status       最终状态
+     * @param errorMessage 错误信息
+     * @return 更新的记录数，1表示由调用方结束任务
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTask t SET t.status = :status, t.errorMessage = :errorMessage, " +
+            "t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :id AND t.status = 'PROCESSING' " +
+            "AND t.completedShards >= t.shardCount")
+    int finishShardedTask(@Param("id") Long id, @Param("status") TaskStatus status,
+                          @Param("errorMessage") String errorMessage);
+}
@@ -0,0 +1,151 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.entity.FileTaskShard.ShardStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 文件任务分片数据访问层
+ * 状态变更都是带条件的UPDATE，在独立事务中提交，多个节点并发认领同一分片时只有一个成功
+ */
+@Repository
+public interface FileTaskShardRepository extends JpaRepository<FileTaskShard, Long> {
+
+    /**
+     * 按创建顺序查询指定状态的分片
+     *
+     * @param status   分片状态
+     * @param pageable 分页参数
+     * @return 分片列表
+     */
+    List<FileTaskShard> findByStatusOrderByIdAsc(ShardStatus status, Pageable pageable);
+
+    /**
+     * 查询任务的全部分片
+     *
+     * @param taskId 任务ID
+     * @return 按分片序号排列的分片列表
+     */
+    List<FileTaskShard> findByTaskIdOrderByShardIndexAsc(Long taskId);
+
+    /**
+     * 统计任务中指定状态的分片数
+     *
+     * @param taskId 任务ID
+     * @param status 分片状态
+     * @return 分片数
+     */
+    long countByTaskIdAndStatus(Long taskId, ShardStatus status);
+
+    /**
+     * 保存任务的全部分片并记录分片数，在一个事务中提交：先插入分片，再设置任务的分片数、已结束分片数归零。
+     * 插入失败时分片数不会写入，任务不会记录一个与实际分片不符的分片数
+     *
+     * @param taskId 任务ID
+     * @param shards 分片列表
+     */
+    @Transactional
+    default void saveShards(Long taskId, List<FileTaskShard> shards) {
+        saveAll(shards);
+        startShards(taskId, shards.size());
+    }
+
+    /**
+     * 记录任务拆分的分片数，已结束分片数归零，在saveShards的事务中执行
+     *
+     * @param taskId     任务ID
+     * @param shardCount 分片数
+     * @return 更新的记录数
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("UPDATE FileTask t SET t.shardCount = :shardCount, t.completedShards = 0, " +
+            "t.updateTime = CURRENT_TIMESTAMP WHERE t.id = :taskId")
+    int startShards(@Param("taskId") Long taskId, @Param("shardCount") Integer shardCount);
+
+    /**
+     * 认领分片，仅当分片仍在等待认领时成功
+     *
+     * @param id    分片ID
+     * @param owner 认领节点
+     * @param now   当前时间
+     * @return 更新的记录数，1表示认领成功
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTaskShard s SET s.status = 'PROCESSING', s.owner = :owner, s.claimTime = :now, " +
+            "s.heartbeatTime = :now, s.updateTime = :now WHERE s.id = :id AND s.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") Date now);
+
+    /**
+     * 记录分片处理结果，仅当分片仍由该节点处理时成功（超时后被其他节点重新认领的分片不再记录）
+     *
+     * @param id            分片ID
+     * @param owner         认领节点
+     * @param status        最终状态
+     * @param processedRows 处理行数
+     * @param successRows   成功行数
+     * @param failedRows    失败行数
+     * @param errorMessage  错误信息
+     * @param rowErrors     行级错误明细（JSON格式）
+     * @return 更新的记录数，1表示记录成功
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTaskShard s SET s.status = :status, s.processedRows = :processedRows, " +
+            "s.successRows = :successRows, s.failedRows = :failedRows, s.errorMessage = :errorMessage, " +
+            "s.rowErrors = :rowErrors, s.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE s.id = :id AND s.owner = :owner AND s.status = 'PROCESSING'")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") ShardStatus status,
+               @Param("processedRows") Integer processedRows, @Param("successRows") Integer successRows,
+               @Param("failedRows") Integer failedRows, @Param("errorMessage") String errorMessage,
+               @Param("rowErrors") String rowErrors);
+
+    /**
+     * 更新节点正在处理的分片的心跳时间
+     *
+     * @param ids   分片ID
+     * @param owner 认领节点
+     * @param now   当前时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTaskShard s SET s.heartbeatTime = :now " +
+            "WHERE s.id IN :ids AND s.owner = :owner AND s.status = 'PROCESSING'")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("now") Date now);
+
+    /**
+     * 心跳超时的分片重新等待认领（处理节点宕机或失联）
+     *
+     * @param before 心跳早于该时间的分片视为超时
+     * @return 重新等待认领的分片数
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE FileTaskShard s SET s.status = 'PENDING', s.owner = NULL, s.updateTime = CURRENT_TIMESTAMP " +
+            "WHERE s.status = 'PROCESSING' AND s.heartbeatTime < :before")
+    int requeueStale(@Param("before") Date before);
+
+    /**
+     * 删除任务的全部分片
+     *
+     * @param taskId 任务ID
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileTaskShard s WHERE s.taskId = :taskId")
+    int deleteByTaskId(@Param("taskId") Long taskId);
+}
@@ -0,0 +1,22 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.SystemConfig;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 系统配置数据访问层
+ */
+@Repository
+public interface SystemConfigRepository extends JpaRepository<SystemConfig, Long> {
+
+    /**
+     * 根据配置键查询配置
+     *
+     * @param configKey 配置键
+     * @return 配置
+     */
+    Optional<SystemConfig> findByConfigKey(String configKey);
+}
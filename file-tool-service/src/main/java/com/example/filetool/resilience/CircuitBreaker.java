@@ -0,0 +1,240 @@
+package com.example.filetool.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个主机的熔断器
+ * 连续失败达到阈值后打开，打开期间请求暂停等待而不是直接失败，使任务暂停而不是把一批批数据都耗在失败的请求上；
+ * 打开时间结束后进入半开状态，只放行一个试探请求，成功则关闭，失败则重新打开
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 异步等待时，半开状态下试探请求未结束的再次尝试间隔（毫秒）
+     */
+    private static final long HALF_OPEN_RETRY_MILLIS = 100;
+
+    private final String host;
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition stateChanged = lock.newCondition();
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openUntilNanos;
+
+    /**
+     * 半开状态下是否已有试探请求
+     */
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String host, int failureThreshold, long openMillis) {
+        this.host = host;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * 请求前调用：熔断器关闭时立即返回，打开时等待，半开时只放行一个试探请求
+     * 获得放行后必须调用onSuccess、onFailure或onIgnored之一
+     *
+     * @param maxPauseMillis 最长等待时间（毫秒）
+     * @throws CircuitOpenException 等待超时
+     */
+    public void acquire(long maxPauseMillis) {
+        acquire(maxPauseMillis, null);
+    }
+
+    /**
+     * 请求前调用，abandoned完成时放弃等待
+     * 用于对冲请求：另一个请求已有结果时，正在等待熔断恢复的请求立即返回，不再占用线程
+     *
+     * @param maxPauseMillis 最长等待时间（毫秒）
+     * @param abandoned      完成时放弃等待，可为null
+     * @return 是否获得放行，放弃等待时为false
+     * @throws CircuitOpenException 等待超时
+     */
+    public boolean acquire(long maxPauseMillis, CompletableFuture<?> abandoned) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxPauseMillis);
+        if (abandoned != null) {
+            abandoned.whenComplete((result, error) -> signalStateChanged());
+        }
+        lock.lock();
+        try {
+            while (abandoned == null || !abandoned.isDone()) {
+                long waitNanos = tryAcquire(deadline);
+                if (waitNanos == 0) {
+                    return true;
+                }
+                stateChanged.awaitNanos(waitNanos);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CircuitOpenException("等待主机熔断恢复被中断：" + host);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 异步等待放行，等待期间不占用线程：熔断器打开时由定时器在打开时间结束时再次尝试，
+     * 半开且试探请求未结束时每隔HALF_OPEN_RETRY_MILLIS再次尝试
+     * 获得放行后必须调用onSuccess、onFailure或onIgnored之一
+     *
+     * @param maxPauseMillis 最长等待时间（毫秒）
+     * @param timer          执行再次尝试的定时器
+     * @return 获得放行时完成，等待超时时以CircuitOpenException失败
+     */
+    public CompletableFuture<Void> acquireAsync(long maxPauseMillis, ScheduledExecutorService timer) {
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        tryAcquireAsync(admitted, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxPauseMillis), timer);
+        return admitted;
+    }
+
+    private void tryAcquireAsync(CompletableFuture<Void> admitted, long deadline, ScheduledExecutorService timer) {
+        long waitNanos;
+        lock.lock();
+        try {
+            waitNanos = tryAcquire(deadline);
+            if (waitNanos > 0 && state == State.HALF_OPEN) {
+                waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(HALF_OPEN_RETRY_MILLIS));
+            }
+        } catch (CircuitOpenException e) {
+            admitted.completeExceptionally(e);
+            return;
+        } finally {
+            lock.unlock();
+        }
+        if (waitNanos == 0) {
+            if (!admitted.complete(null)) {
+                // 等待方已放弃，归还放行
+                onIgnored();
+            }
+            return;
+        }
+        if (admitted.isDone()) {
+            return;
+        }
+        timer.schedule(() -> tryAcquireAsync(admitted, deadline, timer), waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 尝试获得放行，调用时必须持有锁
+     *
+     * @param deadline 等待截止时间（System.nanoTime）
+     * @return 0表示已放行，否则为再次尝试前需等待的纳秒数
+     * @throws CircuitOpenException 已超过截止时间
+     */
+    private long tryAcquire(long deadline) {
+        long now = System.nanoTime();
+        if (state == State.OPEN && now - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return 0;
+        }
+        long remaining = deadline - now;
+        if (remaining <= 0) {
+            throw new CircuitOpenException("主机熔断中：" + host);
+        }
+        return state == State.OPEN ? Math.max(1, Math.min(remaining, openUntilNanos - now)) : remaining;
+    }
+
+    /**
+     * 请求成功
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+            }
+            trialInFlight = false;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求失败（连接失败、超时或服务端错误）
+     *
+     * @return 熔断器是否因此打开
+     */
+    public boolean onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            trialInFlight = false;
+            boolean open = state == State.HALF_OPEN
+                    || (state == State.CLOSED && consecutiveFailures >= failureThreshold);
+            if (open) {
+                state = State.OPEN;
+                openUntilNanos = System.nanoTime() + openNanos;
+            }
+            stateChanged.signalAll();
+            return open;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求结束，但结果不反映主机的可用性（如请求参数错误）
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            trialInFlight = false;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalStateChanged() {
+        lock.lock();
+        try {
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
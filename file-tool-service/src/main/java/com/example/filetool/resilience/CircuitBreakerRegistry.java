@@ -0,0 +1,88 @@
+package com.example.filetool.resilience;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 回调主机熔断器注册表
+ * 按回调URL的主机（含端口）维护CircuitBreaker
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+    /**
+     * 连续失败多少次后打开熔断器
+     */
+    @Value("${file.callback.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    /**
+     * 熔断器打开的时间（毫秒），之后放行一个试探请求
+     */
+    @Value("${file.callback.circuit-breaker.open-ms:30000}")
+    private long openMillis;
+
+    /**
+     * 熔断期间请求最长等待时间（毫秒），超时后请求失败
+     */
+    @Value("${file.callback.circuit-breaker.max-pause-ms:300000}")
+    private long maxPauseMillis;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 异步等待熔断恢复时再次尝试的定时器
+     */
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuit-breaker-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 获取请求URL对应主机的熔断器
+     *
+     * @param url 请求URL
+     * @return 熔断器
+     */
+    public CircuitBreaker get(String url) {
+        return breakers.computeIfAbsent(FileToolMetrics.hostOf(url),
+                host -> new CircuitBreaker(host, failureThreshold, openMillis));
+    }
+
+    /**
+     * 异步等待熔断器放行，等待期间不占用线程，最长等待max-pause-ms
+     *
+     * @param breaker 熔断器
+     * @return 获得放行时完成，等待超时时以CircuitOpenException失败
+     */
+    public CompletableFuture<Void> acquireAsync(CircuitBreaker breaker) {
+        return breaker.acquireAsync(maxPauseMillis, timer);
+    }
+
+    /**
+     * 熔断期间请求最长等待时间（毫秒）
+     */
+    public long getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+}
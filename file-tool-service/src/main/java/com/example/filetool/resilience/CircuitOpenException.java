@@ -0,0 +1,11 @@
+package com.example.filetool.resilience;
+
+/**
+ * 熔断器打开且等待超时，请求未发出
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
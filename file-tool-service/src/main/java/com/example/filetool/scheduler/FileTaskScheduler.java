@@ -11,7 +11,7 @@ import java.util.List;
 
 /**
  * 文件任务调度器
- * 定期检查和处理待处理的文件任务
+ * 定期检查待处理的文件任务，交给TaskDispatcher按通道和优先级执行
  */
 @Slf4j
 @Component
@@ -20,8 +20,12 @@ public class FileTaskScheduler {
     @Autowired
     private FileTaskService fileTaskService;
 
+    @Autowired
+    private TaskDispatcher taskDispatcher;
+
     /**
      * 每分钟检查一次待处理的任务
+     * 正常情况下任务创建时已提交，这里补充提交遗漏的任务（如服务重启前未执行的任务）
      */
     @Scheduled(fixedRate = 60000)
     public void processPendingTasks() {
@@ -29,33 +33,23 @@ public class FileTaskScheduler {
         List<FileTask> pendingTasks = fileTaskService.getPendingTasks();
         log.info("发现{}个待处理任务", pendingTasks.size());
 
+        int submitted = 0;
         for (FileTask task : pendingTasks) {
-            try {
-                log.info("开始处理任务：{}, 类型：{}", task.getId(), task.getTaskType());
-                
-                if (FileTask.TaskType.DOWNLOAD.equals(task.getTaskType())) {
-                    // 处理下载任务
-                    fileTaskService.processDownloadFile(task.getId());
-                } else if (FileTask.TaskType.UPLOAD.equals(task.getTaskType())) {
-                    // 上传任务通常在控制器中直接处理，这里只处理可能的遗漏任务
-                    log.warn("发现未处理的上传任务：{}", task.getId());
-                }
-                
-                log.info("任务处理完成：{}", task.getId());
-            } catch (Exception e) {
-                log.error("处理任务失败：" + task.getId(), e);
-                // 更新任务状态为失败
-                fileTaskService.updateTaskResult(
-                        task.getId(), 
-                        0, 
-                        0, 
-                        0, 
-                        "任务处理失败：" + e.getMessage()
-                );
+            if (FileTask.TaskType.UPLOAD.equals(task.getTaskType())) {
+                // 上传任务通常在控制器中直接处理，这里只处理可能的遗漏任务
+                log.warn("发现未处理的上传任务：{}", task.getId());
+                continue;
+            }
+            // 已在通道中等待或执行的任务会被忽略
+            if (taskDispatcher.submit(task)) {
+                submitted++;
             }
         }
+        if (submitted > 0) {
+            log.info("补充提交{}个待处理任务", submitted);
+        }
     }
-    
+
     /**
      * 每天凌晨2点执行清理过期文件任务
      * 清理7天前已完成或失败的任务及其相关文件
@@ -0,0 +1,21 @@
+package com.example.filetool.scheduler;
+
+import lombok.Data;
+
+/**
+ * 任务调度参数
+ * 决定任务进入哪个调度通道以及在通道内的先后顺序
+ */
+@Data
+public class SchedulingOptions {
+
+    /**
+     * 优先级，越大越先执行，为空时为0
+     */
+    private Integer priority;
+
+    /**
+     * 预计行数，用于划分调度通道；为空时按文件大小估算
+     */
+    private Long estimatedRows;
+}
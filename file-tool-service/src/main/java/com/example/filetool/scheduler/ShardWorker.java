@@ -0,0 +1,143 @@
+package com.example.filetool.scheduler;
+
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.repository.FileTaskShardRepository;
+import com.example.filetool.service.FileTaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 分片认领执行器
+ * 每个节点定期从数据库认领等待中的分片（带条件的UPDATE，多个节点并发认领时只有一个成功），在文件处理线程池中执行；
+ * 同时为正在执行的分片更新心跳，并把心跳超时的分片（处理节点宕机或失联）重新放回等待认领。
+ * 超时重新认领的分片会从头处理，其中已回调的行会再次回调，业务系统需按数据去重
+ */
+@Slf4j
+@Component
+public class ShardWorker {
+
+    @Autowired
+    private FileTaskShardRepository fileTaskShardRepository;
+
+    @Autowired
+    private FileTaskService fileTaskService;
+
+    @Autowired
+    @Qualifier("fileTaskExecutor")
+    private Executor fileTaskExecutor;
+
+    /**
+     * 是否在本节点处理分片
+     */
+    @Value("${file.task.shard.worker-enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 本节点同时处理的最大分片数
+     */
+    @Value("${file.task.shard.max-concurrency:2}")
+    private int maxConcurrency;
+
+    /**
+     * 心跳超时时间（毫秒），超过该时间未更新心跳的分片重新等待认领
+     */
+    @Value("${file.task.shard.stale-after-ms:600000}")
+    private long staleAfterMs;
+
+    /**
+     * 节点标识，为空时使用 进程号@主机名
+     */
+    @Value("${file.task.shard.node-id:}")
+    private String nodeId;
+
+    /**
+     * 本节点正在处理的分片
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        log.info("分片执行节点：{}，最大并发分片数：{}，启用：{}", nodeId, maxConcurrency, enabled);
+    }
+
+    /**
+     * 定期更新心跳、回收超时分片并认领新的分片
+     */
+    @Scheduled(fixedDelayString = "${file.task.shard.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Date now = new Date();
+            if (!running.isEmpty()) {
+                fileTaskShardRepository.heartbeat(new ArrayList<>(running), nodeId, now);
+            }
+            int requeued = fileTaskShardRepository.requeueStale(new Date(now.getTime() - staleAfterMs));
+            if (requeued > 0) {
+                log.warn("{}个分片心跳超时，重新等待认领", requeued);
+            }
+
+            int free = maxConcurrency - running.size();
+            if (free <= 0) {
+                return;
+            }
+            List<FileTaskShard> pending = fileTaskShardRepository.findByStatusOrderByIdAsc(
+                    FileTaskShard.ShardStatus.PENDING, PageRequest.of(0, free));
+            for (FileTaskShard shard : pending) {
+                if (fileTaskShardRepository.claim(shard.getId(), nodeId, now) == 0) {
+                    // 已被其他节点认领
+                    continue;
+                }
+                shard.setOwner(nodeId);
+                execute(shard);
+            }
+        } catch (Exception e) {
+            log.error("认领分片失败", e);
+        }
+    }
+
+    /**
+     * 本节点正在处理的分片数
+     */
+    public int runningCount() {
+        return running.size();
+    }
+
+    private void execute(FileTaskShard shard) {
+        running.add(shard.getId());
+        log.info("认领上传任务分片：{}，分片：{}", shard.getTaskId(), shard.getShardIndex());
+        try {
+            fileTaskExecutor.execute(() -> {
+                try {
+                    fileTaskService.processUploadShard(shard);
+                } catch (Exception e) {
+                    log.error("处理上传任务分片失败：{}，分片：{}", shard.getTaskId(), shard.getShardIndex(), e);
+                } finally {
+                    running.remove(shard.getId());
+                }
+            });
+        } catch (RuntimeException e) {
+            // 未能提交的分片不再更新心跳，超时后重新等待认领
+            running.remove(shard.getId());
+            log.error("提交上传任务分片失败：{}，分片：{}", shard.getTaskId(), shard.getShardIndex(), e);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.filetool.scheduler;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.service.FileTaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 分通道的任务分发器
+ * 任务按预计行数进入小/中/大三个通道，每个通道预留若干并发，其余为共享并发：
+ * 通道的预留并发未用完时任务直接执行，否则使用空闲的共享并发，因此小任务始终有可用的并发，大任务也能使用空闲的容量。
+ * 通道内和争用共享并发时按有效优先级排序：任务优先级 + 已等待分钟数 × 老化系数，等待越久优先级越高，避免低优先级任务饿死。
+ * 同时执行的任务总数不超过 file.task.lanes.max-concurrency，任务在文件处理线程池中执行
+ */
+@Slf4j
+@Component
+public class TaskDispatcher {
+
+    @Autowired
+    private FileTaskService fileTaskService;
+
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    @Autowired
+    @Qualifier("fileTaskExecutor")
+    private Executor fileTaskExecutor;
+
+    /**
+     * 同时执行的最大任务数，不应超过文件处理线程池的核心线程数（virtual模式下为最大并发任务数）
+     */
+    @Value("${file.task.lanes.max-concurrency:5}")
+    private int maxConcurrency;
+
+    /**
+     * 小任务通道预留并发数
+     */
+    @Value("${file.task.lanes.small.reserved:2}")
+    private int smallReserved;
+
+    /**
+     * 中等任务通道预留并发数
+     */
+    @Value("${file.task.lanes.medium.reserved:1}")
+    private int mediumReserved;
+
+    /**
+     * 大任务通道预留并发数
+     */
+    @Value("${file.task.lanes.large.reserved:1}")
+    private int largeReserved;
+
+    /**
+     * 小任务的最大预计行数
+     */
+    @Value("${file.task.lanes.small.max-rows:10000}")
+    private long smallMaxRows;
+
+    /**
+     * 中等任务的最大预计行数，超过为大任务
+     */
+    @Value("${file.task.lanes.medium.max-rows:500000}")
+    private long mediumMaxRows;
+
+    /**
+     * 按文件大小估算行数时使用的平均每行字节数
+     */
+    @Value("${file.task.lanes.bytes-per-row:100}")
+    private long bytesPerRow;
+
+    /**
+     * 老化系数：每等待一分钟增加的优先级
+     */
+    @Value("${file.task.lanes.aging-per-minute:1}")
+    private double agingPerMinute;
+
+    private final Map<TaskLane, List<QueuedTask>> waiting = new EnumMap<>(TaskLane.class);
+
+    private final Map<TaskLane, Integer> running = new EnumMap<>(TaskLane.class);
+
+    private final Map<TaskLane, Integer> reserved = new EnumMap<>(TaskLane.class);
+
+    /**
+     * 通道中占用预留并发的执行中任务数；执行中的任务还可能占用共享并发，因此不能用running判断预留并发是否用完
+     */
+    private final Map<TaskLane, Integer> reservedInUse = new EnumMap<>(TaskLane.class);
+
+    /**
+     * 已进入通道（等待或执行中）的任务，值为执行中的任务是否占用共享并发，等待中为null
+     */
+    private final Map<Long, Boolean> admitted = new HashMap<>();
+
+    private int sharedSlots;
+
+    private int sharedInUse;
+
+    @PostConstruct
+    public void init() {
+        reserved.put(TaskLane.SMALL, Math.max(0, smallReserved));
+        reserved.put(TaskLane.MEDIUM, Math.max(0, mediumReserved));
+        reserved.put(TaskLane.LARGE, Math.max(0, largeReserved));
+        int totalReserved = reserved.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalReserved > maxConcurrency) {
+            throw new IllegalArgumentException("通道预留并发数之和（" + totalReserved
+                    + "）超过最大并发任务数（" + maxConcurrency + "）");
+        }
+        sharedSlots = maxConcurrency - totalReserved;
+        for (TaskLane lane : TaskLane.values()) {
+            waiting.put(lane, new ArrayList<>());
+            running.put(lane, 0);
+            reservedInUse.put(lane, 0);
+            fileToolMetrics.registerLane(lane.name().toLowerCase(), () -> queuedCount(lane), () -> runningCount(lane));
+        }
+        log.info("任务通道：最大并发{}，预留{}，共享{}", maxConcurrency, reserved, sharedSlots);
+    }
+
+    /**
+     * 提交任务，任务已在通道中时忽略
+     *
+     * @param task 待处理的任务
+     * @return 是否新进入通道
+     */
+    public boolean submit(FileTask task) {
+        TaskLane lane = classify(task);
+        synchronized (this) {
+            if (!enqueue(task, lane, System.currentTimeMillis())) {
+                return false;
+            }
+        }
+        log.info("任务进入{}通道：{}，优先级：{}", lane, task.getId(), priorityOf(task));
+        dispatch();
+        return true;
+    }
+
+    /**
+     * 一次提交多个任务，全部进入通道后再统一分发，已在通道中的任务忽略
+     *
+     * @param tasks 待处理的任务
+     * @return 新进入通道的任务数
+     */
+    public int submitAll(List<FileTask> tasks) {
+        int submitted = 0;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (FileTask task : tasks) {
+                if (enqueue(task, classify(task), now)) {
+                    submitted++;
+                }
+            }
+        }
+        log.info("批量提交任务进入通道：{}个", submitted);
+        dispatch();
+        return submitted;
+    }
+
+    /**
+     * 任务进入通道等待，需持有锁
+     *
+     * @return 是否新进入通道
+     */
+    private boolean enqueue(FileTask task, TaskLane lane, long now) {
+        if (admitted.containsKey(task.getId())) {
+            return false;
+        }
+        admitted.put(task.getId(), null);
+        waiting.get(lane).add(new QueuedTask(task, lane, now));
+        return true;
+    }
+
+    /**
+     * 根据预计行数划分通道；未声明行数时按文件大小估算，都未知时为中等任务
+     * 经过通道的只有导出任务，导出任务没有文件大小，按文件大小估算实际上不会生效：
+     * 未声明estimatedRows的导出任务都进入中等通道
+     *
+     * @param task 任务
+     * @return 通道
+     */
+    public TaskLane classify(FileTask task) {
+        Long rows = task.getEstimatedRows();
+        if (rows == null && task.getFileSize() != null && bytesPerRow > 0) {
+            rows = task.getFileSize() / bytesPerRow;
+        }
+        if (rows == null) {
+            return TaskLane.MEDIUM;
+        }
+        if (rows <= smallMaxRows) {
+            return TaskLane.SMALL;
+        }
+        return rows <= mediumMaxRows ? TaskLane.MEDIUM : TaskLane.LARGE;
+    }
+
+    /**
+     * 通道中等待的任务数
+     */
+    public synchronized int queuedCount(TaskLane lane) {
+        return waiting.get(lane).size();
+    }
+
+    /**
+     * 通道中正在执行的任务数
+     */
+    public synchronized int runningCount(TaskLane lane) {
+        return running.get(lane);
+    }
+
+    /**
+     * 按可用并发启动等待中的任务
+     */
+    private void dispatch() {
+        List<QueuedTask> started = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            QueuedTask next;
+            while ((next = selectNext(now)) != null) {
+                waiting.get(next.lane).remove(next);
+                boolean shared = reservedInUse.get(next.lane) >= reserved.get(next.lane);
+                if (shared) {
+                    sharedInUse++;
+                } else {
+                    reservedInUse.merge(next.lane, 1, Integer::sum);
+                }
+                running.merge(next.lane, 1, Integer::sum);
+                admitted.put(next.task.getId(), shared);
+                started.add(next);
+            }
+        }
+        for (QueuedTask queued : started) {
+            execute(queued);
+        }
+    }
+
+    /**
+     * 选出下一个可以启动的任务：各通道中有效优先级最高且有可用并发的任务，优先级相同时小通道优先
+     */
+    private QueuedTask selectNext(long now) {
+        QueuedTask candidate = null;
+        double candidatePriority = 0;
+        for (TaskLane lane : TaskLane.values()) {
+            boolean hasSlot = reservedInUse.get(lane) < reserved.get(lane) || sharedInUse < sharedSlots;
+            if (!hasSlot) {
+                continue;
+            }
+            for (QueuedTask queued : waiting.get(lane)) {
+                double priority = queued.effectivePriority(now);
+                if (candidate == null || priority > candidatePriority) {
+                    candidate = queued;
+                    candidatePriority = priority;
+                }
+            }
+        }
+        return candidate;
+    }
+
+    private void execute(QueuedTask queued) {
+        FileTask task = queued.task;
+        try {
+            fileTaskExecutor.execute(() -> {
+                try {
+                    processTask(queued);
+                } finally {
+                    release(queued);
+                }
+            });
+        } catch (Exception e) {
+            log.error("提交任务失败：" + task.getId(), e);
+            release(queued);
+            markFailed(task, e);
+        }
+    }
+
+    private void release(QueuedTask queued) {
+        synchronized (this) {
+            Boolean shared = admitted.remove(queued.task.getId());
+            if (Boolean.TRUE.equals(shared)) {
+                sharedInUse--;
+            } else {
+                reservedInUse.merge(queued.lane, -1, Integer::sum);
+            }
+            running.merge(queued.lane, -1, Integer::sum);
+        }
+        dispatch();
+    }
+
+    /**
+     * 处理单个任务
+     */
+    private void processTask(QueuedTask queued) {
+        FileTask task = queued.task;
+        try {
+            log.info("开始处理任务：{}, 类型：{}，通道：{}", task.getId(), task.getTaskType(), queued.lane);
+            if (task.getCreateTime() != null) {
+                fileToolMetrics.recordPickupLag(String.valueOf(task.getTaskType()),
+                        System.currentTimeMillis() - task.getCreateTime().getTime());
+            }
+
+            if (FileTask.TaskType.DOWNLOAD.equals(task.getTaskType())) {
+                // 处理下载任务
+                fileTaskService.processDownloadFile(task.getId());
+            }
+
+            log.info("任务处理完成：{}", task.getId());
+        } catch (Exception e) {
+            log.error("处理任务失败：" + task.getId(), e);
+            markFailed(task, e);
+        }
+    }
+
+    /**
+     * 更新任务状态为失败
+     */
+    private void markFailed(FileTask task, Exception e) {
+        fileTaskService.updateTaskResult(
+                task.getId(),
+                FileTask.TaskStatus.FAILED,
+                0,
+                0,
+                0,
+                "任务处理失败：" + e.getMessage()
+        );
+    }
+
+    private static int priorityOf(FileTask task) {
+        return task.getPriority() == null ? 0 : task.getPriority();
+    }
+
+    /**
+     * 等待中的任务
+     */
+    private class QueuedTask {
+
+        private final FileTask task;
+
+        private final TaskLane lane;
+
+        /**
+         * 开始等待的时间，任务的创建时间早于进入通道时以创建时间为准（如服务重启前创建的任务）
+         */
+        private final long since;
+
+        QueuedTask(FileTask task, TaskLane lane, long enqueuedAt) {
+            this.task = task;
+            this.lane = lane;
+            this.since = task.getCreateTime() == null ? enqueuedAt
+                    : Math.min(enqueuedAt, task.getCreateTime().getTime());
+        }
+
+        double effectivePriority(long now) {
+            return priorityOf(task) + agingPerMinute * (now - since) / 60000.0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.filetool.scheduler;
+
+/**
+ * 任务调度通道
+ * 按任务规模（预计行数）划分，每个通道有预留的并发数，小任务不会排在大任务后面
+ */
+public enum TaskLane {
+
+    /**
+     * 小任务，通常是交互式的导出，要求低延迟
+     */
+    SMALL,
+
+    /**
+     * 中等任务，未知规模的任务也归入此通道
+     */
+    MEDIUM,
+
+    /**
+     * 大任务，批量导出，使用预留并发和空闲的共享并发
+     */
+    LARGE
+}
@@ -0,0 +1,55 @@
+package com.example.filetool.service;
+
+import com.example.filetool.batch.BatchSizingOptions;
+import com.example.filetool.cache.ExportCacheOptions;
+import com.example.filetool.scheduler.SchedulingOptions;
+import com.example.filetool.util.ExcelWriteOptions;
+import lombok.Data;
+
+/**
+ * 批量提交中的一个导出任务
+ * 字段含义与单个创建导出任务相同，未设置的参数使用全局配置
+ */
+@Data
+public class ExportTaskSpec {
+
+    /**
+     * 任务名称
+     */
+    private String taskName;
+
+    /**
+     * 字段映射（JSON格式）
+     */
+    private String fieldMapping;
+
+    /**
+     * 取数地址
+     */
+    private String callbackUrl;
+
+    /**
+     * 取数参数（JSON格式）
+     */
+    private String callbackParams;
+
+    /**
+     * XLSX流式写入参数
+     */
+    private ExcelWriteOptions writeOptions;
+
+    /**
+     * 拉取批次参数
+     */
+    private BatchSizingOptions batchOptions;
+
+    /**
+     * 调度参数
+     */
+    private SchedulingOptions schedulingOptions;
+
+    /**
+     * 导出缓存参数，为空时不使用缓存
+     */
+    private ExportCacheOptions cacheOptions;
+}
@@ -1,6 +1,15 @@
 package com.example.filetool.service;
 
+import com.example.filetool.batch.BatchSizingOptions;
+import com.example.filetool.cache.ExportCacheOptions;
 import com.example.filetool.entity.FileTask;
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.progress.TaskProgress;
+import com.example.filetool.scheduler.SchedulingOptions;
+import com.example.filetool.util.ExcelWriteOptions;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.InputStream;
 import java.util.List;
@@ -19,10 +28,16 @@ public interface FileTaskService {
      * @param fieldMapping     字段映射（JSON格式）
      * @param callbackUrl      回调URL
      * @param callbackParams   回调参数（JSON格式）
+     * @param sheets           要导入的Sheet（Excel），为空时只导入第一个Sheet
+     * @param sheetOrdered     多Sheet导入时是否按Sheet顺序回调
+     * @param batchOptions     回调批次参数，为null或未设置的参数使用全局配置
+     * @param schedulingOptions 调度参数（优先级、预计行数），可为null
      * @return 文件任务
      */
     FileTask createUploadTask(String taskName, String originalFilename, Long fileSize, 
-                             String fieldMapping, String callbackUrl, String callbackParams);
+                             String fieldMapping, String callbackUrl, String callbackParams,
+                             String sheets, Boolean sheetOrdered, BatchSizingOptions batchOptions,
+                             SchedulingOptions schedulingOptions);
 
     /**
      * 创建文件下载任务
@@ -31,9 +46,52 @@ public interface FileTaskService {
      * @param fieldMapping   字段映射（JSON格式）
      * @param callbackUrl    回调URL
      * @param callbackParams 回调参数（JSON格式）
+     * @param writeOptions   XLSX流式写入参数，为null或未设置的参数使用全局配置
+     * @param batchOptions   拉取批次参数，为null或未设置的参数使用全局配置
+     * @param schedulingOptions 调度参数（优先级、预计行数），可为null
+     * @param cacheOptions   导出缓存参数，为null时不使用缓存
      * @return 文件任务
      */
-    FileTask createDownloadTask(String taskName, String fieldMapping, String callbackUrl, String callbackParams);
+    FileTask createDownloadTask(String taskName, String fieldMapping, String callbackUrl, String callbackParams,
+                               ExcelWriteOptions writeOptions, BatchSizingOptions batchOptions,
+                               SchedulingOptions schedulingOptions, ExportCacheOptions cacheOptions);
+
+    /**
+     * 批量创建文件下载任务
+     * 每个任务单独校验，校验失败的任务不创建，其余任务在一个事务中批量插入
+     *
+     * @param specs 任务参数
+     * @return 与参数顺序一一对应的结果
+     */
+    List<TaskSubmission> createDownloadTasks(List<ExportTaskSpec> specs);
+
+    /**
+     * 同步流式导出
+     * 不创建任务、不生成中间文件：从取数地址分页拉取数据，每页转换后直接写入响应，内存中只保留一页数据。
+     * 参数在调用时校验，取数失败时中断响应
+     *
+     * @param fileType       文件类型：csv或xlsx
+     * @param fieldMapping   字段映射（JSON格式）
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数（JSON格式）
+     * @param writeOptions   XLSX流式写入参数，为null或未设置的参数使用全局配置
+     * @param batchOptions   拉取批次参数，为null或未设置的参数使用全局配置
+     * @return 写出文件内容的响应体
+     */
+    StreamingResponseBody streamExport(String fileType, String fieldMapping, String callbackUrl,
+                                       String callbackParams, ExcelWriteOptions writeOptions,
+                                       BatchSizingOptions batchOptions);
+
+    /**
+     * 使导出缓存失效
+     * 之后相同的导出（取数地址、取数参数和字段映射都相同）重新生成文件
+     *
+     * @param fieldMapping   字段映射（JSON格式）
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数
+     * @return 失效的任务数
+     */
+    int invalidateExportCache(String fieldMapping, String callbackUrl, String callbackParams);
 
     /**
      * 根据ID查询任务
@@ -43,6 +101,32 @@ public interface FileTaskService {
      */
     FileTask getTaskById(Long taskId);
 
+    /**
+     * 按条件分页查询任务列表
+     * 使用游标（keyset）分页，翻到任意深度的耗时都与第一页相同
+     *
+     * @param query 查询条件
+     * @return 一页任务及下一页的游标
+     */
+    TaskPage listTasks(TaskQuery query);
+
+    /**
+     * 获取运行中任务的实时进度
+     *
+     * @param taskId 任务ID
+     * @return 实时进度，任务未在运行时返回null
+     */
+    TaskProgress getTaskProgress(Long taskId);
+
+    /**
+     * 订阅任务进度推送（SSE）
+     * 运行中的任务定时推送进度，结束时推送最终状态并关闭连接
+     *
+     * @param taskId 任务ID
+     * @return SSE连接
+     */
+    SseEmitter subscribeTaskProgress(Long taskId);
+
     /**
      * 查询待处理的任务列表
      *
@@ -52,24 +136,42 @@ public interface FileTaskService {
 
     /**
      * 更新任务状态
+     * 仅当任务当前为预期状态时更新（compare-and-set）
      *
-     * @param taskId 任务ID
-     * @param status 任务状态
-     * @return 更新后的任务
+     * @param taskId   任务ID
+     * @param expected 预期的当前状态
+     * @param status   任务状态
+     * @return 是否更新成功
      */
-    FileTask updateTaskStatus(Long taskId, FileTask.TaskStatus status);
+    boolean updateTaskStatus(Long taskId, FileTask.TaskStatus expected, FileTask.TaskStatus status);
 
     /**
      * 更新任务处理结果
+     * 失败行数大于0时任务为失败，否则为完成；已结束的任务不会被再次更新
+     *
+     * @param taskId        任务ID
+     * @param processedRows 处理行数
+     * @param successRows   成功行数
+     * @param failedRows    失败行数
+     * @param errorMessage  错误信息
+     * @return 是否更新成功
+     */
+    boolean updateTaskResult(Long taskId, Integer processedRows, Integer successRows,
+                             Integer failedRows, String errorMessage);
+
+    /**
+     * 以指定的最终状态更新任务处理结果，用于没有失败行但任务本身失败的情况
+     * 已结束的任务不会被再次更新
      *
      * @param taskId        任务ID
+     * @param status        最终状态
      * @param processedRows 处理行数
      * @param successRows   成功行数
      * @param failedRows    失败行数
      * @param errorMessage  错误信息
-     * @return 更新后的任务
+     * @return 是否更新成功
      */
-    FileTask updateTaskResult(Long taskId, Integer processedRows, Integer successRows, 
+    boolean updateTaskResult(Long taskId, FileTask.TaskStatus status, Integer processedRows, Integer successRows,
                              Integer failedRows, String errorMessage);
 
     /**
@@ -81,6 +183,15 @@ public interface FileTaskService {
      */
     boolean processUploadFile(Long taskId, InputStream inputStream);
 
+    /**
+     * 处理上传任务的一个分片
+     * 分片需已由调用方认领；处理结果累加到任务，最后一个结束的分片发送最终回调
+     *
+     * @param shard 已认领的分片
+     * @return 分片是否处理成功
+     */
+    boolean processUploadShard(FileTaskShard shard);
+
     /**
      * 处理文件下载
      *
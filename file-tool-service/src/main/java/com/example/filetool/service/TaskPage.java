@@ -0,0 +1,25 @@
+package com.example.filetool.service;
+
+import com.example.filetool.entity.FileTask;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 任务列表的一页
+ */
+@Getter
+@AllArgsConstructor
+public class TaskPage {
+
+    /**
+     * 本页任务，按创建时间倒序（相同时按ID倒序）
+     */
+    private final List<FileTask> tasks;
+
+    /**
+     * 下一页的游标，为null表示没有更多任务
+     */
+    private final String nextCursor;
+}
@@ -0,0 +1,49 @@
+package com.example.filetool.service;
+
+import com.example.filetool.entity.FileTask;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 任务列表查询条件
+ * 未设置的条件不参与过滤；结果按创建时间倒序（相同时按ID倒序）分页
+ */
+@Data
+public class TaskQuery {
+
+    /**
+     * 任务状态
+     */
+    private FileTask.TaskStatus status;
+
+    /**
+     * 任务类型
+     */
+    private FileTask.TaskType taskType;
+
+    /**
+     * 任务名称前缀
+     */
+    private String namePrefix;
+
+    /**
+     * 创建时间下限（含）
+     */
+    private Date createdFrom;
+
+    /**
+     * 创建时间上限（不含）
+     */
+    private Date createdTo;
+
+    /**
+     * 分页游标，取上一页返回的nextCursor，为空时查询第一页
+     */
+    private String cursor;
+
+    /**
+     * 每页任务数，为空时使用默认值
+     */
+    private Integer limit;
+}
@@ -0,0 +1,36 @@
+package com.example.filetool.service;
+
+import com.example.filetool.entity.FileTask;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 批量提交中一个任务的结果：创建的任务，或校验失败的原因
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TaskSubmission {
+
+    /**
+     * 创建的任务，校验失败时为null
+     */
+    private final FileTask task;
+
+    /**
+     * 校验失败的原因，创建成功时为null
+     */
+    private final String error;
+
+    public static TaskSubmission accepted(FileTask task) {
+        return new TaskSubmission(task, null);
+    }
+
+    public static TaskSubmission rejected(String error) {
+        return new TaskSubmission(null, error);
+    }
+
+    public boolean isAccepted() {
+        return task != null;
+    }
+}
@@ -1,30 +1,70 @@
 package com.example.filetool.service.impl;
 
+import com.example.filetool.batch.AdaptiveBatchSizer;
+import com.example.filetool.batch.BatchSizerFactory;
+import com.example.filetool.batch.BatchSizingOptions;
+import com.example.filetool.batch.RowBatcher;
+import com.example.filetool.cache.ExportCache;
+import com.example.filetool.cache.ExportCacheOptions;
+import com.example.filetool.cache.TaskMetadataCache;
 import com.example.filetool.entity.FileTask;
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.parser.FieldMappingResolver;
 import com.example.filetool.parser.FileParser;
+import com.example.filetool.parser.RawBatch;
+import com.example.filetool.parser.RowConverter;
+import com.example.filetool.parser.RowError;
 import com.example.filetool.parser.impl.CsvFileParser;
 import com.example.filetool.parser.impl.ExcelFileParser;
+import com.example.filetool.pipeline.AsyncDeliveryQueue;
+import com.example.filetool.pipeline.StagedPipeline;
+import com.example.filetool.progress.ProgressInputStream;
+import com.example.filetool.progress.TaskProgress;
+import com.example.filetool.progress.TaskProgressPublisher;
+import com.example.filetool.progress.TaskProgressRegistry;
+import com.example.filetool.progress.TaskStateJournal;
 import com.example.filetool.repository.FileTaskRepository;
+import com.example.filetool.repository.FileTaskShardRepository;
+import com.example.filetool.scheduler.SchedulingOptions;
+import com.example.filetool.service.ExportTaskSpec;
 import com.example.filetool.service.FileTaskService;
+import com.example.filetool.service.TaskPage;
+import com.example.filetool.service.TaskQuery;
+import com.example.filetool.service.TaskSubmission;
+import com.example.filetool.shard.ShardPlanner;
+import com.example.filetool.util.ExcelProcessUtil;
+import com.example.filetool.util.ExcelWriteOptions;
 import com.example.filetool.util.FileStorageUtil;
 import com.example.filetool.util.HttpClientUtil;
+import com.example.filetool.util.UploadTee;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 文件任务服务实现类
@@ -51,10 +91,89 @@ public class FileTaskServiceImpl implements FileTaskService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ExcelProcessUtil excelProcessUtil;
+
+    @Autowired
+    private TaskProgressRegistry taskProgressRegistry;
+
+    @Autowired
+    private TaskProgressPublisher taskProgressPublisher;
+
+    @Autowired
+    private FieldMappingResolver fieldMappingResolver;
+
+    @Autowired
+    private StagedPipeline stagedPipeline;
+
+    @Autowired
+    private BatchSizerFactory batchSizerFactory;
+
+    @Autowired
+    private FileTaskShardRepository fileTaskShardRepository;
+
+    @Autowired
+    private ShardPlanner shardPlanner;
+
+    @Autowired
+    private ExportCache exportCache;
+
+    @Autowired
+    private TaskMetadataCache taskMetadataCache;
+
+    @Autowired
+    private TaskStateJournal taskStateJournal;
+
+    @Autowired
+    @Qualifier("fileTaskExecutor")
+    private Executor fileTaskExecutor;
+
+    /**
+     * 一次批量提交的最大任务数
+     */
+    @Value("${file.task.bulk.max-tasks:1000}")
+    private int bulkMaxTasks;
+
+    /**
+     * 每个上传任务（分片）最多未结束的回调批次数，达到上限时交付阶段等待
+     */
+    @Value("${file.callback.async.max-pending-batches:8}")
+    private int callbackMaxPendingBatches;
+
+    /**
+     * CSV上传是否边保存边解析
+     */
+    @Value("${file.upload.tee.enabled:true}")
+    private boolean uploadTeeEnabled;
+
+    /**
+     * 边保存边解析时解析缓冲区的数据块数（每块64KB）
+     */
+    @Value("${file.upload.tee.buffer-chunks:64}")
+    private int uploadTeeBufferChunks;
+
+    /**
+     * 最终回调中最多返回的行级错误数
+     */
+    private static final int MAX_REPORTED_ROW_ERRORS = 100;
+
+    /**
+     * 同步流式导出的流标识序号
+     */
+    private final AtomicLong streamSequence = new AtomicLong();
+
+    /**
+     * 任务列表默认/最大每页任务数
+     */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Override
     @Transactional
     public FileTask createUploadTask(String taskName, String originalFilename, Long fileSize,
-                                    String fieldMapping, String callbackUrl, String callbackParams) {
+                                    String fieldMapping, String callbackUrl, String callbackParams,
+                                    String sheets, Boolean sheetOrdered, BatchSizingOptions batchOptions,
+                                    SchedulingOptions schedulingOptions) {
         FileTask task = new FileTask();
         task.setTaskName(taskName);
         task.setTaskType(FileTask.TaskType.UPLOAD);
@@ -64,12 +183,69 @@ public class FileTaskServiceImpl implements FileTaskService {
         task.setFieldMapping(fieldMapping);
         task.setCallbackUrl(callbackUrl);
         task.setCallbackParams(callbackParams);
-        return fileTaskRepository.save(task);
+        task.setSheets(sheets);
+        task.setSheetOrdered(sheetOrdered);
+        applyBatchOptions(task, batchOptions);
+        applySchedulingOptions(task, schedulingOptions);
+        FileTask savedTask = fileTaskRepository.save(task);
+        taskMetadataCache.put(savedTask);
+        return savedTask;
     }
 
     @Override
     @Transactional
-    public FileTask createDownloadTask(String taskName, String fieldMapping, String callbackUrl, String callbackParams) {
+    public FileTask createDownloadTask(String taskName, String fieldMapping, String callbackUrl, String callbackParams,
+                                      ExcelWriteOptions writeOptions, BatchSizingOptions batchOptions,
+                                      SchedulingOptions schedulingOptions, ExportCacheOptions cacheOptions) {
+        FileTask task = buildDownloadTask(taskName, fieldMapping, callbackUrl, callbackParams, writeOptions,
+                batchOptions, schedulingOptions, cacheOptions);
+        FileTask savedTask = fileTaskRepository.save(task);
+        taskMetadataCache.put(savedTask);
+        return savedTask;
+    }
+
+    @Override
+    @Transactional
+    public List<TaskSubmission> createDownloadTasks(List<ExportTaskSpec> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("任务列表不能为空");
+        }
+        if (specs.size() > bulkMaxTasks) {
+            throw new IllegalArgumentException("一次最多提交" + bulkMaxTasks + "个任务：" + specs.size());
+        }
+
+        List<TaskSubmission> submissions = new ArrayList<>(specs.size());
+        List<FileTask> tasks = new ArrayList<>(specs.size());
+        for (ExportTaskSpec spec : specs) {
+            try {
+                if (spec == null || spec.getTaskName() == null || spec.getTaskName().isEmpty()) {
+                    throw new IllegalArgumentException("任务名称不能为空");
+                }
+                FileTask task = buildDownloadTask(spec.getTaskName(), spec.getFieldMapping(), spec.getCallbackUrl(),
+                        spec.getCallbackParams(), spec.getWriteOptions(), spec.getBatchOptions(),
+                        spec.getSchedulingOptions(), spec.getCacheOptions());
+                tasks.add(task);
+                submissions.add(TaskSubmission.accepted(task));
+            } catch (IllegalArgumentException e) {
+                submissions.add(TaskSubmission.rejected(e.getMessage()));
+            }
+        }
+
+        fileTaskRepository.insertAll(tasks);
+        for (FileTask task : tasks) {
+            taskMetadataCache.put(task);
+        }
+        log.info("批量创建导出任务：{}个，校验失败：{}个", tasks.size(), specs.size() - tasks.size());
+        return submissions;
+    }
+
+    /**
+     * 校验参数并组装下载任务（未保存）
+     */
+    private FileTask buildDownloadTask(String taskName, String fieldMapping, String callbackUrl,
+                                       String callbackParams, ExcelWriteOptions writeOptions,
+                                       BatchSizingOptions batchOptions, SchedulingOptions schedulingOptions,
+                                       ExportCacheOptions cacheOptions) {
         FileTask task = new FileTask();
         task.setTaskName(taskName);
         task.setTaskType(FileTask.TaskType.DOWNLOAD);
@@ -77,7 +253,27 @@ public class FileTaskServiceImpl implements FileTaskService {
         task.setFieldMapping(fieldMapping);
         task.setCallbackUrl(callbackUrl);
         task.setCallbackParams(callbackParams);
-        return fileTaskRepository.save(task);
+        if (writeOptions != null) {
+            // 提前校验参数，避免任务执行时才失败
+            excelProcessUtil.resolveWriteOptions(writeOptions);
+            task.setRowAccessWindow(writeOptions.getRowAccessWindow());
+            task.setSharedStrings(writeOptions.getSharedStrings());
+            task.setCompressTempFiles(writeOptions.getCompressTempFiles());
+        }
+        applyBatchOptions(task, batchOptions);
+        applySchedulingOptions(task, schedulingOptions);
+        if (cacheOptions != null && Boolean.TRUE.equals(cacheOptions.getEnabled())) {
+            // 提前校验参数，避免任务执行时才失败
+            exportCache.resolveTtlSeconds(cacheOptions.getTtlSeconds());
+            task.setCacheKey(exportCache.keyOf(callbackUrl, callbackParams, fieldMapping));
+            task.setCacheTtlSeconds(cacheOptions.getTtlSeconds());
+        }
+        return task;
+    }
+
+    @Override
+    public int invalidateExportCache(String fieldMapping, String callbackUrl, String callbackParams) {
+        return exportCache.invalidate(exportCache.keyOf(callbackUrl, callbackParams, fieldMapping));
     }
 
     @Override
@@ -86,132 +282,508 @@ public class FileTaskServiceImpl implements FileTaskService {
                 .orElseThrow(() -> new RuntimeException("任务不存在：" + taskId));
     }
 
+    @Override
+    public TaskPage listTasks(TaskQuery query) {
+        int limit = query.getLimit() == null ? DEFAULT_PAGE_SIZE : query.getLimit();
+        if (limit <= 0) {
+            throw new IllegalArgumentException("每页任务数必须大于0");
+        }
+        limit = Math.min(limit, MAX_PAGE_SIZE);
+
+        Date cursorTime = null;
+        Long cursorId = null;
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            String[] parts = query.getCursor().split("_", 2);
+            try {
+                cursorTime = new Date(Long.parseLong(parts[0]));
+                cursorId = Long.parseLong(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("无效的分页游标：" + query.getCursor());
+            }
+        }
+
+        String namePrefix = null;
+        if (query.getNamePrefix() != null && !query.getNamePrefix().isEmpty()) {
+            namePrefix = query.getNamePrefix().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        }
+
+        // 多取一条判断是否还有下一页
+        List<FileTask> tasks = fileTaskRepository.findPage(query.getStatus(), query.getTaskType(), namePrefix,
+                query.getCreatedFrom(), query.getCreatedTo(), cursorTime, cursorId, PageRequest.of(0, limit + 1));
+        if (tasks.size() <= limit) {
+            return new TaskPage(tasks, null);
+        }
+        tasks = new ArrayList<>(tasks.subList(0, limit));
+        FileTask last = tasks.get(limit - 1);
+        return new TaskPage(tasks, last.getCreateTime().getTime() + "_" + last.getId());
+    }
+
+    @Override
+    public TaskProgress getTaskProgress(Long taskId) {
+        return taskProgressRegistry.get(taskId);
+    }
+
+    @Override
+    public SseEmitter subscribeTaskProgress(Long taskId) {
+        TaskProgress progress = taskProgressRegistry.get(taskId);
+        if (progress != null) {
+            return taskProgressPublisher.subscribe(taskId, progress.snapshot(), progress.isFinished());
+        }
+
+        // 任务未在本节点运行，使用数据库中的状态作为初始快照
+        FileTask task = getTaskById(taskId);
+        boolean finished = task.getStatus() == FileTask.TaskStatus.COMPLETED
+                || task.getStatus() == FileTask.TaskStatus.FAILED;
+        return taskProgressPublisher.subscribe(taskId, TaskProgress.snapshotOf(task), finished);
+    }
+
     @Override
     public List<FileTask> getPendingTasks() {
         return fileTaskRepository.findByStatus(FileTask.TaskStatus.PENDING);
     }
 
     @Override
-    @Transactional
-    public FileTask updateTaskStatus(Long taskId, FileTask.TaskStatus status) {
-        FileTask task = getTaskById(taskId);
-        task.setStatus(status);
-        return fileTaskRepository.save(task);
+    public boolean updateTaskStatus(Long taskId, FileTask.TaskStatus expected, FileTask.TaskStatus status) {
+        return fileTaskRepository.compareAndSetStatus(taskId, expected, status) > 0;
     }
 
     @Override
-    @Transactional
-    public FileTask updateTaskResult(Long taskId, Integer processedRows, Integer successRows,
+    public boolean updateTaskResult(Long taskId, Integer processedRows, Integer successRows,
                                     Integer failedRows, String errorMessage) {
-        FileTask task = getTaskById(taskId);
-        task.setProcessedRows(processedRows);
-        task.setSuccessRows(successRows);
-        task.setFailedRows(failedRows);
-        task.setErrorMessage(errorMessage);
-        if (failedRows > 0) {
-            task.setStatus(FileTask.TaskStatus.FAILED);
-        } else {
-            task.setStatus(FileTask.TaskStatus.COMPLETED);
+        FileTask.TaskStatus status = failedRows > 0 ? FileTask.TaskStatus.FAILED : FileTask.TaskStatus.COMPLETED;
+        return updateTaskResult(taskId, status, processedRows, successRows, failedRows, errorMessage);
+    }
+
+    @Override
+    public boolean updateTaskResult(Long taskId, FileTask.TaskStatus status, Integer processedRows,
+                                    Integer successRows, Integer failedRows, String errorMessage) {
+        // 最终结果同步写入，待延迟写入的进度不再需要
+        taskStateJournal.discard(taskId);
+        if (fileTaskRepository.finishTask(taskId, status, processedRows, successRows, failedRows,
+                truncate(errorMessage)) == 0) {
+            log.warn("任务不存在或已结束，忽略处理结果：{}，状态：{}", taskId, status);
+            return false;
         }
-        return fileTaskRepository.save(task);
+
+        // 推送最终状态给进度订阅者
+        TaskProgress progress = taskProgressRegistry.get(taskId);
+        if (progress != null) {
+            progress.finish(status, errorMessage);
+            taskProgressPublisher.publishTerminal(progress);
+        }
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean processUploadFile(Long taskId, InputStream inputStream) {
+        // 领取任务：只有把任务从等待中改为处理中的调用方继续处理
+        if (!updateTaskStatus(taskId, FileTask.TaskStatus.PENDING, FileTask.TaskStatus.PROCESSING)) {
+            log.warn("上传任务不是等待状态，跳过处理：{}", taskId);
+            return false;
+        }
+        UploadTee uploadTee = null;
         try {
-            // 更新任务状态为处理中
-            updateTaskStatus(taskId, FileTask.TaskStatus.PROCESSING);
-            FileTask task = getTaskById(taskId);
-            
-            // 保存文件到存储系统
-            String filePath = fileStorageUtil.saveFile(task.getOriginalFilename(), inputStream);
-            task.setFilePath(filePath);
-            fileTaskRepository.save(task);
+            FileTask task = taskMetadataCache.get(taskId);
+            TaskProgress progress = taskProgressRegistry.start(task);
             
             // 根据文件类型选择解析器
             FileParser fileParser = getFileParser(task.getOriginalFilename());
             
-            // 解析文件并处理数据
-            AtomicInteger processedRows = new AtomicInteger(0);
-            AtomicInteger successRows = new AtomicInteger(0);
-            AtomicInteger failedRows = new AtomicInteger(0);
+            // 保存文件到存储系统；不会拆分的CSV文件边保存边解析，上传数据只读取一遍
+            String filePath;
+            if (uploadTeeEnabled && fileParser == csvFileParser && !shardPlanner.mayShard(task)) {
+                uploadTee = fileStorageUtil.teeFile(task.getOriginalFilename(), inputStream, uploadTeeBufferChunks);
+                filePath = uploadTee.getFilePath();
+            } else {
+                progress.setStage(TaskProgress.Stage.STORING);
+                filePath = fileStorageUtil.saveFile(task.getOriginalFilename(), inputStream);
+            }
+            task.setFilePath(filePath);
+            fileTaskRepository.updateFile(taskId, task.getOriginalFilename(), filePath, task.getFileSize(),
+                    null, null);
+            taskMetadataCache.evict(taskId);
             
-            // 获取文件输入流
-            try (InputStream fileInputStream = fileStorageUtil.getFileInputStream(filePath)) {
-                // 解析文件
-                fileParser.parseFile(fileInputStream, task.getFieldMapping(), dataRows -> {
-                    try {
-                        // 更新处理行数
-                        processedRows.addAndGet(dataRows.size());
-                        
-                        // 发送数据到业务系统
-                        if (task.getCallbackUrl() != null && !task.getCallbackUrl().isEmpty()) {
-                            String response = httpClientUtil.sendCallback(
-                                task.getCallbackUrl(),
-                                task.getId(),
-                                "PROCESSING",
-                                dataRows
-                            );
-                            
-                            // 根据回调结果更新成功/失败行数
-                            if (response != null) {
-                                successRows.addAndGet(dataRows.size());
-                            } else {
-                                failedRows.addAndGet(dataRows.size());
-                            }
-                        } else {
-                            // 没有回调URL，默认为成功
-                            successRows.addAndGet(dataRows.size());
-                        }
-                    } catch (Exception e) {
-                        log.error("处理数据批次失败", e);
-                        failedRows.addAndGet(dataRows.size());
-                    }
-                });
-                
-                // 更新任务处理结果
-                updateTaskResult(
-                    taskId,
-                    processedRows.get(),
-                    successRows.get(),
-                    failedRows.get(),
-                    failedRows.get() > 0 ? "部分数据处理失败" : null
+            // 大文件拆分为分片，由各节点的ShardWorker认领处理，全部分片结束后汇总结果并发送最终回调
+            List<FileTaskShard> shards = uploadTee != null
+                    ? Collections.emptyList() : shardPlanner.plan(task);
+            if (!shards.isEmpty()) {
+                fileTaskShardRepository.saveShards(taskId, shards);
+                log.info("文件上传任务已拆分为{}个分片等待处理：{}", shards.size(), taskId);
+                return true;
+            }
+            
+            // 回调批次大小按字节预算和回调耗时自动调整，解析批次在交付前重新分批
+            AdaptiveBatchSizer batchSizer = batchSizerFactory.create(getBatchOptions(task));
+            RowBatcher rowBatcher = new RowBatcher(batchSizer);
+            
+            // 每批数据的回调：回调业务系统并累计成功/失败行数，按节流策略刷新进度到数据库
+            AsyncDeliveryQueue<List<Map<String, Object>>> callbacks = callbackHandler(task, progress, batchSizer, true);
+            
+            // 每批解析结果的处理（管道的交付阶段）：凑满一个回调批次就提交回调，未结束的回调过多时才等待
+            Consumer<List<Map<String, Object>>> batchHandler =
+                    dataRows -> rowBatcher.add(dataRows).forEach(callbacks::submit);
+            
+            // 类型转换失败的行：计为已处理的失败行，并保留前若干条错误明细
+            List<RowError> rowErrors = new ArrayList<>();
+            Consumer<RowError> errorHandler = errorHandler(progress, rowErrors);
+            
+            progress.setStage(TaskProgress.Stage.PARSING);
+            if (fileParser == excelFileParser && task.getSheets() != null && !task.getSheets().isEmpty()) {
+                // 多Sheet并行解析，每个Sheet独立打开存储中的文件；转换已在各Sheet的解析线程中完成，
+                // 管道只负责把交付与解析重叠
+                boolean sheetOrdered = !Boolean.FALSE.equals(task.getSheetOrdered());
+                File file = fileStorageUtil.getFile(filePath);
+                progress.addBytes(file.length());
+                stagedPipeline.run(
+                    sink -> excelFileParser.parseSheets(
+                        ExcelProcessUtil.StreamSource.of(file),
+                        task.getFieldMapping(),
+                        task.getSheets(),
+                        sheetOrdered,
+                        sink,
+                        errorHandler
+                    ),
+                    batchHandler,
+                    sheetOrdered
                 );
-                
-                // 发送最终回调
-                if (task.getCallbackUrl() != null && !task.getCallbackUrl().isEmpty()) {
-                    Map<String, Object> resultData = new HashMap<>();
-                    resultData.put("processedRows", processedRows.get());
-                    resultData.put("successRows", successRows.get());
-                    resultData.put("failedRows", failedRows.get());
-                    
-                    httpClientUtil.sendCallback(
-                        task.getCallbackUrl(),
-                        task.getId(),
-                        failedRows.get() > 0 ? "FAILED" : "COMPLETED",
-                        resultData
+            } else if (fileParser == excelFileParser) {
+                // Excel直接读取存储中的文件（XLSX按随机访问方式打开ZIP），不经输入流复制到临时文件；
+                // 读取、转换、交付分阶段执行：读取在当前线程，转换和交付在管道线程中
+                RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(task.getFieldMapping());
+                File file = fileStorageUtil.getFile(filePath);
+                progress.addBytes(file.length());
+                stagedPipeline.<RawBatch, List<Map<String, Object>>>run(
+                    sink -> excelFileParser.readRows(file, rowConverter.columnIndexes(), sink),
+                    rawBatch -> rowConverter.convert(rawBatch, errorHandler),
+                    batchHandler
+                );
+            } else {
+                // 读取、转换、交付分阶段执行：读取在当前线程，转换和交付在管道线程中；
+                // 边保存边解析时从分流的上传数据读取，否则读取存储中的文件
+                RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(task.getFieldMapping());
+                try (InputStream fileInputStream = new ProgressInputStream(uploadTee != null
+                        ? uploadTee.getInputStream() : fileStorageUtil.getFileInputStream(filePath), progress)) {
+                    stagedPipeline.<RawBatch, List<Map<String, Object>>>run(
+                        sink -> fileParser.readRows(fileInputStream, rowConverter.columnIndexes(), sink),
+                        rawBatch -> rowConverter.convert(rawBatch, errorHandler),
+                        batchHandler
                     );
                 }
+                if (uploadTee != null) {
+                    // 解析读到的数据都已写入文件，这里只等待写入线程结束，保存失败时任务失败
+                    uploadTee.await();
+                }
+            }
+            callbacks.submit(rowBatcher.flush());
+            callbacks.awaitAll();
+            
+            int processedRows = (int) progress.getProcessedRows();
+            int successRows = (int) progress.getSuccessRows();
+            int failedRows = (int) progress.getFailedRows();
+            
+            // 更新任务处理结果
+            updateTaskResult(
+                taskId,
+                processedRows,
+                successRows,
+                failedRows,
+                failedRows > 0 ? "部分数据处理失败" : null
+            );
+            
+            // 发送最终回调
+            progress.setStage(TaskProgress.Stage.CALLBACK);
+            if (task.getCallbackUrl() != null && !task.getCallbackUrl().isEmpty()) {
+                Map<String, Object> resultData = new HashMap<>();
+                resultData.put("processedRows", processedRows);
+                resultData.put("successRows", successRows);
+                resultData.put("failedRows", failedRows);
+                if (!rowErrors.isEmpty()) {
+                    resultData.put("errors", rowErrors);
+                }
+                
+                httpClientUtil.sendCallback(
+                    task.getCallbackUrl(),
+                    task.getId(),
+                    failedRows > 0 ? "FAILED" : "COMPLETED",
+                    resultData
+                );
             }
             
             log.info("文件上传任务处理完成：{}，处理行数：{}，成功行数：{}，失败行数：{}", 
-                    taskId, processedRows.get(), successRows.get(), failedRows.get());
+                    taskId, processedRows, successRows, failedRows);
             return true;
         } catch (Exception e) {
             log.error("处理上传文件失败：" + taskId, e);
+            awaitQuietly(uploadTee);
             updateTaskResult(taskId, 0, 0, 0, e.getMessage());
             return false;
+        } finally {
+            taskProgressRegistry.remove(taskId);
+        }
+    }
+
+    /**
+     * 解析失败时仍等待分流的写入线程结束，调用方在本方法返回后可能关闭上传流
+     */
+    private void awaitQuietly(UploadTee uploadTee) {
+        if (uploadTee == null) {
+            return;
+        }
+        try {
+            uploadTee.await();
+        } catch (IOException e) {
+            log.warn("保存上传文件失败：{}", uploadTee.getFilePath(), e);
         }
     }
 
     @Override
-    @Transactional
+    public boolean processUploadShard(FileTaskShard shard) {
+        FileTask task = taskMetadataCache.get(shard.getTaskId());
+        // 分片单独计数，不注册到进度表（进度表中的计数会覆盖写入任务），结束时累加到任务
+        TaskProgress progress = new TaskProgress(task.getId(), task.getTaskName());
+        List<RowError> rowErrors = new ArrayList<>();
+        FileTaskShard.ShardStatus status = FileTaskShard.ShardStatus.COMPLETED;
+        String errorMessage = null;
+        try {
+            AdaptiveBatchSizer batchSizer = batchSizerFactory.create(getBatchOptions(task));
+            RowBatcher rowBatcher = new RowBatcher(batchSizer);
+            AsyncDeliveryQueue<List<Map<String, Object>>> callbacks = callbackHandler(task, progress, batchSizer, false);
+            Consumer<RowError> errorHandler = errorHandler(progress, rowErrors);
+            RowConverter rowConverter = fieldMappingResolver.resolveRowConverter(task.getFieldMapping());
+
+            // CSV分片只读取自己的字节范围；Excel分片直接打开存储中的文件，不再各自复制一份到临时文件
+            boolean csv = ShardPlanner.isCsv(task.getOriginalFilename());
+            try (InputStream inputStream = csv
+                    ? fileStorageUtil.getFileInputStream(task.getFilePath(), shard.getStartOffset(), shard.getEndOffset())
+                    : null) {
+                File file = csv ? null : fileStorageUtil.getFile(task.getFilePath());
+                stagedPipeline.<RawBatch, List<Map<String, Object>>>run(
+                    sink -> csv
+                        ? csvFileParser.readRows(inputStream, shard.getStartRow(), shard.getStartOffset() == 0, sink)
+                        : excelFileParser.readRows(file, shard.getSheetNo(), shard.getSheetName(),
+                                shard.getStartRow(), shard.getEndRow(), rowConverter.columnIndexes(), sink),
+                    rawBatch -> rowConverter.convert(rawBatch, errorHandler),
+                    dataRows -> rowBatcher.add(dataRows).forEach(callbacks::submit)
+                );
+            }
+            callbacks.submit(rowBatcher.flush());
+            callbacks.awaitAll();
+            if (progress.getFailedRows() > 0) {
+                errorMessage = "部分数据处理失败";
+            }
+        } catch (Exception e) {
+            log.error("处理上传任务分片失败：{}，分片：{}", task.getId(), shard.getShardIndex(), e);
+            status = FileTaskShard.ShardStatus.FAILED;
+            errorMessage = e.getMessage();
+        }
+
+        int processedRows = (int) progress.getProcessedRows();
+        int successRows = (int) progress.getSuccessRows();
+        int failedRows = (int) progress.getFailedRows();
+        String rowErrorsJson = null;
+        if (!rowErrors.isEmpty()) {
+            try {
+                rowErrorsJson = objectMapper.writeValueAsString(rowErrors);
+            } catch (IOException e) {
+                log.warn("序列化分片行级错误失败：{}", shard.getId(), e);
+            }
+        }
+
+        // 分片超时后可能已被其他节点重新认领，此时丢弃本次结果，由新的认领节点汇总
+        if (fileTaskShardRepository.finish(shard.getId(), shard.getOwner(), status, processedRows, successRows,
+                failedRows, truncate(errorMessage), rowErrorsJson) == 0) {
+            log.warn("分片已被重新认领，丢弃本次处理结果：{}，分片：{}", task.getId(), shard.getShardIndex());
+            return false;
+        }
+        fileTaskRepository.addShardResult(task.getId(), processedRows, successRows, failedRows);
+        log.info("上传任务分片处理完成：{}，分片：{}，处理行数：{}，成功行数：{}，失败行数：{}",
+                task.getId(), shard.getShardIndex(), processedRows, successRows, failedRows);
+
+        // 分片计数和汇总行数从数据库读取最新值
+        FileTask latest = getTaskById(task.getId());
+        if (latest.getCompletedShards() != null && latest.getShardCount() != null
+                && latest.getCompletedShards() >= latest.getShardCount()) {
+            finishShardedTask(latest);
+        }
+        return status == FileTaskShard.ShardStatus.COMPLETED;
+    }
+
+    /**
+     * 全部分片结束后结束任务并发送最终回调
+     * 多个节点同时结束最后的分片时，只有成功把任务从处理中改为最终状态的节点发送回调
+     *
+     * @param task 已汇总全部分片结果的任务
+     */
+    private void finishShardedTask(FileTask task) {
+        long failedShards = fileTaskShardRepository.countByTaskIdAndStatus(task.getId(),
+                FileTaskShard.ShardStatus.FAILED);
+        boolean failed = failedShards > 0 || task.getFailedRows() > 0;
+        String errorMessage = failedShards > 0 ? failedShards + "个分片处理失败"
+                : task.getFailedRows() > 0 ? "部分数据处理失败" : null;
+        FileTask.TaskStatus status = failed ? FileTask.TaskStatus.FAILED : FileTask.TaskStatus.COMPLETED;
+        if (fileTaskRepository.finishShardedTask(task.getId(), status, errorMessage) == 0) {
+            return;
+        }
+
+        // 分片任务没有登记进度，按汇总结果向订阅者推送最终状态
+        TaskProgress progress = new TaskProgress(task.getId(), task.getTaskName());
+        progress.addBatch(task.getProcessedRows());
+        progress.addSuccessRows(task.getSuccessRows());
+        progress.addFailedRows(task.getFailedRows());
+        progress.finish(status, errorMessage);
+        taskProgressPublisher.publishTerminal(progress);
+
+        if (task.getCallbackUrl() != null && !task.getCallbackUrl().isEmpty()) {
+            Map<String, Object> resultData = new HashMap<>();
+            resultData.put("processedRows", task.getProcessedRows());
+            resultData.put("successRows", task.getSuccessRows());
+            resultData.put("failedRows", task.getFailedRows());
+            List<Object> errors = collectShardRowErrors(task.getId());
+            if (!errors.isEmpty()) {
+                resultData.put("errors", errors);
+            }
+            httpClientUtil.sendCallback(task.getCallbackUrl(), task.getId(), status.name(), resultData);
+        }
+        log.info("分片上传任务处理完成：{}，分片数：{}，处理行数：{}，成功行数：{}，失败行数：{}",
+                task.getId(), task.getShardCount(), task.getProcessedRows(), task.getSuccessRows(),
+                task.getFailedRows());
+    }
+
+    /**
+     * 按分片顺序汇总各分片的行级错误明细，最多返回MAX_REPORTED_ROW_ERRORS条
+     */
+    private List<Object> collectShardRowErrors(Long taskId) {
+        List<Object> errors = new ArrayList<>();
+        for (FileTaskShard shard : fileTaskShardRepository.findByTaskIdOrderByShardIndexAsc(taskId)) {
+            if (shard.getRowErrors() == null || errors.size() >= MAX_REPORTED_ROW_ERRORS) {
+                continue;
+            }
+            try {
+                List<?> shardErrors = objectMapper.readValue(shard.getRowErrors(), List.class);
+                for (Object error : shardErrors) {
+                    if (errors.size() >= MAX_REPORTED_ROW_ERRORS) {
+                        break;
+                    }
+                    errors.add(error);
+                }
+            } catch (IOException e) {
+                log.warn("解析分片行级错误失败：{}", shard.getId(), e);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 上传数据批次的回调处理：按提交顺序异步回调业务系统，回调结束时累计成功/失败行数
+     *
+     * @param task          上传任务
+     * @param progress      任务进度
+     * @param batchSizer    批次大小，记录每次回调的耗时
+     * @param flushProgress 是否按节流策略刷新进度到数据库
+     * @return 按顺序异步发送回调的队列
+     */
+    private AsyncDeliveryQueue<List<Map<String, Object>>> callbackHandler(FileTask task, TaskProgress progress,
+                                                                        AdaptiveBatchSizer batchSizer,
+                                                                        boolean flushProgress) {
+        return new AsyncDeliveryQueue<>(callbackMaxPendingBatches, dataRows -> {
+            if (dataRows.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            // 更新处理行数
+            progress.addBatch(dataRows.size());
+
+            if (task.getCallbackUrl() == null || task.getCallbackUrl().isEmpty()) {
+                // 没有回调URL，默认为成功
+                progress.addSuccessRows(dataRows.size());
+                if (flushProgress) {
+                    taskProgressRegistry.flushIfDue(progress);
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // 发送数据到业务系统，等待主机配额和熔断恢复期间不占用线程
+            long start = System.currentTimeMillis();
+            return httpClientUtil.sendCallbackAsync(task.getCallbackUrl(), task.getId(), "PROCESSING", dataRows)
+                    .handle((response, error) -> {
+                        if (error != null) {
+                            log.error("处理数据批次失败", error);
+                        }
+                        boolean success = error == null && response != null;
+                        batchSizer.record(dataRows.size(), 0, System.currentTimeMillis() - start, success);
+
+                        // 根据回调结果更新成功/失败行数
+                        if (success) {
+                            progress.addSuccessRows(dataRows.size());
+                        } else {
+                            progress.addFailedRows(dataRows.size());
+                        }
+                        if (flushProgress) {
+                            taskProgressRegistry.flushIfDue(progress);
+                        }
+                        return null;
+                    });
+        });
+    }
+
+    /**
+     * 类型转换失败行的处理：计为已处理的失败行，并保留前若干条错误明细
+     *
+     * @param progress  任务进度
+     * @param rowErrors 错误明细
+     * @return 错误处理函数
+     */
+    private Consumer<RowError> errorHandler(TaskProgress progress, List<RowError> rowErrors) {
+        return rowError -> {
+            progress.addBatch(1);
+            progress.addFailedRows(1);
+            synchronized (rowErrors) {
+                if (rowErrors.size() < MAX_REPORTED_ROW_ERRORS) {
+                    rowErrors.add(rowError);
+                }
+            }
+        };
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    @Override
     public boolean processDownloadFile(Long taskId) {
+        // 领取任务：只有把任务从等待中改为处理中的调用方继续处理
+        if (!updateTaskStatus(taskId, FileTask.TaskStatus.PENDING, FileTask.TaskStatus.PROCESSING)) {
+            log.warn("下载任务不是等待状态，跳过处理：{}", taskId);
+            return false;
+        }
+        // 使用导出缓存且由本任务生成文件时，生成结束后通知等待的相同导出
+        String cacheKey = null;
+        CompletableFuture<FileTask> flight = null;
+        // 等待相同导出时任务在生成结束后才完成，进度保留到那时，以便向订阅者推送最终状态
+        boolean waiting = false;
         try {
-            // 更新任务状态为处理中
-            updateTaskStatus(taskId, FileTask.TaskStatus.PROCESSING);
-            FileTask task = getTaskById(taskId);
+            FileTask task = taskMetadataCache.get(taskId);
+            TaskProgress progress = taskProgressRegistry.start(task);
+            
+            // 导出缓存：命中时直接使用已生成的文件；相同的导出正在生成时等待其结果，不重复生成
+            if (task.getCacheKey() != null) {
+                FileTask cached = exportCache.lookup(task.getCacheKey(), task.getCacheTtlSeconds());
+                if (cached != null) {
+                    completeFromCache(taskId, cached);
+                    log.info("文件下载任务命中导出缓存：{}，使用任务{}的文件", taskId, cached.getId());
+                    return true;
+                }
+                CompletableFuture<FileTask> candidate = new CompletableFuture<>();
+                CompletableFuture<FileTask> leader = exportCache.join(task.getCacheKey(), candidate);
+                if (leader != null) {
+                    log.info("文件下载任务等待正在生成的相同导出：{}", taskId);
+                    waiting = true;
+                    leader.whenCompleteAsync((source, error) -> completeFromFlight(taskId, source, error),
+                            fileTaskExecutor);
+                    return true;
+                }
+                cacheKey = task.getCacheKey();
+                flight = candidate;
+            }
             
             // 确定文件类型和文件名
             String fileExtension = ".xlsx"; // 默认为Excel
@@ -230,12 +802,14 @@ public class FileTaskServiceImpl implements FileTaskService {
             FileParser fileParser = getFileParser(task.getOriginalFilename());
             
             // 从业务系统获取数据并生成文件
-            AtomicInteger totalRows = new AtomicInteger(0);
+            progress.setStage(TaskProgress.Stage.FETCHING);
+            
+            // 每次拉取的行数按响应字节数和耗时自动调整，不使用写入方建议的批次大小
+            AdaptiveBatchSizer batchSizer = batchSizerFactory.create(getBatchOptions(task));
             
             // 创建数据提供者
             FileParser.DataProvider dataProvider = new FileParser.DataProvider() {
                 private int offset = 0;
-                private static final int BATCH_SIZE = 1000;
                 private boolean hasMoreData = true;
                 
                 @Override
@@ -245,35 +819,24 @@ public class FileTaskServiceImpl implements FileTaskService {
                     }
                     
                     try {
-                        // 构建请求参数
-                        Map<String, Object> requestParams = new HashMap<>();
-                        requestParams.put("taskId", taskId);
-                        requestParams.put("offset", offset);
-                        requestParams.put("limit", batchSize);
-                        if (task.getCallbackParams() != null) {
-                            requestParams.put("callbackParams", task.getCallbackParams());
-                        }
-                        
-                        // 打印请求参数
-                        log.info("准备发送请求到 {}，参数：{}", task.getCallbackUrl(), objectMapper.writeValueAsString(requestParams));
-                        
-                        // 发送请求获取数据
-                        String response = httpClientUtil.postForm(task.getCallbackUrl(), requestParams);
-                        log.info("收到响应：{}", response);
-                        
-                        Map<String, Object> responseData = objectMapper.readValue(response, Map.class);
+                        Map<String, Object> responseData = fetchPage(taskId, task.getCallbackUrl(),
+                                task.getCallbackParams(), offset, batchSizer);
                         
                         // 解析响应数据
                         @SuppressWarnings("unchecked")
                         List<Map<String, Object>> dataList = (List<Map<String, Object>>) responseData.get("data");
                         if (dataList != null && !dataList.isEmpty()) {
-                            totalRows.addAndGet(dataList.size());
+                            progress.addBatch(dataList.size());
+                            progress.addSuccessRows(dataList.size());
+                            taskProgressRegistry.flushIfDue(progress);
                             offset += dataList.size();
-                            hasMoreData = (Boolean) responseData.get("hasMore");
+                            hasMoreData = Boolean.TRUE.equals(responseData.get("hasMore"));
                             return dataList;
                         }
-                    } catch (Exception e) {
-                        log.error("获取数据失败", e);
+                    } catch (IOException | RuntimeException e) {
+                        // 失败计入批次调整；不能把部分数据当作完整文件保存和缓存，任务失败
+                        batchSizer.record(0, 0, 0, false);
+                        throw new RuntimeException("获取数据失败：" + e.getMessage(), e);
                     }
                     
                     hasMoreData = false;
@@ -281,24 +844,47 @@ public class FileTaskServiceImpl implements FileTaskService {
                 }
             };
             
-            // 生成文件
-            InputStream fileContent = fileParser.generateFile(dataProvider, task.getFieldMapping());
+            // 生成文件，Excel文件使用任务的流式写入参数
+            InputStream fileContent;
+            if (fileParser == excelFileParser) {
+                ExcelWriteOptions writeOptions = new ExcelWriteOptions();
+                writeOptions.setRowAccessWindow(task.getRowAccessWindow());
+                writeOptions.setSharedStrings(task.getSharedStrings());
+                writeOptions.setCompressTempFiles(task.getCompressTempFiles());
+                fileContent = excelFileParser.generateFile(dataProvider, task.getFieldMapping(), writeOptions);
+            } else {
+                fileContent = fileParser.generateFile(dataProvider, task.getFieldMapping());
+            }
             
             // 保存文件到存储系统
-            String filePath = fileStorageUtil.saveFile(task.getOriginalFilename(), fileContent);
+            progress.setStage(TaskProgress.Stage.WRITING);
+            String filePath = fileStorageUtil.saveFile(task.getOriginalFilename(),
+                    new ProgressInputStream(fileContent, progress));
             task.setFilePath(filePath);
-            fileTaskRepository.save(task);
+            if (flight != null) {
+                task.setCacheTime(new Date());
+            }
+            fileTaskRepository.updateFile(taskId, task.getOriginalFilename(), filePath, task.getFileSize(),
+                    task.getCacheKey(), task.getCacheTime());
+            taskMetadataCache.evict(taskId);
             
             // 更新任务处理结果
-            updateTaskResult(taskId, totalRows.get(), totalRows.get(), 0, null);
+            int totalRows = (int) progress.getProcessedRows();
+            task.setProcessedRows(totalRows);
+            task.setSuccessRows(totalRows);
+            updateTaskResult(taskId, totalRows, totalRows, 0, null);
+            if (flight != null && !exportCache.complete(cacheKey, flight, task)) {
+                // 生成期间缓存已失效，本次结果不作为缓存
+                fileTaskRepository.clearTaskCacheKey(taskId);
+            }
             
             // 发送最终回调
             // if (task.getCallbackUrl() != null && !task.getCallbackUrl().isEmpty()) {
             //     Map<String, Object> resultData = new HashMap<>();
             //     resultData.put("taskId", task.getId());
             //     resultData.put("status", "COMPLETED");
-            //     resultData.put("processedRows", totalRows.get());
-            //     resultData.put("successRows", totalRows.get());
+            //     resultData.put("processedRows", totalRows);
+            //     resultData.put("successRows", totalRows);
             //     resultData.put("failedRows", 0);
             //     resultData.put("fileName", task.getOriginalFilename());
             //     resultData.put("fileSize", task.getFileSize());
@@ -315,7 +901,10 @@ public class FileTaskServiceImpl implements FileTaskService {
             return true;
         } catch (Exception e) {
             log.error("处理下载文件失败：" + taskId, e);
-            updateTaskResult(taskId, 0, 0, 0, e.getMessage());
+            if (flight != null) {
+                exportCache.fail(cacheKey, flight, e);
+            }
+            updateTaskResult(taskId, FileTask.TaskStatus.FAILED, 0, 0, 0, e.getMessage());
             
             // 发送失败回调
             // try {
@@ -338,9 +927,117 @@ public class FileTaskServiceImpl implements FileTaskService {
             // }
             
             return false;
+        } finally {
+            if (!waiting) {
+                taskProgressRegistry.remove(taskId);
+            }
         }
     }
 
+    @Override
+    public StreamingResponseBody streamExport(String fileType, String fieldMapping, String callbackUrl,
+                                              String callbackParams, ExcelWriteOptions writeOptions,
+                                              BatchSizingOptions batchOptions) {
+        // 响应开始写出后无法再返回错误信息，参数在此之前校验
+        if (!"csv".equalsIgnoreCase(fileType) && !"xlsx".equalsIgnoreCase(fileType)) {
+            throw new IllegalArgumentException("不支持的文件类型：" + fileType);
+        }
+        FileParser fileParser = getFileParser("export." + fileType);
+        if (callbackUrl == null || callbackUrl.isEmpty()) {
+            throw new IllegalArgumentException("取数地址不能为空");
+        }
+        fieldMappingResolver.resolveColumns(fieldMapping);
+        if (writeOptions != null) {
+            excelProcessUtil.resolveWriteOptions(writeOptions);
+        }
+        AdaptiveBatchSizer batchSizer = batchSizerFactory.create(
+                batchOptions == null ? new BatchSizingOptions() : batchOptions);
+        // 取数接口按任务ID区分请求，taskId通常是必填参数；同步导出没有任务，使用负数的流标识，不会与任务ID重复
+        long streamId = -streamSequence.incrementAndGet();
+
+        return outputStream -> {
+            long start = System.currentTimeMillis();
+            FileParser.DataProvider dataProvider = new FileParser.DataProvider() {
+                private int offset = 0;
+                private boolean hasMoreData = true;
+
+                @Override
+                public List<Map<String, Object>> provide(int batchSize) {
+                    if (!hasMoreData) {
+                        return new ArrayList<>();
+                    }
+                    try {
+                        Map<String, Object> responseData = fetchPage(streamId, callbackUrl, callbackParams, offset,
+                                batchSizer);
+                        @SuppressWarnings("unchecked")
+                        List<Map<String, Object>> dataList = (List<Map<String, Object>>) responseData.get("data");
+                        if (dataList == null || dataList.isEmpty()) {
+                            hasMoreData = false;
+                            return new ArrayList<>();
+                        }
+                        offset += dataList.size();
+                        hasMoreData = Boolean.TRUE.equals(responseData.get("hasMore"));
+                        return dataList;
+                    } catch (IOException | RuntimeException e) {
+                        // 失败计入批次调整；不能把部分数据当作完整文件，中断响应
+                        batchSizer.record(0, 0, 0, false);
+                        throw new RuntimeException("获取数据失败：" + e.getMessage(), e);
+                    }
+                }
+            };
+
+            int totalRows;
+            if (fileParser == excelFileParser) {
+                totalRows = excelFileParser.writeFile(dataProvider, fieldMapping, writeOptions, outputStream);
+            } else {
+                totalRows = fileParser.writeFile(dataProvider, fieldMapping, outputStream);
+            }
+            log.info("流式导出完成：{}，行数：{}，耗时：{}ms", callbackUrl, totalRows,
+                    System.currentTimeMillis() - start);
+        };
+    }
+
+    /**
+     * 从取数地址拉取一页数据，并按响应大小和耗时调整下一页的行数；
+     * 请求失败由调用方计入批次调整
+     *
+     * @param taskId         任务ID，同步导出时为负数的流标识
+     * @param callbackUrl    取数地址
+     * @param callbackParams 取数参数
+     * @param offset         起始行
+     * @param batchSizer     批次大小调整器
+     * @return 响应内容（data、hasMore）
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fetchPage(Long taskId, String callbackUrl, String callbackParams, int offset,
+                                          AdaptiveBatchSizer batchSizer) throws IOException {
+        // 构建请求参数
+        Map<String, Object> requestParams = new HashMap<>();
+        requestParams.put("taskId", taskId);
+        requestParams.put("offset", offset);
+        requestParams.put("limit", batchSizer.nextSize());
+        if (callbackParams != null) {
+            requestParams.put("callbackParams", callbackParams);
+        }
+
+        // 打印请求参数
+        log.info("准备发送请求到 {}，参数：{}", callbackUrl, objectMapper.writeValueAsString(requestParams));
+
+        // 发送请求获取数据
+        long start = System.currentTimeMillis();
+        String response = httpClientUtil.postForm(callbackUrl, requestParams);
+        long latency = System.currentTimeMillis() - start;
+        log.info("收到响应：{}", response);
+
+        Map<String, Object> responseData = objectMapper.readValue(response, Map.class);
+        List<Map<String, Object>> dataList = (List<Map<String, Object>>) responseData.get("data");
+        if (dataList != null && !dataList.isEmpty()) {
+            // 字节预算按传输的字节数计算，中文等非ASCII内容按UTF-8编码后的长度计入
+            batchSizer.record(dataList.size(), response.getBytes(StandardCharsets.UTF_8).length, latency, true);
+        }
+        return responseData;
+    }
+
     @Override
     public InputStream getFileInputStream(Long taskId) {
         FileTask task = getTaskById(taskId);
@@ -370,8 +1067,9 @@ public class FileTaskServiceImpl implements FileTaskService {
         int deletedCount = 0;
         for (FileTask task : expiredTasks) {
             try {
-                // 删除关联的文件
-                if (task.getFilePath() != null && !task.getFilePath().isEmpty()) {
+                // 删除关联的文件，命中导出缓存的任务共用文件，最后一个引用的任务删除时才删除文件
+                if (task.getFilePath() != null && !task.getFilePath().isEmpty()
+                        && fileTaskRepository.countByFilePath(task.getFilePath()) <= 1) {
                     boolean fileDeleted = fileStorageUtil.deleteFile(task.getFilePath());
                     if (fileDeleted) {
                         log.info("已删除任务{}的文件：{}", task.getId(), task.getFilePath());
@@ -380,8 +1078,12 @@ public class FileTaskServiceImpl implements FileTaskService {
                     }
                 }
                 
-                // 从数据库中删除任务记录
+                // 从数据库中删除任务记录及其分片
+                if (task.getShardCount() != null && task.getShardCount() > 0) {
+                    fileTaskShardRepository.deleteByTaskId(task.getId());
+                }
                 fileTaskRepository.delete(task);
+                taskMetadataCache.evict(task.getId());
                 log.info("已删除过期任务：{}, 任务名称：{}", task.getId(), task.getTaskName());
                 deletedCount++;
             } catch (Exception e) {
@@ -393,6 +1095,95 @@ public class FileTaskServiceImpl implements FileTaskService {
         return deletedCount;
     }
     
+    /**
+     * 使用缓存的导出文件完成任务
+     * 任务与缓存条目共用文件，缓存生成时间不变，命中不会延长缓存时长
+     *
+     * @param taskId 下载任务ID
+     * @param source 生成文件的任务
+     */
+    private void completeFromCache(Long taskId, FileTask source) {
+        // 缓存键与生成任务相同；生成期间缓存已失效时为null，共用的文件不作为缓存
+        fileTaskRepository.updateFile(taskId, source.getOriginalFilename(), source.getFilePath(),
+                source.getFileSize(), source.getCacheKey(), source.getCacheTime());
+        taskMetadataCache.evict(taskId);
+        updateTaskResult(taskId, source.getProcessedRows(), source.getSuccessRows(), 0, null);
+    }
+
+    /**
+     * 等待的相同导出生成结束后完成任务
+     *
+     * @param taskId 下载任务ID
+     * @param source 生成文件的任务，失败时为null
+     * @param error  生成失败的原因
+     */
+    private void completeFromFlight(Long taskId, FileTask source, Throwable error) {
+        try {
+            if (error != null) {
+                updateTaskResult(taskId, FileTask.TaskStatus.FAILED, 0, 0, 0,
+                        "相同的导出生成失败：" + error.getMessage());
+                return;
+            }
+            completeFromCache(taskId, source);
+            log.info("文件下载任务使用相同导出的结果完成：{}，使用任务{}的文件", taskId, source.getId());
+        } catch (Exception e) {
+            log.error("完成等待中的下载任务失败：" + taskId, e);
+            updateTaskResult(taskId, FileTask.TaskStatus.FAILED, 0, 0, 0, e.getMessage());
+        } finally {
+            taskProgressRegistry.remove(taskId);
+        }
+    }
+
+    /**
+     * 校验批次参数并保存到任务
+     *
+     * @param task         文件任务
+     * @param batchOptions 批次参数，可为null
+     */
+    private void applyBatchOptions(FileTask task, BatchSizingOptions batchOptions) {
+        if (batchOptions == null) {
+            return;
+        }
+        // 提前校验参数，避免任务执行时才失败
+        batchSizerFactory.resolve(batchOptions);
+        task.setBatchSize(batchOptions.getBatchSize());
+        task.setBatchMaxBytes(batchOptions.getMaxBytes());
+        task.setBatchTargetLatencyMs(batchOptions.getTargetLatencyMs());
+        task.setBatchAdaptive(batchOptions.getAdaptive());
+    }
+
+    /**
+     * 校验调度参数并保存到任务
+     *
+     * @param task              文件任务
+     * @param schedulingOptions 调度参数，可为null
+     */
+    private void applySchedulingOptions(FileTask task, SchedulingOptions schedulingOptions) {
+        if (schedulingOptions == null) {
+            return;
+        }
+        if (schedulingOptions.getEstimatedRows() != null && schedulingOptions.getEstimatedRows() < 0) {
+            throw new IllegalArgumentException("预计行数不能小于0：" + schedulingOptions.getEstimatedRows());
+        }
+        task.setPriority(schedulingOptions.getPriority());
+        task.setEstimatedRows(schedulingOptions.getEstimatedRows());
+    }
+
+    /**
+     * 读取任务的批次参数，未设置的参数由BatchSizerFactory使用全局配置
+     *
+     * @param task 文件任务
+     * @return 批次参数
+     */
+    private BatchSizingOptions getBatchOptions(FileTask task) {
+        BatchSizingOptions batchOptions = new BatchSizingOptions();
+        batchOptions.setBatchSize(task.getBatchSize());
+        batchOptions.setMaxBytes(task.getBatchMaxBytes());
+        batchOptions.setTargetLatencyMs(task.getBatchTargetLatencyMs());
+        batchOptions.setAdaptive(task.getBatchAdaptive());
+        return batchOptions;
+    }
+
     /**
      * 根据文件名获取对应的文件解析器
      *
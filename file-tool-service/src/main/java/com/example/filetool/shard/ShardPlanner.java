@@ -0,0 +1,234 @@
+package com.example.filetool.shard;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.parser.impl.ExcelFileParser;
+import com.example.filetool.util.ExcelProcessUtil;
+import com.example.filetool.util.FileStorageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大文件上传任务的分片规划
+ * 文件达到 file.task.shard.min-file-size 时拆分为多个分片：
+ * 1. CSV：扫描一遍文件，在换行符处按 shard-size 切分字节范围，并记录每个分片第一行的行号；
+ * 2. Excel选择了多个Sheet且不要求按Sheet顺序交付时：每个Sheet一个分片；
+ * 3. Excel只导入第一个Sheet时：按预计行数（未指定时按文件大小估算）切分行范围，最后一个分片读到Sheet末尾。
+ * 分片数不超过 max-shards，只有一个分片时不拆分
+ */
+@Slf4j
+@Component
+public class ShardPlanner {
+
+    /**
+     * Excel数据行的起始行号（第1行为表头）
+     */
+    private static final int FIRST_DATA_ROW = 2;
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private ExcelFileParser excelFileParser;
+
+    /**
+     * 是否拆分大文件
+     */
+    @Value("${file.task.shard.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 拆分的最小文件大小（字节）
+     */
+    @Value("${file.task.shard.min-file-size:67108864}")
+    private long minFileSize;
+
+    /**
+     * CSV每个分片的字节数
+     */
+    @Value("${file.task.shard.shard-size:33554432}")
+    private long shardSize;
+
+    /**
+     * Excel按行范围拆分时每个分片的行数
+     */
+    @Value("${file.task.shard.rows-per-shard:500000}")
+    private long rowsPerShard;
+
+    /**
+     * 未指定预计行数时，按文件大小估算XLSX行数使用的平均每行字节数（压缩后）
+     */
+    @Value("${file.task.shard.xlsx-bytes-per-row:40}")
+    private long xlsxBytesPerRow;
+
+    /**
+     * Excel按行范围拆分时的最大分片数
+     * 每个分片都要从Sheet开头解析到自己的起始行，n个分片共解析约 (n+1)/2 遍文件
+     */
+    @Value("${file.task.shard.xlsx-max-row-shards:4}")
+    private int xlsxMaxRowShards;
+
+    /**
+     * 一个任务的最大分片数
+     */
+    @Value("${file.task.shard.max-shards:64}")
+    private int maxShards;
+
+    /**
+     * 按上传时声明的文件大小判断任务是否可能被拆分
+     * 文件保存前调用，可能拆分的任务需要先保存完整文件再规划分片
+     *
+     * @param task 上传任务
+     * @return 是否可能拆分
+     */
+    public boolean mayShard(FileTask task) {
+        return enabled && (task.getFileSize() == null || task.getFileSize() >= minFileSize);
+    }
+
+    /**
+     * 规划上传任务的分片
+     *
+     * @param task 已保存文件的上传任务
+     * @return 分片列表，不需要拆分时为空
+     * @throws IOException IO异常
+     */
+    public List<FileTaskShard> plan(FileTask task) throws IOException {
+        if (!enabled || task.getFilePath() == null) {
+            return Collections.emptyList();
+        }
+        long fileSize = fileStorageUtil.getFileSize(task.getFilePath());
+        if (fileSize < minFileSize) {
+            return Collections.emptyList();
+        }
+
+        List<FileTaskShard> shards;
+        if (isCsv(task.getOriginalFilename())) {
+            shards = planCsv(task, fileSize);
+        } else if (task.getSheets() != null && !task.getSheets().isEmpty()) {
+            // 按Sheet顺序交付需要在一个节点上串行回调，不拆分
+            shards = Boolean.FALSE.equals(task.getSheetOrdered())
+                    ? planSheets(task) : Collections.emptyList();
+        } else {
+            shards = planRowRanges(task, fileSize);
+        }
+        if (shards.size() < 2) {
+            return Collections.emptyList();
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).setTaskId(task.getId());
+            shards.get(i).setShardIndex(i);
+        }
+        log.info("任务{}拆分为{}个分片，文件大小：{}", task.getId(), shards.size(), fileSize);
+        return shards;
+    }
+
+    /**
+     * CSV：在换行符处切分，保证每个分片都从行首开始
+     */
+    private List<FileTaskShard> planCsv(FileTask task, long fileSize) throws IOException {
+        int count = (int) Math.min(maxShards, (fileSize + shardSize - 1) / shardSize);
+        if (count < 2) {
+            return Collections.emptyList();
+        }
+        long targetSize = fileSize / count;
+
+        List<FileTaskShard> shards = new ArrayList<>(count);
+        FileTaskShard current = csvShard(0, 1);
+        shards.add(current);
+        long offset = 0;
+        // 当前位置所在行的行号
+        int lineNumber = 1;
+        try (InputStream inputStream = fileStorageUtil.getFileInputStream(task.getFilePath())) {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    offset++;
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    lineNumber++;
+                    if (offset - current.getStartOffset() >= targetSize && offset < fileSize
+                            && shards.size() < count) {
+                        current.setEndOffset(offset);
+                        current = csvShard(offset, lineNumber);
+                        shards.add(current);
+                    }
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Excel多个Sheet：每个Sheet一个分片
+     */
+    private List<FileTaskShard> planSheets(FileTask task) throws IOException {
+        Map<Integer, String> sheets = excelFileParser.listSheets(
+                ExcelProcessUtil.StreamSource.of(fileStorageUtil.getFile(task.getFilePath())), task.getSheets());
+        List<FileTaskShard> shards = new ArrayList<>(sheets.size());
+        for (Map.Entry<Integer, String> sheet : sheets.entrySet()) {
+            shards.add(excelShard(sheet.getKey(), sheet.getValue(), FIRST_DATA_ROW, null));
+        }
+        return shards;
+    }
+
+    /**
+     * Excel第一个Sheet：按行范围切分，最后一个分片读到Sheet末尾，预计行数偏小时也不会漏行
+     * XLSX无法直接定位到指定行，每个分片都从Sheet开头解析，分片数受 xlsx-max-row-shards 限制
+     */
+    private List<FileTaskShard> planRowRanges(FileTask task, long fileSize) {
+        long estimatedRows = task.getEstimatedRows() != null && task.getEstimatedRows() > 0
+                ? task.getEstimatedRows() : fileSize / Math.max(1, xlsxBytesPerRow);
+        int count = (int) Math.min(Math.min(maxShards, xlsxMaxRowShards),
+                (estimatedRows + rowsPerShard - 1) / rowsPerShard);
+        if (count < 2) {
+            return Collections.emptyList();
+        }
+        int rowsEach = (int) ((estimatedRows + count - 1) / count);
+
+        List<FileTaskShard> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int startRow = FIRST_DATA_ROW + i * rowsEach;
+            Integer endRow = i == count - 1 ? null : startRow + rowsEach;
+            shards.add(excelShard(0, null, startRow, endRow));
+        }
+        return shards;
+    }
+
+    private static FileTaskShard csvShard(long startOffset, int startRow) {
+        FileTaskShard shard = new FileTaskShard();
+        shard.setStartOffset(startOffset);
+        shard.setStartRow(startRow);
+        return shard;
+    }
+
+    private static FileTaskShard excelShard(int sheetNo, String sheetName, int startRow, Integer endRow) {
+        FileTaskShard shard = new FileTaskShard();
+        shard.setSheetNo(sheetNo);
+        shard.setSheetName(sheetName);
+        shard.setStartRow(startRow);
+        shard.setEndRow(endRow);
+        return shard;
+    }
+
+    /**
+     * 是否按CSV处理，与上传任务选择解析器的规则一致
+     */
+    public static boolean isCsv(String filename) {
+        if (filename == null) {
+            return false;
+        }
+        String lowerFilename = filename.toLowerCase();
+        return lowerFilename.endsWith(".csv") || lowerFilename.endsWith(".txt");
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.filetool.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 信号量限流的线程池
+ * 并发度由信号量而不是线程数决定，适合配合每个任务一个（虚拟）线程的线程池使用：
+ * 提交任务时先获取许可，许可用完时提交方等待，任务结束后归还许可
+ */
+public class BoundedExecutor implements Executor {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore permits;
+
+    private final int maxConcurrency;
+
+    /**
+     * 关闭时等待正在执行的任务结束的最长时间（秒）
+     */
+    private final long awaitTerminationSeconds;
+
+    public BoundedExecutor(ExecutorService delegate, int maxConcurrency, long awaitTerminationSeconds) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("最大并发数必须大于0：" + maxConcurrency);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.awaitTerminationSeconds = awaitTerminationSeconds;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("等待执行许可被中断", e);
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * 关闭线程池，等待正在执行的任务结束，由Spring在容器关闭时调用
+     */
+    public void shutdown() throws InterruptedException {
+        delegate.shutdown();
+        delegate.awaitTermination(awaitTerminationSeconds, TimeUnit.SECONDS);
+    }
+}
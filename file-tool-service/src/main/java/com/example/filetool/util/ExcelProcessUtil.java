@@ -1,20 +1,63 @@
 package com.example.filetool.util;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelReader;
 import com.alibaba.excel.ExcelWriter;
 import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.constant.OrderConstant;
+import com.alibaba.excel.converters.Converter;
+import com.alibaba.excel.converters.ConverterKeyBuild;
+import com.alibaba.excel.converters.ReadConverterContext;
+import com.alibaba.excel.enums.CellDataTypeEnum;
 import com.alibaba.excel.event.AnalysisEventListener;
+import com.alibaba.excel.event.Order;
+import com.alibaba.excel.exception.ExcelAnalysisStopException;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.metadata.data.ReadCellData;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
+import com.alibaba.excel.read.metadata.ReadSheet;
+import com.alibaba.excel.util.ConverterUtils;
+import com.alibaba.excel.write.handler.CellWriteHandler;
+import com.alibaba.excel.write.handler.WorkbookWriteHandler;
+import com.alibaba.excel.write.handler.context.CellWriteHandlerContext;
+import com.alibaba.excel.write.handler.context.WorkbookWriteHandlerContext;
 import com.alibaba.excel.write.metadata.WriteSheet;
+import com.alibaba.excel.write.metadata.holder.WriteWorkbookHolder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Excel文件处理工具类
@@ -34,6 +77,34 @@ public class ExcelProcessUtil {
      */
     private static final int DEFAULT_ROWS_PER_SHEET = 100000;
 
+    /**
+     * 多Sheet并行读取时，每个队列最多缓存的批次数
+     */
+    private static final int SHEET_QUEUE_BATCHES = 4;
+
+    /**
+     * 多Sheet并行读取时，等待队列的轮询间隔（毫秒）
+     */
+    private static final long SHEET_POLL_MILLIS = 100;
+
+    /**
+     * XLSX写入默认的行访问窗口
+     */
+    @Value("${file.excel.write.row-access-window:100}")
+    private int defaultRowAccessWindow;
+
+    /**
+     * XLSX写入默认是否使用共享字符串表
+     */
+    @Value("${file.excel.write.shared-strings:false}")
+    private boolean defaultSharedStrings;
+
+    /**
+     * XLSX写入默认是否压缩临时文件
+     */
+    @Value("${file.excel.write.compress-temp-files:false}")
+    private boolean defaultCompressTempFiles;
+
     /**
      * 读取Excel文件（Map方式）
      *
@@ -43,14 +114,30 @@ public class ExcelProcessUtil {
      * @return 处理的总行数
      */
     public int readExcel(InputStream inputStream, Consumer<List<Map<Integer, String>>> batchConsumer, int batchSize) {
+        return readExcel(inputStream, null, batchConsumer, batchSize);
+    }
+
+    /**
+     * 读取Excel文件（Map方式），只读取指定的列
+     * 未指定的列不转换为文本，行数据中也不包含这些列
+     *
+     * @param inputStream Excel文件输入流
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数
+     * @param batchSize 每批处理的数据量
+     * @return 处理的总行数
+     */
+    public int readExcel(InputStream inputStream, Set<Integer> columns,
+                         Consumer<List<Map<Integer, String>>> batchConsumer, int batchSize) {
         final AtomicInteger totalRows = new AtomicInteger(0);
         
-        EasyExcel.read(inputStream).sheet().registerReadListener(new AnalysisEventListener<Map<Integer, String>>() {
+        EasyExcel.read(inputStream).useDefaultListener(false).sheet()
+                .registerReadListener(new AnalysisEventListener<Map<Integer, ReadCellData<?>>>() {
             private final List<Map<Integer, String>> dataList = new ArrayList<>(batchSize);
 
             @Override
-            public void invoke(Map<Integer, String> data, AnalysisContext context) {
-                dataList.add(data);
+            public void invoke(Map<Integer, ReadCellData<?>> data, AnalysisContext context) {
+                dataList.add(toTextRow(data, columns, context));
                 totalRows.incrementAndGet();
                 
                 // 达到批处理大小，进行处理
@@ -74,6 +161,107 @@ public class ExcelProcessUtil {
         return totalRows.get();
     }
 
+    /**
+     * 读取Excel文件的第一个Sheet，每批数据带有行号
+     *
+     * @param inputStream Excel文件输入流
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数，SheetBatch中的Sheet名称为null
+     * @param batchSize 每批处理的数据量
+     * @return 处理的总行数
+     */
+    public int readSheet(InputStream inputStream, Set<Integer> columns, Consumer<SheetBatch> batchConsumer,
+                         int batchSize) {
+        return readSheet(EasyExcel.read(inputStream), columns, batchConsumer, batchSize);
+    }
+
+    /**
+     * 读取本地Excel文件的第一个Sheet，每批数据带有行号
+     * XLSX按随机访问方式打开ZIP，不会像输入流那样先把整个文件复制到临时文件
+     *
+     * @param file Excel文件
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数，SheetBatch中的Sheet名称为null
+     * @param batchSize 每批处理的数据量
+     * @return 处理的总行数
+     */
+    public int readSheet(File file, Set<Integer> columns, Consumer<SheetBatch> batchConsumer, int batchSize) {
+        return readSheet(EasyExcel.read(file), columns, batchConsumer, batchSize);
+    }
+
+    private int readSheet(ExcelReaderBuilder readerBuilder, Set<Integer> columns, Consumer<SheetBatch> batchConsumer,
+                          int batchSize) {
+        final AtomicInteger totalRows = new AtomicInteger(0);
+        readerBuilder.useDefaultListener(false).sheet()
+                .registerReadListener(new SheetBatchListener(0, null, columns, batchSize, batch -> {
+                    totalRows.addAndGet(batch.getRows().size());
+                    batchConsumer.accept(batch);
+                }))
+                .doRead();
+        log.info("Excel文件解析完成，总行数：{}", totalRows.get());
+        return totalRows.get();
+    }
+
+    /**
+     * 读取Excel文件中一个Sheet的一段行，每批数据带有行号
+     * XLSX无法定位到指定行，起始行之前的行仍会被解析，但不交给batchConsumer；读到结束行时停止解析
+     *
+     * @param inputStream Excel文件输入流
+     * @param sheetNo Sheet序号（从0开始）
+     * @param sheetName Sheet名称，写入SheetBatch，可为null
+     * @param startRow 起始行号（从1开始，含表头行，含）
+     * @param endRow 结束行号（不含），为null时读到Sheet末尾
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数
+     * @param batchSize 每批处理的数据量
+     * @return 处理的总行数
+     */
+    public int readSheetRange(InputStream inputStream, int sheetNo, String sheetName, int startRow, Integer endRow,
+                              Set<Integer> columns, Consumer<SheetBatch> batchConsumer, int batchSize) {
+        return readSheetRange(EasyExcel.read(inputStream), sheetNo, sheetName, startRow, endRow, columns,
+                batchConsumer, batchSize);
+    }
+
+    /**
+     * 读取本地Excel文件中一个Sheet的一段行，每批数据带有行号
+     * XLSX按随机访问方式打开ZIP，不会像输入流那样先把整个文件复制到临时文件
+     *
+     * @param file Excel文件
+     * @param sheetNo Sheet序号（从0开始）
+     * @param sheetName Sheet名称，写入SheetBatch，可为null
+     * @param startRow 起始行号（从1开始，含表头行，含）
+     * @param endRow 结束行号（不含），为null时读到Sheet末尾
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数
+     * @param batchSize 每批处理的数据量
+     * @return 处理的总行数
+     */
+    public int readSheetRange(File file, int sheetNo, String sheetName, int startRow, Integer endRow,
+                              Set<Integer> columns, Consumer<SheetBatch> batchConsumer, int batchSize) {
+        return readSheetRange(EasyExcel.read(file), sheetNo, sheetName, startRow, endRow, columns,
+                batchConsumer, batchSize);
+    }
+
+    private int readSheetRange(ExcelReaderBuilder readerBuilder, int sheetNo, String sheetName, int startRow,
+                               Integer endRow, Set<Integer> columns, Consumer<SheetBatch> batchConsumer,
+                               int batchSize) {
+        final AtomicInteger totalRows = new AtomicInteger(0);
+        try {
+            readerBuilder.useDefaultListener(false).sheet(sheetNo)
+                    .registerReadListener(new SheetBatchListener(sheetNo, sheetName, startRow, endRow, columns,
+                            batchSize, batch -> {
+                                totalRows.addAndGet(batch.getRows().size());
+                                batchConsumer.accept(batch);
+                            }))
+                    .doRead();
+        } catch (ExcelAnalysisStopException e) {
+            // 已读到结束行
+        }
+        log.info("Excel Sheet行范围解析完成：{}，行{}~{}，总行数：{}", sheetNo, startRow,
+                endRow == null ? "末尾" : endRow - 1, totalRows.get());
+        return totalRows.get();
+    }
+
     /**
      * 读取Excel文件（Map方式），使用默认批处理大小
      *
@@ -85,6 +273,144 @@ public class ExcelProcessUtil {
         return readExcel(inputStream, batchConsumer, DEFAULT_BATCH_SIZE);
     }
 
+    /**
+     * 列出Excel文件中的全部Sheet
+     *
+     * @param streamSource 文件输入流来源
+     * @return Sheet序号（从0开始）到Sheet名称的映射，按Sheet顺序排列
+     */
+    public Map<Integer, String> listSheets(StreamSource streamSource) {
+        Map<Integer, String> sheets = new LinkedHashMap<>();
+        File file = streamSource.file();
+        try (InputStream inputStream = file == null ? streamSource.open() : null) {
+            ExcelReader excelReader = read(file, inputStream).build();
+            try {
+                for (ReadSheet readSheet : excelReader.excelExecutor().sheetList()) {
+                    sheets.put(readSheet.getSheetNo(), readSheet.getSheetName());
+                }
+            } finally {
+                excelReader.finish();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取Excel Sheet列表失败: " + e.getMessage(), e);
+        }
+        return sheets;
+    }
+
+    /**
+     * 并行读取多个Sheet
+     * 每个Sheet在executor中独立打开文件流并解析，解析结果通过有界队列交给调用线程，
+     * batchConsumer始终在调用线程中串行执行，因此无需考虑线程安全。
+     * 有序模式下按Sheet顺序交付（后面的Sheet提前解析并缓存少量批次），
+     * 无序模式下按解析完成的先后交付。
+     *
+     * @param streamSource 文件输入流来源，每个Sheet各打开一次
+     * @param sheets 要读取的Sheet（序号 -> 名称），按交付顺序排列
+     * @param ordered 是否按Sheet顺序交付
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchConsumer 批量数据处理函数
+     * @param batchSize 每批处理的数据量
+     * @param executor 解析Sheet的线程池
+     * @return 处理的总行数
+     */
+    public int readSheets(StreamSource streamSource, Map<Integer, String> sheets, boolean ordered,
+                          Set<Integer> columns, Consumer<SheetBatch> batchConsumer, int batchSize, Executor executor) {
+        return readSheets(streamSource, sheets, ordered, columns, Function.identity(), batchConsumer, batchSize,
+                executor);
+    }
+
+    /**
+     * 并行读取多个Sheet，并在解析线程中预处理每批数据
+     * batchProcessor在各Sheet的解析线程中执行（需线程安全），适合放置与顺序无关的CPU密集处理；
+     * batchConsumer仍在调用线程中按交付顺序串行执行
+     *
+     * @param streamSource 文件输入流来源，每个Sheet各打开一次
+     * @param sheets 要读取的Sheet（序号 -> 名称），按交付顺序排列
+     * @param ordered 是否按Sheet顺序交付
+     * @param columns 要读取的列索引，为null时读取全部列
+     * @param batchProcessor 批量数据预处理函数
+     * @param batchConsumer 预处理结果的处理函数
+     * @param batchSize 每批处理的数据量
+     * @param executor 解析Sheet的线程池
+     * @param <T> 预处理结果类型
+     * @return 处理的总行数
+     */
+    public <T> int readSheets(StreamSource streamSource, Map<Integer, String> sheets, boolean ordered,
+                              Set<Integer> columns, Function<SheetBatch, T> batchProcessor, Consumer<T> batchConsumer,
+                              int batchSize, Executor executor) {
+        if (sheets.isEmpty()) {
+            return 0;
+        }
+
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<BlockingQueue<ProcessedBatch<T>>> queues = new ArrayList<>();
+        BlockingQueue<ProcessedBatch<T>> sharedQueue = ordered ? null
+                : new ArrayBlockingQueue<>(SHEET_QUEUE_BATCHES * sheets.size());
+
+        try {
+            // 按顺序提交，保证有序模式下排在前面的Sheet先开始解析
+            for (Map.Entry<Integer, String> sheet : sheets.entrySet()) {
+                BlockingQueue<ProcessedBatch<T>> queue = ordered
+                        ? new ArrayBlockingQueue<>(SHEET_QUEUE_BATCHES) : sharedQueue;
+                if (ordered) {
+                    queues.add(queue);
+                }
+                executor.execute(new SheetReadJob<>(streamSource, sheet.getKey(), sheet.getValue(), columns,
+                        batchSize, batchProcessor, queue, aborted, failure));
+            }
+
+            int totalRows = 0;
+            if (ordered) {
+                for (BlockingQueue<ProcessedBatch<T>> queue : queues) {
+                    ProcessedBatch<T> batch;
+                    while (!(batch = takeBatch(queue, failure)).isEnd()) {
+                        totalRows += batch.rowCount;
+                        batchConsumer.accept(batch.result);
+                    }
+                }
+            } else {
+                int finishedSheets = 0;
+                while (finishedSheets < sheets.size()) {
+                    ProcessedBatch<T> batch = takeBatch(sharedQueue, failure);
+                    if (batch.isEnd()) {
+                        finishedSheets++;
+                    } else {
+                        totalRows += batch.rowCount;
+                        batchConsumer.accept(batch.result);
+                    }
+                }
+            }
+
+            log.info("Excel多Sheet解析完成，Sheet数：{}，总行数：{}", sheets.size(), totalRows);
+            return totalRows;
+        } finally {
+            // 正常结束时所有Sheet都已交付；异常结束时通知仍在解析的Sheet停止
+            aborted.set(true);
+        }
+    }
+
+    /**
+     * 从队列中取出一批数据，任一Sheet解析失败时抛出异常
+     */
+    private <T> ProcessedBatch<T> takeBatch(BlockingQueue<ProcessedBatch<T>> queue, AtomicReference<Throwable> failure) {
+        try {
+            while (true) {
+                Throwable error = failure.get();
+                if (error != null) {
+                    throw new RuntimeException("解析Excel Sheet失败: " + error.getMessage(), error);
+                }
+                ProcessedBatch<T> batch = queue.poll(SHEET_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    return batch;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待Excel Sheet解析结果被中断", e);
+        }
+    }
+
     /**
      * 写入Excel文件（Map方式）
      *
@@ -96,10 +422,48 @@ public class ExcelProcessUtil {
      */
     public int writeExcel(OutputStream outputStream, Map<Integer, String> headerMap, 
                          DataProvider<Map<Integer, Object>> dataProvider, int batchSize) {
+        return writeExcel(outputStream, headerMap, dataProvider, batchSize, null);
+    }
+
+    /**
+     * 写入Excel文件（Map方式），使用指定的流式写入参数
+     *
+     * @param outputStream Excel文件输出流
+     * @param headerMap 表头映射（列索引 -> 表头名称）
+     * @param dataProvider 数据提供函数，每次调用返回一批数据，返回空集合表示结束
+     * @param batchSize 每批获取的数据量
+     * @param writeOptions 流式写入参数，为null或未设置的参数使用全局配置
+     * @return 写入的总行数
+     */
+    public int writeExcel(OutputStream outputStream, Map<Integer, String> headerMap,
+                         DataProvider<Map<Integer, Object>> dataProvider, int batchSize,
+                         ExcelWriteOptions writeOptions) {
+        return writeExcel(outputStream, headerMap, dataProvider, batchSize, writeOptions, Collections.emptyMap());
+    }
+
+    /**
+     * 写入Excel文件（Map方式），使用指定的流式写入参数和列格式
+     *
+     * @param outputStream Excel文件输出流
+     * @param headerMap 表头映射（列索引 -> 表头名称）
+     * @param dataProvider 数据提供函数，每次调用返回一批数据，返回空集合表示结束
+     * @param batchSize 每批获取的数据量
+     * @param writeOptions 流式写入参数，为null或未设置的参数使用全局配置
+     * @param columnFormats 列索引到Excel数据格式的映射（如日期列的yyyy-MM-dd），每种格式在工作簿中只创建一次样式
+     * @return 写入的总行数
+     */
+    public int writeExcel(OutputStream outputStream, Map<Integer, String> headerMap,
+                         DataProvider<Map<Integer, Object>> dataProvider, int batchSize,
+                         ExcelWriteOptions writeOptions, Map<Integer, String> columnFormats) {
         int totalRows = 0;
         int sheetNo = 0;
+        ExcelWriteOptions options = resolveWriteOptions(writeOptions);
         
-        try (ExcelWriter excelWriter = EasyExcel.write(outputStream).build()) {
+        // 不使用EasyExcel默认样式，表头样式由StreamingXlsxWriteHandler在每个工作簿中只创建一次
+        try (ExcelWriter excelWriter = EasyExcel.write(outputStream)
+                .useDefaultStyle(false)
+                .registerWriteHandler(new StreamingXlsxWriteHandler(options, columnFormats))
+                .build()) {
             // 准备表头
             List<List<String>> headList = new ArrayList<>();
             for (int i = 0; i < headerMap.size(); i++) {
@@ -137,7 +501,9 @@ public class ExcelProcessUtil {
                 rowsInCurrentSheet += dataList.size();
             }
             
-            log.info("Excel文件写入完成，总行数：{}, Sheet数：{}", totalRows, sheetNo);
+            log.info("Excel文件写入完成，总行数：{}, Sheet数：{}，行访问窗口：{}，共享字符串表：{}，压缩临时文件：{}",
+                    totalRows, sheetNo, options.getRowAccessWindow(), options.getSharedStrings(),
+                    options.getCompressTempFiles());
         }
         
         return totalRows;
@@ -156,6 +522,449 @@ public class ExcelProcessUtil {
         return writeExcel(outputStream, headerMap, dataProvider, DEFAULT_BATCH_SIZE);
     }
 
+    /**
+     * 合并流式写入参数，未设置的参数使用全局配置
+     *
+     * @param writeOptions 流式写入参数
+     * @return 所有参数都已设置的写入参数
+     */
+    public ExcelWriteOptions resolveWriteOptions(ExcelWriteOptions writeOptions) {
+        ExcelWriteOptions resolved = new ExcelWriteOptions();
+        resolved.setRowAccessWindow(defaultRowAccessWindow);
+        resolved.setSharedStrings(defaultSharedStrings);
+        resolved.setCompressTempFiles(defaultCompressTempFiles);
+        if (writeOptions != null) {
+            if (writeOptions.getRowAccessWindow() != null) {
+                resolved.setRowAccessWindow(writeOptions.getRowAccessWindow());
+            }
+            if (writeOptions.getSharedStrings() != null) {
+                resolved.setSharedStrings(writeOptions.getSharedStrings());
+            }
+            if (writeOptions.getCompressTempFiles() != null) {
+                resolved.setCompressTempFiles(writeOptions.getCompressTempFiles());
+            }
+        }
+        if (resolved.getRowAccessWindow() < 1) {
+            throw new IllegalArgumentException("行访问窗口必须大于0：" + resolved.getRowAccessWindow());
+        }
+        return resolved;
+    }
+
+    /**
+     * 把一行单元格转换为文本（列索引 -> 单元格文本）
+     * 读取时不注册EasyExcel默认的行构建监听器（它会把每个单元格都转换为文本），
+     * 由这里只转换需要的列，宽表只映射少数列时省去其余单元格的格式化和对象分配
+     *
+     * @param cells 单元格（列索引 -> 单元格数据）
+     * @param columns 要读取的列索引，为null时转换全部列
+     * @param context 解析上下文
+     * @return 行数据，不含未指定的列
+     */
+    private static Map<Integer, String> toTextRow(Map<Integer, ReadCellData<?>> cells, Set<Integer> columns,
+                                                  AnalysisContext context) {
+        if (columns == null) {
+            return ConverterUtils.convertToStringMap(cells, context);
+        }
+        Map<Integer, String> row = new HashMap<>(columns.size() * 4 / 3 + 1);
+        for (Integer column : columns) {
+            ReadCellData<?> cell = cells.get(column);
+            if (cell == null || cell.getType() == CellDataTypeEnum.EMPTY) {
+                continue;
+            }
+            Converter<?> converter = context.readSheetHolder().converterMap()
+                    .get(ConverterKeyBuild.buildKey(String.class, cell.getType()));
+            if (converter == null) {
+                throw new ExcelDataConvertException(context.readRowHolder().getRowIndex(), column, cell, null,
+                        "Converter not found, convert " + cell.getType() + " to String");
+            }
+            try {
+                row.put(column, (String) converter.convertToJavaData(new ReadConverterContext<>(cell, null, context)));
+            } catch (Exception e) {
+                throw new ExcelDataConvertException(context.readRowHolder().getRowIndex(), column, cell, null,
+                        "Convert data " + cell + " to String error ", e);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 从本地文件或输入流读取，本地文件优先
+     */
+    private static ExcelReaderBuilder read(File file, InputStream inputStream) {
+        return file != null ? EasyExcel.read(file) : EasyExcel.read(inputStream);
+    }
+
+    /**
+     * 文件输入流来源
+     * 多Sheet并行读取时，每个Sheet需要独立打开一次文件
+     */
+    public interface StreamSource {
+        /**
+         * 打开新的输入流，由调用方负责关闭
+         * @return 文件输入流
+         * @throws IOException IO异常
+         */
+        InputStream open() throws IOException;
+
+        /**
+         * 本地文件，不为null时直接按文件读取（XLSX按随机访问方式打开ZIP），不再调用open
+         * @return 本地文件，默认为null
+         */
+        default File file() {
+            return null;
+        }
+
+        /**
+         * 本地文件来源
+         * @param file 本地文件
+         * @return 文件来源
+         */
+        static StreamSource of(File file) {
+            return new StreamSource() {
+                @Override
+                public InputStream open() throws IOException {
+                    return new FileInputStream(file);
+                }
+
+                @Override
+                public File file() {
+                    return file;
+                }
+            };
+        }
+    }
+
+    /**
+     * 一个Sheet中的一批数据
+     */
+    public static class SheetBatch {
+
+        private final int sheetNo;
+
+        private final String sheetName;
+
+        private final List<Integer> rowNumbers;
+
+        private final List<Map<Integer, String>> rows;
+
+        public SheetBatch(int sheetNo, String sheetName, List<Integer> rowNumbers, List<Map<Integer, String>> rows) {
+            this.sheetNo = sheetNo;
+            this.sheetName = sheetName;
+            this.rowNumbers = rowNumbers;
+            this.rows = rows;
+        }
+
+        /**
+         * Sheet序号（从0开始）
+         */
+        public int getSheetNo() {
+            return sheetNo;
+        }
+
+        /**
+         * Sheet名称
+         */
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        /**
+         * 每行在Sheet中的行号（从1开始，与Excel中显示的行号一致），与rows一一对应
+         */
+        public List<Integer> getRowNumbers() {
+            return rowNumbers;
+        }
+
+        /**
+         * 行数据（列索引 -> 单元格值），只读取部分列时不含其余列
+         */
+        public List<Map<Integer, String>> getRows() {
+            return rows;
+        }
+
+    }
+
+    /**
+     * 预处理后的一批数据，END表示Sheet结束
+     */
+    private static class ProcessedBatch<T> {
+
+        private static final ProcessedBatch<?> END = new ProcessedBatch<>(0, null);
+
+        private final int rowCount;
+
+        private final T result;
+
+        ProcessedBatch(int rowCount, T result) {
+            this.rowCount = rowCount;
+            this.result = result;
+        }
+
+        boolean isEnd() {
+            return this == END;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> ProcessedBatch<T> end() {
+            return (ProcessedBatch<T>) END;
+        }
+    }
+
+    /**
+     * 按批次收集一个Sheet的数据，并记录每行的行号
+     */
+    private static class SheetBatchListener extends AnalysisEventListener<Map<Integer, ReadCellData<?>>> {
+
+        private final int sheetNo;
+
+        private final String sheetName;
+
+        /**
+         * 要读取的列索引，为null时读取全部列
+         */
+        private final Set<Integer> columns;
+
+        private final int batchSize;
+
+        /**
+         * 起始行号（含），之前的行忽略
+         */
+        private final int startRow;
+
+        /**
+         * 结束行号（不含），为null时读到Sheet末尾
+         */
+        private final Integer endRow;
+
+        private final Consumer<SheetBatch> sink;
+
+        private List<Integer> rowNumbers;
+
+        private List<Map<Integer, String>> dataList;
+
+        SheetBatchListener(int sheetNo, String sheetName, Set<Integer> columns, int batchSize,
+                           Consumer<SheetBatch> sink) {
+            this(sheetNo, sheetName, 1, null, columns, batchSize, sink);
+        }
+
+        SheetBatchListener(int sheetNo, String sheetName, int startRow, Integer endRow, Set<Integer> columns,
+                           int batchSize, Consumer<SheetBatch> sink) {
+            this.sheetNo = sheetNo;
+            this.sheetName = sheetName;
+            this.columns = columns;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.batchSize = batchSize;
+            this.sink = sink;
+            this.rowNumbers = new ArrayList<>(batchSize);
+            this.dataList = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void invoke(Map<Integer, ReadCellData<?>> data, AnalysisContext context) {
+            int rowNumber = context.readRowHolder().getRowIndex() + 1;
+            if (rowNumber < startRow) {
+                return;
+            }
+            if (endRow != null && rowNumber >= endRow) {
+                // 已读完行范围，交付剩余数据后停止解析
+                if (!dataList.isEmpty()) {
+                    flush();
+                }
+                throw new ExcelAnalysisStopException();
+            }
+            rowNumbers.add(rowNumber);
+            dataList.add(toTextRow(data, columns, context));
+            if (dataList.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            if (!dataList.isEmpty()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            sink.accept(new SheetBatch(sheetNo, sheetName, rowNumbers, dataList));
+            rowNumbers = new ArrayList<>(batchSize);
+            dataList = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 解析单个Sheet的任务，按批次放入队列，队列满时等待调用线程消费
+     */
+    private static class SheetReadJob<T> implements Runnable {
+
+        private final StreamSource streamSource;
+
+        private final int sheetNo;
+
+        private final String sheetName;
+
+        private final Set<Integer> columns;
+
+        private final int batchSize;
+
+        private final Function<SheetBatch, T> batchProcessor;
+
+        private final BlockingQueue<ProcessedBatch<T>> queue;
+
+        private final AtomicBoolean aborted;
+
+        private final AtomicReference<Throwable> failure;
+
+        SheetReadJob(StreamSource streamSource, int sheetNo, String sheetName, Set<Integer> columns, int batchSize,
+                     Function<SheetBatch, T> batchProcessor, BlockingQueue<ProcessedBatch<T>> queue,
+                     AtomicBoolean aborted, AtomicReference<Throwable> failure) {
+            this.streamSource = streamSource;
+            this.sheetNo = sheetNo;
+            this.sheetName = sheetName;
+            this.columns = columns;
+            this.batchSize = batchSize;
+            this.batchProcessor = batchProcessor;
+            this.queue = queue;
+            this.aborted = aborted;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            if (aborted.get()) {
+                return;
+            }
+            File file = streamSource.file();
+            try (InputStream inputStream = file == null ? streamSource.open() : null) {
+                read(file, inputStream).useDefaultListener(false).sheet(sheetNo)
+                        .registerReadListener(new SheetBatchListener(sheetNo, sheetName, columns, batchSize,
+                                batch -> put(new ProcessedBatch<>(batch.getRows().size(), batchProcessor.apply(batch)))))
+                        .doRead();
+                put(ProcessedBatch.end());
+                log.info("Excel Sheet解析完成：{}（{}）", sheetName, sheetNo);
+            } catch (ExcelAnalysisStopException e) {
+                log.info("Excel Sheet解析已取消：{}（{}）", sheetName, sheetNo);
+            } catch (Throwable e) {
+                if (!aborted.get()) {
+                    log.error("解析Excel Sheet失败：{}（{}）", sheetName, sheetNo, e);
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        /**
+         * 放入队列，队列满时等待；整体解析已结束（失败或取消）时停止当前Sheet的读取
+         */
+        private void put(ProcessedBatch<T> batch) {
+            try {
+                while (!queue.offer(batch, SHEET_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (aborted.get()) {
+                        throw new ExcelAnalysisStopException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExcelAnalysisStopException();
+            }
+        }
+    }
+
+    /**
+     * XLSX流式写入处理器
+     * EasyExcel默认创建的SXSSFWorkbook固定使用100行窗口、内联字符串、不压缩临时文件，
+     * 这里在工作簿创建后替换为按参数创建的SXSSFWorkbook，并为表头和有格式的列各创建一次共享的单元格样式。
+     * 在EasyExcel填充样式之后执行，覆盖其为日期设置的默认格式
+     */
+    private static class StreamingXlsxWriteHandler implements WorkbookWriteHandler, CellWriteHandler, Order {
+
+        private final ExcelWriteOptions options;
+
+        private final Map<Integer, String> columnFormats;
+
+        private final Map<Integer, CellStyle> columnStyles = new HashMap<>();
+
+        private CellStyle headStyle;
+
+        StreamingXlsxWriteHandler(ExcelWriteOptions options, Map<Integer, String> columnFormats) {
+            this.options = options;
+            this.columnFormats = columnFormats;
+        }
+
+        @Override
+        public int order() {
+            return OrderConstant.FILL_STYLE + 1;
+        }
+
+        @Override
+        public void afterWorkbookCreate(WorkbookWriteHandlerContext context) {
+            WriteWorkbookHolder holder = context.getWriteWorkbookHolder();
+            Workbook workbook = holder.getWorkbook();
+            // 仅替换无模板的流式工作簿
+            if (workbook instanceof SXSSFWorkbook && workbook == holder.getCachedWorkbook()) {
+                SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(null, options.getRowAccessWindow(),
+                        options.getCompressTempFiles(), options.getSharedStrings());
+                ((SXSSFWorkbook) workbook).dispose();
+                holder.setWorkbook(streamingWorkbook);
+                holder.setCachedWorkbook(streamingWorkbook);
+                workbook = streamingWorkbook;
+            }
+            headStyle = createHeadStyle(workbook);
+
+            // 同一格式的列共用一个样式
+            Map<String, CellStyle> formatStyles = new HashMap<>();
+            DataFormat dataFormat = workbook.createDataFormat();
+            for (Map.Entry<Integer, String> entry : columnFormats.entrySet()) {
+                CellStyle cellStyle = formatStyles.get(entry.getValue());
+                if (cellStyle == null) {
+                    cellStyle = workbook.createCellStyle();
+                    cellStyle.setDataFormat(dataFormat.getFormat(entry.getValue()));
+                    formatStyles.put(entry.getValue(), cellStyle);
+                }
+                columnStyles.put(entry.getKey(), cellStyle);
+            }
+        }
+
+        @Override
+        public void afterCellDispose(CellWriteHandlerContext context) {
+            if (Boolean.TRUE.equals(context.getHead())) {
+                if (headStyle != null) {
+                    context.getCell().setCellStyle(headStyle);
+                }
+                return;
+            }
+            CellStyle columnStyle = columnStyles.get(context.getColumnIndex());
+            if (columnStyle != null && context.getOriginalValue() != null) {
+                context.getCell().setCellStyle(columnStyle);
+            }
+        }
+
+        /**
+         * 表头样式，与EasyExcel默认表头样式一致
+         */
+        private CellStyle createHeadStyle(Workbook workbook) {
+            Font font = workbook.createFont();
+            font.setFontName("宋体");
+            font.setFontHeightInPoints((short) 14);
+            font.setBold(true);
+
+            CellStyle cellStyle = workbook.createCellStyle();
+            cellStyle.setFont(font);
+            cellStyle.setWrapText(true);
+            cellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+            cellStyle.setAlignment(HorizontalAlignment.CENTER);
+            cellStyle.setLocked(true);
+            cellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            cellStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            cellStyle.setBorderTop(BorderStyle.THIN);
+            cellStyle.setBorderBottom(BorderStyle.THIN);
+            cellStyle.setBorderLeft(BorderStyle.THIN);
+            cellStyle.setBorderRight(BorderStyle.THIN);
+            return cellStyle;
+        }
+    }
+
     /**
      * 数据提供者接口
      * @param <T> 数据类型
@@ -0,0 +1,29 @@
+package com.example.filetool.util;
+
+import lombok.Data;
+
+/**
+ * XLSX流式写入参数
+ * 未设置的参数使用全局配置 file.excel.write.*
+ */
+@Data
+public class ExcelWriteOptions {
+
+    /**
+     * 行访问窗口：内存中保留的行数，超出后刷到临时文件
+     * 窗口越小内存占用越低，但无法回写已刷出的行
+     */
+    private Integer rowAccessWindow;
+
+    /**
+     * 是否使用共享字符串表
+     * 重复文本较多时文件更小，但整个字符串表常驻内存；默认使用内联字符串
+     */
+    private Boolean sharedStrings;
+
+    /**
+     * 是否压缩临时文件
+     * 临时文件更小、磁盘IO更少，但写入时额外消耗CPU
+     */
+    private Boolean compressTempFiles;
+}
@@ -1,18 +1,23 @@
 package com.example.filetool.util;
 
+import com.example.filetool.metrics.FileToolMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * 文件存储工具类
@@ -25,6 +30,16 @@ public class FileStorageUtil {
     @Value("${file.storage.path:./sources}")
     private String storagePath;
 
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    /**
+     * 分流保存上传文件的写入线程
+     */
+    @Autowired
+    @Qualifier("pipelineExecutor")
+    private Executor teeExecutor;
+
     /**
      * 初始化存储目录
      */
@@ -50,31 +65,65 @@ public class FileStorageUtil {
      * @throws IOException IO异常
      */
     public String saveFile(String originalFilename, InputStream inputStream) throws IOException {
-        // 确保存储目录存在
-        init();
-
-        // 生成唯一文件名
-        String fileExtension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-        String relativePath = getYearMonthPath() + uniqueFilename;
+        String relativePath = newFilePath(originalFilename);
         Path targetPath = Paths.get(storagePath, relativePath);
 
-        // 确保父目录存在
-        Files.createDirectories(targetPath.getParent());
-
         // 保存文件
+        long totalBytes = 0;
         try (FileOutputStream outputStream = new FileOutputStream(targetPath.toFile())) {
             byte[] buffer = new byte[8192];
             int bytesRead;
             while ((bytesRead = inputStream.read(buffer)) != -1) {
                 outputStream.write(buffer, 0, bytesRead);
+                totalBytes += bytesRead;
             }
+        } finally {
+            fileToolMetrics.recordStorageBytes("write", totalBytes);
         }
 
         log.info("文件保存成功：{}", targetPath);
         return relativePath;
     }
 
+    /**
+     * 保存文件到存储系统，同时把上传数据交给解析
+     * 文件在后台线程中保存，返回时保存可能尚未完成，调用方读完解析流后通过 {@link UploadTee#await()} 等待保存完成
+     *
+     * @param originalFilename 原始文件名
+     * @param inputStream      文件输入流，保存完成前不能关闭
+     * @param bufferChunks     解析缓冲区的数据块数（每块64KB），缓冲区满后解析改为读取存储文件
+     * @return 分流的上传文件
+     * @throws IOException IO异常
+     */
+    public UploadTee teeFile(String originalFilename, InputStream inputStream, int bufferChunks) throws IOException {
+        String relativePath = newFilePath(originalFilename);
+        UploadTee uploadTee = new UploadTee(relativePath, Paths.get(storagePath, relativePath).toFile(),
+                inputStream, bufferChunks, fileToolMetrics);
+        uploadTee.start(teeExecutor);
+        return uploadTee;
+    }
+
+    /**
+     * 生成新文件的存储路径，并确保目录存在
+     *
+     * @param originalFilename 原始文件名
+     * @return 存储路径（相对存储目录）
+     * @throws IOException IO异常
+     */
+    private String newFilePath(String originalFilename) throws IOException {
+        // 确保存储目录存在
+        init();
+
+        // 生成唯一文件名
+        String fileExtension = getFileExtension(originalFilename);
+        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
+        String relativePath = getYearMonthPath() + uniqueFilename;
+
+        // 确保父目录存在
+        Files.createDirectories(Paths.get(storagePath, relativePath).getParent());
+        return relativePath;
+    }
+
     /**
      * 获取文件输入流
      *
@@ -88,7 +137,71 @@ public class FileStorageUtil {
         if (!file.exists()) {
             throw new IOException("文件不存在：" + filePath);
         }
-        return new FileInputStream(file);
+        return new MeteredInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * 获取本地文件
+     * 需要随机访问的读取（如XLSX的ZIP容器）直接打开文件，避免经输入流再复制一份
+     *
+     * @param filePath 文件路径
+     * @return 本地文件
+     * @throws IOException 文件不存在
+     */
+    public File getFile(String filePath) throws IOException {
+        File file = Paths.get(storagePath, filePath).toFile();
+        if (!file.exists()) {
+            throw new IOException("文件不存在：" + filePath);
+        }
+        return file;
+    }
+
+    /**
+     * 获取文件中一段字节范围的输入流
+     * 从起始偏移处开始读取，读到结束偏移（不含）或文件末尾为止，用于分片读取大文件
+     *
+     * @param filePath    文件路径
+     * @param startOffset 起始字节偏移（含）
+     * @param endOffset   结束字节偏移（不含），为null时读到文件末尾
+     * @return 文件输入流
+     * @throws IOException IO异常
+     */
+    public InputStream getFileInputStream(String filePath, long startOffset, Long endOffset) throws IOException {
+        Path path = Paths.get(storagePath, filePath);
+        File file = path.toFile();
+        if (!file.exists()) {
+            throw new IOException("文件不存在：" + filePath);
+        }
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            inputStream.getChannel().position(startOffset);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        long limit = endOffset == null ? Long.MAX_VALUE : Math.max(0, endOffset - startOffset);
+        return new MeteredInputStream(new RangeInputStream(inputStream, limit));
+    }
+
+    /**
+     * 获取文件大小
+     *
+     * @param filePath 文件路径
+     * @return 文件大小（字节）
+     * @throws IOException IO异常
+     */
+    public long getFileSize(String filePath) throws IOException {
+        return Files.size(Paths.get(storagePath, filePath));
+    }
+
+    /**
+     * 文件是否存在
+     *
+     * @param filePath 文件路径
+     * @return 是否存在
+     */
+    public boolean exists(String filePath) {
+        return Files.exists(Paths.get(storagePath, filePath));
     }
 
     /**
@@ -133,4 +246,98 @@ public class FileStorageUtil {
         java.time.LocalDate now = java.time.LocalDate.now();
         return String.format("%d/%02d/", now.getYear(), now.getMonthValue());
     }
-}
\ No newline at end of file
+
+    /**
+     * 统计读取字节数的输入流，关闭时上报指标
+     */
+    private class MeteredInputStream extends FilterInputStream {
+
+        private long bytesRead;
+
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                fileToolMetrics.recordStorageBytes("read", bytesRead);
+                bytesRead = 0;
+            }
+        }
+    }
+
+    /**
+     * 最多读取指定字节数的输入流
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -1,60 +1,116 @@
 package com.example.filetool.util;
 
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.quota.HostQuota;
+import com.example.filetool.quota.HostQuotaRegistry;
+import com.example.filetool.resilience.CircuitBreaker;
+import com.example.filetool.resilience.CircuitBreakerRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * HTTP客户端工具类
- * 用于向业务系统发送回调请求
+ * 用于向业务系统发送回调请求，每个请求先获取目标主机的配额（限速和进行中请求数上限）。
+ * 幂等的请求（带幂等键的回调、只读的取数请求）在连接失败、超时、429和5xx时按指数退避加随机抖动重试；
+ * 同一主机连续失败时熔断，熔断期间请求暂停等待；取数请求超过对冲延迟未返回时再发一个相同请求，取先返回的结果
  */
 @Slf4j
 @Component
 public class HttpClientUtil {
 
+    /**
+     * 回调请求的幂等键请求头，同一次回调的多次重试使用相同的值
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private RestTemplate restTemplate;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private FileToolMetrics fileToolMetrics;
+
+    @Autowired
+    private HostQuotaRegistry hostQuotaRegistry;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    @Qualifier("pipelineExecutor")
+    private Executor hedgeExecutor;
+
+    /**
+     * 幂等请求的最大尝试次数（含第一次）
+     */
+    @Value("${file.callback.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 第一次重试前的退避时间（毫秒），之后每次翻倍
+     */
+    @Value("${file.callback.retry.initial-backoff-ms:200}")
+    private long initialBackoffMs;
+
+    /**
+     * 最长退避时间（毫秒）
+     */
+    @Value("${file.callback.retry.max-backoff-ms:5000}")
+    private long maxBackoffMs;
+
+    /**
+     * 取数请求的对冲延迟（毫秒），超过该时间未返回时发出第二个相同请求，0表示不对冲
+     */
+    @Value("${file.callback.hedge.delay-ms:2000}")
+    private long hedgeDelayMs;
+
     /**
      * 发送POST请求
+     * 请求不一定幂等，因此不重试
      *
      * @param url  请求URL
      * @param data 请求数据
      * @return 响应结果
      */
     public String post(String url, Object data) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Object> entity = new HttpEntity<>(data, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-            
-            log.info("发送HTTP请求成功: {}, 状态码: {}", url, response.getStatusCodeValue());
-            return response.getBody();
-        } catch (Exception e) {
-            log.error("发送HTTP请求失败: " + url, e);
-            throw new RuntimeException("发送HTTP请求失败: " + e.getMessage(), e);
-        }
+        return execute(url, "json", jsonEntity(data, null), false, false);
     }
 
     /**
      * 发送回调请求
+     * 请求头带幂等键，失败时重试，业务系统可按幂等键去重
      *
      * @param callbackUrl 回调URL
      * @param taskId      任务ID
@@ -67,45 +123,292 @@ public class HttpClientUtil {
             log.warn("回调URL为空，跳过回调");
             return null;
         }
-        
+
         try {
             Map<String, Object> callbackData = new HashMap<>();
             callbackData.put("taskId", taskId);
             callbackData.put("status", status);
             callbackData.put("data", data);
-            
-            return post(callbackUrl, callbackData);
+
+            return execute(callbackUrl, "json", jsonEntity(callbackData, UUID.randomUUID().toString()), true, false);
         } catch (Exception e) {
             log.error("发送回调请求失败: " + callbackUrl, e);
             return null;
         }
     }
 
+    /**
+     * 异步发送回调请求
+     * 与sendCallback相同，但等待熔断恢复、主机配额和重试退避期间不占用线程，获得配额后在管道线程中发出请求
+     *
+     * @param callbackUrl 回调URL
+     * @param taskId      任务ID
+     * @param status      任务状态
+     * @param data        回调数据
+     * @return 请求结束时完成，值为响应结果，失败时为null
+     */
+    public CompletableFuture<String> sendCallbackAsync(String callbackUrl, Long taskId, String status, Object data) {
+        if (callbackUrl == null || callbackUrl.isEmpty()) {
+            log.warn("回调URL为空，跳过回调");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<String, Object> callbackData = new HashMap<>();
+        callbackData.put("taskId", taskId);
+        callbackData.put("status", status);
+        callbackData.put("data", data);
+
+        HttpEntity<Object> entity = jsonEntity(callbackData, UUID.randomUUID().toString());
+        return executeAsync(callbackUrl, "json", entity, 1).exceptionally(e -> {
+            log.error("发送回调请求失败: " + callbackUrl, e);
+            return null;
+        });
+    }
+
     /**
      * 发送POST表单请求
+     * 用于导出时从业务系统分页取数，请求只读，失败时重试，慢请求对冲
      *
      * @param url  请求URL
      * @param data 请求数据
      * @return 响应结果
      */
     public String postForm(String url, Object data) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        // 将数据转换为表单参数
+        Map<String, Object> formData = objectMapper.convertValue(data, new TypeReference<Map<String, Object>>() {});
+        MultiValueMap<String, String> formParams = new LinkedMultiValueMap<>();
+        formData.forEach((key, value) -> formParams.add(key, String.valueOf(value)));
+
+        return execute(url, "form", new HttpEntity<>(formParams, headers), true, true);
+    }
+
+    private HttpEntity<Object> jsonEntity(Object data, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return new HttpEntity<>(data, headers);
+    }
+
+    /**
+     * 发送请求，按需重试和对冲
+     *
+     * @param url       请求URL
+     * @param method    请求方式（json/form），用于指标和日志
+     * @param entity    请求体和请求头
+     * @param retryable 请求是否幂等、可以重试
+     * @param hedged    是否对冲慢请求
+     * @return 响应结果
+     */
+    private String execute(String url, String method, HttpEntity<?> entity, boolean retryable, boolean hedged) {
+        CircuitBreaker breaker = circuitBreakerRegistry.get(url);
+        String host = breaker.getHost();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (hedged && hedgeDelayMs > 0) {
+                    return hedge(url, method, entity, breaker);
+                }
+                return send(url, method, entity, breaker);
+            } catch (RuntimeException e) {
+                // 只重试主机暂时不可用的失败；熔断等待超时、配额等待超时和4xx不重试
+                if (!retryable || attempt >= maxAttempts || !isHostFailure(e)) {
+                    log.error("发送HTTP请求失败: " + url + "，已尝试" + attempt + "次", e);
+                    throw new RuntimeException("发送HTTP请求失败: " + e.getMessage(), e);
+                }
+                long backoff = backoffMillis(attempt);
+                log.warn("发送HTTP请求失败: {}，{}ms后第{}次重试：{}", url, backoff, attempt, e.getMessage());
+                fileToolMetrics.recordCallbackEvent(host, "retry");
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * 异步发送幂等请求，失败时按退避时间重试
+     * 熔断等待、配额排队和退避都通过定时器完成，只有发出请求时占用管道线程
+     *
+     * @param attempt 第几次尝试
+     * @return 请求结束时完成
+     */
+    private CompletableFuture<String> executeAsync(String url, String method, HttpEntity<?> entity, int attempt) {
+        CircuitBreaker breaker = circuitBreakerRegistry.get(url);
+        String host = breaker.getHost();
+        return circuitBreakerRegistry.acquireAsync(breaker)
+                .thenCompose(admitted -> hostQuotaRegistry.acquireAsync(url).whenComplete((quota, error) -> {
+                    if (error != null) {
+                        breaker.onIgnored();
+                    }
+                }))
+                .thenApplyAsync(quota -> doSend(url, method, entity, breaker, quota), hedgeExecutor)
+                .handle((body, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(body);
+                    }
+                    RuntimeException e = unwrap(error instanceof CompletionException ? error.getCause() : error);
+                    if (attempt >= maxAttempts || !isHostFailure(e)) {
+                        log.error("发送HTTP请求失败: " + url + "，已尝试" + attempt + "次", e);
+                        return CompletableFuture.<String>failedFuture(
+                                new RuntimeException("发送HTTP请求失败: " + e.getMessage(), e));
+                    }
+                    long backoff = backoffMillis(attempt);
+                    log.warn("发送HTTP请求失败: {}，{}ms后第{}次重试：{}", url, backoff, attempt, e.getMessage());
+                    fileToolMetrics.recordCallbackEvent(host, "retry");
+                    Executor delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, hedgeExecutor);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(ignored -> executeAsync(url, method, entity, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * 发送一次请求：等待熔断恢复，获取主机配额，记录耗时和结果
+     */
+    private String send(String url, String method, HttpEntity<?> entity, CircuitBreaker breaker) {
+        return send(url, method, entity, breaker, null, null);
+    }
+
+    /**
+     * 发送一次请求，用于对冲
+     *
+     * @param permitted 获得配额、即将发出请求时完成，可为null
+     * @param abandoned 完成时放弃尚未发出的请求（不再等待熔断恢复和配额），可为null
+     */
+    private String send(String url, String method, HttpEntity<?> entity, CircuitBreaker breaker,
+                        CompletableFuture<Void> permitted, CompletableFuture<?> abandoned) {
+        if (abandoned != null && abandoned.isDone()) {
+            throw new CancellationException("对冲请求已有结果，放弃发送");
+        }
+        // 对冲的第二个请求等待熔断恢复时，第一个请求返回即放弃等待
+        if (!breaker.acquire(circuitBreakerRegistry.getMaxPauseMillis(), abandoned)) {
+            throw new CancellationException("对冲请求已有结果，放弃发送");
+        }
+        HostQuota quota;
+        try {
+            quota = hostQuotaRegistry.acquire(url, abandoned);
+        } catch (RuntimeException e) {
+            breaker.onIgnored();
+            throw e;
+        }
+        if (quota == null) {
+            breaker.onIgnored();
+            throw new CancellationException("对冲请求已有结果，放弃发送");
+        }
+        if (permitted != null) {
+            permitted.complete(null);
+        }
+        return doSend(url, method, entity, breaker, quota);
+    }
+
+    /**
+     * 已获得熔断器放行和主机配额后发出请求，记录耗时和结果，结束时归还配额
+     */
+    private String doSend(String url, String method, HttpEntity<?> entity, CircuitBreaker breaker, HostQuota quota) {
+        long startNanos = System.nanoTime();
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            
-            // 将数据转换为表单参数
-            Map<String, Object> formData = objectMapper.convertValue(data, new TypeReference<Map<String, Object>>() {});
-            MultiValueMap<String, String> formParams = new LinkedMultiValueMap<>();
-            formData.forEach((key, value) -> formParams.add(key, String.valueOf(value)));
-            
-            HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(formParams, headers);
             ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-            
-            log.info("发送HTTP表单请求成功: {}, 状态码: {}", url, response.getStatusCodeValue());
+            fileToolMetrics.recordCallback(url, method, startNanos, true);
+            breaker.onSuccess();
+
+            log.info("发送HTTP请求成功: {}, 状态码: {}", url, response.getStatusCodeValue());
             return response.getBody();
-        } catch (Exception e) {
-            log.error("发送HTTP表单请求失败: " + url, e);
-            throw new RuntimeException("发送HTTP表单请求失败: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            fileToolMetrics.recordCallback(url, method, startNanos, false);
+            if (!isHostFailure(e)) {
+                breaker.onIgnored();
+            } else if (breaker.onFailure()) {
+                log.warn("主机连续请求失败，熔断：{}", breaker.getHost());
+                fileToolMetrics.recordCallbackEvent(breaker.getHost(), "circuit_open");
+            }
+            throw e;
+        } finally {
+            quota.release();
+        }
+    }
+
+    /**
+     * 对冲请求：第一个请求发出后超过对冲延迟未返回时再发一个，返回先成功的结果，两个都失败时抛出后失败的异常。
+     * 对冲延迟从第一个请求获得配额时开始计算，排队等待配额（主机已被限流）期间不对冲；
+     * 第二个请求在等待熔断恢复或配额时第一个请求已返回的，立即放弃等待，不占用配额。已发出的请求无法撤回，
+     * 其配额在请求结束时归还，与进行中请求数一致
+     */
+    private String hedge(String url, String method, HttpEntity<?> entity, CircuitBreaker breaker) {
+        String host = breaker.getHost();
+        CompletableFuture<Void> primaryPermitted = new CompletableFuture<>();
+        CompletableFuture<String> primary = CompletableFuture.supplyAsync(
+                () -> send(url, method, entity, breaker, primaryPermitted, null), hedgeExecutor);
+        try {
+            CompletableFuture.anyOf(primary, primaryPermitted).get();
+            return primary.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 继续对冲
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待HTTP响应被中断", e);
+        }
+
+        fileToolMetrics.recordCallbackEvent(host, "hedge");
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> backup = CompletableFuture.supplyAsync(
+                () -> send(url, method, entity, breaker, null, first), hedgeExecutor);
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<String> leg : Arrays.asList(primary, backup)) {
+            leg.whenComplete((body, error) -> {
+                if (error == null) {
+                    first.complete(body);
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        try {
+            return first.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 失败是否反映主机不可用（连接失败、超时、429、5xx），计入熔断
+     */
+    private static boolean isHostFailure(RuntimeException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException) {
+            HttpStatus status = ((HttpStatusCodeException) e).getStatusCode();
+            return status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return false;
+    }
+
+    /**
+     * 第attempt次失败后的退避时间：指数退避，并在上限的一半到上限之间随机取值，避免多个任务同时重试
+     */
+    private long backoffMillis(int attempt) {
+        long exponential = initialBackoffMs << Math.min(attempt - 1, 20);
+        long cap = Math.min(maxBackoffMs, exponential);
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof RuntimeException) {
+            return (RuntimeException) error;
+        }
+        return new RuntimeException(error.getMessage(), error);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("重试等待被中断", e);
         }
     }
-}
\ No newline at end of file
+}
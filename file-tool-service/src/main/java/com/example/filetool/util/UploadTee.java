@@ -0,0 +1,271 @@
+package com.example.filetool.util;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * 上传文件分流：保存文件的同时把相同的字节交给解析
+ * 写入线程从上传流读取数据块写入存储文件，同时放入有界缓冲区，解析线程从缓冲区读取，两者并行，
+ * 上传数据只读取一遍。写入线程不等待解析：缓冲区满（解析跟不上）时不再放入缓冲区，
+ * 解析读完缓冲区中已有的数据块后改为从存储文件中读取写入线程已写入的部分，读到写入位置时等待写入
+ */
+@Slf4j
+public class UploadTee {
+
+    /**
+     * 每次从上传流读取的字节数
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String filePath;
+
+    private final File file;
+
+    private final InputStream source;
+
+    private final int bufferChunks;
+
+    private final FileToolMetrics fileToolMetrics;
+
+    private final TeeInputStream inputStream = new TeeInputStream();
+
+    /**
+     * 以下状态由this保护
+     */
+    private final ArrayDeque<byte[]> buffer = new ArrayDeque<>();
+
+    /**
+     * 已写入存储文件的字节数
+     */
+    private long written;
+
+    /**
+     * 缓冲区满过，之后的数据从存储文件读取
+     */
+    private boolean spilled;
+
+    private boolean readerClosed;
+
+    private boolean done;
+
+    private Throwable failure;
+
+    UploadTee(String filePath, File file, InputStream source, int bufferChunks, FileToolMetrics fileToolMetrics) {
+        this.filePath = filePath;
+        this.file = file;
+        this.source = source;
+        this.bufferChunks = Math.max(1, bufferChunks);
+        this.fileToolMetrics = fileToolMetrics;
+    }
+
+    /**
+     * 在写入线程中开始保存文件
+     */
+    void start(Executor executor) {
+        executor.execute(this::write);
+    }
+
+    /**
+     * @return 存储路径
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return 供解析读取的输入流，与写入存储文件的数据相同
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * 解析是否曾跟不上写入、改为从存储文件读取
+     */
+    public synchronized boolean isSpilled() {
+        return spilled;
+    }
+
+    /**
+     * 等待文件保存完成
+     *
+     * @throws IOException 保存文件失败
+     */
+    public void await() throws IOException {
+        synchronized (this) {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待保存上传文件时被中断");
+                }
+            }
+            if (failure != null) {
+                throw new IOException("保存上传文件失败：" + failure.getMessage(), failure);
+            }
+        }
+    }
+
+    private void write() {
+        long totalBytes = 0;
+        Throwable error = null;
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int bytesRead;
+            while ((bytesRead = source.read(chunk)) != -1) {
+                if (bytesRead == 0) {
+                    continue;
+                }
+                outputStream.write(chunk, 0, bytesRead);
+                totalBytes += bytesRead;
+                synchronized (this) {
+                    written = totalBytes;
+                    if (!spilled && !readerClosed) {
+                        if (buffer.size() < bufferChunks) {
+                            buffer.add(Arrays.copyOf(chunk, bytesRead));
+                        } else {
+                            spilled = true;
+                        }
+                    }
+                    notifyAll();
+                }
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            fileToolMetrics.recordStorageBytes("write", totalBytes);
+        }
+        synchronized (this) {
+            done = true;
+            failure = error;
+            notifyAll();
+        }
+        if (error == null) {
+            log.info("文件保存成功：{}，解析是否改为读取文件：{}", filePath, isSpilled());
+        } else {
+            log.error("保存上传文件失败：{}", filePath, error);
+        }
+    }
+
+    /**
+     * 解析读取的输入流：先读缓冲区，缓冲区溢出后从存储文件读取
+     */
+    private class TeeInputStream extends InputStream {
+
+        private byte[] current;
+
+        private int currentPos;
+
+        /**
+         * 已读取的字节数，即从存储文件读取时的位置
+         */
+        private long position;
+
+        private RandomAccessFile fileReader;
+
+        private long fileBytesRead;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (current == null || currentPos >= current.length) {
+                long available = nextChunkOrFileBytes();
+                if (available < 0) {
+                    return -1;
+                }
+                if (current == null) {
+                    return readFile(b, off, (int) Math.min(len, available));
+                }
+            }
+            int n = Math.min(len, current.length - currentPos);
+            System.arraycopy(current, currentPos, b, off, n);
+            currentPos += n;
+            position += n;
+            return n;
+        }
+
+        /**
+         * 取下一个数据块；缓冲区已溢出且没有剩余数据块时返回存储文件中可读的字节数
+         *
+         * @return 可读字节数，-1表示读完
+         */
+        private long nextChunkOrFileBytes() throws IOException {
+            synchronized (UploadTee.this) {
+                current = null;
+                while (true) {
+                    if (failure != null) {
+                        throw new IOException("保存上传文件失败：" + failure.getMessage(), failure);
+                    }
+                    if (!buffer.isEmpty()) {
+                        current = buffer.poll();
+                        currentPos = 0;
+                        return current.length;
+                    }
+                    if (spilled && position < written) {
+                        return written - position;
+                    }
+                    if (done) {
+                        return -1;
+                    }
+                    try {
+                        UploadTee.this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("等待上传数据时被中断");
+                    }
+                }
+            }
+        }
+
+        private int readFile(byte[] b, int off, int len) throws IOException {
+            if (fileReader == null) {
+                fileReader = new RandomAccessFile(file, "r");
+            }
+            fileReader.seek(position);
+            int n = fileReader.read(b, off, len);
+            if (n < 0) {
+                throw new IOException("存储文件长度小于已写入的字节数：" + filePath);
+            }
+            position += n;
+            fileBytesRead += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (UploadTee.this) {
+                readerClosed = true;
+                buffer.clear();
+                current = null;
+            }
+            if (fileReader != null) {
+                try {
+                    fileReader.close();
+                } finally {
+                    fileToolMetrics.recordStorageBytes("read", fileBytesRead);
+                    fileReader = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.filetool.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 虚拟线程工具类
+ * 虚拟线程API（Thread.ofVirtual）从JDK 21开始提供，项目按JDK 17编译，因此通过反射调用：
+ * 运行在JDK 21及以上时每个任务使用一个虚拟线程，否则退化为每个任务一个平台线程
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JVM是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建每个任务一个线程的线程池
+     * 支持虚拟线程时使用虚拟线程，否则使用按需创建的平台线程
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程池
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (isSupported()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, virtualThreadFactory(namePrefix));
+            } catch (ReflectiveOperationException e) {
+                log.warn("创建虚拟线程池失败，使用平台线程：{}", namePrefix, e);
+            }
+        } else {
+            log.warn("当前JVM（{}）不支持虚拟线程，{}使用平台线程", System.getProperty("java.version"), namePrefix);
+        }
+        return Executors.newCachedThreadPool(platformThreadFactory(namePrefix));
+    }
+
+    /**
+     * Thread.ofVirtual().name(namePrefix, 0).factory()
+     */
+    private static ThreadFactory virtualThreadFactory(String namePrefix) throws ReflectiveOperationException {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Method name = builderClass.getMethod("name", String.class, long.class);
+        builder = name.invoke(builder, namePrefix, 0L);
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+
+    private static ThreadFactory platformThreadFactory(String namePrefix) {
+        AtomicLong counter = new AtomicLong(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.getAndIncrement());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+}
@@ -19,11 +19,29 @@ CREATE TABLE IF NOT EXISTS file_task (
     success_rows INT DEFAULT 0 COMMENT '成功行数',
     failed_rows INT DEFAULT 0 COMMENT '失败行数',
     error_message TEXT COMMENT '错误信息',
-    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    INDEX idx_status (status),
-    INDEX idx_task_type (task_type),
-    INDEX idx_created_at (created_at)
+    sheets VARCHAR(255) COMMENT '要导入的Sheet(仅Excel上传)：为空只导入第一个Sheet，*表示全部，或逗号分隔的序号/名称',
+    sheet_ordered BIT(1) COMMENT '多Sheet导入时是否按Sheet顺序回调',
+    row_access_window INT COMMENT 'XLSX导出的行访问窗口，为空使用全局配置',
+    shared_strings BIT(1) COMMENT 'XLSX导出是否使用共享字符串表，为空使用全局配置',
+    compress_temp_files BIT(1) COMMENT 'XLSX导出是否压缩临时文件，为空使用全局配置',
+    batch_size INT COMMENT '回调/拉取的初始批次行数，为空使用全局配置',
+    batch_max_bytes BIGINT COMMENT '每批的字节预算，为空使用全局配置',
+    batch_target_latency_ms BIGINT COMMENT '每批请求的目标延迟(毫秒)，为空使用全局配置',
+    batch_adaptive BIT(1) COMMENT '是否按字节和延迟自动调整批次大小，为空使用全局配置',
+    priority INT COMMENT '调度优先级，越大越先执行，为空为0',
+    estimated_rows BIGINT COMMENT '预计行数，用于划分调度通道',
+    shard_count INT COMMENT '分片数(仅分片处理的上传任务)，为空或0表示不分片',
+    completed_shards INT COMMENT '已结束的分片数',
+    cache_key VARCHAR(64) COMMENT '导出缓存键(取数地址、参数和字段映射的摘要)，为空表示不使用缓存',
+    cache_ttl_seconds BIGINT COMMENT '可接受的缓存时长(秒)，为空使用全局配置',
+    cache_time DATETIME COMMENT '导出文件的生成时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_file_task_cache_key (cache_key),
+    INDEX idx_file_task_create_time (create_time, id),
+    INDEX idx_file_task_status_create_time (status, create_time, id),
+    INDEX idx_file_task_type_create_time (task_type, create_time, id),
+    INDEX idx_file_task_name (task_name)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件任务表';
 
 -- 文件处理记录表
@@ -41,6 +59,32 @@ CREATE TABLE file_process_record (
     INDEX idx_status (status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件处理记录表'; 
 
+-- 文件任务分片表（大文件上传拆分的子任务）
+CREATE TABLE IF NOT EXISTS file_task_shard (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '分片ID',
+    task_id BIGINT NOT NULL COMMENT '任务ID',
+    shard_index INT NOT NULL COMMENT '分片序号',
+    sheet_no INT COMMENT 'Sheet序号(仅Excel)',
+    sheet_name VARCHAR(255) COMMENT 'Sheet名称(仅按Sheet拆分的Excel)',
+    start_offset BIGINT COMMENT '起始字节偏移(仅CSV，含)',
+    end_offset BIGINT COMMENT '结束字节偏移(仅CSV，不含)，为空表示到文件末尾',
+    start_row INT COMMENT '起始行号',
+    end_row INT COMMENT '结束行号(仅按行范围拆分的Excel，不含)，为空表示到Sheet末尾',
+    status VARCHAR(20) NOT NULL COMMENT '分片状态：PENDING/PROCESSING/COMPLETED/FAILED',
+    owner VARCHAR(255) COMMENT '认领节点',
+    processed_rows INT DEFAULT 0 COMMENT '已处理行数',
+    success_rows INT DEFAULT 0 COMMENT '成功行数',
+    failed_rows INT DEFAULT 0 COMMENT '失败行数',
+    error_message VARCHAR(1000) COMMENT '错误信息',
+    row_errors TEXT COMMENT '行级错误明细(JSON格式)',
+    claim_time DATETIME COMMENT '认领时间',
+    heartbeat_time DATETIME COMMENT '最近心跳时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_file_task_shard_task (task_id),
+    INDEX idx_file_task_shard_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件任务分片表';
+
 -- 系统配置表
 CREATE TABLE IF NOT EXISTS system_config (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '配置ID',
@@ -61,7 +105,8 @@ INSERT INTO system_config (config_key, config_value, description) VALUES
 ('file.storage.minio.endpoint', 'http://localhost:9000', 'MinIO服务地址'),
 ('file.storage.minio.access-key', 'minioadmin', 'MinIO访问密钥'),
 ('file.storage.minio.secret-key', 'minioadmin', 'MinIO密钥'),
-('file.storage.minio.bucket', 'file-tool', 'MinIO存储桶名称');
+('file.storage.minio.bucket', 'file-tool', 'MinIO存储桶名称'),
+('callback.host-quotas', '{"default": {"permitsPerSecond": 0, "burst": 10, "maxInFlight": 0}}', '回调主机配额(JSON)：按主机的每秒请求数、突发数和最大进行中请求数');
 
 -- 创建测试数据库
 CREATE DATABASE IF NOT EXISTS file_tool_test DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
@@ -71,6 +116,7 @@ USE file_tool_test;
 -- 复制表结构到测试数据库
 CREATE TABLE IF NOT EXISTS file_task LIKE file_tool.file_task;
 CREATE TABLE IF NOT EXISTS file_process_record LIKE file_tool.file_process_record;
+CREATE TABLE IF NOT EXISTS file_task_shard LIKE file_tool.file_task_shard;
 CREATE TABLE IF NOT EXISTS system_config LIKE file_tool.system_config;
 
 -- 复制基础配置数据到测试数据库
@@ -0,0 +1,75 @@
+package com.example.filetool.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final long MAX_BYTES = 1_000_000;
+
+    private static final long TARGET_LATENCY_MS = 2000;
+
+    @Test
+    void testHalvesOnTimeoutOrFailure() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 5000, MAX_BYTES, TARGET_LATENCY_MS, true);
+
+        sizer.record(1000, 0, TARGET_LATENCY_MS + 1, true);
+        assertEquals(500, sizer.nextSize());
+        sizer.record(500, 0, 100, false);
+        assertEquals(250, sizer.nextSize());
+
+        // 连续失败不低于最小批次
+        for (int i = 0; i < 20; i++) {
+            sizer.record(sizer.nextSize(), 0, 100, false);
+        }
+        assertEquals(10, sizer.nextSize());
+    }
+
+    @Test
+    void testGrowsAdditivelyOnlyOnFullBatches() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 1500, MAX_BYTES, TARGET_LATENCY_MS, true);
+
+        sizer.record(1000, 0, 100, true);
+        assertEquals(1100, sizer.nextSize());
+
+        // 最后一批等不满，即使很快也不增大
+        sizer.record(300, 0, 100, true);
+        assertEquals(1100, sizer.nextSize());
+
+        // 步长为初始大小的1/10，不超过最大批次
+        for (int i = 0; i < 10; i++) {
+            sizer.record(sizer.nextSize(), 0, 100, true);
+        }
+        assertEquals(1500, sizer.nextSize());
+    }
+
+    @Test
+    void testByteBudgetLimitsWideRows() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 5000, MAX_BYTES, TARGET_LATENCY_MS, true);
+
+        // 每行约10KB，1MB预算下每批不超过100行
+        sizer.record(100, 100 * 10_000L, 100, true);
+        assertEquals(100, sizer.nextSize());
+        assertEquals(10_000, sizer.getBytesPerRow(), 0.001);
+
+        // 按字节预算填满的批次增大时不超过字节预算
+        sizer.record(100, 100 * 10_000L, 100, true);
+        assertEquals(100, sizer.nextSize());
+
+        // 超时时从实际生效的批次大小减半，而不是从不受字节预算约束的行数减半
+        sizer.record(100, 100 * 10_000L, TARGET_LATENCY_MS + 1, true);
+        assertEquals(50, sizer.getCurrentSize());
+        assertEquals(50, sizer.nextSize());
+    }
+
+    @Test
+    void testFixedSizeWhenNotAdaptive() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 5000, MAX_BYTES, TARGET_LATENCY_MS, false);
+
+        sizer.record(1000, 1000 * 10_000L, TARGET_LATENCY_MS + 1, false);
+        sizer.record(1000, 1000 * 10_000L, 100, true);
+
+        assertEquals(1000, sizer.nextSize());
+    }
+}
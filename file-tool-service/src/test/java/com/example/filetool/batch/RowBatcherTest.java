@@ -0,0 +1,68 @@
+package com.example.filetool.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowBatcherTest {
+
+    @Test
+    void testMergesSmallBatchesUpToBatchSize() {
+        RowBatcher batcher = new RowBatcher(new AdaptiveBatchSizer(100, 10, 1000, 100_000, 2000, true));
+        List<Map<String, Object>> rows = rows(250, 1);
+
+        List<List<Map<String, Object>>> batches = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += 30) {
+            batches.addAll(batcher.add(rows.subList(from, Math.min(rows.size(), from + 30))));
+        }
+        List<Map<String, Object>> rest = batcher.flush();
+
+        assertEquals(2, batches.size());
+        batches.forEach(batch -> assertEquals(100, batch.size()));
+        assertEquals(50, rest.size());
+        assertEquals(rows, concat(batches, rest));
+        assertTrue(batcher.flush().isEmpty());
+    }
+
+    @Test
+    void testSplitsWideRowsByByteBudget() {
+        // 每行估算约10000字节，100KB预算下每批10行
+        RowBatcher batcher = new RowBatcher(new AdaptiveBatchSizer(100, 5, 1000, 100_000, 2000, true));
+        List<Map<String, Object>> rows = rows(35, 9980);
+
+        List<List<Map<String, Object>>> batches = batcher.add(rows);
+        List<Map<String, Object>> rest = batcher.flush();
+
+        assertEquals(3, batches.size());
+        batches.forEach(batch -> assertEquals(10, batch.size()));
+        assertEquals(5, rest.size());
+        assertEquals(rows, concat(batches, rest));
+    }
+
+    private static List<Map<String, Object>> rows(int count, int valueLength) {
+        String value = String.join("", Collections.nCopies(valueLength, "x"));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("c", value);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<Map<String, Object>> concat(List<List<Map<String, Object>>> batches,
+                                                    List<Map<String, Object>> rest) {
+        List<Map<String, Object>> all = new ArrayList<>();
+        batches.forEach(all::addAll);
+        all.addAll(rest);
+        return all;
+    }
+}
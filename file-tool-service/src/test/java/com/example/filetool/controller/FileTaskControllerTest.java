@@ -1,21 +1,37 @@
 package com.example.filetool.controller;
 
 import com.example.filetool.entity.FileTask;
+import com.example.filetool.progress.TaskProgress;
+import com.example.filetool.scheduler.TaskDispatcher;
 import com.example.filetool.service.FileTaskService;
+import com.example.filetool.service.TaskPage;
+import com.example.filetool.service.TaskSubmission;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,8 +45,23 @@ public class FileTaskControllerTest {
     @MockBean
     private FileTaskService fileTaskService;
 
+    @MockBean
+    private TaskDispatcher taskDispatcher;
+
     private FileTask mockTask;
 
+    /**
+     * 流式导出线程池，ThreadPoolConfig不在WebMvcTest的范围内
+     */
+    @TestConfiguration
+    static class ExportStreamConfig {
+
+        @Bean("exportStreamExecutor")
+        AsyncTaskExecutor exportStreamExecutor() {
+            return new SimpleAsyncTaskExecutor("export-stream-");
+        }
+    }
+
     @BeforeEach
     void setUp() {
         // 设置模拟任务
@@ -53,8 +84,9 @@ public class FileTaskControllerTest {
             "test data".getBytes()
         );
 
-        when(fileTaskService.createUploadTask(any(), any(), any(), any(), any(), any()))
+        when(fileTaskService.createUploadTask(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
             .thenReturn(mockTask);
+        when(fileTaskService.getTaskById(1L)).thenReturn(mockTask);
 
         // 执行测试
         mockMvc.perform(multipart("/api/upload")
@@ -68,9 +100,35 @@ public class FileTaskControllerTest {
                 .andExpect(jsonPath("$.message").value("文件上传任务已创建"));
     }
 
+    @Test
+    void testUploadFileWithSheets() throws Exception {
+        // 准备测试数据
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.xlsx",
+            MediaType.MULTIPART_FORM_DATA_VALUE,
+            "test data".getBytes()
+        );
+
+        when(fileTaskService.createUploadTask(any(), any(), any(), any(), any(), any(), eq("*"), eq(false), any(), any()))
+            .thenReturn(mockTask);
+        when(fileTaskService.getTaskById(1L)).thenReturn(mockTask);
+
+        // 执行测试
+        mockMvc.perform(multipart("/api/upload")
+                .file(file)
+                .param("taskName", "Test Upload")
+                .param("fieldMapping", "{}")
+                .param("sheets", "*")
+                .param("sheetOrdered", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.message").value("文件上传任务已创建"));
+    }
+
     @Test
     void testCreateExportTask() throws Exception {
-        when(fileTaskService.createDownloadTask(any(), any(), any(), any()))
+        when(fileTaskService.createDownloadTask(any(), any(), any(), any(), any(), any(), any(), any()))
             .thenReturn(mockTask);
 
         // 执行测试
@@ -84,6 +142,138 @@ public class FileTaskControllerTest {
                 .andExpect(jsonPath("$.message").value("文件导出任务已创建"));
     }
 
+    @Test
+    void testCreateExportTaskWithWriteOptions() throws Exception {
+        when(fileTaskService.createDownloadTask(any(), any(), any(), any(), argThat(options ->
+                options.getRowAccessWindow() == 500
+                        && Boolean.TRUE.equals(options.getSharedStrings())
+                        && options.getCompressTempFiles() == null), any(), any(), any()))
+            .thenReturn(mockTask);
+
+        // 执行测试
+        mockMvc.perform(post("/api/export")
+                .param("taskName", "Test Export")
+                .param("fieldMapping", "{}")
+                .param("rowAccessWindow", "500")
+                .param("sharedStrings", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.message").value("文件导出任务已创建"));
+    }
+
+    @Test
+    void testCreateExportTaskWithBatchOptions() throws Exception {
+        when(fileTaskService.createDownloadTask(any(), any(), any(), any(), any(), argThat(options ->
+                options.getBatchSize() == 200
+                        && options.getMaxBytes() == 65536L
+                        && Boolean.FALSE.equals(options.getAdaptive())
+                        && options.getTargetLatencyMs() == null), any(), any()))
+            .thenReturn(mockTask);
+
+        // 执行测试
+        mockMvc.perform(post("/api/export")
+                .param("taskName", "Test Export")
+                .param("fieldMapping", "{}")
+                .param("batchSize", "200")
+                .param("batchMaxBytes", "65536")
+                .param("batchAdaptive", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.message").value("文件导出任务已创建"));
+    }
+
+    @Test
+    void testCreateExportTaskWithSchedulingOptions() throws Exception {
+        when(fileTaskService.createDownloadTask(any(), any(), any(), any(), any(), any(), argThat(options ->
+                options.getPriority() == 5 && options.getEstimatedRows() == 200L), any()))
+            .thenReturn(mockTask);
+
+        // 执行测试
+        mockMvc.perform(post("/api/export")
+                .param("taskName", "Test Export")
+                .param("fieldMapping", "{}")
+                .param("priority", "5")
+                .param("estimatedRows", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.message").value("文件导出任务已创建"));
+
+        verify(taskDispatcher).submit(mockTask);
+    }
+
+    @Test
+    void testCreateExportTaskWithCacheOptions() throws Exception {
+        when(fileTaskService.createDownloadTask(any(), any(), any(), any(), any(), any(), any(), argThat(options ->
+                Boolean.TRUE.equals(options.getEnabled()) && options.getTtlSeconds() == 600L)))
+            .thenReturn(mockTask);
+
+        // 执行测试
+        mockMvc.perform(post("/api/export")
+                .param("taskName", "Test Export")
+                .param("fieldMapping", "{}")
+                .param("useCache", "true")
+                .param("cacheTtlSeconds", "600"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.message").value("文件导出任务已创建"));
+    }
+
+    @Test
+    void testCreateExportTasks() throws Exception {
+        mockTask.setStatus(FileTask.TaskStatus.PENDING);
+        when(fileTaskService.createDownloadTasks(argThat(specs -> specs.size() == 2
+                && "Export A".equals(specs.get(0).getTaskName())
+                && specs.get(0).getSchedulingOptions().getPriority() == 5)))
+            .thenReturn(Arrays.asList(TaskSubmission.accepted(mockTask), TaskSubmission.rejected("任务名称不能为空")));
+
+        // 执行测试
+        mockMvc.perform(post("/api/export/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"taskName\":\"Export A\",\"fieldMapping\":\"{}\",\"schedulingOptions\":{\"priority\":5}},"
+                        + "{\"fieldMapping\":\"{}\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.tasks[0].taskId").value(1))
+                .andExpect(jsonPath("$.tasks[0].status").value("PENDING"))
+                .andExpect(jsonPath("$.tasks[1].index").value(1))
+                .andExpect(jsonPath("$.tasks[1].error").value("任务名称不能为空"));
+
+        verify(taskDispatcher).submitAll(Collections.singletonList(mockTask));
+    }
+
+    @Test
+    void testStreamExport() throws Exception {
+        when(fileTaskService.streamExport(eq("csv"), eq("{}"), eq("http://example.com/data"), any(), any(), any()))
+            .thenReturn(outputStream -> outputStream.write("A\n1\n".getBytes()));
+
+        // 执行测试
+        MvcResult mvcResult = mockMvc.perform(post("/api/export/stream")
+                .param("fileName", "data.csv")
+                .param("fieldMapping", "{}")
+                .param("callbackUrl", "http://example.com/data"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"data.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("A\n1\n"));
+    }
+
+    @Test
+    void testInvalidateExportCache() throws Exception {
+        when(fileTaskService.invalidateExportCache("{}", "http://example.com/data", null)).thenReturn(2);
+
+        // 执行测试
+        mockMvc.perform(delete("/api/export/cache")
+                .param("fieldMapping", "{}")
+                .param("callbackUrl", "http://example.com/data"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invalidated").value(2));
+    }
+
     @Test
     void testGetTaskStatus() throws Exception {
         when(fileTaskService.getTaskById(anyLong()))
@@ -100,6 +290,76 @@ public class FileTaskControllerTest {
                 .andExpect(jsonPath("$.failedRows").value(0));
     }
 
+    @Test
+    void testGetRunningTaskStatus() throws Exception {
+        TaskProgress progress = new TaskProgress(1L, "Test Task");
+        progress.setStage(TaskProgress.Stage.PARSING);
+        progress.addBatch(1000);
+        progress.addSuccessRows(1000);
+        progress.addBytes(2048);
+
+        when(fileTaskService.getTaskProgress(anyLong()))
+            .thenReturn(progress);
+
+        // 执行测试
+        mockMvc.perform(get("/api/task/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskId").value(1))
+                .andExpect(jsonPath("$.status").value("PROCESSING"))
+                .andExpect(jsonPath("$.stage").value("PARSING"))
+                .andExpect(jsonPath("$.processedRows").value(1000))
+                .andExpect(jsonPath("$.successRows").value(1000))
+                .andExpect(jsonPath("$.failedRows").value(0))
+                .andExpect(jsonPath("$.processedBytes").value(2048))
+                .andExpect(jsonPath("$.batches").value(1));
+    }
+
+    @Test
+    void testListTasks() throws Exception {
+        when(fileTaskService.listTasks(argThat(query ->
+                query.getStatus() == FileTask.TaskStatus.PROCESSING
+                        && FileTask.TaskType.UPLOAD == query.getTaskType()
+                        && "Test".equals(query.getNamePrefix())
+                        && "1700000000000_5".equals(query.getCursor())
+                        && query.getLimit() == 1)))
+            .thenReturn(new TaskPage(Collections.singletonList(mockTask), "1690000000000_1"));
+
+        // 执行测试
+        mockMvc.perform(get("/api/tasks")
+                .param("status", "PROCESSING")
+                .param("taskType", "UPLOAD")
+                .param("namePrefix", "Test")
+                .param("cursor", "1700000000000_5")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].taskId").value(1))
+                .andExpect(jsonPath("$.tasks[0].taskName").value("Test Task"))
+                .andExpect(jsonPath("$.tasks[0].status").value("PROCESSING"))
+                .andExpect(jsonPath("$.nextCursor").value("1690000000000_1"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void testSubscribeTaskProgress() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(fileTaskService.subscribeTaskProgress(anyLong()))
+            .thenReturn(emitter);
+
+        // 执行测试
+        MvcResult mvcResult = mockMvc.perform(get("/api/task/1/events")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        emitter.send(SseEmitter.event().name("status").data("{\"status\":\"COMPLETED\"}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:status")));
+    }
+
     @Test
     void testDownloadFile() throws Exception {
         // 设置任务状态为已完成
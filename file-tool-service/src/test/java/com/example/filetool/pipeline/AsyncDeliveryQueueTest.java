@@ -0,0 +1,63 @@
+package com.example.filetool.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class AsyncDeliveryQueueTest {
+
+    @Test
+    void testBatchesAreSentOneAfterAnother() {
+        List<CompletableFuture<Void>> sends = new CopyOnWriteArrayList<>();
+        List<Integer> started = new CopyOnWriteArrayList<>();
+        AsyncDeliveryQueue<Integer> queue = new AsyncDeliveryQueue<>(8, batch -> {
+            started.add(batch);
+            CompletableFuture<Void> sent = new CompletableFuture<>();
+            sends.add(sent);
+            return sent;
+        });
+
+        queue.submit(1);
+        queue.submit(2);
+        queue.submit(3);
+        // 第一批未结束时后面的批次不发出，submit也不等待
+        assertEquals(List.of(1), started);
+
+        sends.get(0).complete(null);
+        assertEquals(List.of(1, 2), started);
+        // 发送失败不影响后续批次
+        sends.get(1).completeExceptionally(new RuntimeException("回调失败"));
+        assertEquals(List.of(1, 2, 3), started);
+        sends.get(2).complete(null);
+        queue.awaitAll();
+    }
+
+    @Test
+    void testSubmitWaitsWhenTooManyBatchesPending() throws Exception {
+        CompletableFuture<Void> blocked = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        AsyncDeliveryQueue<Integer> queue = new AsyncDeliveryQueue<>(2, batch -> {
+            sent.incrementAndGet();
+            return batch == 0 ? blocked : CompletableFuture.completedFuture(null);
+        });
+
+        queue.submit(0);
+        queue.submit(1);
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> queue.submit(2));
+        Thread.sleep(200);
+        // 两个批次未结束，第三次提交等待
+        assertFalse(third.isDone());
+
+        blocked.complete(null);
+        third.get(5, TimeUnit.SECONDS);
+        queue.awaitAll();
+        assertEquals(3, sent.get());
+    }
+}
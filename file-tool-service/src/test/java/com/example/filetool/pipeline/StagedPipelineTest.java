@@ -0,0 +1,205 @@
+package com.example.filetool.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class StagedPipelineTest {
+
+    private static final int BATCHES = 200;
+
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+
+    /**
+     * 正在执行的管道工作线程数
+     */
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+
+    private StagedPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new StagedPipeline();
+        ReflectionTestUtils.setField(pipeline, "pipelineExecutor", (Executor) task -> {
+            runningWorkers.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    runningWorkers.decrementAndGet();
+                }
+            });
+        });
+        ReflectionTestUtils.setField(pipeline, "defaultTransformParallelism", 4);
+        ReflectionTestUtils.setField(pipeline, "defaultDeliverParallelism", 1);
+        ReflectionTestUtils.setField(pipeline, "defaultQueueCapacity", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testOrderedDeliveryWithSingleDeliverer() {
+        List<Integer> delivered = new ArrayList<>();
+
+        // 转换耗时随机，多个转换线程的完成顺序与读取顺序不同
+        int rows = pipeline.run(sink -> {
+            for (int i = 0; i < BATCHES; i++) {
+                sink.accept(i);
+            }
+            return BATCHES;
+        }, (Integer input) -> {
+            sleep(ThreadLocalRandom.current().nextInt(3));
+            return input * 10;
+        }, delivered::add);
+
+        assertEquals(BATCHES, rows);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < BATCHES; i++) {
+            expected.add(i * 10);
+        }
+        assertEquals(expected, delivered);
+        awaitTrue(() -> runningWorkers.get() == 0);
+    }
+
+    @Test
+    void testSourceBlocksWhenQueueIsFull() throws Exception {
+        int queueCapacity = 2;
+        CountDownLatch releaseDeliver = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+        List<Integer> delivered = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> pipeline.run(sink -> {
+            for (int i = 0; i < 20; i++) {
+                sink.accept(i);
+                submitted.incrementAndGet();
+            }
+            return 20;
+        }, (Integer input) -> input, 1, input -> {
+            await(releaseDeliver);
+            delivered.add(input);
+        }, 1, queueCapacity));
+
+        // 交付线程卡在第一个批次上，交付队列再放满queueCapacity个批次后读取线程阻塞
+        awaitTrue(() -> submitted.get() == queueCapacity + 1);
+        Thread.sleep(300);
+        assertEquals(queueCapacity + 1, submitted.get());
+        assertFalse(result.isDone());
+
+        releaseDeliver.countDown();
+        assertEquals(20, result.get(5, TimeUnit.SECONDS));
+        assertEquals(20, delivered.size());
+        awaitTrue(() -> runningWorkers.get() == 0);
+    }
+
+    @Test
+    void testTransformFailureReachesCaller() {
+        IllegalStateException error = new IllegalStateException("转换失败");
+        AtomicInteger submitted = new AtomicInteger();
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> pipeline.run(sink -> {
+            for (int i = 0; i < 10000; i++) {
+                sink.accept(i);
+                submitted.incrementAndGet();
+            }
+            return 10000;
+        }, (Integer input) -> {
+            if (input == 50) {
+                throw error;
+            }
+            return input;
+        }, input -> {
+        }));
+
+        assertSame(error, thrown);
+        // 失败后读取线程尽快停止，不会读完整个输入
+        assertTrue(submitted.get() < 10000);
+        awaitTrue(() -> runningWorkers.get() == 0);
+    }
+
+    @Test
+    void testDeliverFailureReachesCaller() {
+        IllegalStateException error = new IllegalStateException("交付失败");
+        List<Integer> delivered = new ArrayList<>();
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> pipeline.<Integer>run(sink -> {
+            for (int i = 0; i < 10000; i++) {
+                sink.accept(i);
+            }
+            return 10000;
+        }, input -> {
+            if (input == 20) {
+                throw error;
+            }
+            delivered.add(input);
+        }, true));
+
+        assertSame(error, thrown);
+        assertEquals(20, delivered.size());
+        awaitTrue(() -> runningWorkers.get() == 0);
+    }
+
+    @Test
+    void testSourceFailureStopsWorkers() {
+        List<Integer> delivered = new CopyOnWriteArrayList<>();
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> pipeline.run(sink -> {
+            sink.accept(1);
+            throw new IOException("读取失败");
+        }, (Integer input) -> input, delivered::add));
+
+        assertEquals("读取失败", thrown.getMessage());
+        assertTrue(thrown.getCause() instanceof IOException);
+        awaitTrue(() -> runningWorkers.get() == 0);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            sleep(20);
+        }
+    }
+}
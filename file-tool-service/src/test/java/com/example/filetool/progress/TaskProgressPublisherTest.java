@@ -0,0 +1,248 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.repository.FileTaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskProgressPublisherTest {
+
+    private static final Long TASK_ID = 1L;
+
+    private final Deque<SseEmitter> nextEmitters = new ArrayDeque<>();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private TaskProgressPublisher publisher;
+
+    private TaskProgress progress;
+
+    private FileTaskRepository fileTaskRepository;
+
+    @BeforeEach
+    void setUp() {
+        progress = new TaskProgress(TASK_ID, "orders.csv");
+        TaskProgressRegistry registry = mock(TaskProgressRegistry.class);
+        when(registry.get(TASK_ID)).thenReturn(progress);
+
+        publisher = new TaskProgressPublisher() {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMs) {
+                return nextEmitters.poll();
+            }
+        };
+        fileTaskRepository = mock(FileTaskRepository.class);
+        ReflectionTestUtils.setField(publisher, "taskProgressRegistry", registry);
+        ReflectionTestUtils.setField(publisher, "fileTaskRepository", fileTaskRepository);
+        ReflectionTestUtils.setField(publisher, "statusCheckTicks", 2);
+        ReflectionTestUtils.setField(publisher, "pushIntervalMs", 50L);
+        ReflectionTestUtils.setField(publisher, "sseTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(publisher, "sendTimeoutMs", 200L);
+        ReflectionTestUtils.setField(publisher, "sendPoolSize", 4);
+        publisher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        publisher.destroy();
+    }
+
+    @Test
+    void testStalledSubscriberDoesNotBlockOthers() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(release);
+        RecordingEmitter first = new RecordingEmitter(null);
+        RecordingEmitter second = new RecordingEmitter(null);
+        nextEmitters.add(stalled);
+        nextEmitters.add(first);
+        nextEmitters.add(second);
+
+        publisher.subscribe(TASK_ID, progress.snapshot(), false);
+        publisher.subscribe(TASK_ID, progress.snapshot(), false);
+        publisher.subscribe(TASK_ID, progress.snapshot(), false);
+        assertTrue(stalled.sendStarted.await(5, TimeUnit.SECONDS));
+
+        // 卡住的订阅者一直阻塞在第一次发送上，其他订阅者照常收到定时推送
+        for (int i = 0; i < 5; i++) {
+            progress.addBatch(100);
+            Thread.sleep(60);
+        }
+        awaitTrue(() -> first.count(TaskProgressPublisher.EVENT_PROGRESS) >= 3
+                && second.count(TaskProgressPublisher.EVENT_PROGRESS) >= 3);
+
+        // 发送超时后卡住的订阅者被移除
+        awaitTrue(() -> stalled.error != null);
+        assertTrue(stalled.error instanceof IOException);
+        assertEquals(1, stalled.events.size());
+
+        progress.finish(FileTask.TaskStatus.COMPLETED, null);
+        publisher.publishTerminal(progress);
+        awaitTrue(() -> first.completed && second.completed);
+        assertEquals(1, first.count(TaskProgressPublisher.EVENT_STATUS));
+        assertEquals(1, second.count(TaskProgressPublisher.EVENT_STATUS));
+        assertEquals(TaskProgressPublisher.EVENT_STATUS, first.events.get(first.events.size() - 1));
+
+        // 卡住的发送返回后不再向已移除的订阅者发送任何事件
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(1, stalled.events.size());
+        assertFalse(stalled.completed);
+    }
+
+    @Test
+    void testTerminalStatusReplacesPendingProgress() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(blocked);
+        nextEmitters.add(slow);
+
+        publisher.subscribe(TASK_ID, progress.snapshot(), false);
+        assertTrue(slow.sendStarted.await(5, TimeUnit.SECONDS));
+        progress.addBatch(100);
+        Thread.sleep(120);
+
+        // 第一次发送未完成时到达的进度被最终状态覆盖，客户端恢复后只收到最终状态
+        progress.finish(FileTask.TaskStatus.FAILED, "解析失败");
+        publisher.publishTerminal(progress);
+        blocked.countDown();
+        awaitTrue(() -> slow.completed);
+        assertEquals(Arrays.asList(TaskProgressPublisher.EVENT_PROGRESS, TaskProgressPublisher.EVENT_STATUS),
+                slow.events);
+    }
+
+    @Test
+    void testTaskWithoutLocalProgressGetsTerminalStatusFromDatabase() throws Exception {
+        // 任务在其他节点运行，本节点没有进度，只能从数据库得知任务结束
+        Long remoteTaskId = 2L;
+        FileTask task = storedTask(remoteTaskId, FileTask.TaskStatus.PROCESSING);
+        when(fileTaskRepository.findById(remoteTaskId)).thenReturn(Optional.of(task));
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        nextEmitters.add(emitter);
+
+        publisher.subscribe(remoteTaskId, TaskProgress.snapshotOf(task), false);
+        Thread.sleep(150);
+        assertFalse(emitter.completed);
+
+        task.setStatus(FileTask.TaskStatus.COMPLETED);
+        awaitTrue(() -> emitter.completed);
+        assertEquals(Arrays.asList(TaskProgressPublisher.EVENT_PROGRESS, TaskProgressPublisher.EVENT_STATUS),
+                emitter.events);
+    }
+
+    @Test
+    void testTaskFinishedBeforeSubscriptionRegistered() throws Exception {
+        // 读取初始快照时任务还在运行，登记订阅前已结束，结束通知已经错过
+        Long taskId = 3L;
+        FileTask task = storedTask(taskId, FileTask.TaskStatus.PROCESSING);
+        Map<String, Object> snapshot = TaskProgress.snapshotOf(task);
+        task.setStatus(FileTask.TaskStatus.FAILED);
+        when(fileTaskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        ReflectionTestUtils.setField(publisher, "statusCheckTicks", Integer.MAX_VALUE);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        nextEmitters.add(emitter);
+
+        publisher.subscribe(taskId, snapshot, false);
+
+        awaitTrue(() -> emitter.completed);
+        assertEquals(TaskProgressPublisher.EVENT_STATUS, emitter.events.get(emitter.events.size() - 1));
+    }
+
+    private static FileTask storedTask(Long id, FileTask.TaskStatus status) {
+        FileTask task = new FileTask();
+        task.setId(id);
+        task.setTaskName("orders.csv");
+        task.setStatus(status);
+        task.setProcessedRows(0);
+        task.setSuccessRows(0);
+        task.setFailedRows(0);
+        return task;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * 记录发送事件的SSE连接，blockUntil不为空时第一次发送阻塞到其计数归零，模拟接收缓慢的客户端
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch blockUntil;
+
+        private final CountDownLatch sendStarted = new CountDownLatch(1);
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        RecordingEmitter(CountDownLatch blockUntil) {
+            this.blockUntil = blockUntil;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> {
+                if (part.getData() instanceof String) {
+                    text.append(part.getData());
+                }
+            });
+            String event = text.indexOf("event:" + TaskProgressPublisher.EVENT_STATUS) >= 0
+                    ? TaskProgressPublisher.EVENT_STATUS : TaskProgressPublisher.EVENT_PROGRESS;
+            events.add(event);
+            if (blockUntil != null && sendStarted.getCount() > 0) {
+                sendStarted.countDown();
+                try {
+                    blockUntil.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            sendStarted.countDown();
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            error = ex;
+        }
+
+        long count(String event) {
+            return events.stream().filter(event::equals).count();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.filetool.progress;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.repository.FileTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TaskStateJournalTest {
+
+    private FileTaskRepository fileTaskRepository;
+
+    private TaskStateJournal journal;
+
+    /**
+     * 每次updateProgressAll收到的任务（调用时复制，之后的修改不影响断言）
+     */
+    private final List<List<FileTask>> flushed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        fileTaskRepository = mock(FileTaskRepository.class);
+        recordFlushes();
+
+        journal = new TaskStateJournal();
+        ReflectionTestUtils.setField(journal, "fileTaskRepository", fileTaskRepository);
+        ReflectionTestUtils.setField(journal, "fileToolMetrics", mock(FileToolMetrics.class));
+        ReflectionTestUtils.setField(journal, "enabled", true);
+    }
+
+    @Test
+    void testProgressIsCoalescedPerTask() {
+        journal.recordProgress(1L, 100, 100, 0);
+        journal.recordProgress(2L, 50, 49, 1);
+        journal.recordProgress(1L, 200, 198, 2);
+        journal.recordProgress(1L, 300, 297, 3);
+
+        journal.flush();
+
+        // 三个任务进度合并为一次批量写入，同一任务只写最新的行数
+        assertEquals(1, flushed.size());
+        List<FileTask> tasks = flushed.get(0);
+        assertEquals(2, tasks.size());
+        assertRows(tasks.get(0), 1L, 300, 297, 3);
+        assertRows(tasks.get(1), 2L, 50, 49, 1);
+
+        // 没有新进度时不访问数据库
+        journal.flush();
+        assertEquals(1, flushed.size());
+    }
+
+    @Test
+    void testFailedFlushIsRetriedWithoutOverwritingNewerProgress() {
+        journal.recordProgress(1L, 100, 100, 0);
+        journal.recordProgress(2L, 50, 50, 0);
+        doAnswer(invocation -> {
+            // 写入期间任务1又有了新进度
+            journal.recordProgress(1L, 150, 150, 0);
+            throw new IllegalStateException("数据库不可用");
+        }).when(fileTaskRepository).updateProgressAll(anyCollection());
+
+        journal.flush();
+
+        recordFlushes();
+        journal.flush();
+
+        // 失败的任务2重新写入；任务1保留写入期间的新进度，不被失败的旧进度覆盖
+        assertEquals(1, flushed.size());
+        assertRows(flushed.get(0).get(0), 1L, 150, 150, 0);
+        assertRows(flushed.get(0).get(1), 2L, 50, 50, 0);
+    }
+
+    @Test
+    void testDiscardDropsPendingProgress() {
+        journal.recordProgress(1L, 100, 100, 0);
+        journal.recordProgress(2L, 50, 50, 0);
+        journal.discard(1L);
+
+        journal.flush();
+
+        assertEquals(1, flushed.get(0).size());
+        assertRows(flushed.get(0).get(0), 2L, 50, 50, 0);
+    }
+
+    @Test
+    void testWritesDirectlyWhenDisabled() {
+        ReflectionTestUtils.setField(journal, "enabled", false);
+
+        journal.recordProgress(1L, 100, 99, 1);
+        journal.flush();
+
+        verify(fileTaskRepository, times(1)).updateProgress(1L, 100, 99, 1);
+        verify(fileTaskRepository, never()).updateProgressAll(anyCollection());
+    }
+
+    private void recordFlushes() {
+        doAnswer(invocation -> {
+            Collection<FileTask> tasks = invocation.getArgument(0);
+            List<FileTask> copy = new ArrayList<>(tasks);
+            copy.sort(Comparator.comparing(FileTask::getId));
+            flushed.add(copy);
+            return null;
+        }).when(fileTaskRepository).updateProgressAll(anyCollection());
+    }
+
+    private static void assertRows(FileTask task, Long id, int processed, int success, int failed) {
+        assertEquals(id, task.getId());
+        assertEquals(processed, task.getProcessedRows());
+        assertEquals(success, task.getSuccessRows());
+        assertEquals(failed, task.getFailedRows());
+    }
+}
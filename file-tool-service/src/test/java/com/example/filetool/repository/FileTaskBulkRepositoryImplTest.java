@@ -0,0 +1,112 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.progress.TaskStateJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 进度批量写入与任务最终结果的并发：在嵌入式H2上执行真实的UPDATE语句。
+ * updateProgressAll在独立事务中执行，测试方法不开启事务，每次写入都立即提交
+ */
+@DataJpaTest(properties = "file.task.progress.write-behind.enabled=true")
+@Import(TaskStateJournal.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FileTaskBulkRepositoryImplTest {
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    @Autowired
+    private TaskStateJournal taskStateJournal;
+
+    @MockBean
+    private FileToolMetrics fileToolMetrics;
+
+    @AfterEach
+    void tearDown() {
+        fileTaskRepository.deleteAll();
+    }
+
+    @Test
+    void testUpdateProgressAllOnlyUpdatesProcessingTasks() {
+        FileTask processing = saveTask(FileTask.TaskStatus.PROCESSING, 0);
+        FileTask completed = saveTask(FileTask.TaskStatus.COMPLETED, 500);
+
+        fileTaskRepository.updateProgressAll(Arrays.asList(
+                progress(processing.getId(), 120), progress(completed.getId(), 300)));
+
+        assertEquals(120, fileTaskRepository.findById(processing.getId()).get().getProcessedRows());
+        assertEquals(500, fileTaskRepository.findById(completed.getId()).get().getProcessedRows());
+    }
+
+    @Test
+    void testLateFlushDoesNotOverwriteFinishedTask() {
+        FileTask task = saveTask(FileTask.TaskStatus.PROCESSING, 0);
+        taskStateJournal.recordProgress(task.getId(), 800, 800, 0);
+
+        // 延迟写入之前任务已结束并写入最终结果，之后的刷新不能把行数改回处理中的值
+        FileTask finished = fileTaskRepository.findById(task.getId()).get();
+        finished.setStatus(FileTask.TaskStatus.COMPLETED);
+        finished.setProcessedRows(1000);
+        finished.setSuccessRows(990);
+        finished.setFailedRows(10);
+        fileTaskRepository.save(finished);
+
+        taskStateJournal.flush();
+
+        FileTask stored = fileTaskRepository.findById(task.getId()).get();
+        assertEquals(FileTask.TaskStatus.COMPLETED, stored.getStatus());
+        assertEquals(1000, stored.getProcessedRows());
+        assertEquals(990, stored.getSuccessRows());
+        assertEquals(10, stored.getFailedRows());
+    }
+
+    @Test
+    void testFlushWritesCoalescedProgressOfRunningTasks() {
+        FileTask first = saveTask(FileTask.TaskStatus.PROCESSING, 0);
+        FileTask second = saveTask(FileTask.TaskStatus.PROCESSING, 0);
+        taskStateJournal.recordProgress(first.getId(), 100, 100, 0);
+        taskStateJournal.recordProgress(first.getId(), 200, 195, 5);
+        taskStateJournal.recordProgress(second.getId(), 50, 50, 0);
+
+        taskStateJournal.flush();
+
+        FileTask storedFirst = fileTaskRepository.findById(first.getId()).get();
+        assertEquals(200, storedFirst.getProcessedRows());
+        assertEquals(195, storedFirst.getSuccessRows());
+        assertEquals(5, storedFirst.getFailedRows());
+        assertEquals(50, fileTaskRepository.findById(second.getId()).get().getProcessedRows());
+    }
+
+    private FileTask saveTask(FileTask.TaskStatus status, int processedRows) {
+        FileTask task = new FileTask();
+        task.setTaskName("orders.csv");
+        task.setTaskType(FileTask.TaskType.UPLOAD);
+        task.setStatus(status);
+        task.setProcessedRows(processedRows);
+        task.setSuccessRows(processedRows);
+        task.setFailedRows(0);
+        return fileTaskRepository.save(task);
+    }
+
+    private static FileTask progress(Long id, int processedRows) {
+        FileTask update = new FileTask();
+        update.setId(id);
+        update.setProcessedRows(processedRows);
+        update.setSuccessRows(processedRows);
+        update.setFailedRows(0);
+        return update;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.filetool.repository;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.entity.FileTaskShard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 分片的保存、认领和结束：在嵌入式H2上执行真实的条件UPDATE。
+ * 测试方法不开启事务，每次写入都立即提交，与多个节点各自提交的情况一致
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FileTaskShardRepositoryTest {
+
+    @Autowired
+    private FileTaskShardRepository fileTaskShardRepository;
+
+    @Autowired
+    private FileTaskRepository fileTaskRepository;
+
+    @AfterEach
+    void tearDown() {
+        fileTaskShardRepository.deleteAll();
+        fileTaskRepository.deleteAll();
+    }
+
+    @Test
+    void testSaveShardsRecordsShardCount() {
+        FileTask task = saveTask();
+
+        fileTaskShardRepository.saveShards(task.getId(), shards(task.getId(), 3));
+
+        FileTask stored = fileTaskRepository.findById(task.getId()).get();
+        assertEquals(3, stored.getShardCount());
+        assertEquals(0, stored.getCompletedShards());
+        assertEquals(3, fileTaskShardRepository.findByTaskIdOrderByShardIndexAsc(task.getId()).size());
+    }
+
+    @Test
+    void testSaveShardsRollsBackTogether() {
+        FileTask task = saveTask();
+        List<FileTaskShard> shards = shards(task.getId(), 3);
+        // 超过列长度，插入失败
+        shards.get(2).setErrorMessage(String.join("", Collections.nCopies(1001, "x")));
+
+        assertThrows(RuntimeException.class, () -> fileTaskShardRepository.saveShards(task.getId(), shards));
+
+        // 分片和分片数都没有写入
+        assertNull(fileTaskRepository.findById(task.getId()).get().getShardCount());
+        assertEquals(0, fileTaskShardRepository.findByTaskIdOrderByShardIndexAsc(task.getId()).size());
+    }
+
+    @Test
+    void testOnlyOneNodeClaimsShard() {
+        FileTask task = saveTask();
+        fileTaskShardRepository.saveShards(task.getId(), shards(task.getId(), 2));
+        FileTaskShard shard = fileTaskShardRepository.findByTaskIdOrderByShardIndexAsc(task.getId()).get(0);
+
+        assertEquals(1, fileTaskShardRepository.claim(shard.getId(), "node-a", new Date()));
+        assertEquals(0, fileTaskShardRepository.claim(shard.getId(), "node-b", new Date()));
+
+        FileTaskShard stored = fileTaskShardRepository.findById(shard.getId()).get();
+        assertEquals(FileTaskShard.ShardStatus.PROCESSING, stored.getStatus());
+        assertEquals("node-a", stored.getOwner());
+    }
+
+    @Test
+    void testFinishOnlyByCurrentOwner() {
+        FileTask task = saveTask();
+        fileTaskShardRepository.saveShards(task.getId(), shards(task.getId(), 2));
+        FileTaskShard shard = fileTaskShardRepository.findByTaskIdOrderByShardIndexAsc(task.getId()).get(0);
+        fileTaskShardRepository.claim(shard.getId(), "node-a", new Date(System.currentTimeMillis() - 60_000));
+
+        // 心跳超时后重新等待认领，由另一个节点认领；原节点随后结束时结果被丢弃
+        assertEquals(1, fileTaskShardRepository.requeueStale(new Date()));
+        assertEquals(1, fileTaskShardRepository.claim(shard.getId(), "node-b", new Date()));
+        assertEquals(0, finish(shard, "node-a", 100));
+
+        assertEquals(1, finish(shard, "node-b", 120));
+        // 已结束的分片不能再次结束
+        assertEquals(0, finish(shard, "node-b", 120));
+
+        FileTaskShard stored = fileTaskShardRepository.findById(shard.getId()).get();
+        assertEquals(FileTaskShard.ShardStatus.COMPLETED, stored.getStatus());
+        assertEquals(120, stored.getProcessedRows());
+    }
+
+    private int finish(FileTaskShard shard, String owner, int rows) {
+        return fileTaskShardRepository.finish(shard.getId(), owner, FileTaskShard.ShardStatus.COMPLETED,
+                rows, rows, 0, null, null);
+    }
+
+    private FileTask saveTask() {
+        FileTask task = new FileTask();
+        task.setTaskName("orders.csv");
+        task.setTaskType(FileTask.TaskType.UPLOAD);
+        task.setStatus(FileTask.TaskStatus.PROCESSING);
+        return fileTaskRepository.save(task);
+    }
+
+    private static List<FileTaskShard> shards(Long taskId, int count) {
+        List<FileTaskShard> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FileTaskShard shard = new FileTaskShard();
+            shard.setTaskId(taskId);
+            shard.setShardIndex(i);
+            shard.setStartOffset(i * 1024L);
+            shard.setEndOffset(i == count - 1 ? null : (i + 1) * 1024L);
+            shard.setStartRow(1 + i * 10);
+            shards.add(shard);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.filetool.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 200;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    private final CircuitBreaker breaker = new CircuitBreaker("erp.example.com", 3, OPEN_MILLIS);
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        breaker.acquire(0);
+        assertFalse(breaker.onFailure());
+        breaker.acquire(0);
+        assertFalse(breaker.onFailure());
+        // 成功使连续失败次数归零
+        breaker.acquire(0);
+        breaker.onSuccess();
+        assertFalse(failOnce());
+        assertFalse(failOnce());
+        assertTrue(failOnce());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 打开期间等待时间不足时失败
+        assertThrows(CircuitOpenException.class, () -> breaker.acquire(20));
+    }
+
+    @Test
+    void testHalfOpenAdmitsSingleTrial() throws Exception {
+        open();
+
+        // 打开时间结束后放行一个试探请求
+        long start = System.nanoTime();
+        breaker.acquire(5000);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= OPEN_MILLIS - 20);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 试探请求结束前其他请求等待，试探成功后放行并关闭
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> breaker.acquire(5000));
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        breaker.onSuccess();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testFailedTrialReopens() {
+        open();
+        breaker.acquire(5000);
+        assertTrue(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> breaker.acquire(20));
+    }
+
+    @Test
+    void testIgnoredTrialLetsNextRequestTry() throws Exception {
+        open();
+        breaker.acquire(5000);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> breaker.acquire(5000));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        // 试探请求的结果不反映主机可用性时，下一个请求成为试探请求
+        breaker.onIgnored();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void testAbandonedWaitReturnsImmediately() throws Exception {
+        CircuitBreaker slow = new CircuitBreaker("erp.example.com", 1, 60_000);
+        slow.acquire(0);
+        slow.onFailure();
+        CompletableFuture<Void> abandoned = new CompletableFuture<>();
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> slow.acquire(60_000, abandoned));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        // 放弃后立即返回，不等到熔断结束
+        abandoned.complete(null);
+        assertFalse(waiting.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAcquireAsyncCompletesWhenOpenTimeEnds() throws Exception {
+        open();
+
+        CompletableFuture<Void> admitted = breaker.acquireAsync(5000, timer);
+        assertFalse(admitted.isDone());
+        admitted.get(5, TimeUnit.SECONDS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 试探请求未结束，异步等待超过最长时间时失败
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> breaker.acquireAsync(150, timer).get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof CircuitOpenException);
+    }
+
+    private boolean failOnce() {
+        breaker.acquire(0);
+        return breaker.onFailure();
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            failOnce();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
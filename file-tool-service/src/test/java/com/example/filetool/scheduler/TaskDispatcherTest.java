@@ -0,0 +1,187 @@
+package com.example.filetool.scheduler;
+
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.service.FileTaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class TaskDispatcherTest {
+
+    private static final long SMALL_ROWS = 1_000;
+
+    private static final long LARGE_ROWS = 1_000_000;
+
+    private FileTaskService fileTaskService;
+
+    /**
+     * 已提交到执行器、尚未执行的任务，按启动顺序排列；测试在当前线程中逐个执行，以控制任务何时结束
+     */
+    private final List<Runnable> started = new ArrayList<>();
+
+    private TaskDispatcher dispatcher;
+
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        fileTaskService = mock(FileTaskService.class);
+        dispatcher = new TaskDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "fileTaskService", fileTaskService);
+        ReflectionTestUtils.setField(dispatcher, "fileToolMetrics", mock(FileToolMetrics.class));
+        ReflectionTestUtils.setField(dispatcher, "fileTaskExecutor", (Executor) started::add);
+        ReflectionTestUtils.setField(dispatcher, "smallMaxRows", 10_000L);
+        ReflectionTestUtils.setField(dispatcher, "mediumMaxRows", 500_000L);
+        ReflectionTestUtils.setField(dispatcher, "bytesPerRow", 100L);
+        ReflectionTestUtils.setField(dispatcher, "agingPerMinute", 1.0);
+    }
+
+    @Test
+    void testReservedAndSharedSlotAccounting() {
+        // 每个通道预留1个并发，另有1个共享并发
+        init(4, 1, 1, 1);
+
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        // 第1个大任务使用预留并发，第2个使用共享并发，第3个等待
+        assertCounts(TaskLane.LARGE, 2, 1);
+
+        // 共享并发已被占用，小任务仍可使用小通道的预留并发
+        dispatcher.submit(task(SMALL_ROWS, 0));
+        assertCounts(TaskLane.SMALL, 1, 0);
+        dispatcher.submit(task(SMALL_ROWS, 5));
+        assertCounts(TaskLane.SMALL, 1, 1);
+        assertEquals(3, started.size());
+
+        // 占用共享并发的大任务结束，共享并发分给有效优先级更高的小任务
+        finish(1);
+        assertCounts(TaskLane.SMALL, 2, 0);
+        assertCounts(TaskLane.LARGE, 1, 1);
+
+        // 占用预留并发的大任务结束，等待的大任务使用大通道的预留并发
+        finish(0);
+        assertCounts(TaskLane.LARGE, 1, 0);
+
+        // 小通道预留并发的任务结束后，新的小任务使用预留并发，共享并发仍被另一个小任务占用
+        finish(0);
+        assertCounts(TaskLane.SMALL, 1, 0);
+        dispatcher.submit(task(SMALL_ROWS, 0));
+        assertCounts(TaskLane.SMALL, 2, 0);
+
+        // 全部结束后预留和共享并发都归还
+        while (!started.isEmpty()) {
+            finish(0);
+        }
+        for (TaskLane lane : TaskLane.values()) {
+            assertCounts(lane, 0, 0);
+        }
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        dispatcher.submit(task(LARGE_ROWS, 0));
+        assertCounts(TaskLane.LARGE, 2, 1);
+    }
+
+    @Test
+    void testWaitingTasksStartByAgedPriority() {
+        // 只有1个共享并发，任务依次执行
+        init(1, 0, 0, 0);
+        FileTask blocker = task(LARGE_ROWS, 0);
+        dispatcher.submit(blocker);
+
+        FileTask urgent = task(SMALL_ROWS, 5);
+        FileTask normal = task(SMALL_ROWS, 3);
+        // 优先级为0，但已等待10分钟，有效优先级为10
+        FileTask aged = task(LARGE_ROWS, 0);
+        aged.setCreateTime(new Date(System.currentTimeMillis() - 10 * 60_000L));
+        dispatcher.submit(urgent);
+        dispatcher.submit(normal);
+        dispatcher.submit(aged);
+        assertEquals(1, started.size());
+
+        while (!started.isEmpty()) {
+            finish(0);
+        }
+
+        InOrder order = inOrder(fileTaskService);
+        order.verify(fileTaskService).processDownloadFile(blocker.getId());
+        order.verify(fileTaskService).processDownloadFile(aged.getId());
+        order.verify(fileTaskService).processDownloadFile(urgent.getId());
+        order.verify(fileTaskService).processDownloadFile(normal.getId());
+    }
+
+    @Test
+    void testDuplicateSubmitIsIgnored() {
+        init(4, 1, 1, 1);
+        FileTask task = task(SMALL_ROWS, 0);
+
+        dispatcher.submit(task);
+        assertFalse(dispatcher.submit(task));
+        assertEquals(1, started.size());
+
+        // 任务结束后可以再次进入通道
+        finish(0);
+        dispatcher.submit(task);
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    void testRejectedTaskReleasesSlotAndIsMarkedFailed() {
+        init(1, 1, 0, 0);
+        ReflectionTestUtils.setField(dispatcher, "fileTaskExecutor", (Executor) command -> {
+            throw new RejectedExecutionException("线程池已满");
+        });
+        FileTask rejected = task(SMALL_ROWS, 0);
+
+        dispatcher.submit(rejected);
+
+        verify(fileTaskService).updateTaskResult(eq(rejected.getId()), eq(FileTask.TaskStatus.FAILED),
+                eq(0), eq(0), eq(0), anyString());
+        assertCounts(TaskLane.SMALL, 0, 0);
+    }
+
+    private void init(int maxConcurrency, int smallReserved, int mediumReserved, int largeReserved) {
+        ReflectionTestUtils.setField(dispatcher, "maxConcurrency", maxConcurrency);
+        ReflectionTestUtils.setField(dispatcher, "smallReserved", smallReserved);
+        ReflectionTestUtils.setField(dispatcher, "mediumReserved", mediumReserved);
+        ReflectionTestUtils.setField(dispatcher, "largeReserved", largeReserved);
+        dispatcher.init();
+    }
+
+    private FileTask task(long estimatedRows, int priority) {
+        FileTask task = new FileTask();
+        task.setId(nextId++);
+        task.setTaskType(FileTask.TaskType.DOWNLOAD);
+        task.setEstimatedRows(estimatedRows);
+        task.setPriority(priority);
+        return task;
+    }
+
+    /**
+     * 在当前线程中执行第index个已启动的任务，任务结束时归还并发并分发等待的任务
+     */
+    private void finish(int index) {
+        started.remove(index).run();
+    }
+
+    private void assertCounts(TaskLane lane, int running, int queued) {
+        assertEquals(running, dispatcher.runningCount(lane), lane + "通道执行中的任务数");
+        assertEquals(queued, dispatcher.queuedCount(lane), lane + "通道等待的任务数");
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.filetool.service.impl;
+
+import com.example.filetool.batch.AdaptiveBatchSizer;
+import com.example.filetool.batch.BatchSizerFactory;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.parser.FieldMappingResolver;
+import com.example.filetool.parser.impl.CsvFileParser;
+import com.example.filetool.util.HttpClientUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileTaskServiceImplTest {
+
+    private static final String SOURCE_URL = "http://source.example.com/orders";
+
+    private static final int SOURCE_TOTAL = 120;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private FileTaskServiceImpl fileTaskService;
+
+    private HttpClientUtil httpClientUtil;
+
+    private final List<Object> requestedTaskIds = new ArrayList<>();
+
+    /**
+     * 导出使用的批次大小调整器
+     */
+    private AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(50, 10, 100, 1 << 20, 2000, false);
+
+    @BeforeEach
+    void setUp() {
+        FieldMappingResolver fieldMappingResolver = new FieldMappingResolver();
+        ReflectionTestUtils.setField(fieldMappingResolver, "objectMapper", objectMapper);
+
+        CsvFileParser csvFileParser = new CsvFileParser();
+        ReflectionTestUtils.setField(csvFileParser, "fieldMappingResolver", fieldMappingResolver);
+        ReflectionTestUtils.setField(csvFileParser, "fileToolMetrics", mock(FileToolMetrics.class));
+
+        BatchSizerFactory batchSizerFactory = mock(BatchSizerFactory.class);
+        when(batchSizerFactory.create(any()))
+                .thenAnswer(invocation -> batchSizer);
+
+        httpClientUtil = mock(HttpClientUtil.class);
+
+        fileTaskService = new FileTaskServiceImpl();
+        ReflectionTestUtils.setField(fileTaskService, "fieldMappingResolver", fieldMappingResolver);
+        ReflectionTestUtils.setField(fileTaskService, "csvFileParser", csvFileParser);
+        ReflectionTestUtils.setField(fileTaskService, "batchSizerFactory", batchSizerFactory);
+        ReflectionTestUtils.setField(fileTaskService, "httpClientUtil", httpClientUtil);
+        ReflectionTestUtils.setField(fileTaskService, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void testStreamExportAgainstSourceRequiringTaskId() throws Exception {
+        // 与file-tool-test中的取数接口一致：taskId、offset、limit为必填参数，缺少时返回400
+        when(httpClientUtil.postForm(eq(SOURCE_URL), any())).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> params = (Map<String, Object>) invocation.getArgument(1);
+            if (params.get("taskId") == null || params.get("offset") == null || params.get("limit") == null) {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }
+            requestedTaskIds.add(params.get("taskId"));
+            int offset = (Integer) params.get("offset");
+            int limit = (Integer) params.get("limit");
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = offset; i < Math.min(offset + limit, SOURCE_TOTAL); i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("orderNo", "NO" + i);
+                rows.add(row);
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("data", rows);
+            response.put("hasMore", offset + limit < SOURCE_TOTAL);
+            return objectMapper.writeValueAsString(response);
+        });
+
+        StreamingResponseBody body = fileTaskService.streamExport("csv",
+                "{\"0\":{\"field\":\"orderNo\",\"label\":\"订单号\"}}", SOURCE_URL, null, null, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).trim().split("\\r?\\n");
+        assertEquals(SOURCE_TOTAL + 1, lines.length);
+        assertTrue(lines[0].endsWith("订单号"));
+        assertEquals("NO119", lines[SOURCE_TOTAL]);
+
+        // 每页请求都带同一个负数的流标识，不会与任务ID重复
+        assertTrue(requestedTaskIds.size() >= 2);
+        long streamId = ((Number) requestedTaskIds.get(0)).longValue();
+        assertTrue(streamId < 0);
+        requestedTaskIds.forEach(taskId -> assertEquals(streamId, ((Number) taskId).longValue()));
+    }
+
+    @Test
+    void testFailedFetchShrinksBatch() {
+        batchSizer = new AdaptiveBatchSizer(50, 10, 100, 1 << 20, 2000, true);
+        when(httpClientUtil.postForm(eq(SOURCE_URL), any())).thenThrow(new ResourceAccessException("连接超时"));
+
+        StreamingResponseBody body = fileTaskService.streamExport("csv",
+                "{\"0\":{\"field\":\"orderNo\",\"label\":\"订单号\"}}", SOURCE_URL, null, null, null);
+
+        assertThrows(RuntimeException.class, () -> body.writeTo(new ByteArrayOutputStream()));
+        // 失败的请求计入批次调整，下一次拉取的行数减半
+        assertEquals(25, batchSizer.getCurrentSize());
+    }
+
+    @Test
+    void testFetchRecordsUtf8ResponseBytes() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("orderNo", "订单一二三四五六七八九十");
+        Map<String, Object> page = new HashMap<>();
+        page.put("data", Collections.nCopies(10, row));
+        page.put("hasMore", false);
+        String response = objectMapper.writeValueAsString(page);
+        when(httpClientUtil.postForm(eq(SOURCE_URL), any())).thenReturn(response);
+
+        StreamingResponseBody body = fileTaskService.streamExport("csv",
+                "{\"0\":{\"field\":\"orderNo\",\"label\":\"订单号\"}}", SOURCE_URL, null, null, null);
+        body.writeTo(new ByteArrayOutputStream());
+
+        // 每行字节数按UTF-8编码后的响应长度计算，而不是字符数
+        double expected = response.getBytes(StandardCharsets.UTF_8).length / 10.0;
+        assertEquals(expected, batchSizer.getBytesPerRow(), 0.001);
+        assertTrue(expected > response.length() / 10.0);
+    }
+}
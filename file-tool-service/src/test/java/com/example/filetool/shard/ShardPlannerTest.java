@@ -0,0 +1,210 @@
+package com.example.filetool.shard;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.example.filetool.entity.FileTask;
+import com.example.filetool.entity.FileTaskShard;
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.parser.impl.ExcelFileParser;
+import com.example.filetool.util.ExcelProcessUtil;
+import com.example.filetool.util.FileStorageUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ShardPlannerTest {
+
+    @TempDir
+    File storageDir;
+
+    private FileStorageUtil fileStorageUtil;
+
+    private ShardPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        fileStorageUtil = new FileStorageUtil();
+        ReflectionTestUtils.setField(fileStorageUtil, "storagePath", storageDir.getAbsolutePath());
+        ReflectionTestUtils.setField(fileStorageUtil, "fileToolMetrics", mock(FileToolMetrics.class));
+        ExcelFileParser excelFileParser = new ExcelFileParser();
+        ReflectionTestUtils.setField(excelFileParser, "excelProcessUtil", new ExcelProcessUtil());
+
+        planner = new ShardPlanner();
+        ReflectionTestUtils.setField(planner, "fileStorageUtil", fileStorageUtil);
+        ReflectionTestUtils.setField(planner, "excelFileParser", excelFileParser);
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "minFileSize", 1024L);
+        ReflectionTestUtils.setField(planner, "shardSize", 4096L);
+        ReflectionTestUtils.setField(planner, "rowsPerShard", 300L);
+        ReflectionTestUtils.setField(planner, "xlsxBytesPerRow", 40L);
+        ReflectionTestUtils.setField(planner, "xlsxMaxRowShards", 4);
+        ReflectionTestUtils.setField(planner, "maxShards", 64);
+    }
+
+    @Test
+    void testCsvShardsAreLineAlignedAndCoverFile() throws IOException {
+        // 行长度不一，分片边界不会恰好落在shard-size的整数倍上
+        StringBuilder builder = new StringBuilder("订单号,金额,备注\n");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("NO").append(i).append(',').append(i * 7).append(",第").append(i).append("行");
+            for (int j = 0; j < i % 13; j++) {
+                builder.append('x');
+            }
+            builder.append('\n');
+        }
+        byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+        FileTask task = task("orders.csv", data);
+
+        List<FileTaskShard> shards = planner.plan(task);
+
+        int expectedCount = (int) ((data.length + 4095) / 4096);
+        assertEquals(expectedCount, shards.size());
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < shards.size(); i++) {
+            FileTaskShard shard = shards.get(i);
+            assertEquals(task.getId(), shard.getTaskId());
+            assertEquals(i, shard.getShardIndex());
+            long start = shard.getStartOffset();
+            if (i == 0) {
+                assertEquals(0, start);
+            } else {
+                // 每个分片从行首开始，上一个分片在此结束
+                assertEquals('\n', data[(int) start - 1]);
+                assertEquals(start, shards.get(i - 1).getEndOffset());
+            }
+            // 分片第一行的行号与整文件导入一致（表头为第1行）
+            assertEquals(1 + countNewlines(data, (int) start), shard.getStartRow());
+            try (InputStream inputStream = fileStorageUtil.getFileInputStream(task.getFilePath(),
+                    start, shard.getEndOffset())) {
+                joined.write(inputStream.readAllBytes());
+            }
+        }
+        assertNull(shards.get(shards.size() - 1).getEndOffset());
+        assertArrayEquals(data, joined.toByteArray());
+    }
+
+    @Test
+    void testSmallFileIsNotSharded() throws IOException {
+        FileTask task = task("small.csv", "订单号\nNO1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(planner.plan(task).isEmpty());
+    }
+
+    @Test
+    void testXlsxRowRangesFromEstimatedRows() throws IOException {
+        FileTask task = xlsxTask("orders.xlsx", Collections.singletonList("订单"), 50);
+        task.setEstimatedRows(1000L);
+
+        List<FileTaskShard> shards = planner.plan(task);
+
+        // 1000行按每片300行需4片，不超过xlsx-max-row-shards，每片250行，数据从第2行开始
+        assertEquals(4, shards.size());
+        assertEquals(Arrays.asList(2, 252, 502, 752), startRows(shards));
+        for (int i = 0; i < shards.size() - 1; i++) {
+            assertEquals(0, shards.get(i).getSheetNo());
+            assertEquals(shards.get(i + 1).getStartRow(), shards.get(i).getEndRow());
+        }
+        // 最后一个分片读到Sheet末尾，预计行数偏小时也不会漏行
+        assertNull(shards.get(3).getEndRow());
+    }
+
+    @Test
+    void testXlsxRowShardsAreCapped() throws IOException {
+        FileTask task = xlsxTask("orders.xlsx", Collections.singletonList("订单"), 50);
+        task.setEstimatedRows(100_000L);
+
+        List<FileTaskShard> shards = planner.plan(task);
+
+        assertEquals(4, shards.size());
+        assertEquals(Arrays.asList(2, 25002, 50002, 75002), startRows(shards));
+    }
+
+    @Test
+    void testUnorderedSheetsOneShardEach() throws IOException {
+        FileTask task = xlsxTask("orders.xlsx", Arrays.asList("一月", "二月", "三月"), 50);
+        task.setSheets("*");
+        task.setSheetOrdered(false);
+
+        List<FileTaskShard> shards = planner.plan(task);
+
+        assertEquals(3, shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            assertEquals(i, shards.get(i).getSheetNo());
+            assertEquals(2, shards.get(i).getStartRow());
+            assertNull(shards.get(i).getEndRow());
+        }
+        assertEquals("二月", shards.get(1).getSheetName());
+
+        // 按Sheet顺序交付时不拆分
+        task.setSheetOrdered(true);
+        assertTrue(planner.plan(task).isEmpty());
+    }
+
+    private FileTask task(String filename, byte[] data) throws IOException {
+        Files.write(new File(storageDir, filename).toPath(), data);
+        FileTask task = new FileTask();
+        task.setId(1L);
+        task.setOriginalFilename(filename);
+        task.setFilePath(filename);
+        return task;
+    }
+
+    private FileTask xlsxTask(String filename, List<String> sheetNames, int rowsPerSheet) throws IOException {
+        File file = new File(storageDir, filename);
+        ExcelWriter writer = EasyExcel.write(file).build();
+        try {
+            for (int sheetNo = 0; sheetNo < sheetNames.size(); sheetNo++) {
+                List<List<Object>> rows = new ArrayList<>();
+                for (int i = 0; i < rowsPerSheet; i++) {
+                    rows.add(Arrays.asList("NO" + i, i * 7, "第" + i + "行"));
+                }
+                writer.write(rows, EasyExcel.writerSheet(sheetNo, sheetNames.get(sheetNo))
+                        .head(Arrays.asList(Collections.singletonList("订单号"), Collections.singletonList("金额"),
+                                Collections.singletonList("备注")))
+                        .build());
+            }
+        } finally {
+            writer.finish();
+        }
+        assertTrue(file.length() >= 1024, "测试文件需达到拆分的最小文件大小");
+        FileTask task = new FileTask();
+        task.setId(1L);
+        task.setOriginalFilename(filename);
+        task.setFilePath(filename);
+        return task;
+    }
+
+    private static List<Integer> startRows(List<FileTaskShard> shards) {
+        List<Integer> rows = new ArrayList<>();
+        shards.forEach(shard -> rows.add(shard.getStartRow()));
+        return rows;
+    }
+
+    private static int countNewlines(byte[] data, int end) {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (data[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
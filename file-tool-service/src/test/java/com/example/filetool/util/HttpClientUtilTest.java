@@ -0,0 +1,237 @@
+package com.example.filetool.util;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import com.example.filetool.quota.HostQuota;
+import com.example.filetool.quota.HostQuotaRegistry;
+import com.example.filetool.resilience.CircuitBreaker;
+import com.example.filetool.resilience.CircuitBreakerRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpClientUtilTest {
+
+    private static final String URL = "http://erp.example.com/orders";
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * 与管道线程池一样按需创建线程
+     */
+    private final ThreadPoolExecutor hedgeExecutor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+
+    private RestTemplate restTemplate;
+
+    private FileToolMetrics fileToolMetrics;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private HttpClientUtil httpClientUtil;
+
+    /**
+     * 发出的请求，记录请求头中的幂等键
+     */
+    private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        fileToolMetrics = mock(FileToolMetrics.class);
+
+        // 不限流的主机配额
+        HostQuota quota = new HostQuota("erp.example.com:80", 0, 10, 0, timer);
+        HostQuotaRegistry hostQuotaRegistry = mock(HostQuotaRegistry.class);
+        when(hostQuotaRegistry.acquire(anyString(), any())).thenAnswer(invocation -> {
+            quota.acquire().join();
+            return quota;
+        });
+        when(hostQuotaRegistry.acquireAsync(anyString()))
+                .thenAnswer(invocation -> quota.acquire().thenApply(ignored -> quota));
+
+        circuitBreakerRegistry = new CircuitBreakerRegistry();
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "failureThreshold", 1);
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "openMillis", 60_000L);
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "maxPauseMillis", 60_000L);
+        circuitBreakerRegistry.init();
+
+        httpClientUtil = new HttpClientUtil();
+        ReflectionTestUtils.setField(httpClientUtil, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(httpClientUtil, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(httpClientUtil, "fileToolMetrics", fileToolMetrics);
+        ReflectionTestUtils.setField(httpClientUtil, "hostQuotaRegistry", hostQuotaRegistry);
+        ReflectionTestUtils.setField(httpClientUtil, "circuitBreakerRegistry", circuitBreakerRegistry);
+        ReflectionTestUtils.setField(httpClientUtil, "hedgeExecutor", hedgeExecutor);
+        ReflectionTestUtils.setField(httpClientUtil, "maxAttempts", 3);
+        ReflectionTestUtils.setField(httpClientUtil, "initialBackoffMs", 10L);
+        ReflectionTestUtils.setField(httpClientUtil, "maxBackoffMs", 40L);
+        ReflectionTestUtils.setField(httpClientUtil, "hedgeDelayMs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+        hedgeExecutor.shutdownNow();
+        circuitBreakerRegistry.shutdown();
+    }
+
+    @Test
+    void testCallbackRetriesWithSameIdempotencyKey() {
+        // 熔断阈值调高，两次失败不熔断
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "failureThreshold", 5);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    recordKey(invocation.getArgument(1));
+                    throw new ResourceAccessException("连接超时");
+                })
+                .thenAnswer(invocation -> {
+                    recordKey(invocation.getArgument(1));
+                    throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                })
+                .thenAnswer(invocation -> {
+                    recordKey(invocation.getArgument(1));
+                    return ResponseEntity.ok("ok");
+                });
+
+        assertEquals("ok", httpClientUtil.sendCallback(URL, 1L, "PROCESSING", Collections.emptyList()));
+
+        assertEquals(3, idempotencyKeys.size());
+        assertEquals(1, idempotencyKeys.stream().distinct().count());
+        verify(fileToolMetrics, times(2)).recordCallbackEvent(anyString(), eq("retry"));
+    }
+
+    @Test
+    void testAsyncCallbackRetriesThenGivesUp() {
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "failureThreshold", 5);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new ResourceAccessException("连接超时"));
+
+        // 重试用尽后返回null，与同步回调一致
+        assertNull(httpClientUtil.sendCallbackAsync(URL, 1L, "PROCESSING", Collections.emptyList()).join());
+        verify(restTemplate, times(3)).postForEntity(eq(URL), any(HttpEntity.class), eq(String.class));
+        verify(fileToolMetrics, times(2)).recordCallbackEvent(anyString(), eq("retry"));
+    }
+
+    @Test
+    void testClientErrorIsNotRetried() {
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        assertNull(httpClientUtil.sendCallback(URL, 1L, "PROCESSING", Collections.emptyList()));
+        verify(restTemplate, times(1)).postForEntity(eq(URL), any(HttpEntity.class), eq(String.class));
+        // 4xx不计入熔断
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.get(URL).getState());
+    }
+
+    @Test
+    void testBackoffBetweenRetries() {
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "failureThreshold", 5);
+        ReflectionTestUtils.setField(httpClientUtil, "initialBackoffMs", 100L);
+        ReflectionTestUtils.setField(httpClientUtil, "maxBackoffMs", 150L);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new ResourceAccessException("连接超时"));
+
+        long start = System.nanoTime();
+        httpClientUtil.sendCallback(URL, 1L, "PROCESSING", Collections.emptyList());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 第一次退避在50~100ms之间，第二次翻倍后受上限约束，在75~150ms之间
+        assertTrue(elapsedMs >= 125, "退避时间：" + elapsedMs);
+    }
+
+    @Test
+    void testHedgeReturnsFasterLeg() {
+        ReflectionTestUtils.setField(httpClientUtil, "hedgeDelayMs", 50L);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(1000);
+                    return ResponseEntity.ok("slow");
+                })
+                .thenReturn(ResponseEntity.ok("fast"));
+
+        long start = System.nanoTime();
+        assertEquals("fast", httpClientUtil.postForm(URL, Collections.singletonMap("offset", 0)));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        verify(fileToolMetrics).recordCallbackEvent(anyString(), eq("hedge"));
+    }
+
+    @Test
+    void testHedgeBackupStopsWaitingForBreakerWhenPrimaryReturns() {
+        ReflectionTestUtils.setField(httpClientUtil, "hedgeDelayMs", 50L);
+        CircuitBreaker breaker = circuitBreakerRegistry.get(URL);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    // 第一个请求进行中主机被熔断（熔断时间60秒），对冲的第二个请求等待熔断恢复
+                    breaker.onFailure();
+                    Thread.sleep(300);
+                    return ResponseEntity.ok("primary");
+                });
+
+        assertEquals("primary", httpClientUtil.postForm(URL, Collections.singletonMap("offset", 0)));
+
+        // 第二个请求随第一个请求返回而放弃等待，线程立即释放，而不是等到熔断结束
+        awaitTrue(() -> hedgeExecutor.getActiveCount() == 0);
+        verify(restTemplate, times(1)).postForEntity(eq(URL), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void testOpenCircuitFailsAfterMaxPause() {
+        ReflectionTestUtils.setField(circuitBreakerRegistry, "maxPauseMillis", 100L);
+        when(restTemplate.postForEntity(eq(URL), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new ResourceAccessException("连接超时"));
+
+        // 第一次失败即熔断，重试等待熔断恢复超时后失败，不再发出请求
+        assertThrows(RuntimeException.class, () -> httpClientUtil.post(URL, Collections.emptyMap()));
+        assertNull(httpClientUtil.sendCallback(URL, 1L, "PROCESSING", Collections.emptyList()));
+        verify(restTemplate, times(1)).postForEntity(eq(URL), any(HttpEntity.class), eq(String.class));
+    }
+
+    private void recordKey(HttpEntity<?> entity) {
+        idempotencyKeys.add(entity.getHeaders().getFirst(HttpClientUtil.IDEMPOTENCY_KEY_HEADER));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
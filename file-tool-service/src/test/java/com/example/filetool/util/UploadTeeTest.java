@@ -0,0 +1,233 @@
+package com.example.filetool.util;
+
+import com.example.filetool.metrics.FileToolMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+public class UploadTeeTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @TempDir
+    File tempDir;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBufferedWhenReaderKeepsUp() throws Exception {
+        byte[] data = csv(20000);
+        File file = new File(tempDir, "buffered.csv");
+        UploadTee tee = newTee(file, new ByteArrayInputStream(data), 1024);
+
+        List<String> rows = readRows(tee.getInputStream());
+        tee.await();
+
+        assertFalse(tee.isSpilled());
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(expectedRows(data), rows);
+    }
+
+    @Test
+    void testSpillToFileWhenReaderFallsBehind() throws Exception {
+        // 上传数据远大于缓冲区（2块即128KB），解析在保存完成后才开始读取
+        byte[] data = csv(200000);
+        assertTrue(data.length > 2 * CHUNK_SIZE * 10);
+        File file = new File(tempDir, "spilled.csv");
+        UploadTee tee = newTee(file, new ByteArrayInputStream(data), 2);
+        tee.await();
+
+        List<String> rows = readRows(tee.getInputStream());
+
+        assertTrue(tee.isSpilled());
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(expectedRows(data), rows);
+    }
+
+    @Test
+    void testReaderCatchesUpWithWriterAfterSpill() throws Exception {
+        byte[] data = csv(100000);
+        int gateAt = 5 * CHUNK_SIZE;
+        CountDownLatch gate = new CountDownLatch(1);
+        File file = new File(tempDir, "catch-up.csv");
+        UploadTee tee = newTee(file, new GatedInputStream(data, gateAt, gate), 1);
+
+        // 写入线程在gateAt处停住，解析此时才开始读取，缓冲区已溢出
+        awaitTrue(() -> file.length() == gateAt);
+        awaitTrue(tee::isSpilled);
+        AtomicLong readBytes = new AtomicLong();
+        ByteArrayOutputStream parsed = new ByteArrayOutputStream();
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try (InputStream inputStream = tee.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = inputStream.read(buffer)) != -1) {
+                    parsed.write(buffer, 0, n);
+                    readBytes.addAndGet(n);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, executor);
+
+        // 解析读到写入位置后等待，而不是读到文件末尾就结束
+        awaitTrue(() -> readBytes.get() == gateAt);
+        Thread.sleep(200);
+        assertEquals(gateAt, readBytes.get());
+        assertFalse(reader.isDone());
+        assertTrue(tee.isSpilled());
+
+        gate.countDown();
+        reader.get(10, TimeUnit.SECONDS);
+        tee.await();
+        assertArrayEquals(data, parsed.toByteArray());
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    void testWriterFailureReachesReader() throws Exception {
+        byte[] data = csv(100000);
+        File file = new File(tempDir, "failed.csv");
+        InputStream failing = new InputStream() {
+            private final InputStream delegate = new ByteArrayInputStream(data, 0, 3 * CHUNK_SIZE);
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = delegate.read(b, off, len);
+                if (n == -1) {
+                    throw new IOException("连接被重置");
+                }
+                return n;
+            }
+        };
+        UploadTee tee = newTee(file, failing, 1);
+
+        IOException readError = assertThrows(IOException.class, () -> readRows(tee.getInputStream()));
+        assertTrue(readError.getMessage().contains("连接被重置"));
+        IOException awaitError = assertThrows(IOException.class, tee::await);
+        assertTrue(awaitError.getMessage().contains("连接被重置"));
+    }
+
+    private UploadTee newTee(File file, InputStream source, int bufferChunks) {
+        UploadTee tee = new UploadTee(file.getName(), file, source, bufferChunks, mock(FileToolMetrics.class));
+        tee.start(executor);
+        return tee;
+    }
+
+    private static byte[] csv(int rows) {
+        StringBuilder builder = new StringBuilder("订单号,金额,备注\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append("NO").append(i).append(',').append(i * 3).append(".50,第").append(i).append("行\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> expectedRows(byte[] data) throws IOException {
+        return readRows(new ByteArrayInputStream(data));
+    }
+
+    private static List<String> readRows(InputStream inputStream) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line);
+            }
+        }
+        return rows;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * 读到指定位置后阻塞，直到放行，模拟上传数据暂时未到达
+     */
+    private static class GatedInputStream extends InputStream {
+
+        private final byte[] data;
+
+        private final int gateAt;
+
+        private final CountDownLatch gate;
+
+        private int position;
+
+        GatedInputStream(byte[] data, int gateAt, CountDownLatch gate) {
+            this.data = data;
+            this.gateAt = gateAt;
+            this.gate = gate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= data.length) {
+                return -1;
+            }
+            if (position == gateAt) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            int limit = position < gateAt ? gateAt : data.length;
+            int n = Math.min(len, limit - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
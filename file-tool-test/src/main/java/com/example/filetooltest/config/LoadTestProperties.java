@@ -0,0 +1,162 @@
+package com.example.filetooltest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 压测配置
+ * 包含模拟数据源、模拟回调接收端和压测驱动的参数，可通过 /loadTest/config 在运行时修改
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "load-test")
+public class LoadTestProperties {
+
+    /**
+     * 模拟数据源（导出任务取数接口 /queryUser）
+     */
+    private Source source = new Source();
+
+    /**
+     * 模拟回调接收端（上传任务回调接口 /callback/sink）
+     */
+    private Sink sink = new Sink();
+
+    /**
+     * 压测驱动
+     */
+    private Driver driver = new Driver();
+
+    @Data
+    public static class Source {
+        /**
+         * 数据总行数
+         */
+        private long total = 100;
+
+        /**
+         * 附加的填充列数，用于模拟宽表
+         */
+        private int extraColumns = 0;
+
+        /**
+         * 每个填充列的字符数
+         */
+        private int cellWidth = 16;
+
+        /**
+         * 每页响应延迟
+         */
+        private Latency latency = new Latency();
+
+        /**
+         * 错误率（0~1），命中时返回HTTP 500
+         */
+        private double errorRate = 0;
+    }
+
+    @Data
+    public static class Sink {
+        /**
+         * 每次回调的处理延迟
+         */
+        private Latency latency = new Latency();
+
+        /**
+         * 错误率（0~1），命中时返回HTTP 500
+         */
+        private double errorRate = 0;
+    }
+
+    @Data
+    public static class Driver {
+        /**
+         * file-tool-service 接口地址
+         */
+        private String serviceApiUrl = "http://localhost:8080/file-tool/api";
+
+        /**
+         * file-tool-service 的 actuator 地址，用于采集资源使用情况
+         */
+        private String serviceActuatorUrl = "http://localhost:8080/file-tool/actuator";
+
+        /**
+         * 本服务地址，作为回调和取数URL传给 file-tool-service
+         */
+        private String selfUrl = "http://localhost:8081";
+
+        /**
+         * 上传任务数
+         */
+        private int uploads = 10;
+
+        /**
+         * 每个上传文件的行数
+         */
+        private int uploadRows = 10000;
+
+        /**
+         * 导出任务数
+         */
+        private int exports = 10;
+
+        /**
+         * 并发数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 任务状态轮询间隔（毫秒）
+         */
+        private long pollIntervalMs = 500;
+
+        /**
+         * 单个任务超时时间（毫秒）
+         */
+        private long taskTimeoutMs = 600000;
+
+        /**
+         * 资源采样间隔（毫秒）
+         */
+        private long sampleIntervalMs = 1000;
+    }
+
+    /**
+     * 延迟分布
+     */
+    @Data
+    public static class Latency {
+        /**
+         * 分布类型
+         */
+        private Distribution distribution = Distribution.NONE;
+
+        /**
+         * 最小延迟（毫秒），UNIFORM的下界，EXPONENTIAL的偏移
+         */
+        private long minMs = 0;
+
+        /**
+         * 平均延迟（毫秒），FIXED的固定值，LOGNORMAL的中位数
+         */
+        private long meanMs = 0;
+
+        /**
+         * 最大延迟（毫秒），所有分布的上限
+         */
+        private long maxMs = 10000;
+
+        /**
+         * LOGNORMAL的形状参数，越大长尾越明显
+         */
+        private double sigma = 0.5;
+    }
+
+    /**
+     * 延迟分布类型
+     */
+    public enum Distribution {
+        NONE, FIXED, UNIFORM, EXPONENTIAL, LOGNORMAL
+    }
+}
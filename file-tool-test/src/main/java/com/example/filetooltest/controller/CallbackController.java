@@ -1,5 +1,8 @@
 package com.example.filetooltest.controller;
 
+import com.example.filetooltest.config.LoadTestProperties;
+import com.example.filetooltest.loadtest.CallbackSinkStats;
+import com.example.filetooltest.loadtest.FaultSimulator;
 import com.example.filetooltest.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -21,6 +25,46 @@ public class CallbackController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private LoadTestProperties loadTestProperties;
+
+    @Autowired
+    private FaultSimulator faultSimulator;
+
+    @Autowired
+    private CallbackSinkStats callbackSinkStats;
+
+    /**
+     * 模拟回调接收端
+     * 接收 file-tool-service 上传任务的数据批次和最终结果回调（JSON），
+     * 处理延迟和错误率由 load-test.sink 配置
+     *
+     * @param callbackData 回调数据：taskId、status、data
+     * @return 处理结果
+     */
+    @PostMapping("/sink")
+    public Map<String, Object> handleSinkCallback(@RequestBody Map<String, Object> callbackData) {
+        LoadTestProperties.Sink sink = loadTestProperties.getSink();
+        try {
+            faultSimulator.simulate(sink.getLatency(), sink.getErrorRate());
+        } catch (RuntimeException e) {
+            callbackSinkStats.recordInjectedError();
+            throw e;
+        }
+
+        Object data = callbackData.get("data");
+        if (data instanceof List) {
+            callbackSinkStats.recordBatch(((List<?>) data).size());
+        } else {
+            callbackSinkStats.recordFinalCallback();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("taskId", callbackData.get("taskId"));
+        response.put("received", true);
+        return response;
+    }
+
     /**
      * 处理文件处理回调
      *
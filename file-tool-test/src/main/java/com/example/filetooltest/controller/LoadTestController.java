@@ -0,0 +1,101 @@
+package com.example.filetooltest.controller;
+
+import com.example.filetooltest.config.LoadTestProperties;
+import com.example.filetooltest.loadtest.CallbackSinkStats;
+import com.example.filetooltest.loadtest.LoadTestDriver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压测控制器
+ * 查看和修改压测配置、启动压测、查看压测报告和回调接收端统计
+ */
+@Slf4j
+@RestController
+@RequestMapping("/loadTest")
+public class LoadTestController {
+
+    @Autowired
+    private LoadTestProperties loadTestProperties;
+
+    @Autowired
+    private LoadTestDriver loadTestDriver;
+
+    @Autowired
+    private CallbackSinkStats callbackSinkStats;
+
+    /**
+     * 获取当前压测配置
+     *
+     * @return 压测配置
+     */
+    @GetMapping("/config")
+    public LoadTestProperties getConfig() {
+        return loadTestProperties;
+    }
+
+    /**
+     * 修改模拟数据源配置
+     *
+     * @param source 数据源配置
+     * @return 修改后的压测配置
+     */
+    @PutMapping("/config/source")
+    public LoadTestProperties updateSource(@RequestBody LoadTestProperties.Source source) {
+        loadTestProperties.setSource(source);
+        log.info("更新模拟数据源配置: {}", source);
+        return loadTestProperties;
+    }
+
+    /**
+     * 修改模拟回调接收端配置
+     *
+     * @param sink 回调接收端配置
+     * @return 修改后的压测配置
+     */
+    @PutMapping("/config/sink")
+    public LoadTestProperties updateSink(@RequestBody LoadTestProperties.Sink sink) {
+        loadTestProperties.setSink(sink);
+        log.info("更新模拟回调接收端配置: {}", sink);
+        return loadTestProperties;
+    }
+
+    /**
+     * 启动压测
+     * 请求体中的参数覆盖 load-test.driver 配置，未提供时使用配置值
+     *
+     * @param driver 压测参数
+     * @return 启动结果
+     */
+    @PostMapping("/run")
+    public Map<String, Object> run(@RequestBody(required = false) LoadTestProperties.Driver driver) {
+        Map<String, Object> result = new HashMap<>();
+        LoadTestProperties.Driver effective = driver != null ? driver : loadTestProperties.getDriver();
+        callbackSinkStats.reset();
+        if (loadTestDriver.start(effective)) {
+            result.put("message", "压测已启动");
+            result.put("driver", effective);
+        } else {
+            result.put("error", "已有压测正在运行");
+        }
+        return result;
+    }
+
+    /**
+     * 获取最近一次压测报告
+     *
+     * @return 压测报告和回调接收端统计
+     */
+    @GetMapping("/report")
+    public Map<String, Object> getReport() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("running", loadTestDriver.isRunning());
+        result.put("report", loadTestDriver.getLastReport());
+        result.put("sink", callbackSinkStats.snapshot());
+        return result;
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.filetooltest.controller;
 
-import com.example.filetooltest.model.User;
+import com.example.filetooltest.config.LoadTestProperties;
+import com.example.filetooltest.loadtest.FaultSimulator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
@@ -17,8 +19,15 @@ import java.util.Map;
 @RequestMapping("/queryUser")
 public class UserQueryController {
 
+    @Autowired
+    private LoadTestProperties loadTestProperties;
+
+    @Autowired
+    private FaultSimulator faultSimulator;
+
     /**
      * 查询用户数据
+     * 数据总量、填充列宽度、响应延迟和错误率由 load-test.source 配置
      *
      * @param taskId 任务ID
      * @param offset 偏移量
@@ -33,23 +42,28 @@ public class UserQueryController {
             @RequestParam("limit") Integer limit,
             @RequestParam(value = "callbackParams", required = false) String callbackParams) {
         
-        log.info("收到用户数据查询请求 - taskId: {}, offset: {}, limit: {}, callbackParams: {}",
+        log.debug("收到用户数据查询请求 - taskId: {}, offset: {}, limit: {}, callbackParams: {}",
                 taskId, offset, limit, callbackParams);
 
+        LoadTestProperties.Source source = loadTestProperties.getSource();
+        faultSimulator.simulate(source.getLatency(), source.getErrorRate());
+
         try {
             // 模拟从数据库查询用户数据
-            List<Map<String, Object>> userList = generateMockUserData(offset, limit);
+            long total = source.getTotal();
+            int size = (int) Math.max(Math.min(limit, total - offset), 0);
+            List<Map<String, Object>> userList = generateMockUserData(offset, size, source);
             
             // 构建响应数据
             Map<String, Object> response = new HashMap<>();
             response.put("taskId", taskId);
             response.put("data", userList);
-            response.put("total", 100); // 模拟总数据量
+            response.put("total", total);
             response.put("offset", offset);
             response.put("limit", limit);
-            response.put("hasMore", (offset + limit) < 100); // 模拟是否还有更多数据
+            response.put("hasMore", (long) offset + limit < total);
             
-            log.info("用户数据查询完成，返回数据条数: {}", userList.size());
+            log.debug("用户数据查询完成，返回数据条数: {}", userList.size());
             return response;
         } catch (Exception e) {
             log.error("查询用户数据失败", e);
@@ -62,8 +76,9 @@ public class UserQueryController {
     /**
      * 生成模拟用户数据
      */
-    private List<Map<String, Object>> generateMockUserData(int offset, int limit) {
-        List<Map<String, Object>> userList = new ArrayList<>();
+    private List<Map<String, Object>> generateMockUserData(int offset, int limit, LoadTestProperties.Source source) {
+        String filler = buildFiller(source.getCellWidth());
+        List<Map<String, Object>> userList = new ArrayList<>(limit);
         for (int i = 0; i < limit; i++) {
             Map<String, Object> user = new HashMap<>();
             user.put("id", offset + i + 1);
@@ -73,11 +88,25 @@ public class UserQueryController {
             user.put("phone", "138" + String.format("%08d", offset + i + 1));
             user.put("address", "城市" + (offset + i) % 10 + "区" + (offset + i) % 100 + "号");
             user.put("createTime", System.currentTimeMillis() - (offset + i) * 86400000L);
+            for (int c = 0; c < source.getExtraColumns(); c++) {
+                user.put("extra" + c, filler);
+            }
             userList.add(user);
         }
         return userList;
     }
 
+    /**
+     * 生成填充列的内容
+     */
+    private String buildFiller(int width) {
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = 0; i < width; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
     /**
      * 获取用户数据字段映射
      * 返回字段映射配置，包含字段名和中文标签
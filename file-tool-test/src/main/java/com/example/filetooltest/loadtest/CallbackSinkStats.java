@@ -0,0 +1,56 @@
+package com.example.filetooltest.loadtest;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟回调接收端的统计
+ */
+@Component
+public class CallbackSinkStats {
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder finalCallbacks = new LongAdder();
+
+    private final LongAdder injectedErrors = new LongAdder();
+
+    /**
+     * 记录一次数据批次回调
+     *
+     * @param rowCount 批次行数
+     */
+    public void recordBatch(int rowCount) {
+        batches.increment();
+        rows.add(rowCount);
+    }
+
+    public void recordFinalCallback() {
+        finalCallbacks.increment();
+    }
+
+    public void recordInjectedError() {
+        injectedErrors.increment();
+    }
+
+    public void reset() {
+        batches.reset();
+        rows.reset();
+        finalCallbacks.reset();
+        injectedErrors.reset();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("batches", batches.sum());
+        result.put("rows", rows.sum());
+        result.put("finalCallbacks", finalCallbacks.sum());
+        result.put("injectedErrors", injectedErrors.sum());
+        return result;
+    }
+}
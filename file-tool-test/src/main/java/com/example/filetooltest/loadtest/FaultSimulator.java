@@ -0,0 +1,65 @@
+package com.example.filetooltest.loadtest;
+
+import com.example.filetooltest.config.LoadTestProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟和错误模拟
+ * 按配置的延迟分布休眠，并按错误率抛出HTTP 500
+ */
+@Component
+public class FaultSimulator {
+
+    /**
+     * 按延迟分布休眠，并按错误率模拟失败
+     *
+     * @param latency   延迟分布
+     * @param errorRate 错误率（0~1）
+     */
+    public void simulate(LoadTestProperties.Latency latency, double errorRate) {
+        long delayMs = sampleLatency(latency);
+        if (delayMs > 0) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "模拟错误");
+        }
+    }
+
+    /**
+     * 按延迟分布采样一个延迟值
+     *
+     * @param latency 延迟分布
+     * @return 延迟（毫秒）
+     */
+    public long sampleLatency(LoadTestProperties.Latency latency) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double value;
+        switch (latency.getDistribution()) {
+            case FIXED:
+                value = latency.getMeanMs();
+                break;
+            case UNIFORM:
+                value = latency.getMinMs() + random.nextDouble() * (latency.getMaxMs() - latency.getMinMs());
+                break;
+            case EXPONENTIAL:
+                double mean = Math.max(latency.getMeanMs() - latency.getMinMs(), 0);
+                value = latency.getMinMs() - mean * Math.log(1 - random.nextDouble());
+                break;
+            case LOGNORMAL:
+                value = latency.getMeanMs() * Math.exp(latency.getSigma() * random.nextGaussian());
+                break;
+            default:
+                return 0;
+        }
+        return Math.min((long) value, latency.getMaxMs());
+    }
+}
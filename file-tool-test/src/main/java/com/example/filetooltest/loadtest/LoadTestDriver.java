@@ -0,0 +1,382 @@
+package com.example.filetooltest.loadtest;
+
+import com.example.filetooltest.config.LoadTestProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测驱动
+ * 并发向 file-tool-service 提交上传和导出任务，轮询至任务结束，
+ * 统计端到端吞吐量、任务延迟分位数，并通过 actuator 采样服务端资源使用情况
+ */
+@Slf4j
+@Component
+public class LoadTestDriver {
+
+    /**
+     * 上传和导出使用的字段映射，与 /queryUser 返回的字段一致
+     */
+    private static final String FIELD_MAPPING = "{"
+            + "\"0\":{\"field\":\"id\",\"label\":\"用户ID\"},"
+            + "\"1\":{\"field\":\"username\",\"label\":\"用户名\"},"
+            + "\"2\":{\"field\":\"age\",\"label\":\"年龄\"},"
+            + "\"3\":{\"field\":\"email\",\"label\":\"邮箱\"},"
+            + "\"4\":{\"field\":\"phone\",\"label\":\"电话\"},"
+            + "\"5\":{\"field\":\"address\",\"label\":\"地址\"}"
+            + "}";
+
+    private final RestTemplate restTemplate = new RestTemplate(unbufferedRequestFactory());
+
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "load-test-driver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+
+    private volatile Map<String, Object> lastReport = Collections.emptyMap();
+
+    /**
+     * 启动一次压测，同一时刻只允许一次压测
+     *
+     * @param driver 压测参数
+     * @return 是否启动成功
+     */
+    public synchronized boolean start(LoadTestProperties.Driver driver) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("state", "RUNNING");
+        lastReport = report;
+        runExecutor.execute(() -> {
+            try {
+                lastReport = run(driver);
+            } catch (Exception e) {
+                log.error("压测执行失败", e);
+                Map<String, Object> failed = new LinkedHashMap<>();
+                failed.put("state", "FAILED");
+                failed.put("error", e.getMessage());
+                lastReport = failed;
+            } finally {
+                running = false;
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private Map<String, Object> run(LoadTestProperties.Driver driver) throws InterruptedException, IOException {
+        log.info("开始压测 - uploads: {}, exports: {}, concurrency: {}, uploadRows: {}",
+                driver.getUploads(), driver.getExports(), driver.getConcurrency(), driver.getUploadRows());
+
+        Path uploadFile = driver.getUploads() > 0 ? writeCsv(driver.getUploadRows()) : null;
+        ResourceSampler sampler = new ResourceSampler(driver.getServiceActuatorUrl());
+        ScheduledExecutorService sampleExecutor = Executors.newSingleThreadScheduledExecutor();
+        sampleExecutor.scheduleAtFixedRate(sampler::sample, 0, driver.getSampleIntervalMs(), TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(driver.getConcurrency(), 1));
+        List<Future<TaskResult>> futures = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+        try {
+            // 交替提交上传和导出任务，使两类任务在压测期间混合执行
+            int total = driver.getUploads() + driver.getExports();
+            int uploads = 0;
+            int exports = 0;
+            for (int i = 0; i < total; i++) {
+                boolean upload = uploads < driver.getUploads()
+                        && (exports >= driver.getExports() || i % 2 == 0);
+                if (upload) {
+                    int index = uploads++;
+                    futures.add(workers.submit(() -> runUpload(driver, uploadFile, index)));
+                } else {
+                    int index = exports++;
+                    futures.add(workers.submit(() -> runExport(driver, index)));
+                }
+            }
+
+            List<TaskResult> results = new ArrayList<>();
+            for (Future<TaskResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (Exception e) {
+                    log.error("压测任务执行异常", e);
+                    results.add(TaskResult.error("UNKNOWN", e.getMessage()));
+                }
+            }
+            long wallTimeMs = System.currentTimeMillis() - startTime;
+            return buildReport(driver, results, wallTimeMs, sampler);
+        } finally {
+            workers.shutdownNow();
+            sampleExecutor.shutdownNow();
+            if (uploadFile != null) {
+                Files.deleteIfExists(uploadFile);
+            }
+        }
+    }
+
+    private TaskResult runUpload(LoadTestProperties.Driver driver, Path file, int index) {
+        long start = System.currentTimeMillis();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            body.add("file", new FileSystemResource(file) {
+                @Override
+                public String getFilename() {
+                    return "load_test_" + index + ".csv";
+                }
+            });
+            body.add("taskName", "load-test-upload-" + index);
+            body.add("fieldMapping", FIELD_MAPPING);
+            body.add("callbackUrl", driver.getSelfUrl() + "/callback/sink");
+
+            Map<?, ?> response = restTemplate.postForObject(driver.getServiceApiUrl() + "/upload",
+                    new HttpEntity<>(body, headers), Map.class);
+            return awaitTask("UPLOAD", driver, response, start);
+        } catch (Exception e) {
+            log.warn("上传任务失败: {}", e.getMessage());
+            return TaskResult.error("UPLOAD", e.getMessage());
+        }
+    }
+
+    private TaskResult runExport(LoadTestProperties.Driver driver, int index) {
+        long start = System.currentTimeMillis();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+            MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+            body.add("taskName", "load-test-export-" + index);
+            body.add("fieldMapping", FIELD_MAPPING);
+            body.add("callbackUrl", driver.getSelfUrl() + "/queryUser");
+
+            Map<?, ?> response = restTemplate.postForObject(driver.getServiceApiUrl() + "/export",
+                    new HttpEntity<>(body, headers), Map.class);
+            return awaitTask("EXPORT", driver, response, start);
+        } catch (Exception e) {
+            log.warn("导出任务失败: {}", e.getMessage());
+            return TaskResult.error("EXPORT", e.getMessage());
+        }
+    }
+
+    /**
+     * 轮询任务状态直到结束或超时
+     */
+    private TaskResult awaitTask(String type, LoadTestProperties.Driver driver, Map<?, ?> response, long start)
+            throws InterruptedException {
+        if (response == null || response.get("taskId") == null) {
+            return TaskResult.error(type, "创建任务失败: " + response);
+        }
+        Long taskId = ((Number) response.get("taskId")).longValue();
+        long deadline = start + driver.getTaskTimeoutMs();
+        while (System.currentTimeMillis() < deadline) {
+            Map<?, ?> status = restTemplate.getForObject(driver.getServiceApiUrl() + "/task/" + taskId, Map.class);
+            String state = status == null ? null : String.valueOf(status.get("status"));
+            if ("COMPLETED".equals(state) || "FAILED".equals(state)) {
+                Number processedRows = (Number) status.get("processedRows");
+                return new TaskResult(type, state, System.currentTimeMillis() - start,
+                        processedRows == null ? 0 : processedRows.longValue(), null);
+            }
+            Thread.sleep(driver.getPollIntervalMs());
+        }
+        return new TaskResult(type, "TIMEOUT", System.currentTimeMillis() - start, 0, null);
+    }
+
+    private Map<String, Object> buildReport(LoadTestProperties.Driver driver, List<TaskResult> results,
+                                            long wallTimeMs, ResourceSampler sampler) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("state", "FINISHED");
+        report.put("uploads", driver.getUploads());
+        report.put("exports", driver.getExports());
+        report.put("concurrency", driver.getConcurrency());
+        report.put("uploadRows", driver.getUploadRows());
+        report.put("wallTimeMs", wallTimeMs);
+
+        long totalRows = results.stream().mapToLong(r -> r.processedRows).sum();
+        double seconds = Math.max(wallTimeMs, 1) / 1000.0;
+        report.put("totalRows", totalRows);
+        report.put("tasksPerSecond", results.size() / seconds);
+        report.put("rowsPerSecond", totalRows / seconds);
+
+        report.put("upload", summarize(results, "UPLOAD"));
+        report.put("export", summarize(results, "EXPORT"));
+        report.put("serviceResources", sampler.summary());
+        log.info("压测完成：{}", report);
+        return report;
+    }
+
+    private Map<String, Object> summarize(List<TaskResult> results, String type) {
+        List<Long> latencies = new ArrayList<>();
+        Map<String, Integer> statusCounts = new HashMap<>();
+        for (TaskResult result : results) {
+            if (!type.equals(result.type)) {
+                continue;
+            }
+            statusCounts.merge(result.status, 1, Integer::sum);
+            if (result.error == null) {
+                latencies.add(result.latencyMs);
+            }
+        }
+        Collections.sort(latencies);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("statusCounts", statusCounts);
+        summary.put("latencyP50Ms", percentile(latencies, 50));
+        summary.put("latencyP90Ms", percentile(latencies, 90));
+        summary.put("latencyP99Ms", percentile(latencies, 99));
+        summary.put("latencyMaxMs", latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1));
+        return summary;
+    }
+
+    /**
+     * 最近秩法计算分位数
+     */
+    private long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank - 1, 0));
+    }
+
+    /**
+     * 生成上传用的CSV临时文件，逐行写入磁盘，行数很大时也不占用堆内存
+     */
+    private Path writeCsv(int rows) throws IOException {
+        Path file = Files.createTempFile("load_test_", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("用户ID,用户名,年龄,邮箱,电话,地址\n");
+            for (int i = 1; i <= rows; i++) {
+                writer.write(i + ",user_" + i + "," + (20 + i % 40) + ",user_" + i + "@example.com,138"
+                        + String.format("%08d", i) + ",城市" + (i % 10) + "区" + (i % 100) + "号\n");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * 请求体直接写出到连接，上传文件时不在内存中缓冲整个文件
+     */
+    private static SimpleClientHttpRequestFactory unbufferedRequestFactory() {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setBufferRequestBody(false);
+        return factory;
+    }
+
+    /**
+     * 单个任务的执行结果
+     */
+    private static class TaskResult {
+
+        private final String type;
+
+        private final String status;
+
+        private final long latencyMs;
+
+        private final long processedRows;
+
+        private final String error;
+
+        TaskResult(String type, String status, long latencyMs, long processedRows, String error) {
+            this.type = type;
+            this.status = status;
+            this.latencyMs = latencyMs;
+            this.processedRows = processedRows;
+            this.error = error;
+        }
+
+        static TaskResult error(String type, String error) {
+            return new TaskResult(type, "ERROR", 0, 0, error);
+        }
+    }
+
+    /**
+     * 通过 actuator 采样服务端资源使用情况
+     */
+    private class ResourceSampler {
+
+        private final String actuatorUrl;
+
+        private final List<Double> cpuSamples = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile double maxHeapUsed;
+
+        private volatile double maxLiveThreads;
+
+        private volatile String lastError;
+
+        ResourceSampler(String actuatorUrl) {
+            this.actuatorUrl = actuatorUrl;
+        }
+
+        void sample() {
+            try {
+                cpuSamples.add(readMetric("process.cpu.usage", null));
+                maxHeapUsed = Math.max(maxHeapUsed, readMetric("jvm.memory.used", "area:heap"));
+                maxLiveThreads = Math.max(maxLiveThreads, readMetric("jvm.threads.live", null));
+            } catch (Exception e) {
+                lastError = e.getMessage();
+            }
+        }
+
+        private double readMetric(String name, String tag) {
+            String url = actuatorUrl + "/metrics/" + name + (tag == null ? "" : "?tag=" + tag);
+            Map<?, ?> response = restTemplate.getForObject(url, Map.class);
+            List<?> measurements = (List<?>) response.get("measurements");
+            return ((Number) ((Map<?, ?>) measurements.get(0)).get("value")).doubleValue();
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            synchronized (cpuSamples) {
+                summary.put("samples", cpuSamples.size());
+                summary.put("cpuAvg", cpuSamples.stream().mapToDouble(Double::doubleValue).average().orElse(0));
+                summary.put("cpuMax", cpuSamples.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+            }
+            summary.put("heapMaxUsedBytes", (long) maxHeapUsed);
+            summary.put("liveThreadsMax", (long) maxLiveThreads);
+            if (cpuSamples.isEmpty() && lastError != null) {
+                summary.put("error", lastError);
+            }
+            return summary;
+        }
+    }
+}